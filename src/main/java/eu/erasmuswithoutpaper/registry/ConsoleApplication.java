@@ -19,6 +19,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.boot.Banner;
+import org.springframework.boot.ExitCodeGenerator;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnNotWebApplication;
 import org.springframework.context.annotation.ComponentScan;
@@ -39,7 +40,7 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
     RealInternet.class,
     RegistryDomainProvider.class})
 @ConditionalOnNotWebApplication
-public class ConsoleApplication implements ApplicationRunner {
+public class ConsoleApplication implements ApplicationRunner, ExitCodeGenerator {
   @Autowired
   private ApiValidatorsManager apiValidatorsManager;
   @Autowired
@@ -54,6 +55,7 @@ public class ConsoleApplication implements ApplicationRunner {
   private RegistryClient registryClient;
   @Autowired
   private RegistryDomainProvider registryDomainProvider;
+  private int exitCode;
 
   /**
    * Initialize and run Spring application.
@@ -70,6 +72,8 @@ public class ConsoleApplication implements ApplicationRunner {
     Locale.setDefault(Locale.US);
     System.setProperty("spring.profiles.active", "console");
     System.setProperty("logging.level.", "ERROR"); // Set logging level in all packages to ERROR
+    // Console reports cannot link to full bodies, so the snapshots keep them untruncated.
+    System.setProperty("app.validator.max-snapshot-body-kilobytes", "0");
     SpringApplication app = new SpringApplication(ConsoleApplication.class);
 
     // --registry-domain is a convenience wrapper around setting environment variable for Spring.
@@ -83,16 +87,24 @@ public class ConsoleApplication implements ApplicationRunner {
     app.setWebEnvironment(false);
     app.setBannerMode(Banner.Mode.OFF);
     app.setLogStartupInfo(false);
-    app.run(args);
+    int exitCode = SpringApplication.exit(app.run(args));
+    if (exitCode != 0) {
+      System.exit(exitCode);
+    }
   }
 
   @Override
   public void run(ApplicationArguments args) {
     ConsoleValidator consoleValidator = new ConsoleValidator();
 
-    consoleValidator.performValidation(args, this.apiValidatorsManager, this.docBuilder,
-        this.validatorKeyStoreSet, this.converter, this.xmlFormatter, this.registryClient,
-        this.registryDomainProvider.getRegistryDomain());
+    this.exitCode = consoleValidator.performValidation(args, this.apiValidatorsManager,
+        this.docBuilder, this.validatorKeyStoreSet, this.converter, this.xmlFormatter,
+        this.registryClient, this.registryDomainProvider.getRegistryDomain());
+  }
+
+  @Override
+  public int getExitCode() {
+    return this.exitCode;
   }
 
 }
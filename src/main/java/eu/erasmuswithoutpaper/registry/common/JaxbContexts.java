@@ -0,0 +1,161 @@
+package eu.erasmuswithoutpaper.registry.common;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+
+import org.w3c.dom.Node;
+
+/**
+ * A process-wide registry of {@link JAXBContext}s, along with pools of their unmarshallers and
+ * marshallers.
+ *
+ * <p>
+ * Creating a {@link JAXBContext} is very expensive, but contexts are thread-safe, so each set of
+ * bound classes gets its context created only once. Unmarshallers and marshallers are cheaper, but
+ * they are not thread-safe, so they are borrowed from a (bounded) pool for the duration of a single
+ * operation, and reset before being returned to it.
+ * </p>
+ */
+public class JaxbContexts {
+
+  /**
+   * An operation performed with a borrowed unmarshaller or marshaller.
+   *
+   * @param <M> Unmarshaller or Marshaller.
+   * @param <R> The result of the operation.
+   */
+  public interface JaxbAction<M, R> {
+    R apply(M instance) throws JAXBException;
+  }
+
+  /**
+   * Maximum number of idle unmarshallers (and marshallers) kept for a single context.
+   */
+  private static final int MAX_POOLED_PER_CONTEXT = 8;
+
+  private static class Entry {
+    private final JAXBContext context;
+    private final BlockingQueue<Unmarshaller> unmarshallers =
+        new ArrayBlockingQueue<>(MAX_POOLED_PER_CONTEXT);
+    private final BlockingQueue<Marshaller> marshallers =
+        new ArrayBlockingQueue<>(MAX_POOLED_PER_CONTEXT);
+
+    Entry(JAXBContext context) {
+      this.context = context;
+    }
+  }
+
+  private static final ConcurrentMap<List<Class<?>>, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * @param classes The classes to be bound by the context.
+   * @return A shared context for the given classes. It is created on first use.
+   * @throws JAXBException If the context cannot be created.
+   */
+  public static JAXBContext getContext(Class<?>... classes) throws JAXBException {
+    return getEntry(classes).context;
+  }
+
+  /**
+   * Marshal the given object into the given DOM node, with a pooled marshaller.
+   *
+   * @param jaxbElement The object to marshal. Its class is used to find the context.
+   * @param target The node to which the result is appended.
+   * @throws JAXBException If marshalling fails.
+   */
+  public static void marshal(Object jaxbElement, Node target) throws JAXBException {
+    withMarshaller(marshaller -> {
+      marshaller.marshal(jaxbElement, target);
+      return null;
+    }, jaxbElement.getClass());
+  }
+
+  /**
+   * Unmarshal the given DOM node, with a pooled unmarshaller.
+   *
+   * @param node The node to unmarshal.
+   * @param type The expected class of the result. It is also used to find the context.
+   * @param <T> The expected class of the result.
+   * @return The unmarshalled object.
+   * @throws JAXBException If unmarshalling fails, or if the result is not of the expected type.
+   */
+  public static <T> T unmarshal(Node node, Class<T> type) throws JAXBException {
+    Object result = withUnmarshaller(unmarshaller -> unmarshaller.unmarshal(node), type);
+    if (!type.isInstance(result)) {
+      throw new JAXBException("Expected " + type.getName() + ", but "
+          + (result == null ? "nothing" : result.getClass().getName()) + " was unmarshalled.");
+    }
+    return type.cast(result);
+  }
+
+  /**
+   * Perform an operation with a marshaller borrowed from the pool. The marshaller's properties
+   * must not be changed.
+   *
+   * @param action The operation to perform.
+   * @param classes The classes bound by the context of the marshaller.
+   * @param <R> The result of the operation.
+   * @return The result of the operation.
+   * @throws JAXBException If the operation (or the creation of the marshaller) fails.
+   */
+  public static <R> R withMarshaller(JaxbAction<Marshaller, R> action, Class<?>... classes)
+      throws JAXBException {
+    Entry entry = getEntry(classes);
+    Marshaller marshaller = entry.marshallers.poll();
+    if (marshaller == null) {
+      marshaller = entry.context.createMarshaller();
+    }
+    final R result = action.apply(marshaller);
+    marshaller.setEventHandler(null);
+    marshaller.setSchema(null);
+    entry.marshallers.offer(marshaller);
+    return result;
+  }
+
+  /**
+   * Perform an operation with an unmarshaller borrowed from the pool. Its schema and event handler
+   * may be set by the operation, they are reset before the unmarshaller is returned to the pool.
+   *
+   * @param action The operation to perform.
+   * @param classes The classes bound by the context of the unmarshaller.
+   * @param <R> The result of the operation.
+   * @return The result of the operation.
+   * @throws JAXBException If the operation (or the creation of the unmarshaller) fails.
+   */
+  public static <R> R withUnmarshaller(JaxbAction<Unmarshaller, R> action, Class<?>... classes)
+      throws JAXBException {
+    Entry entry = getEntry(classes);
+    Unmarshaller unmarshaller = entry.unmarshallers.poll();
+    if (unmarshaller == null) {
+      unmarshaller = entry.context.createUnmarshaller();
+    }
+    final R result = action.apply(unmarshaller);
+    unmarshaller.setEventHandler(null);
+    unmarshaller.setSchema(null);
+    entry.unmarshallers.offer(unmarshaller);
+    return result;
+  }
+
+  private static Entry getEntry(Class<?>... classes) throws JAXBException {
+    List<Class<?>> key = Arrays.asList(classes.clone());
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      // Two threads might create the same context at once. That's harmless, only one is kept.
+      Entry created = new Entry(JAXBContext.newInstance(classes));
+      entry = entries.putIfAbsent(key, created);
+      if (entry == null) {
+        entry = created;
+      }
+    }
+    return entry;
+  }
+}
@@ -0,0 +1,78 @@
+package eu.erasmuswithoutpaper.registry.common;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Helps to keep files cached on disk in directories which nobody else can tamper with.
+ *
+ * <p>
+ * Some of the cached files (e.g. the catalogue of a remote registry) decide what the validator
+ * trusts, so they must not be read from directories which other local users could have created or
+ * written to. Such directories are placed in the user's home directory by default (and not in the
+ * shared temporary directory), and they are checked before they are used.
+ * </p>
+ */
+public class PrivateDirectories {
+
+  private static final Set<PosixFilePermission> OWNER_ONLY =
+      PosixFilePermissions.fromString("rwx------");
+
+  private static final Set<PosixFilePermission> WRITABLE_BY_OTHERS =
+      EnumSet.of(PosixFilePermission.GROUP_WRITE, PosixFilePermission.OTHERS_WRITE);
+
+  /**
+   * @param name The name of the cache.
+   * @return The default location of the given cache, private to the current user.
+   */
+  public static Path getDefaultCacheDirectory(String name) {
+    return Paths.get(System.getProperty("user.home"), ".cache", "ewp-registry", name);
+  }
+
+  /**
+   * Make sure that the given directory exists, and that it's private to the current user.
+   *
+   * <p>
+   * Missing directories are created with owner-only permissions. Existing directories are accepted
+   * only if they are owned by the current user, and if nobody else is allowed to write to them.
+   * Their permissions are then restricted to the owner only. File systems without POSIX permissions
+   * are not checked.
+   * </p>
+   *
+   * @param directory The directory to check.
+   * @return The same directory.
+   * @throws IOException If the directory cannot be created, or if it cannot be trusted.
+   */
+  public static Path ensurePrivate(Path directory) throws IOException {
+    if (!FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      return Files.createDirectories(directory);
+    }
+    if (!Files.exists(directory)) {
+      Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+    }
+    if (!Files.isDirectory(directory) || Files.isSymbolicLink(directory)) {
+      throw new IOException(directory + " is not a directory.");
+    }
+    UserPrincipal owner = Files.getOwner(directory);
+    if (!owner.getName().equals(System.getProperty("user.name"))) {
+      throw new IOException(directory + " is owned by " + owner.getName()
+          + ", it cannot be trusted.");
+    }
+    Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(directory);
+    if (permissions.stream().anyMatch(WRITABLE_BY_OTHERS::contains)) {
+      throw new IOException(directory + " is writable by other users, it cannot be trusted.");
+    }
+    if (!permissions.equals(OWNER_ONLY)) {
+      Files.setPosixFilePermissions(directory, OWNER_ONLY);
+    }
+    return directory;
+  }
+}
@@ -0,0 +1,100 @@
+package eu.erasmuswithoutpaper.registry.common;
+
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A process-wide cache of decoded RSA public keys.
+ *
+ * <p>
+ * The same public keys are decoded over and over again - every time a manifest is reloaded, the
+ * catalogue is rebuilt, or a response is encrypted. This class makes sure that each distinct key
+ * is parsed only once (as long as it's used often enough to stay in the cache). Keys are identified
+ * by the SHA-256 fingerprint of their encoded form, so the callers may keep decoding Base64 in
+ * whichever way they did before. Only valid keys are cached.
+ * </p>
+ */
+public class RsaPublicKeyCache {
+
+  /**
+   * Maximum number of keys kept in the cache.
+   */
+  private static final int MAX_KEYS = 2048;
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  private static final ThreadLocal<KeyFactory> factories = ThreadLocal.withInitial(() -> {
+    try {
+      return KeyFactory.getInstance("RSA");
+    } catch (NoSuchAlgorithmException e) {
+      throw new RuntimeException(e);
+    }
+  });
+
+  private static final Map<String, RSAPublicKey> keys =
+      Collections.synchronizedMap(new LinkedHashMap<String, RSAPublicKey>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RSAPublicKey> eldest) {
+          return this.size() > MAX_KEYS;
+        }
+      });
+
+  /**
+   * Decode an RSA public key, or get it from the cache, if it has been decoded before.
+   *
+   * @param encoded The {@link X509EncodedKeySpec} of the key (already decoded from Base64).
+   * @return The decoded key.
+   * @throws InvalidKeySpecException If the given data is not a valid RSA public key.
+   */
+  public static RSAPublicKey decode(byte[] encoded) throws InvalidKeySpecException {
+    String fingerprint = DigestUtils.sha256Hex(encoded);
+    RSAPublicKey key = keys.get(fingerprint);
+    if (key != null) {
+      hits.incrementAndGet();
+      return key;
+    }
+    misses.incrementAndGet();
+    PublicKey decoded = factories.get().generatePublic(new X509EncodedKeySpec(encoded));
+    if (!(decoded instanceof RSAPublicKey)) {
+      throw new InvalidKeySpecException("Not an RSA public key.");
+    }
+    key = (RSAPublicKey) decoded;
+    keys.put(fingerprint, key);
+    return key;
+  }
+
+  /**
+   * @param fingerprint SHA-256 fingerprint of the encoded key (lowercase hex).
+   * @return The key, if it has been decoded before, and it's still in the cache.
+   */
+  public static RSAPublicKey getByFingerprint(String fingerprint) {
+    return keys.get(fingerprint);
+  }
+
+  /**
+   * @return The number of lookups which have been served with an already decoded key.
+   */
+  public static long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return The number of lookups which required the key to be decoded.
+   */
+  public static long getMissCount() {
+    return misses.get();
+  }
+}
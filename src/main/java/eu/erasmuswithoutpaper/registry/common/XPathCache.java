@@ -0,0 +1,236 @@
+package eu.erasmuswithoutpaper.registry.common;
+
+import static org.joox.JOOX.$;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+
+import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
+
+import org.joox.JOOX;
+import org.joox.Match;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * A process-wide cache of compiled XPath expressions.
+ *
+ * <p>
+ * {@link Match#xpath(String)} compiles its expression every time it is called. This class allows
+ * hot call sites to evaluate the very same expressions (with the very same semantics - including
+ * the namespace prefix resolution and the lack of variable support) without paying the compilation
+ * cost on each call.
+ * </p>
+ *
+ * <p>
+ * Compiled {@link XPathExpression}s are not thread-safe, so each thread keeps its own bounded set
+ * of them. Expressions are keyed by their source and the prefix map they were compiled with. Hit
+ * and miss counters are shared by all threads.
+ * </p>
+ */
+public class XPathCache {
+
+  /**
+   * Maximum number of compiled expressions kept by a single thread.
+   */
+  private static final int MAX_EXPRESSIONS_PER_THREAD = 512;
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  private static final ThreadLocal<XPathFactory> factories =
+      ThreadLocal.withInitial(XPathFactory::newInstance);
+
+  private static final ThreadLocal<Map<Key, XPathExpression>> expressions =
+      ThreadLocal.withInitial(() -> new LinkedHashMap<Key, XPathExpression>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, XPathExpression> eldest) {
+          return this.size() > MAX_EXPRESSIONS_PER_THREAD;
+        }
+      });
+
+  /**
+   * @return The number of lookups which have been served with an already compiled expression.
+   */
+  public static long getHitCount() {
+    return hits.get();
+  }
+
+  /**
+   * @return The fraction of lookups (between 0.0 and 1.0) which have been served with an already
+   *         compiled expression, or 1.0 if there were no lookups yet.
+   */
+  public static double getHitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 1.0 : (double) hitCount / total;
+  }
+
+  /**
+   * @return The number of lookups which required the expression to be compiled.
+   */
+  public static long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Evaluate an XPath expression against a single DOM node and return all matched elements.
+   *
+   * @param context The context node.
+   * @param expression The XPath expression. Non-element nodes in the result are skipped.
+   * @param prefixMap Namespace prefixes used in the expression.
+   * @return A list of matched {@link Element}s, in document order.
+   */
+  public static List<Element> selectElements(Node context, String expression,
+      Map<String, String> prefixMap) {
+    List<Element> result = new ArrayList<>();
+    collectElements(compile(expression, prefixMap), context, result);
+    return result;
+  }
+
+  /**
+   * A cached equivalent of <code>context.namespaces(KnownNamespace.prefixMap()).xpath(expr)</code>.
+   *
+   * @param context The {@link Match} to evaluate the expression against. The expression is
+   *        evaluated against each of its elements separately.
+   * @param expression The XPath expression.
+   * @return A new {@link Match} with all the matched elements, with {@link KnownNamespace} prefixes
+   *         already bound.
+   */
+  public static Match xpath(Match context, String expression) {
+    return xpath(context, expression, KnownNamespace.prefixMap());
+  }
+
+  /**
+   * A cached equivalent of <code>context.namespaces(prefixMap).xpath(expression)</code>.
+   *
+   * @param context The {@link Match} to evaluate the expression against. The expression is
+   *        evaluated against each of its elements separately.
+   * @param expression The XPath expression.
+   * @param prefixMap Namespace prefixes used in the expression.
+   * @return A new {@link Match} with all the matched elements (without duplicates), with the given
+   *         prefixes already bound.
+   */
+  public static Match xpath(Match context, String expression, Map<String, String> prefixMap) {
+    XPathExpression compiled = compile(expression, prefixMap);
+    List<Element> found = new ArrayList<>();
+    for (Element elem : context) {
+      collectElements(compiled, elem, found);
+    }
+    if (found.isEmpty()) {
+      return context.filter(JOOX.none()).namespaces(prefixMap);
+    }
+    return $(found.get(0)).add(found.toArray(new Element[found.size()])).namespaces(prefixMap);
+  }
+
+  private static void collectElements(XPathExpression compiled, Node context,
+      List<Element> result) {
+    NodeList nodes;
+    try {
+      nodes = (NodeList) compiled.evaluate(context, XPathConstants.NODESET);
+    } catch (XPathExpressionException e) {
+      throw new RuntimeException(e);
+    }
+    for (int i = 0; i < nodes.getLength(); i++) {
+      Node node = nodes.item(i);
+      if (node.getNodeType() == Node.ELEMENT_NODE) {
+        result.add((Element) node);
+      }
+    }
+  }
+
+  private static XPathExpression compile(String expression, Map<String, String> prefixMap) {
+    Map<Key, XPathExpression> cache = expressions.get();
+    Key key = new Key(expression, prefixMap);
+    XPathExpression compiled = cache.get(key);
+    if (compiled != null) {
+      hits.incrementAndGet();
+      return compiled;
+    }
+    misses.incrementAndGet();
+    XPath xpath = factories.get().newXPath();
+    xpath.setNamespaceContext(new MapNamespaceContext(key.prefixMap));
+    try {
+      compiled = xpath.compile(expression);
+    } catch (XPathExpressionException e) {
+      throw new RuntimeException(e);
+    }
+    cache.put(key, compiled);
+    return compiled;
+  }
+
+  private static class Key {
+    private final String expression;
+    private final Map<String, String> prefixMap;
+    private final int hash;
+
+    Key(String expression, Map<String, String> prefixMap) {
+      this.expression = expression;
+      this.prefixMap = prefixMap;
+      // Prefix maps are rarely different for the same expression, so we don't hash them.
+      this.hash = expression.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return this.expression.equals(other.expression)
+          && (this.prefixMap == other.prefixMap || this.prefixMap.equals(other.prefixMap));
+    }
+
+    @Override
+    public int hashCode() {
+      return this.hash;
+    }
+  }
+
+  /**
+   * Resolves prefixes the same way as {@link Match#xpath(String)} does (unknown prefixes are bound
+   * to the null namespace).
+   */
+  private static class MapNamespaceContext implements NamespaceContext {
+    private final Map<String, String> prefixMap;
+
+    MapNamespaceContext(Map<String, String> prefixMap) {
+      this.prefixMap = new HashMap<>(prefixMap);
+    }
+
+    @Override
+    public String getNamespaceURI(String prefix) {
+      return this.prefixMap.getOrDefault(prefix, XMLConstants.NULL_NS_URI);
+    }
+
+    @Override
+    public String getPrefix(String namespaceUri) {
+      return XMLConstants.DEFAULT_NS_PREFIX;
+    }
+
+    @Override
+    public Iterator<String> getPrefixes(String namespaceUri) {
+      return Collections.emptyIterator();
+    }
+  }
+}
@@ -3,6 +3,7 @@ package eu.erasmuswithoutpaper.registry.configuration;
 import java.util.List;
 
 import eu.erasmuswithoutpaper.registry.common.Severity;
+import eu.erasmuswithoutpaper.registry.internet.RealInternet;
 import eu.erasmuswithoutpaper.registry.notifier.NotifierFlag;
 import eu.erasmuswithoutpaper.registry.notifier.NotifierService;
 import eu.erasmuswithoutpaper.registry.repository.ManifestRepository;
@@ -39,6 +40,7 @@ public class ProductionScheduledTasks {
   private final NotifierService notifier;
   private final ManifestRepository repo;
   private final UptimeChecker uptimeChecker;
+  private final RealInternet internet;
 
   private final NotifierFlag manifestReloadingStatus;
   private final NotifierFlag notificationSendingStatus;
@@ -51,15 +53,17 @@ public class ProductionScheduledTasks {
    * @param repo Needed to trigger pushing changes to remote repository.
    * @param adminEmails Needed for the recipients of error-notification flags.
    * @param uptimeChecker Needed to trigger fetching uptime-stats from remote server.
+   * @param internet Needed to log the statistics of its connection pool.
    */
   @Autowired
   public ProductionScheduledTasks(RegistryUpdater updater, NotifierService notifier,
       ManifestRepository repo, @Value("${app.admin-emails}") List<String> adminEmails,
-      UptimeChecker uptimeChecker) {
+      UptimeChecker uptimeChecker, RealInternet internet) {
     this.updater = updater;
     this.notifier = notifier;
     this.repo = repo;
     this.uptimeChecker = uptimeChecker;
+    this.internet = internet;
 
     this.manifestReloadingStatus = new NotifierFlag(adminEmails) {
       @Override
@@ -94,6 +98,15 @@ public class ProductionScheduledTasks {
     this.notifier.addWatchedFlag(this.uptimeCheckerStatus);
   }
 
+  /**
+   * Log the statistics of the HTTPS connection pool, so that its hit rate (and the time spent on
+   * TLS handshakes) can be followed in the logs.
+   */
+  @Scheduled(initialDelay = 15 * 60000, fixedRate = 15 * 60000)
+  public void logConnectionPoolStats() {
+    logger.info("HTTPS connection pool: " + this.internet.getConnectionPoolStats());
+  }
+
   /**
    * Push all commits to the remote repository (if there are any to be pushed).
    */
@@ -2,17 +2,21 @@ package eu.erasmuswithoutpaper.registry.configuration;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 import eu.erasmuswithoutpaper.registry.repository.CatalogueNotFound;
 import eu.erasmuswithoutpaper.registry.repository.ManifestRepository;
+import eu.erasmuswithoutpaper.registry.web.EwpSecurityFilter;
 import eu.erasmuswithoutpaper.registryclient.CatalogueFetcher;
 import eu.erasmuswithoutpaper.registryclient.ClientImpl;
 import eu.erasmuswithoutpaper.registryclient.ClientImplOptions;
 import eu.erasmuswithoutpaper.registryclient.RegistryClient;
 import eu.erasmuswithoutpaper.registryclient.RegistryClient.RefreshFailureException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -69,6 +73,50 @@ public class WebConfiguration {
     return client;
   }
 
+  /**
+   * An instance of {@link EwpSecurityFilter}, which authorizes EWP clients.
+   *
+   * @param repo
+   *     Needed to fetch the client credentials from the current catalogue.
+   * @param registryClient
+   *     Passed to the underlying authorizers.
+   * @param allowAnonymous
+   *     If true, then requests which don't use any EWP authorization method are let through.
+   * @param maxBodyKilobytes
+   *     Requests with larger bodies are rejected before they are authorized.
+   * @return {@link EwpSecurityFilter} instance (its counters may be read by other beans).
+   */
+  @Autowired
+  @Bean
+  public EwpSecurityFilter getEwpSecurityFilter(ManifestRepository repo,
+      RegistryClient registryClient,
+      @Value("${app.ewp-security-filter.allow-anonymous}") boolean allowAnonymous,
+      @Value("${app.ewp-security-filter.max-body-kilobytes}") int maxBodyKilobytes) {
+    return new EwpSecurityFilter(repo, registryClient, allowAnonymous, maxBodyKilobytes * 1024L);
+  }
+
+  /**
+   * Registers the {@link EwpSecurityFilter} for the configured URL patterns. The filter is
+   * disabled if no patterns are configured.
+   *
+   * @param filter
+   *     The filter to register.
+   * @param urlPatterns
+   *     URL patterns (e.g. "/manifest.xml") for which the filter is used.
+   * @return The registration bean.
+   */
+  @Autowired
+  @Bean
+  public FilterRegistrationBean getEwpSecurityFilterRegistration(EwpSecurityFilter filter,
+      @Value("${app.ewp-security-filter.url-patterns}") String[] urlPatterns) {
+    String[] patterns = Arrays.stream(urlPatterns).map(String::trim).filter(s -> !s.isEmpty())
+        .toArray(String[]::new);
+    FilterRegistrationBean registration = new FilterRegistrationBean(filter);
+    registration.addUrlPatterns(patterns);
+    registration.setEnabled(patterns.length > 0);
+    return registration;
+  }
+
   @Bean
   public ConsoleEnvInfo getConsoleEnvInfo() {
     return new ConsoleEnvInfo(false);
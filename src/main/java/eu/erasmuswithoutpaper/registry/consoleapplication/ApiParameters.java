@@ -177,6 +177,9 @@ public class ApiParameters {
     List<String> apiNames = ApplicationParametersUtils.readParameterAllValues(args, "api");
 
     if (apiNames.isEmpty()) {
+      if (ApplicationParametersUtils.isBatchMode(args)) {
+        return apis;
+      }
       ManifestApiEntry selectedApiEntry = userSelectApi(console, apis);
       if (selectedApiEntry == null) {
         return new ArrayList<>();
@@ -256,7 +259,8 @@ public class ApiParameters {
   }
 
   private static boolean isItAllowedToAskTheUserForParameters(ApplicationArguments args) {
-    return !args.containsOption("use-default-parameters");
+    return !args.containsOption("use-default-parameters")
+        && !ApplicationParametersUtils.isBatchMode(args);
   }
 
   private static String buildParameterWithApiArgumentName(ManifestApiEntry entry,
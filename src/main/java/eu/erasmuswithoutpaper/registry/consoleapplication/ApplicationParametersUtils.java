@@ -41,6 +41,20 @@ public class ApplicationParametersUtils {
     return values.get(0);
   }
 
+  /**
+   * Check if the validator is run in batch mode. In batch mode the user is never prompted, all
+   * APIs, versions and securities are validated by default, and default values are used for
+   * parameters which were not provided.
+   *
+   * @param args
+   *      Arguments passed to the executable.
+   * @return
+   *      True, if --batch was passed.
+   */
+  public static boolean isBatchMode(ApplicationArguments args) {
+    return args.containsOption("batch");
+  }
+
   public static String buildApiNameParameter(ManifestApiEntry entry) {
     return buildApiNameParameter(entry.name, entry.endpoint);
   }
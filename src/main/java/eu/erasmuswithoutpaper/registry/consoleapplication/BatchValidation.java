@@ -0,0 +1,244 @@
+package eu.erasmuswithoutpaper.registry.consoleapplication;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import eu.erasmuswithoutpaper.registry.documentbuilder.EwpDocBuilder;
+import eu.erasmuswithoutpaper.registry.validators.ApiValidatorsManager;
+import eu.erasmuswithoutpaper.registry.validators.HtmlValidationReportFormatter;
+import eu.erasmuswithoutpaper.registry.validators.HttpSecurityDescription;
+import eu.erasmuswithoutpaper.registry.validators.SemanticVersion;
+import eu.erasmuswithoutpaper.registry.validators.ValidationParameters;
+import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
+import eu.erasmuswithoutpaper.registry.validators.web.ManifestApiEntry;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import org.beryx.textio.TextTerminal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs many validations (of all selected APIs, versions and securities) concurrently, without
+ * prompting the user. Used when the validator is run with --batch, e.g. in CI pipelines.
+ */
+public class BatchValidation {
+  private static final Logger logger = LoggerFactory.getLogger(BatchValidation.class);
+
+  static final int DEFAULT_PARALLELISM = 4;
+
+  /**
+   * Exit code used when all validations have passed.
+   */
+  public static final int EXIT_SUCCESS = 0;
+
+  /**
+   * Exit code used when any validation has failed (or crashed).
+   */
+  public static final int EXIT_FAILURES = 1;
+
+  /**
+   * Exit code used when the validations couldn't be run at all (e.g. invalid arguments).
+   */
+  public static final int EXIT_NOT_RUN = 2;
+
+  /**
+   * A single validation to be run.
+   */
+  public static class Task {
+    public final ManifestApiEntry entry;
+    public final SemanticVersion version;
+    public final HttpSecurityDescription security;
+    public final ValidationParameters parameters;
+
+    /**
+     * @param entry
+     *      API to validate.
+     * @param version
+     *      Version of the API.
+     * @param security
+     *      Security to validate.
+     * @param parameters
+     *      Parameters for the validator.
+     */
+    public Task(ManifestApiEntry entry, SemanticVersion version, HttpSecurityDescription security,
+        ValidationParameters parameters) {
+      this.entry = entry;
+      this.version = version;
+      this.security = security;
+      this.parameters = parameters;
+    }
+
+    /**
+     * @return Name identifying this validation in reports, e.g. "iias-2.0.0-SHTT".
+     */
+    public String getName() {
+      return String.format("%s-%s-%s", ApplicationParametersUtils.buildApiNameParameter(this.entry),
+          this.version, this.security);
+    }
+  }
+
+  /**
+   * Result of a single {@link Task}.
+   */
+  public static class Result {
+    public final Task task;
+    public final Date startedDate;
+    public final Date finishedDate;
+    public final List<ValidationStepWithStatus> steps;
+    public final Path htmlReport;
+    public final String error;
+
+    Result(Task task, Date startedDate, Date finishedDate, List<ValidationStepWithStatus> steps,
+        Path htmlReport, String error) {
+      this.task = task;
+      this.startedDate = new Date(startedDate.getTime());
+      this.finishedDate = new Date(finishedDate.getTime());
+      this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+      this.htmlReport = htmlReport;
+      this.error = error;
+    }
+
+    /**
+     * @return True, if the validator has crashed, or if any of its steps has failed.
+     */
+    public boolean isFailed() {
+      return this.error != null
+          || ReportUtils.getWorstStatus(this.steps)
+              .compareTo(ValidationStepWithStatus.Status.FAILURE) >= 0;
+    }
+  }
+
+  private final ApiValidatorsManager apiValidatorsManager;
+  private final EwpDocBuilder docBuilder;
+  private final String registryDomain;
+  private final Path reportDirectory;
+  private final int parallelism;
+  private final TextTerminal<?> textTerminal;
+
+  /**
+   * @param apiValidatorsManager
+   *      Used to find validators.
+   * @param docBuilder
+   *      Used to format the HTML reports.
+   * @param registryDomain
+   *      Domain of the registry, used in the HTML reports.
+   * @param reportDirectory
+   *      Directory in which the reports are written.
+   * @param parallelism
+   *      Maximum number of validations run at the same time.
+   * @param textTerminal
+   *      Terminal on which the progress is printed.
+   */
+  public BatchValidation(ApiValidatorsManager apiValidatorsManager, EwpDocBuilder docBuilder,
+      String registryDomain, Path reportDirectory, int parallelism,
+      TextTerminal<?> textTerminal) {
+    this.apiValidatorsManager = apiValidatorsManager;
+    this.docBuilder = docBuilder;
+    this.registryDomain = registryDomain;
+    this.reportDirectory = reportDirectory;
+    this.parallelism = parallelism;
+    this.textTerminal = textTerminal;
+  }
+
+  /**
+   * Returns help text lines for batch mode parameters.
+   * @return
+   *      List of String that should be a part of help message.
+   */
+  public static List<String> getBatchParametersHelpText() {
+    return Arrays.asList(
+        "  Batch mode:",
+        "    --batch - do not prompt for anything. Unless specified otherwise, all APIs, versions",
+        "              and securities found in the manifest are validated, and default values",
+        "              are used for parameters which were not provided. JUnit XML and JSON",
+        "              summaries are written along with HTML reports. Exit code is 0 if all",
+        "              validations have passed, 1 if any has failed, 2 if they couldn't be run.",
+        "    --parallel=<n> - maximum number of validations run at the same time in batch mode.",
+        "                     Default: " + DEFAULT_PARALLELISM,
+        "    --report-dir=<dir> - directory in which reports are written. Default: current one."
+    );
+  }
+
+  /**
+   * Run all the tasks, and write their HTML reports.
+   *
+   * @param tasks
+   *      Validations to run.
+   * @return
+   *      Results of the validations, in the same order as the tasks.
+   */
+  public List<Result> run(List<Task> tasks) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("batch-validation-");
+    threadFactory.setDaemon(true);
+    ExecutorService executor =
+        Executors.newFixedThreadPool(Math.max(this.parallelism, 1), threadFactory);
+    try {
+      List<Future<Result>> futures = new ArrayList<>();
+      for (Task task : tasks) {
+        futures.add(executor.submit(() -> this.runTask(task)));
+      }
+      List<Result> results = new ArrayList<>();
+      for (Future<Result> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void print(String format, Object... args) {
+    synchronized (this.textTerminal) {
+      this.textTerminal.printf(format, args);
+    }
+  }
+
+  private Result runTask(Task task) {
+    Date startedDate = new Date();
+    this.print("Started %s at %s\n", task.getName(), ReportUtils.getUtcDateString(startedDate));
+    List<ValidationStepWithStatus> steps;
+    try {
+      steps = this.apiValidatorsManager.getApiValidator(task.entry.name, task.entry.endpoint)
+          .runTests(task.entry.url, task.version, task.security, task.parameters);
+    } catch (RuntimeException e) {
+      logger.error("Validation of " + task.getName() + " has crashed", e);
+      this.print("Validation of %s has crashed: %s\n", task.getName(), e);
+      return new Result(task, startedDate, new Date(), Collections.emptyList(), null,
+          e.toString());
+    }
+    Date finishedDate = new Date();
+
+    HtmlValidationReportFormatter.ValidationInfoParameters validationInfoParameters =
+        new HtmlValidationReportFormatter.ValidationInfoParameters(task.entry.name,
+            task.entry.url, task.version.toString(), task.security, startedDate, null);
+    String htmlReport = ReportUtils.generateHtmlReport(steps, validationInfoParameters,
+        this.docBuilder, this.registryDomain);
+    Path file = this.reportDirectory.resolve(ReportUtils.getHtmlReportFileName(task.entry,
+        task.version, task.security, startedDate));
+    try {
+      Files.write(file, Collections.singletonList(htmlReport), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      logger.error("Cannot write " + file, e);
+      file = null;
+    }
+    this.print("Finished %s at %s, %s\n", task.getName(),
+        ReportUtils.getUtcDateString(finishedDate), ReportUtils.getWorstStatus(steps));
+    return new Result(task, startedDate, finishedDate, steps, file, null);
+  }
+}
@@ -6,13 +6,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.KeyPair;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
-import java.util.TimeZone;
 
 import eu.erasmuswithoutpaper.registry.common.KeyPairAndCertificate;
 import eu.erasmuswithoutpaper.registry.common.KeyStoreUtilsException;
@@ -75,6 +73,7 @@ public class ConsoleValidator {
     List<String> versionParameter = VersionParameters.getVersionParameterHelpText();
     List<String> securityParam = SecurityParameters.getSecurityParameterHelpText();
     List<String> apisParameters = ApiParameters.getApisParametersHelpText();
+    List<String> batchParameters = BatchValidation.getBatchParametersHelpText();
 
     List<String> helpText = AbstractValidationSuite.concatArrays(
         helpTextHeaders,
@@ -82,7 +81,8 @@ public class ConsoleValidator {
         apiParameter,
         versionParameter,
         securityParam,
-        apisParameters
+        apisParameters,
+        batchParameters
     );
 
     textTerminal.println(helpText);
@@ -155,7 +155,7 @@ public class ConsoleValidator {
     return args.containsOption("help") || args.containsOption("h");
   }
 
-  private void validate(ApplicationArguments args, TextIO console, TextTerminal<?> textTerminal,
+  private int validate(ApplicationArguments args, TextIO console, TextTerminal<?> textTerminal,
       String registryDomain)
       throws ApplicationArgumentException, IOException, KeyStoreUtilsException {
     textTerminal.printf("Using registry located at https://%s/\n", registryDomain);
@@ -165,7 +165,7 @@ public class ConsoleValidator {
 
     if (this.tlsDisabled && this.httpSigDisabled) {
       textTerminal.println("Keys not provided, exiting. Use '--help' parameter to get help.");
-      return;
+      return BatchValidation.EXIT_NOT_RUN;
     }
 
     String manifest = ApiParameters.readManifestFromUrl(manifestUrl);
@@ -175,7 +175,7 @@ public class ConsoleValidator {
       doc = this.converter.buildToV5(manifest.getBytes(StandardCharsets.UTF_8), null);
     } catch (ManifestConverter.NotValidManifest e) {
       textTerminal.println("This manifest file is not valid, terminating.");
-      return;
+      return BatchValidation.EXIT_NOT_RUN;
     }
 
     String filteredContents = this.xmlFormatter.format(doc);
@@ -183,18 +183,20 @@ public class ConsoleValidator {
         .readApisFromManifest(filteredContents, apiValidatorsManager);
     if (apis.isEmpty()) {
       textTerminal.println("No API found in provided manifest file, terminating.");
-      return;
+      return BatchValidation.EXIT_NOT_RUN;
     }
     List<ManifestApiEntry> selectedApiEntries =
         ApiParameters.getSelectedApiEntries(apis, args, console);
     if (selectedApiEntries.isEmpty()) {
       textTerminal.println("API was not selected, terminating.");
-      return;
+      return BatchValidation.EXIT_NOT_RUN;
     }
 
     List<ManifestApiEntry> filteredApiEntries = VersionParameters
         .filterApiEntriesVersions(selectedApiEntries, args);
 
+    boolean batchMode = ApplicationParametersUtils.isBatchMode(args);
+    List<BatchValidation.Task> batchTasks = new ArrayList<>();
     for (ManifestApiEntry entry : filteredApiEntries) {
       List<HttpSecurityDescription> securities = SecurityParameters.getSelectedSecurity(
           entry.securities, ApplicationParametersUtils.buildApiNameParameter(entry), args, console,
@@ -211,12 +213,77 @@ public class ConsoleValidator {
         continue;
       }
 
+      ValidationParameters batchParameters = null;
+      if (batchMode && !securities.isEmpty()) {
+        batchParameters = ApiParameters.getParametersForApi(entry, args, console);
+      }
       for (HttpSecurityDescription security : securities) {
-        runTestsAndGenerateReport(
-            entry, semanticVersion, security, args, registryDomain, textTerminal, console
-        );
+        if (batchMode) {
+          batchTasks.add(
+              new BatchValidation.Task(entry, semanticVersion, security, batchParameters));
+        } else {
+          runTestsAndGenerateReport(
+              entry, semanticVersion, security, args, registryDomain, textTerminal, console
+          );
+        }
       }
     }
+
+    if (!batchMode) {
+      return BatchValidation.EXIT_SUCCESS;
+    }
+    return runBatch(batchTasks, args, registryDomain, textTerminal);
+  }
+
+  private int runBatch(List<BatchValidation.Task> tasks, ApplicationArguments args,
+      String registryDomain, TextTerminal<?> textTerminal)
+      throws ApplicationArgumentException, IOException {
+    if (tasks.isEmpty()) {
+      textTerminal.println("Nothing to validate, terminating.");
+      return BatchValidation.EXIT_NOT_RUN;
+    }
+    String parallelParameter =
+        ApplicationParametersUtils.readParameter(args, "parallel", "n", false);
+    int parallelism = BatchValidation.DEFAULT_PARALLELISM;
+    if (parallelParameter != null) {
+      try {
+        parallelism = Integer.parseInt(parallelParameter);
+      } catch (NumberFormatException e) {
+        throw new ApplicationArgumentException("Expected '--parallel' to be a number.");
+      }
+      if (parallelism < 1) {
+        throw new ApplicationArgumentException("Expected '--parallel' to be at least 1.");
+      }
+    }
+    String reportDirParameter =
+        ApplicationParametersUtils.readParameter(args, "report-dir", "dir", false);
+    Path reportDirectory = Paths.get(reportDirParameter != null ? reportDirParameter : ".");
+    Files.createDirectories(reportDirectory);
+
+    Date startedDate = new Date();
+    textTerminal.printf("Running %d validations, at most %d at a time.\n", tasks.size(),
+        parallelism);
+    List<BatchValidation.Result> results = new BatchValidation(this.apiValidatorsManager,
+        this.docBuilder, registryDomain, reportDirectory, parallelism, textTerminal).run(tasks);
+
+    String summaryName = "test-results-" + ReportUtils.getUtcDateString(startedDate);
+    Path junitFile = reportDirectory.resolve(summaryName + ".xml");
+    Files.write(junitFile, Collections.singletonList(
+        this.xmlFormatter.format(ReportUtils.generateJunitReport(results))),
+        StandardCharsets.UTF_8);
+    Path jsonFile = reportDirectory.resolve(summaryName + ".json");
+    Files.write(jsonFile, Collections.singletonList(ReportUtils.generateJsonReport(results)),
+        StandardCharsets.UTF_8);
+
+    long failed = results.stream().filter(BatchValidation.Result::isFailed).count();
+    textTerminal.printf("\n%d of %d validations failed.\n", failed, results.size());
+    for (BatchValidation.Result result : results) {
+      if (result.isFailed()) {
+        textTerminal.printf("FAILED: %s\n", result.task.getName());
+      }
+    }
+    textTerminal.printf("Summaries were saved to %s and %s\n", junitFile, jsonFile);
+    return failed > 0 ? BatchValidation.EXIT_FAILURES : BatchValidation.EXIT_SUCCESS;
   }
 
   private void runTestsAndGenerateReport(ManifestApiEntry entry, SemanticVersion semanticVersion,
@@ -234,7 +301,8 @@ public class ConsoleValidator {
 
     Date validationStartedDate = new Date();
 
-    textTerminal.printf("Started tests at %s\n", getUtcDateString(validationStartedDate));
+    textTerminal.printf("Started tests at %s\n",
+        ReportUtils.getUtcDateString(validationStartedDate));
     List<ValidationStepWithStatus> report = runTests(console, entry, security,
         semanticVersion, requestParameters);
 
@@ -243,7 +311,7 @@ public class ConsoleValidator {
             entry.name, entry.url, semanticVersion.toString(), security, validationStartedDate, null
         );
 
-    textTerminal.printf("Finished tests at %s\n", getUtcDateString(new Date()));
+    textTerminal.printf("Finished tests at %s\n", ReportUtils.getUtcDateString(new Date()));
 
     String htmlReport = ReportUtils.generateHtmlReport(
         report, validationInfoParameters, docBuilder, registryDomain
@@ -251,9 +319,8 @@ public class ConsoleValidator {
     String reportSummary = ReportUtils.generateReportSummary(report);
     textTerminal.println(reportSummary);
 
-    String resultFileName = String.format("test-result-%s-%s-%s-%s.html",
-        ApplicationParametersUtils.buildApiNameParameter(entry), semanticVersion, security,
-        getUtcDateString(validationStartedDate)
+    String resultFileName = ReportUtils.getHtmlReportFileName(
+        entry, semanticVersion, security, validationStartedDate
     );
 
     Path file = Paths.get(resultFileName);
@@ -271,13 +338,6 @@ public class ConsoleValidator {
         .runTests(entry.url, semanticVersion, securityDescription, userParameters);
   }
 
-  private static String getUtcDateString(Date date) {
-    TimeZone tz = TimeZone.getTimeZone("UTC");
-    DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH-mm-ss'Z'");
-    df.setTimeZone(tz);
-    return df.format(date);
-  }
-
   /**
    * Reads the parameters, asks the user about missing values and performs tests.
    * @param args
@@ -296,8 +356,10 @@ public class ConsoleValidator {
    *      Used to fetch data from the registry.
    * @param registryDomain
    *      Domain (without https:// and trailing slash) where the registry can be found.
+   * @return
+   *      Exit code. Non-zero only in batch mode, if validations have failed or couldn't be run.
    */
-  public void performValidation(
+  public int performValidation(
       ApplicationArguments args,
       ApiValidatorsManager apiValidatorsManager,
       EwpDocBuilder docBuilder,
@@ -321,14 +383,17 @@ public class ConsoleValidator {
 
     if (isHelpParameterPresent(args)) {
       printHelp(textTerminal, apiValidatorsManager);
-      return;
+      return BatchValidation.EXIT_SUCCESS;
     }
 
+    int exitCode;
     try {
-      validate(args, console, textTerminal, registryDomain);
+      exitCode = validate(args, console, textTerminal, registryDomain);
     } catch (ApplicationArgumentException | IOException | KeyStoreUtilsException e) {
       textTerminal.println(e.getMessage());
       textTerminal.println("\nUse --help parameter to get help.");
+      exitCode = BatchValidation.EXIT_NOT_RUN;
     }
+    return ApplicationParametersUtils.isBatchMode(args) ? exitCode : BatchValidation.EXIT_SUCCESS;
   }
 }
@@ -3,20 +3,36 @@ package eu.erasmuswithoutpaper.registry.consoleapplication;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
 
+import eu.erasmuswithoutpaper.registry.common.Utils;
 import eu.erasmuswithoutpaper.registry.documentbuilder.EwpDocBuilder;
 import eu.erasmuswithoutpaper.registry.validators.HtmlValidationReportFormatter;
+import eu.erasmuswithoutpaper.registry.validators.HttpSecurityDescription;
+import eu.erasmuswithoutpaper.registry.validators.SemanticVersion;
 import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
+import eu.erasmuswithoutpaper.registry.validators.web.ManifestApiEntry;
 
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
 import com.mitchellbosecke.pebble.PebbleEngine;
 import com.mitchellbosecke.pebble.error.PebbleException;
 import com.mitchellbosecke.pebble.loader.ClasspathLoader;
 import com.mitchellbosecke.pebble.template.PebbleTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 
 public class ReportUtils {
   private static final Logger logger = LoggerFactory.getLogger(ReportUtils.class);
@@ -30,10 +46,7 @@ public class ReportUtils {
    */
   public static String generateReportSummary(List<ValidationStepWithStatus> steps) {
     List<String> results = new ArrayList<>();
-    ValidationStepWithStatus.Status worstStatus =
-        steps.stream().map(ValidationStepWithStatus::getStatus).max(
-            ValidationStepWithStatus.Status::compareTo)
-            .orElse(ValidationStepWithStatus.Status.SUCCESS);
+    ValidationStepWithStatus.Status worstStatus = getWorstStatus(steps);
     results.add(String.format("RESULT: %s", worstStatus));
     results.add(String.format("Run %s tests", steps.size()));
     for (ValidationStepWithStatus.Status status : ValidationStepWithStatus.Status.values()) {
@@ -98,4 +111,176 @@ public class ReportUtils {
 
     return writer.toString();
   }
+
+  /**
+   * @param steps
+   *      Descriptions of run tests.
+   * @return
+   *      The most severe status of the given tests (SUCCESS if there are none).
+   */
+  public static ValidationStepWithStatus.Status getWorstStatus(
+      List<ValidationStepWithStatus> steps) {
+    return steps.stream().map(ValidationStepWithStatus::getStatus)
+        .max(ValidationStepWithStatus.Status::compareTo)
+        .orElse(ValidationStepWithStatus.Status.SUCCESS);
+  }
+
+  static String getUtcDateString(Date date) {
+    TimeZone tz = TimeZone.getTimeZone("UTC");
+    DateFormat df = new SimpleDateFormat("yyyy-MM-dd'T'HH-mm-ss'Z'");
+    df.setTimeZone(tz);
+    return df.format(date);
+  }
+
+  static String getHtmlReportFileName(ManifestApiEntry entry, SemanticVersion semanticVersion,
+      HttpSecurityDescription security, Date validationStartedDate) {
+    return String.format("test-result-%s-%s-%s-%s.html",
+        ApplicationParametersUtils.buildApiNameParameter(entry), semanticVersion, security,
+        getUtcDateString(validationStartedDate)
+    );
+  }
+
+  private static String formatSeconds(Date from, Date to) {
+    return String.format(Locale.ROOT, "%.3f", (to.getTime() - from.getTime()) / 1000.0);
+  }
+
+  /**
+   * Generates a JSON summary of validations run in batch mode.
+   * @param results
+   *      Results of the validations.
+   * @return
+   *      JSON as a String, with an entry (including all the steps) for every validation.
+   */
+  public static String generateJsonReport(List<BatchValidation.Result> results) {
+    JsonArray validations = new JsonArray();
+    boolean failed = false;
+    for (BatchValidation.Result result : results) {
+      failed |= result.isFailed();
+      JsonObject validation = new JsonObject();
+      validation.addProperty("name", result.task.getName());
+      validation.addProperty("api", result.task.entry.name);
+      validation.addProperty("endpoint", result.task.entry.endpoint.toString());
+      validation.addProperty("version", result.task.version.toString());
+      validation.addProperty("security", result.task.security.toString());
+      validation.addProperty("url", result.task.entry.url);
+      validation.addProperty("status", result.error != null ? "CRASHED"
+          : getWorstStatus(result.steps).toString());
+      validation.addProperty("failed", result.isFailed());
+      validation.addProperty("started",
+          DateTimeFormatter.ISO_INSTANT.format(result.startedDate.toInstant()));
+      validation.addProperty("finished",
+          DateTimeFormatter.ISO_INSTANT.format(result.finishedDate.toInstant()));
+      if (result.htmlReport != null) {
+        validation.addProperty("htmlReport", result.htmlReport.toString());
+      }
+      if (result.error != null) {
+        validation.addProperty("error", result.error);
+      }
+      JsonArray steps = new JsonArray();
+      for (ValidationStepWithStatus step : result.steps) {
+        JsonObject stepJson = new JsonObject();
+        stepJson.addProperty("name", step.getName());
+        stepJson.addProperty("status", step.getStatus().toString());
+        stepJson.addProperty("message", step.getMessage());
+        steps.add(stepJson);
+      }
+      validation.add("steps", steps);
+      validations.add(validation);
+    }
+    JsonObject root = new JsonObject();
+    root.addProperty("failed", failed);
+    root.add("validations", validations);
+    return new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create().toJson(root);
+  }
+
+  /**
+   * Generates a JUnit XML summary of validations run in batch mode, so that it can be displayed by
+   * CI servers. Every validation is a test suite, and every step is a test case.
+   * @param results
+   *      Results of the validations.
+   * @return
+   *      JUnit XML document.
+   */
+  public static Document generateJunitReport(List<BatchValidation.Result> results) {
+    Document doc = Utils.newSecureDocumentBuilder().newDocument();
+    Element testSuites = doc.createElement("testsuites");
+    testSuites.setAttribute("name", "EWP API Validator");
+    doc.appendChild(testSuites);
+    int totalTests = 0;
+    int totalFailures = 0;
+    int totalErrors = 0;
+    for (BatchValidation.Result result : results) {
+      Element testSuite = doc.createElement("testsuite");
+      testSuite.setAttribute("name", result.task.getName());
+      testSuite.setAttribute("timestamp",
+          DateTimeFormatter.ISO_INSTANT.format(result.startedDate.toInstant()));
+      testSuite.setAttribute("time", formatSeconds(result.startedDate, result.finishedDate));
+      Element properties = doc.createElement("properties");
+      Element url = doc.createElement("property");
+      url.setAttribute("name", "url");
+      url.setAttribute("value", result.task.entry.url);
+      properties.appendChild(url);
+      testSuite.appendChild(properties);
+
+      int tests = 0;
+      int failures = 0;
+      int errors = 0;
+      int skipped = 0;
+      if (result.error != null) {
+        Element testCase = doc.createElement("testcase");
+        testCase.setAttribute("classname", result.task.getName());
+        testCase.setAttribute("name", "Validation");
+        Element error = doc.createElement("error");
+        error.setAttribute("message", result.error);
+        testCase.appendChild(error);
+        testSuite.appendChild(testCase);
+        tests++;
+        errors++;
+      }
+      for (ValidationStepWithStatus step : result.steps) {
+        Element testCase = doc.createElement("testcase");
+        testCase.setAttribute("classname", result.task.getName());
+        testCase.setAttribute("name", step.getName());
+        Element outcome = null;
+        switch (step.getStatus()) {
+          case FAILURE:
+            outcome = doc.createElement("failure");
+            failures++;
+            break;
+          case ERROR:
+            outcome = doc.createElement("error");
+            errors++;
+            break;
+          case SKIPPED:
+          case PENDING:
+            outcome = doc.createElement("skipped");
+            skipped++;
+            break;
+          default:
+            break;
+        }
+        if (outcome != null) {
+          outcome.setAttribute("type", step.getStatus().toString());
+          String message = Objects.toString(step.getMessage(), "");
+          outcome.setAttribute("message", message);
+          outcome.setTextContent(message);
+          testCase.appendChild(outcome);
+        }
+        testSuite.appendChild(testCase);
+        tests++;
+      }
+      testSuite.setAttribute("tests", Integer.toString(tests));
+      testSuite.setAttribute("failures", Integer.toString(failures));
+      testSuite.setAttribute("errors", Integer.toString(errors));
+      testSuite.setAttribute("skipped", Integer.toString(skipped));
+      testSuites.appendChild(testSuite);
+      totalTests += tests;
+      totalFailures += failures;
+      totalErrors += errors;
+    }
+    testSuites.setAttribute("tests", Integer.toString(totalTests));
+    testSuites.setAttribute("failures", Integer.toString(totalFailures));
+    testSuites.setAttribute("errors", Integer.toString(totalErrors));
+    return doc;
+  }
 }
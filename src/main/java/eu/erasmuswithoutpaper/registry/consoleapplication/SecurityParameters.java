@@ -86,6 +86,9 @@ public class SecurityParameters {
       boolean filterTls,
       boolean filterHttp) throws ApplicationArgumentException {
     String securityOption = readParameter(args, "security", "security", false);
+    if (securityOption == null && ApplicationParametersUtils.isBatchMode(args)) {
+      securityOption = "all";
+    }
     securities = filterDisabledSecurities(securities, filterTls, filterHttp);
     List<String> securityDescriptions;
 
@@ -34,7 +34,7 @@ public class VersionParameters {
         "                      Possible values:",
         "                          latest - selects newest implemented version of the API.",
         "                          all - runs tests for all implemented versions.",
-        "                      Default: latest"
+        "                      Default: latest (all in batch mode)"
     );
   }
 
@@ -80,7 +80,10 @@ public class VersionParameters {
         );
       }
       String versionParameter = readParameter(args, "version", "version", false);
-      if (versionParameter == null || versionParameter.equals("latest")) {
+      if (versionParameter == null) {
+        versionParameter = ApplicationParametersUtils.isBatchMode(args) ? "all" : "latest";
+      }
+      if (versionParameter.equals("latest")) {
         Optional<SemanticVersion> latest = versions.stream().max(SemanticVersion::compareTo);
         if (latest.isPresent()) {
           selectedVersions.put(apiName, Collections.singletonList(latest.get().toString()));
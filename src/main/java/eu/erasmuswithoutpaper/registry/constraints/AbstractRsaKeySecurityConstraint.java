@@ -2,17 +2,16 @@ package eu.erasmuswithoutpaper.registry.constraints;
 
 import static org.joox.JOOX.$;
 
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.List;
 
+import eu.erasmuswithoutpaper.registry.common.RsaPublicKeyCache;
 import eu.erasmuswithoutpaper.registry.common.Severity;
 import eu.erasmuswithoutpaper.registry.common.Utils;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 
 import org.joox.Match;
@@ -37,15 +36,8 @@ public abstract class AbstractRsaKeySecurityConstraint implements ManifestConstr
   public List<FailedConstraintNotice> filter(Document doc) {
     List<FailedConstraintNotice> notices = new ArrayList<>();
 
-    KeyFactory rsaFactory;
-    try {
-      rsaFactory = KeyFactory.getInstance("RSA");
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException(e);
-    }
-
     Match root = $(doc).namespaces(KnownNamespace.prefixMap());
-    Match keyElems = root.xpath(this.getXPath());
+    Match keyElems = XPathCache.xpath(root, this.getXPath());
     for (int i = 0; i < keyElems.size(); i++) {
 
       Match keyElem = keyElems.eq(i);
@@ -55,7 +47,7 @@ public abstract class AbstractRsaKeySecurityConstraint implements ManifestConstr
 
       RSAPublicKey publicKey;
       try {
-        publicKey = (RSAPublicKey) rsaFactory.generatePublic(new X509EncodedKeySpec(decoded));
+        publicKey = RsaPublicKeyCache.decode(decoded);
       } catch (InvalidKeySpecException e) {
         keyElem.remove();
         notices.add(new FailedConstraintNotice(Severity.ERROR,
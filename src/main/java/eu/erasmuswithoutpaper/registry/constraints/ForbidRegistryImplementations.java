@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import eu.erasmuswithoutpaper.registry.common.Severity;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 
 import org.joox.Match;
@@ -20,7 +21,7 @@ public class ForbidRegistryImplementations implements ManifestConstraint {
   public List<FailedConstraintNotice> filter(Document doc) {
     List<FailedConstraintNotice> notices = new ArrayList<>(1);
     Match root = $(doc).namespaces(KnownNamespace.prefixMap());
-    Match registryApiEntries = root.xpath("mf5:host/r:apis-implemented/r1:registry");
+    Match registryApiEntries = XPathCache.xpath(root, "mf5:host/r:apis-implemented/r1:registry");
     if (registryApiEntries.isNotEmpty()) {
       registryApiEntries.remove();
       StringBuilder sb = new StringBuilder();
@@ -6,6 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import eu.erasmuswithoutpaper.registry.common.Severity;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 
 import org.joox.Match;
@@ -26,9 +27,9 @@ public class RemoveEmbeddedCatalogues implements ManifestConstraint {
 
     // Search for elements from catalogue and manifest namespaces in suspicious places.
 
-    List<Match> elems = root.xpath("mf5:host/r:apis-implemented//r:*").each();
-    elems.addAll(root.xpath("mf5:host/r:apis-implemented//mf4:*").each());
-    elems.addAll(root.xpath("mf5:host/r:apis-implemented//mf5:*").each());
+    List<Match> elems = XPathCache.xpath(root, "mf5:host/r:apis-implemented//r:*").each();
+    elems.addAll(XPathCache.xpath(root, "mf5:host/r:apis-implemented//mf4:*").each());
+    elems.addAll(XPathCache.xpath(root, "mf5:host/r:apis-implemented//mf5:*").each());
 
     // Remove them.
 
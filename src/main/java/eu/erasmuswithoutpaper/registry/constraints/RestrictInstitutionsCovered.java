@@ -8,6 +8,7 @@ import java.util.regex.Pattern;
 
 import eu.erasmuswithoutpaper.registry.common.Severity;
 import eu.erasmuswithoutpaper.registry.common.Utils;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 
 import org.joox.Match;
@@ -33,7 +34,7 @@ public class RestrictInstitutionsCovered implements ManifestConstraint {
   public List<FailedConstraintNotice> filter(Document doc) {
     List<FailedConstraintNotice> notices = new ArrayList<>();
     Match root = $(doc).namespaces(KnownNamespace.prefixMap());
-    for (Match hei : root.xpath("mf5:host/mf5:institutions-covered/r:hei").each()) {
+    for (Match hei : XPathCache.xpath(root, "mf5:host/mf5:institutions-covered/r:hei").each()) {
       String id = hei.attr("id");
       if (!this.allowedSchacIdRegex.matcher(id).matches()) {
         hei.remove();
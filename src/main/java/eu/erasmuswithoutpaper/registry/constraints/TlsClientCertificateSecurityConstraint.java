@@ -13,6 +13,7 @@ import java.util.List;
 
 import eu.erasmuswithoutpaper.registry.common.Severity;
 import eu.erasmuswithoutpaper.registry.common.Utils;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 
 import org.joox.Match;
@@ -45,7 +46,7 @@ public class TlsClientCertificateSecurityConstraint implements ManifestConstrain
     }
 
     Match root = $(doc).namespaces(KnownNamespace.prefixMap());
-    Match certs = root.xpath("mf5:host/mf5:client-credentials-in-use/mf5:certificate");
+    Match certs = XPathCache.xpath(root, "mf5:host/mf5:client-credentials-in-use/mf5:certificate");
     for (int i = 0; i < certs.size(); i++) {
 
       Match certElem = certs.eq(i);
@@ -10,6 +10,7 @@ import java.util.stream.Collectors;
 
 import eu.erasmuswithoutpaper.registry.common.Severity;
 import eu.erasmuswithoutpaper.registry.common.Utils;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 
 import org.joox.Match;
@@ -56,7 +57,7 @@ public class VerifyApiVersions implements ManifestConstraint {
     List<FailedConstraintNotice> notices = new ArrayList<>();
     Match root = $(doc).namespaces(KnownNamespace.prefixMap());
 
-    for (Match match : root.xpath("mf5:host/r:apis-implemented/*").each()) {
+    for (Match match : XPathCache.xpath(root, "mf5:host/r:apis-implemented/*").each()) {
       String namespaceUri = match.namespaceURI();
       if (!namespaceUri.startsWith("https://github.com/erasmus-without-paper/")) {
         /*
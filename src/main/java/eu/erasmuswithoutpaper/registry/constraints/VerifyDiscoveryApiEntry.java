@@ -7,6 +7,7 @@ import java.util.List;
 
 import eu.erasmuswithoutpaper.registry.common.Severity;
 import eu.erasmuswithoutpaper.registry.common.Utils;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 
 import org.joox.Match;
@@ -32,8 +33,8 @@ public class VerifyDiscoveryApiEntry implements ManifestConstraint {
   public List<FailedConstraintNotice> filter(Document doc) {
     List<FailedConstraintNotice> notices = new ArrayList<>(1);
     Match root = $(doc).namespaces(KnownNamespace.prefixMap());
-    if (!root
-        .xpath("mf5:host/r:apis-implemented/d4:discovery/d4:url | "
+    if (!XPathCache
+        .xpath(root, "mf5:host/r:apis-implemented/d4:discovery/d4:url | "
             + "mf5:host/r:apis-implemented/d5:discovery/d5:url")
         .texts().contains(this.expectedUrl)) {
       StringBuilder sb = new StringBuilder();
@@ -4,17 +4,24 @@ import static org.joox.JOOX.$;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.xml.XMLConstants;
@@ -32,23 +39,32 @@ import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
 import javax.xml.validation.Validator;
 
+import eu.erasmuswithoutpaper.registry.common.JaxbContexts;
 import eu.erasmuswithoutpaper.registry.common.Utils;
 import eu.erasmuswithoutpaper.registry.xmlformatter.XmlFormatter;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
 import com.google.common.collect.Lists;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.commons.io.IOUtils;
 import org.apache.xerces.util.XMLCatalogResolver;
 import org.joox.Match;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
 import org.w3c.dom.ls.LSInput;
 import org.w3c.dom.ls.LSResourceResolver;
 import org.xml.sax.Attributes;
@@ -66,10 +82,39 @@ import org.xml.sax.helpers.XMLFilterImpl;
 @SuppressFBWarnings("SIC_INNER_SHOULD_BE_STATIC_ANON")
 public class EwpDocBuilder {
 
-  private final XmlFormatter xmlFormatter;
-  private final Schema compoundSchema;
+  /**
+   * Maximum number of validators kept by a single thread.
+   */
+  private static final int MAX_VALIDATORS_PER_THREAD = 16;
+
   private static final Logger logger = LoggerFactory.getLogger(EwpDocBuilder.class);
 
+  /**
+   * Compound schemas, indexed by the URL of the XML catalog they are compiled from. They are
+   * compiled only once per process, and shared by all instances of this class.
+   */
+  private static final ConcurrentMap<String, FutureTask<CompiledSchemas>>
+      compiledSchemasByCatalog = new ConcurrentHashMap<>();
+
+  /**
+   * Validators are not thread-safe, but they can be reused (after being reset), so each thread
+   * keeps its own validators, one per schema.
+   */
+  private static final ThreadLocal<Map<Schema, Validator>> validators =
+      ThreadLocal.withInitial(() -> new LinkedHashMap<Schema, Validator>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Schema, Validator> eldest) {
+          return this.size() > MAX_VALIDATORS_PER_THREAD;
+        }
+      });
+
+  private final ResourceLoader resLoader;
+  private final XmlFormatter xmlFormatter;
+  private final String catalogUrl;
+  private final FutureTask<CompiledSchemas> compiledSchemas;
+
   /**
    * @param resLoader
    *     needed for loading XSDs from resources.
@@ -79,24 +124,51 @@ public class EwpDocBuilder {
   @Autowired
   public EwpDocBuilder(ResourceLoader resLoader, XmlFormatter xmlFormatter) {
 
+    this.resLoader = resLoader;
     this.xmlFormatter = xmlFormatter;
 
     /*
-     * 1. Prepare the XMLCatalogResolver.
+     * 1. Locate the XML catalog.
      *
      * It should be able to resolve all known schema namespaceURIs to internal Resources kept in our
      * classpath.
      */
 
     Resource xmlCatalog = resLoader.getResource("classpath:schemas/__index__.xml");
-    String catalogUrl;
     try {
-      catalogUrl = xmlCatalog.getURL().toString();
+      this.catalogUrl = xmlCatalog.getURL().toString();
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-    XMLCatalogResolver baseResolver = new XMLCatalogResolver(new String[]{catalogUrl});
 
+    /*
+     * 2. Compile the compound schema in the background (unless it has already been compiled).
+     *
+     * This is the most expensive part of our startup, and nothing needs the schema until the first
+     * document is built, so we let the rest of the application start in the meantime. We wait for
+     * it once the application is ready (see awaitCompiledSchemas).
+     */
+
+    FutureTask<CompiledSchemas> task =
+        new FutureTask<>(() -> compileSchemas(resLoader, this.catalogUrl, xmlCatalog));
+    FutureTask<CompiledSchemas> existing =
+        compiledSchemasByCatalog.putIfAbsent(this.catalogUrl, task);
+    if (existing == null) {
+      CustomizableThreadFactory threadFactory =
+          new CustomizableThreadFactory("ewp-schema-compiler-");
+      threadFactory.setDaemon(true);
+      threadFactory.newThread(task).start();
+      this.compiledSchemas = task;
+    } else {
+      this.compiledSchemas = existing;
+    }
+  }
+
+  private static SchemaFactory newSchemaFactory(String catalogUrl) {
+
+    /* 1. Prepare the XMLCatalogResolver. */
+
+    XMLCatalogResolver baseResolver = new XMLCatalogResolver(new String[]{catalogUrl});
 
     /*
      * 2. Wrap it in a custom LSResourceResolver.
@@ -138,16 +210,28 @@ public class EwpDocBuilder {
 
     SchemaFactory schemaFactory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
     schemaFactory.setResourceResolver(customResolver);
+    return schemaFactory;
+  }
 
-    /* 4. Get a list of all StreamSources with all our schemas. */
+  private static CompiledSchemas compileSchemas(ResourceLoader resLoader, String catalogUrl,
+      Resource xmlCatalog) {
+    final long start = System.nanoTime();
 
+    /* Read all our schemas, and their target namespaces. */
+
+    Map<String, String> targetNamespaces = new LinkedHashMap<>();
+    Map<String, Set<String>> importedNamespaces = new HashMap<>();
     List<StreamSource> xsdSources = new ArrayList<>();
     try {
       for (Element element : $(xmlCatalog.getInputStream()).find("uri")) {
         String relativePath = $(element).attr("uri");
-        Resource xsd = resLoader.getResource("classpath:schemas/" + relativePath);
-        StreamSource xsdSource = new StreamSource(xsd.getInputStream());
-        xsdSources.add(xsdSource);
+        byte[] xsd = readXsd(resLoader, relativePath);
+        Match schema = $(new ByteArrayInputStream(xsd));
+        String targetNamespace = Strings.nullToEmpty(schema.attr("targetNamespace"));
+        targetNamespaces.put(relativePath, targetNamespace);
+        importedNamespaces.computeIfAbsent(targetNamespace, k -> new HashSet<>())
+            .addAll(schema.find("import").attrs("namespace"));
+        xsdSources.add(new StreamSource(new ByteArrayInputStream(xsd)));
       }
     } catch (IOException e) {
       throw new RuntimeException(e);
@@ -155,16 +239,32 @@ public class EwpDocBuilder {
       throw new RuntimeException(e);
     }
 
-    /* 5. Generate a compound schema. */
+    /* Generate a compound schema. */
+
+    Schema schema = compileSchema(catalogUrl, xsdSources);
+    logger.info("Compiled {} XML schemas in {} ms", xsdSources.size(),
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    return new CompiledSchemas(schema, targetNamespaces, importedNamespaces);
+  }
 
+  private static Schema compileSchema(String catalogUrl, List<StreamSource> xsdSources) {
     try {
-      this.compoundSchema =
-          schemaFactory.newSchema(xsdSources.toArray(new StreamSource[xsdSources.size()]));
+      return newSchemaFactory(catalogUrl)
+          .newSchema(xsdSources.toArray(new StreamSource[xsdSources.size()]));
     } catch (SAXException e) {
+      logger.error("Could not compile the XML schemas", e);
       throw new RuntimeException(e);
     }
   }
 
+  private static byte[] readXsd(ResourceLoader resLoader, String relativePath)
+      throws IOException {
+    Resource xsd = resLoader.getResource("classpath:schemas/" + relativePath);
+    try (InputStream stream = xsd.getInputStream()) {
+      return IOUtils.toByteArray(stream);
+    }
+  }
+
   /**
    * Parse, build and validate an EWP document.
    *
@@ -212,9 +312,9 @@ public class EwpDocBuilder {
       prettyLines = Lists.newArrayList(Splitter.on("\n").split(prettyXml));
     }
 
-    // Validators are not thread-safe (hence, separate instance).
+    // Validate against the schema of the namespaces used in this document only.
 
-    Validator validator = this.compoundSchema.newValidator();
+    Validator validator = getValidator(this.getSchemaFor(doc));
 
     // We will store all errors here.
 
@@ -243,6 +343,9 @@ public class EwpDocBuilder {
       validator.validate(new StreamSource(new ByteArrayInputStream(xml)));
     } catch (IOException | SAXException e) {
       throw new RuntimeException(e);
+    } finally {
+      // The validator is kept for reuse, it shouldn't keep our errors alive.
+      validator.setErrorHandler(null);
     }
 
     // Check if the root element matches requirements.
@@ -327,11 +430,11 @@ public class EwpDocBuilder {
       eventHandler = new IgnoreApisValidationEventHandler(xmlFilter);
       source = new SAXSource(xmlFilter, new InputSource(new ByteArrayInputStream(xml)));
 
-      JAXBContext jc = JAXBContext.newInstance(
+      JAXBContext jc = JaxbContexts.getContext(
           https.github_com.erasmus_without_paper.ewp_specs_api_discovery.tree.stable_v4.Manifest.class,
           https.github_com.erasmus_without_paper.ewp_specs_api_discovery.tree.stable_v5.Manifest.class);
       unmarshaller = jc.createUnmarshaller();
-      unmarshaller.setSchema(this.compoundSchema);
+      unmarshaller.setSchema(this.getCompoundSchema());
       unmarshaller.setEventHandler(eventHandler);
     } catch (JAXBException | ParserConfigurationException | SAXException e) {
       return new BuildResult(false, doc, rootNamespaceUri, rootLocalName,
@@ -367,6 +470,175 @@ public class EwpDocBuilder {
         eventHandler.invalidApisErrors);
   }
 
+  /**
+   * @return The compound schema (of all our XSDs), waiting for its compilation to finish, if
+   *         necessary.
+   */
+  Schema getCompoundSchema() {
+    return this.getCompiledSchemas().compoundSchema;
+  }
+
+  /**
+   * Get a schema suitable for validating the given document.
+   *
+   * <p>
+   * If the document uses only the namespace of its root element, and the namespaces which the XSDs
+   * of the root's namespace import (directly or not), then the schema is compiled only from these
+   * XSDs. Such schemas are much smaller than the compound schema, and validators created from them
+   * are cheaper to use. Validation results are the same as with the compound schema. Documents
+   * using other known namespaces (e.g. in elements matched by wildcards, which the compound schema
+   * validates if it knows their namespace) are validated against the compound schema.
+   * </p>
+   *
+   * @param doc The document to be validated.
+   * @return The schema, possibly cached.
+   */
+  Schema getSchemaFor(Document doc) {
+    CompiledSchemas compiled = this.getCompiledSchemas();
+    String rootNamespace = doc.getDocumentElement().getNamespaceURI();
+    Set<String> scope = compiled.namespaceScopes.get(rootNamespace);
+    if (scope == null || !scope.containsAll(getKnownNamespaces(doc, compiled.knownNamespaces))) {
+      return compiled.compoundSchema;
+    }
+    FutureTask<Schema> task = new FutureTask<>(() -> this.compileScopedSchema(compiled, scope));
+    FutureTask<Schema> existing = compiled.scopedSchemas.putIfAbsent(rootNamespace, task);
+    if (existing == null) {
+      // Compile it in this thread. Other threads needing the same schema will wait for it.
+      existing = task;
+      task.run();
+    }
+    return await(compiled.scopedSchemas, rootNamespace, existing);
+  }
+
+  /**
+   * @return All the namespaces used by the document (including those declared, which may be used
+   *         by xsi:type attributes), which are also present in knownNamespaces.
+   */
+  private static Set<String> getKnownNamespaces(Document doc, Set<String> knownNamespaces) {
+    Set<String> namespaces = new HashSet<>();
+    NodeList elements = doc.getElementsByTagNameNS("*", "*");
+    for (int i = 0; i < elements.getLength(); i++) {
+      Node element = elements.item(i);
+      namespaces.add(element.getNamespaceURI());
+      NamedNodeMap attrs = element.getAttributes();
+      for (int j = 0; j < attrs.getLength(); j++) {
+        Node attr = attrs.item(j);
+        if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attr.getNamespaceURI())) {
+          namespaces.add(attr.getNodeValue());
+        } else {
+          namespaces.add(attr.getNamespaceURI());
+        }
+      }
+    }
+    namespaces.retainAll(knownNamespaces);
+    return namespaces;
+  }
+
+  private Schema compileScopedSchema(CompiledSchemas compiled, Set<String> namespaces) {
+    // Keep the order of our catalog, the same as in the compound schema.
+    List<StreamSource> xsdSources = new ArrayList<>();
+    try {
+      for (Map.Entry<String, String> entry : compiled.targetNamespaces.entrySet()) {
+        if (namespaces.contains(entry.getValue())) {
+          xsdSources.add(
+              new StreamSource(new ByteArrayInputStream(readXsd(this.resLoader, entry.getKey()))));
+        }
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return compileSchema(this.catalogUrl, xsdSources);
+  }
+
+  /**
+   * Wait for the compound schema to be compiled, once the application has started. If it cannot be
+   * compiled, then the application fails to start, instead of failing on the first document built.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void awaitCompiledSchemas() {
+    this.getCompiledSchemas();
+  }
+
+  private CompiledSchemas getCompiledSchemas() {
+    return await(compiledSchemasByCatalog, this.catalogUrl, this.compiledSchemas);
+  }
+
+  /**
+   * Wait for the given task, which has been put into the given cache. Failed tasks are removed
+   * from the cache, so that the next caller can try again.
+   */
+  private static <K, T> T await(ConcurrentMap<K, FutureTask<T>> cache, K key,
+      FutureTask<T> task) {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      cache.remove(key, task);
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private static Validator getValidator(Schema schema) {
+    Map<Schema, Validator> threadValidators = validators.get();
+    Validator validator = threadValidators.get(schema);
+    if (validator == null) {
+      validator = schema.newValidator();
+      threadValidators.put(schema, validator);
+    } else {
+      validator.reset();
+    }
+    return validator;
+  }
+
+  private static final class CompiledSchemas {
+    private final Schema compoundSchema;
+
+    /**
+     * Target namespaces of all our XSDs, indexed by their paths (in the order of our catalog).
+     */
+    private final Map<String, String> targetNamespaces;
+
+    private final Set<String> knownNamespaces;
+
+    /**
+     * For each of the known namespaces, the set of namespaces needed to compile its schema (the
+     * namespace itself, and all the namespaces it imports, directly or not).
+     */
+    private final Map<String, Set<String>> namespaceScopes = new HashMap<>();
+
+    /**
+     * Schemas compiled for the namespaces of {@link #namespaceScopes}, indexed by the namespace of
+     * the root element. Their number is limited by the number of our XSDs.
+     */
+    private final ConcurrentMap<String, FutureTask<Schema>> scopedSchemas =
+        new ConcurrentHashMap<>();
+
+    private CompiledSchemas(Schema compoundSchema, Map<String, String> targetNamespaces,
+        Map<String, Set<String>> importedNamespaces) {
+      this.compoundSchema = compoundSchema;
+      this.targetNamespaces = targetNamespaces;
+      this.knownNamespaces = new HashSet<>(targetNamespaces.values());
+      for (String namespace : this.knownNamespaces) {
+        Set<String> scope = new HashSet<>();
+        Stack<String> pending = new Stack<>();
+        pending.push(namespace);
+        while (!pending.isEmpty()) {
+          String current = pending.pop();
+          if (scope.add(current)) {
+            pending.addAll(importedNamespaces.getOrDefault(current, Collections.emptySet()));
+          }
+        }
+        scope.retainAll(this.knownNamespaces);
+        this.namespaceScopes.put(namespace, Collections.unmodifiableSet(scope));
+      }
+    }
+  }
+
   private static final class IgnoreApisValidationEventHandler implements ValidationEventHandler {
     private final RecordingXmlFilter xmlFilter;
     private final List<BuildError> errors = new ArrayList<>();
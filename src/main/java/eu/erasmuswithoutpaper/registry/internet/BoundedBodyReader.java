@@ -0,0 +1,72 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+/**
+ * Reads response bodies into memory, but refuses to read more than the given number of bytes.
+ *
+ * <p>
+ * The body is read in chunks, and (optionally) its digest is computed while it's being read, so
+ * that it doesn't need to be computed separately later on.
+ * </p>
+ */
+class BoundedBodyReader {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  private final long maxBytes;
+
+  /**
+   * @param maxBytes The maximum number of bytes which can be read from a single stream.
+   */
+  BoundedBodyReader(long maxBytes) {
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return The maximum number of bytes which can be read from a single stream.
+   */
+  long getMaxBytes() {
+    return this.maxBytes;
+  }
+
+  /**
+   * Read the whole stream.
+   *
+   * @param url The URL the stream has been opened for (used in error messages only).
+   * @param stream The stream to read from. It will NOT be closed by this method.
+   * @param declaredLength The length of the body, as declared by the server (e.g. in the
+   *        Content-Length header), or -1 if unknown. It is used to fail early, and to allocate a
+   *        buffer of the right size.
+   * @param digest If not null, then this digest will be updated with all the bytes read.
+   * @return All the bytes read.
+   * @throws ResponseBodyTooLarge If the stream contains more than the allowed number of bytes.
+   *         Reading is aborted as soon as the limit is exceeded.
+   * @throws IOException If reading fails.
+   */
+  byte[] read(String url, InputStream stream, long declaredLength, MessageDigest digest)
+      throws IOException {
+    if (declaredLength > this.maxBytes) {
+      throw new ResponseBodyTooLarge(url, this.maxBytes);
+    }
+    int initialSize = declaredLength >= 0 ? (int) declaredLength : CHUNK_SIZE;
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(initialSize, 32));
+    byte[] chunk = new byte[CHUNK_SIZE];
+    long total = 0;
+    int count;
+    while ((count = stream.read(chunk)) != -1) {
+      total += count;
+      if (total > this.maxBytes) {
+        throw new ResponseBodyTooLarge(url, this.maxBytes);
+      }
+      buffer.write(chunk, 0, count);
+      if (digest != null) {
+        digest.update(chunk, 0, count);
+      }
+    }
+    return buffer.toByteArray();
+  }
+}
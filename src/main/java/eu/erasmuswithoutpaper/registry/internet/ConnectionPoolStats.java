@@ -0,0 +1,114 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+/**
+ * An immutable snapshot of the statistics of the HTTPS connection pool used by
+ * {@link RealInternet}.
+ */
+public class ConnectionPoolStats {
+
+  private final int pooledClients;
+  private final long clientsCreated;
+  private final long clientsReused;
+  private final long requestsMade;
+  private final long connectionsOpened;
+  private final long handshakes;
+  private final long resumedHandshakes;
+  private final long handshakeNanos;
+
+  ConnectionPoolStats(int pooledClients, long clientsCreated, long clientsReused,
+      long requestsMade, CountingSslSocketFactory.Counters connectionCounters) {
+    this.pooledClients = pooledClients;
+    this.clientsCreated = clientsCreated;
+    this.clientsReused = clientsReused;
+    this.requestsMade = requestsMade;
+    this.connectionsOpened = connectionCounters.getSocketsCreated();
+    this.handshakes = connectionCounters.getHandshakes();
+    this.resumedHandshakes = connectionCounters.getResumedHandshakes();
+    this.handshakeNanos = connectionCounters.getHandshakeNanos();
+  }
+
+  /**
+   * @return The average time (in milliseconds) needed to establish a new connection (including
+   *         the TLS handshake), or zero if no handshakes have been completed yet.
+   */
+  public double getAverageHandshakeMillis() {
+    if (this.handshakes == 0) {
+      return 0;
+    }
+    return this.handshakeNanos / 1e6 / this.handshakes;
+  }
+
+  /**
+   * @return The number of clients (created with distinct TLS client certificates) created since
+   *         the start. This is the number of misses of the client pool - each of them required a
+   *         new {@link javax.net.ssl.SSLSocketFactory} (with an empty TLS session cache) to be
+   *         created.
+   */
+  public long getClientsCreated() {
+    return this.clientsCreated;
+  }
+
+  /**
+   * @return The number of requests which have been served by a pooled client (and its cached
+   *         {@link javax.net.ssl.SSLSocketFactory}). This is the number of hits of the client pool.
+   */
+  public long getClientsReused() {
+    return this.clientsReused;
+  }
+
+  /**
+   * @return The number of new connections which had to be opened (i.e. the number of times a
+   *         kept-alive connection could not be reused).
+   */
+  public long getConnectionsOpened() {
+    return this.connectionsOpened;
+  }
+
+  /**
+   * @return The total time (in milliseconds) needed to establish new connections (including their
+   *         TLS handshakes).
+   */
+  public long getHandshakeMillis() {
+    return this.handshakeNanos / 1_000_000;
+  }
+
+  /**
+   * @return The number of TLS handshakes completed on new connections.
+   */
+  public long getHandshakes() {
+    return this.handshakes;
+  }
+
+  /**
+   * @return The number of clients (each with a distinct TLS client certificate) currently kept in
+   *         the pool.
+   */
+  public int getPooledClients() {
+    return this.pooledClients;
+  }
+
+  /**
+   * @return The number of requests made through the pool.
+   */
+  public long getRequestsMade() {
+    return this.requestsMade;
+  }
+
+  /**
+   * @return The number of abbreviated TLS handshakes, i.e. the ones which resumed a previously
+   *         cached TLS session.
+   */
+  public long getResumedHandshakes() {
+    return this.resumedHandshakes;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionPoolStats[pooledClients=" + this.pooledClients + ", clientsCreated="
+        + this.clientsCreated + ", clientsReused=" + this.clientsReused + ", requestsMade="
+        + this.requestsMade + ", connectionsOpened=" + this.connectionsOpened
+        + ", handshakes=" + this.handshakes
+        + ", resumedHandshakes=" + this.resumedHandshakes + ", handshakeMillis="
+        + this.getHandshakeMillis() + "]";
+  }
+}
@@ -0,0 +1,137 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * An {@link SSLSocketFactory} which delegates all its work to another factory, but counts all the
+ * sockets created, and measures their TLS handshakes.
+ *
+ * <p>
+ * {@link javax.net.ssl.HttpsURLConnection} asks its factory for a new socket only when it cannot
+ * reuse a kept-alive one, so the counter tells us how many new TCP (and TLS) connections had to be
+ * established. Handshakes which resumed a session from the delegate's session cache (abbreviated
+ * handshakes) are counted separately.
+ * </p>
+ */
+class CountingSslSocketFactory extends SSLSocketFactory {
+
+  /**
+   * Counters updated by {@link CountingSslSocketFactory}. They might be shared between multiple
+   * factories.
+   */
+  static class Counters {
+
+    private final AtomicLong socketsCreated = new AtomicLong();
+    private final AtomicLong handshakes = new AtomicLong();
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+    private final AtomicLong handshakeNanos = new AtomicLong();
+
+    /**
+     * @return The total time (in nanoseconds) spent between creating the sockets and completing
+     *         their handshakes. For sockets which have been created unconnected, this includes the
+     *         time needed to establish the TCP connection.
+     */
+    long getHandshakeNanos() {
+      return this.handshakeNanos.get();
+    }
+
+    /**
+     * @return The number of completed TLS handshakes.
+     */
+    long getHandshakes() {
+      return this.handshakes.get();
+    }
+
+    /**
+     * @return The number of completed TLS handshakes which resumed a previously cached session.
+     */
+    long getResumedHandshakes() {
+      return this.resumedHandshakes.get();
+    }
+
+    /**
+     * @return The number of sockets created.
+     */
+    long getSocketsCreated() {
+      return this.socketsCreated.get();
+    }
+  }
+
+  private final SSLSocketFactory delegate;
+  private final Counters counters;
+
+  /**
+   * @param delegate The factory to delegate to.
+   * @param counters The counters to be updated. They might be shared between multiple factories.
+   */
+  CountingSslSocketFactory(SSLSocketFactory delegate, Counters counters) {
+    this.delegate = delegate;
+    this.counters = counters;
+  }
+
+  @Override
+  public Socket createSocket() throws IOException {
+    return this.watch(this.delegate.createSocket());
+  }
+
+  @Override
+  public Socket createSocket(InetAddress host, int port) throws IOException {
+    return this.watch(this.delegate.createSocket(host, port));
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port, InetAddress localAddress,
+      int localPort) throws IOException {
+    return this.watch(this.delegate.createSocket(address, port, localAddress, localPort));
+  }
+
+  @Override
+  public Socket createSocket(Socket socket, String host, int port, boolean autoClose)
+      throws IOException {
+    return this.watch(this.delegate.createSocket(socket, host, port, autoClose));
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    return this.watch(this.delegate.createSocket(host, port));
+  }
+
+  @Override
+  public Socket createSocket(String host, int port, InetAddress localHost, int localPort)
+      throws IOException {
+    return this.watch(this.delegate.createSocket(host, port, localHost, localPort));
+  }
+
+  @Override
+  public String[] getDefaultCipherSuites() {
+    return this.delegate.getDefaultCipherSuites();
+  }
+
+  @Override
+  public String[] getSupportedCipherSuites() {
+    return this.delegate.getSupportedCipherSuites();
+  }
+
+  private Socket watch(Socket socket) {
+    this.counters.socketsCreated.incrementAndGet();
+    if (socket instanceof SSLSocket) {
+      long createdNanos = System.nanoTime();
+      long createdMillis = System.currentTimeMillis();
+      ((SSLSocket) socket).addHandshakeCompletedListener(event -> {
+        this.counters.handshakes.incrementAndGet();
+        this.counters.handshakeNanos.addAndGet(System.nanoTime() - createdNanos);
+        // Resumed sessions keep the creation time of the session they have been resumed from.
+        if (event.getSession().getCreationTime() < createdMillis) {
+          this.counters.resumedHandshakes.incrementAndGet();
+        }
+      });
+    }
+    return socket;
+  }
+}
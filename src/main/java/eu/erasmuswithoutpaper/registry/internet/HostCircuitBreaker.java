@@ -0,0 +1,313 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import eu.erasmuswithoutpaper.registry.common.Severity;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps track of remote hosts which fail to respond, and allows {@link RealInternet} to fail fast
+ * when making requests to such hosts.
+ *
+ * <p>
+ * Each host (identified by its name and port) has its own circuit breaker. After a number of
+ * consecutive transport failures (e.g. connection refused or timed out), the breaker gets
+ * {@link State#OPEN} and all requests to this host fail immediately with {@link HostUnavailable}.
+ * Once the open period ends, a single "probe" request is let through ({@link State#HALF_OPEN}). If
+ * it succeeds, the breaker gets {@link State#CLOSED} again. If it fails, the breaker is reopened
+ * for twice as long as before (up to the configured maximum). If the probe doesn't report back
+ * within the same period (e.g. it hung, or its thread died), it is considered lost, and another
+ * probe is let through.
+ * </p>
+ *
+ * <p>
+ * Note, that only transport failures are counted (see {@link #isHostFailure(Throwable)}). The host
+ * is considered to be working as long as it responds to our requests, even if it rejects them (e.g.
+ * with an HTTP error status, or by refusing our TLS client certificate). The breaker is shared by
+ * the manifest updater and the API validator, and the validator sends such requests on purpose.
+ * </p>
+ */
+@Service
+public class HostCircuitBreaker {
+
+  private static final Logger logger = LoggerFactory.getLogger(HostCircuitBreaker.class);
+
+  /**
+   * Possible states of a single host's circuit breaker.
+   */
+  public enum State {
+    /**
+     * Requests are let through.
+     */
+    CLOSED,
+    /**
+     * Requests fail immediately.
+     */
+    OPEN,
+    /**
+     * A single probe request is let through, others fail immediately.
+     */
+    HALF_OPEN
+  }
+
+  /**
+   * Thrown when a request is not made, because the circuit breaker of the target host is open.
+   */
+  @SuppressWarnings("serial")
+  public static class HostUnavailable extends IOException {
+    HostUnavailable(String host, int consecutiveFailures, String lastError, Date retryAfter) {
+      super("Requests to " + host + " are temporarily suspended after " + consecutiveFailures
+          + " consecutive failures (last error: " + lastError + "). Next attempt will be made "
+          + "after " + retryAfter + ".");
+    }
+  }
+
+  /**
+   * An immutable snapshot of a single host's breaker, for displaying purposes.
+   */
+  public static class HostStatus {
+    private final String host;
+    private final State state;
+    private final int consecutiveFailures;
+    private final Date retryAfter;
+    private final String lastError;
+
+    HostStatus(String host, State state, int consecutiveFailures, Date retryAfter,
+        String lastError) {
+      this.host = host;
+      this.state = state;
+      this.consecutiveFailures = consecutiveFailures;
+      this.retryAfter = retryAfter == null ? null : new Date(retryAfter.getTime());
+      this.lastError = lastError;
+    }
+
+    public int getConsecutiveFailures() {
+      return this.consecutiveFailures;
+    }
+
+    public String getHost() {
+      return this.host;
+    }
+
+    public String getLastError() {
+      return this.lastError;
+    }
+
+    /**
+     * @return The time after which the next probe request will be allowed, if the breaker is
+     *         currently open.
+     */
+    public Optional<Date> getRetryAfter() {
+      return Optional.ofNullable(this.retryAfter).map(d -> new Date(d.getTime()));
+    }
+
+    /**
+     * @return {@link Severity#ERROR} if the breaker is open, {@link Severity#WARNING} otherwise.
+     */
+    public Severity getSeverity() {
+      return this.state == State.OPEN ? Severity.ERROR : Severity.WARNING;
+    }
+
+    public State getState() {
+      return this.state;
+    }
+  }
+
+  private class Breaker {
+    private final String host;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openMillis;
+    private long openUntil;
+    private long probeDeadline;
+    private String lastError;
+
+    Breaker(String host) {
+      this.host = host;
+    }
+
+    synchronized void acquire() throws HostUnavailable {
+      if (this.state == State.CLOSED) {
+        return;
+      }
+      long now = HostCircuitBreaker.this.currentTimeMillis();
+      if (this.state == State.OPEN && now >= this.openUntil
+          || this.state == State.HALF_OPEN && now >= this.probeDeadline) {
+        // Let a single probe request through (or replace a probe which never reported back).
+        this.state = State.HALF_OPEN;
+        this.probeDeadline = now + this.openMillis;
+        return;
+      }
+      throw new HostUnavailable(this.host, this.consecutiveFailures, this.lastError,
+          new Date(this.getRetryAfter()));
+    }
+
+    synchronized void onFailure(String error) {
+      this.consecutiveFailures++;
+      this.lastError = error;
+      if (this.state == State.HALF_OPEN) {
+        this.openMillis = Math.min(this.openMillis * 2, HostCircuitBreaker.this.maxOpenMillis);
+        this.open();
+      } else if (this.state == State.CLOSED
+          && this.consecutiveFailures >= HostCircuitBreaker.this.failureThreshold) {
+        this.openMillis = HostCircuitBreaker.this.initialOpenMillis;
+        this.open();
+      }
+    }
+
+    synchronized void onSuccess() {
+      if (this.state != State.CLOSED) {
+        logger.info("Circuit breaker for {} closed.", this.host);
+      }
+      this.state = State.CLOSED;
+      this.consecutiveFailures = 0;
+      this.lastError = null;
+    }
+
+    synchronized HostStatus snapshot() {
+      return new HostStatus(this.host, this.state, this.consecutiveFailures,
+          this.state == State.CLOSED ? null : new Date(this.getRetryAfter()), this.lastError);
+    }
+
+    private long getRetryAfter() {
+      return this.state == State.HALF_OPEN ? this.probeDeadline : this.openUntil;
+    }
+
+    private void open() {
+      this.state = State.OPEN;
+      this.openUntil = HostCircuitBreaker.this.currentTimeMillis() + this.openMillis;
+      logger.info("Circuit breaker for {} opened for {} seconds after {} consecutive failures.",
+          this.host, this.openMillis / 1000, this.consecutiveFailures);
+    }
+  }
+
+  /**
+   * @param error The exception thrown while making a request.
+   * @return True if it means that the host cannot be reached, or that it doesn't respond in time.
+   *         Other errors (e.g. {@link javax.net.ssl.SSLException}) mean that the host is working,
+   *         but has rejected our request.
+   */
+  public static boolean isHostFailure(Throwable error) {
+    return error instanceof ConnectException || error instanceof NoRouteToHostException
+        || error instanceof UnknownHostException || error instanceof SocketTimeoutException;
+  }
+
+  private static String getHostKey(String url) throws MalformedURLException {
+    URL parsed = new URL(url);
+    int port = parsed.getPort() != -1 ? parsed.getPort() : parsed.getDefaultPort();
+    return parsed.getHost().toLowerCase(Locale.ENGLISH) + ":" + port;
+  }
+
+  private final int failureThreshold;
+  private final long initialOpenMillis;
+  private final long maxOpenMillis;
+  private final ConcurrentMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+  /**
+   * @param failureThreshold The number of consecutive failures after which the breaker opens.
+   * @param initialOpenSeconds For how long the breaker stays open after it opens for the first
+   *        time.
+   * @param maxOpenSeconds The maximum time for which the breaker stays open (the open period is
+   *        doubled each time a probe request fails).
+   */
+  @Autowired
+  public HostCircuitBreaker(
+      @Value("${app.internet.circuit-breaker.failure-threshold}") int failureThreshold,
+      @Value("${app.internet.circuit-breaker.initial-open-seconds}") int initialOpenSeconds,
+      @Value("${app.internet.circuit-breaker.max-open-seconds}") int maxOpenSeconds) {
+    this.failureThreshold = failureThreshold;
+    this.initialOpenMillis = initialOpenSeconds * 1000L;
+    this.maxOpenMillis = Math.max(maxOpenSeconds * 1000L, this.initialOpenMillis);
+  }
+
+  /**
+   * Check if a request to the given URL is allowed to be made. Every call to this method which
+   * doesn't throw an exception must be followed with either {@link #onSuccess(String)} or
+   * {@link #onFailure(String, Throwable)} (preferably in a {@code finally} block).
+   *
+   * @param url The URL of the request.
+   * @throws HostUnavailable If the breaker of the URL's host is open.
+   * @throws MalformedURLException If the URL is invalid.
+   */
+  public void acquire(String url) throws HostUnavailable, MalformedURLException {
+    Breaker breaker = this.breakers.get(getHostKey(url));
+    if (breaker != null) {
+      breaker.acquire();
+    }
+  }
+
+  /**
+   * @return The statuses of all the hosts which are currently failing (which have an open breaker,
+   *         or which failed at least once since their last successful response).
+   */
+  public List<HostStatus> getFailingHosts() {
+    List<HostStatus> result = new ArrayList<>();
+    for (Breaker breaker : this.breakers.values()) {
+      HostStatus status = breaker.snapshot();
+      if (status.getConsecutiveFailures() > 0) {
+        result.add(status);
+      }
+    }
+    result.sort(Comparator.comparing(HostStatus::getHost));
+    return result;
+  }
+
+  /**
+   * Record a transport failure of a request made to the given URL.
+   *
+   * @param url The URL of the request.
+   * @param error The error which occurred.
+   */
+  public void onFailure(String url, Throwable error) {
+    try {
+      this.breakers.computeIfAbsent(getHostKey(url), Breaker::new).onFailure(error.toString());
+    } catch (MalformedURLException e) {
+      // No request could have been made to such URL.
+      logger.debug("Ignoring invalid URL: {}", url);
+    }
+  }
+
+  /**
+   * Record a successful response to a request made to the given URL.
+   *
+   * @param url The URL of the request.
+   */
+  public void onSuccess(String url) {
+    try {
+      Breaker breaker = this.breakers.get(getHostKey(url));
+      if (breaker != null) {
+        breaker.onSuccess();
+      }
+    } catch (MalformedURLException e) {
+      // No request could have been made to such URL.
+      logger.debug("Ignoring invalid URL: {}", url);
+    }
+  }
+
+  /**
+   * @return Current time, in milliseconds. May be overridden in tests.
+   */
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+}
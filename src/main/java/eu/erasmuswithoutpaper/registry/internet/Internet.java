@@ -2,6 +2,7 @@ package eu.erasmuswithoutpaper.registry.internet;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This interface will be used by all the other services for accessing resources over the Internet.
@@ -37,6 +38,36 @@ public interface Internet {
 
   Response makeRequest(Request request, Integer timeout) throws IOException;
 
+  /**
+   * Asynchronous variant of {@link #getUrl(String)}.
+   *
+   * @param url The URL at which the contents can be found.
+   * @return A future which will be completed with the contents of the URL, or completed
+   *         exceptionally with the {@link IOException} which {@link #getUrl(String)} would throw.
+   */
+  CompletableFuture<byte[]> getUrlAsync(String url);
+
+  /**
+   * Asynchronous variant of {@link #makeRequest(Request)}.
+   *
+   * @param request Description of the request to be made.
+   * @return A future which will be completed with the response, or completed exceptionally with the
+   *         {@link IOException} which {@link #makeRequest(Request)} would throw.
+   */
+  default CompletableFuture<Response> makeRequestAsync(Request request) {
+    return this.makeRequestAsync(request, null);
+  }
+
+  /**
+   * Asynchronous variant of {@link #makeRequest(Request, Integer)}.
+   *
+   * @param request Description of the request to be made.
+   * @param timeout Connect and read timeout (in milliseconds), or null to use the defaults.
+   * @return A future which will be completed with the response, or completed exceptionally with the
+   *         {@link IOException} which {@link #makeRequest(Request, Integer)} would throw.
+   */
+  CompletableFuture<Response> makeRequestAsync(Request request, Integer timeout);
+
   /**
    * Enqueue an email for sending from the Registry Service to the given recipients. This method
    * should return immediately and never throw any exceptions.
@@ -2,15 +2,21 @@ package eu.erasmuswithoutpaper.registry.internet;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.security.MessageDigest;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
@@ -27,10 +33,11 @@ import org.springframework.core.env.Environment;
 import org.springframework.core.task.TaskExecutor;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import org.apache.commons.io.IOUtils;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,6 +49,17 @@ import org.slf4j.LoggerFactory;
  * Note, that in "development" profile is set, then no emails will be actually sent (to prevent
  * accidentally spamming the users).
  * </p>
+ *
+ * <p>
+ * Asynchronous requests are executed on a dedicated, fixed-size pool of daemon threads (see
+ * <code>app.internet.max-concurrent-async-requests</code> property). Requests above this limit are
+ * queued, so callers may start any number of them without blocking their own threads.
+ * </p>
+ *
+ * <p>
+ * All requests go through the {@link HostCircuitBreaker}, so requests to hosts which are down fail
+ * fast instead of waiting for the timeouts.
+ * </p>
  */
 @Service
 @Profile({ "production", "development", "console" })
@@ -50,12 +68,32 @@ public class RealInternet implements Internet {
 
   private static final Logger logger = LoggerFactory.getLogger(RealInternet.class);
 
+  /**
+   * @return The HTTP status the server has responded with (even if it was an error status), or -1
+   *         if it hasn't responded with any.
+   */
+  private static int getResponseCode(URLConnection conn) {
+    if (!(conn instanceof HttpURLConnection)) {
+      return -1;
+    }
+    try {
+      return ((HttpURLConnection) conn).getResponseCode();
+    } catch (IOException e) {
+      return -1;
+    }
+  }
+
   private final JavaMailSender mailSender;
   private final NotifierFlag emailSendingStatus;
   private final String replyToAddress;
   private final String replyToName;
   private final TaskExecutor taskExecutor;
   private final Environment env;
+  private final SimpleEwpClientPool clientPool = new SimpleEwpClientPool();
+  private final ExecutorService asyncExecutor;
+  private final BoundedBodyReader bodyReader;
+  private final HostCircuitBreaker circuitBreaker;
+  private final int defaultTimeoutMillis;
 
   private volatile Date lastEmailSendingError;
 
@@ -68,13 +106,24 @@ public class RealInternet implements Internet {
    *        asynchronously.
    * @param env needed to check which Spring profiles were activated (and prevent spamming users in
    *        production environments).
+   * @param maxConcurrentAsyncRequests The maximum number of asynchronous requests to be executed at
+   *        the same time.
+   * @param maxResponseBodyMegabytes The maximum size of a response body. Fetching larger bodies
+   *        will be aborted with {@link ResponseBodyTooLarge} exception.
+   * @param circuitBreaker needed to fail fast when making requests to hosts which are down.
+   * @param defaultTimeoutSeconds The connect and read timeout used by
+   *        {@link #makeRequest(Request, Integer)} when no timeout is given.
    */
   @Autowired
   public RealInternet(Optional<JavaMailSender> mailSender,
       @Value("${app.admin-emails}") List<String> adminEmails,
       @Value("${app.instance-name}") String replyToName,
       @Value("${app.reply-to-address}") String replyToAddress, TaskExecutor taskExecutor,
-      Environment env) {
+      Environment env,
+      @Value("${app.internet.max-concurrent-async-requests}") int maxConcurrentAsyncRequests,
+      @Value("${app.internet.max-response-body-megabytes}") int maxResponseBodyMegabytes,
+      HostCircuitBreaker circuitBreaker,
+      @Value("${app.internet.default-timeout-seconds}") int defaultTimeoutSeconds) {
 
     this.mailSender = mailSender.orElse(null);
     this.replyToName = replyToName;
@@ -82,6 +131,13 @@ public class RealInternet implements Internet {
     this.taskExecutor = taskExecutor;
     this.env = env;
 
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("internet-async-");
+    threadFactory.setDaemon(true);
+    this.asyncExecutor = Executors.newFixedThreadPool(maxConcurrentAsyncRequests, threadFactory);
+    this.bodyReader = new BoundedBodyReader(maxResponseBodyMegabytes * 1024L * 1024L);
+    this.circuitBreaker = circuitBreaker;
+    this.defaultTimeoutMillis = defaultTimeoutSeconds * 1000;
+
     this.emailSendingStatus = new NotifierFlag(adminEmails) {
       @Override
       public String getName() {
@@ -91,24 +147,71 @@ public class RealInternet implements Internet {
     this.emailSendingStatus.setStatus(Severity.OK);
   }
 
+  /**
+   * @return Current statistics of the pool of HTTPS connections used by
+   *         {@link #makeRequest(Request, Integer)}.
+   */
+  public ConnectionPoolStats getConnectionPoolStats() {
+    return this.clientPool.getStats();
+  }
+
   @Override
   public byte[] getUrl(String urlString) throws IOException {
     URL url = new URL(urlString);
-    InputStream is = null;
+    this.circuitBreaker.acquire(urlString);
+    URLConnection conn = null;
     try {
-      URLConnection conn = url.openConnection();
+      conn = url.openConnection();
       conn.setConnectTimeout(10000);
       conn.setReadTimeout(10000);
       conn.setAllowUserInteraction(false);
-      is = conn.getInputStream();
-      return IOUtils.toByteArray(is);
-    } finally {
-      if (is != null) {
-        is.close();
+      byte[] result;
+      try (InputStream is = conn.getInputStream()) {
+        result = this.bodyReader.read(urlString, is, conn.getContentLengthLong(), null);
       }
+      this.circuitBreaker.onSuccess(urlString);
+      return result;
+    } catch (ResponseBodyTooLarge e) {
+      // The host did respond. The response was just too large.
+      this.circuitBreaker.onSuccess(urlString);
+      if (conn instanceof HttpURLConnection) {
+        // Make sure the rest of the body won't be read when the connection is cleaned up.
+        ((HttpURLConnection) conn).disconnect();
+      }
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      int status = getResponseCode(conn);
+      if (status >= 500) {
+        // The host has responded, but it's not working properly.
+        this.circuitBreaker.onFailure(urlString, e);
+      } else if (status != -1
+          || e instanceof IOException && !HostCircuitBreaker.isHostFailure(e)) {
+        // E.g. HTTP 404, or a rejected TLS handshake. The host is working.
+        this.circuitBreaker.onSuccess(urlString);
+      } else {
+        this.circuitBreaker.onFailure(urlString, e);
+      }
+      throw e;
+    } catch (Error e) {
+      // The breaker must be told, otherwise it might wait for this request forever.
+      this.circuitBreaker.onFailure(urlString, e);
+      throw e;
     }
   }
 
+  @Override
+  public CompletableFuture<byte[]> getUrlAsync(String url) {
+    CompletableFuture<byte[]> future = new CompletableFuture<>();
+    this.asyncExecutor.execute(() -> {
+      try {
+        future.complete(this.getUrl(url));
+      } catch (IOException | RuntimeException e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
   @Override
   public Response makeRequest(Request request) throws IOException {
     return makeRequest(request, null);
@@ -116,16 +219,51 @@ public class RealInternet implements Internet {
 
   @Override
   public Response makeRequest(Request request, Integer timeout) throws IOException {
+    this.circuitBreaker.acquire(request.getUrl());
+    try {
+      Response response = this.makeRequestUnguarded(request, timeout);
+      this.circuitBreaker.onSuccess(request.getUrl());
+      return response;
+    } catch (ResponseBodyTooLarge e) {
+      // The host did respond. The response was just too large.
+      this.circuitBreaker.onSuccess(request.getUrl());
+      throw e;
+    } catch (IOException e) {
+      if (HostCircuitBreaker.isHostFailure(e)) {
+        this.circuitBreaker.onFailure(request.getUrl(), e);
+      } else {
+        // The host has responded, e.g. it rejected our TLS client certificate (which the
+        // validator does on purpose). It must not stop other requests made to this host.
+        this.circuitBreaker.onSuccess(request.getUrl());
+      }
+      throw e;
+    } catch (RuntimeException | Error e) {
+      // The breaker must be told, otherwise it might wait for this request forever.
+      this.circuitBreaker.onFailure(request.getUrl(), e);
+      throw e;
+    }
+  }
+
+  /**
+   * Same as {@link #makeRequest(Request, Integer)}, but without consulting the circuit breaker.
+   * Note, that this method throws {@link IOException}s only if the server didn't respond at all
+   * (or if it responded with a body which was too large).
+   */
+  private Response makeRequestUnguarded(Request request, Integer timeout) throws IOException {
 
     /* Prepare and make the request. */
 
+    /*
+     * Clients are pooled per TLS client certificate, so that connections (and TLS sessions) can be
+     * reused by subsequent requests made to the same host.
+     */
     SimpleEwpClient client;
     if (request.getClientCertificate().isPresent()) {
       // If certificate is present, then key-pair is also present.
-      client = new SimpleEwpClient(request.getClientCertificate().get(),
+      client = this.clientPool.getClient(request.getClientCertificate().get(),
           request.getClientCertificateKeyPair().get().getPrivate());
     } else {
-      client = new SimpleEwpClient(null, null);
+      client = this.clientPool.getClient(null, null);
     }
     URL url = new URL(request.getUrl());
     HttpsURLConnection conn = client.newConnection(url);
@@ -137,14 +275,16 @@ public class RealInternet implements Internet {
       conn.setDoOutput(true);
     }
 
-    if (timeout != null) {
-      conn.setConnectTimeout(timeout);
-      conn.setReadTimeout(timeout);
-    }
+    // Requests must not hang forever, the circuit breaker relies on them to finish.
+    int timeoutMillis = timeout != null ? timeout : this.defaultTimeoutMillis;
+    conn.setConnectTimeout(timeoutMillis);
+    conn.setReadTimeout(timeoutMillis);
 
     conn.connect();
     if (request.getBody().isPresent()) {
-      conn.getOutputStream().write(request.getBody().get());
+      try (OutputStream os = conn.getOutputStream()) {
+        os.write(request.getBody().get());
+      }
     }
 
     /* Retrieve all variables needed for the response. */
@@ -156,20 +296,47 @@ public class RealInternet implements Internet {
     final Map<String, String> headers = this.convertCommas(conn.getHeaderFields());
 
     // Body
+    /*
+     * Note, that we do not call conn.disconnect() here. Once the body stream is fully read and
+     * closed, the underlying connection is returned to the keep-alive cache and can be reused.
+     */
     byte[] body;
+    MessageDigest digest = DigestUtils.getSha256Digest();
     InputStream bodyStream = conn.getErrorStream();
     try {
       if (bodyStream == null) {
         bodyStream = conn.getInputStream();
       }
-      body = IOUtils.toByteArray(bodyStream);
+      try (InputStream is = bodyStream) {
+        body = this.bodyReader.read(request.getUrl(), is, conn.getContentLengthLong(), digest);
+      }
+    } catch (ResponseBodyTooLarge e) {
+      // Make sure the rest of the body won't be read when the connection is cleaned up.
+      conn.disconnect();
+      throw e;
     } catch (IOException e) {
       body = new byte[0];
+      digest.reset();
+      // The connection is in an unknown state, so it must not be reused.
+      conn.disconnect();
     }
 
-    conn.disconnect();
+    Response response = new Response(status, body, headers);
+    response.setKnownBodyDigest(digest.digest());
+    return response;
+  }
 
-    return new Response(status, body, headers);
+  @Override
+  public CompletableFuture<Response> makeRequestAsync(Request request, Integer timeout) {
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    this.asyncExecutor.execute(() -> {
+      try {
+        future.complete(this.makeRequest(request, timeout));
+      } catch (IOException | RuntimeException e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
   }
 
   @Override
@@ -32,16 +32,18 @@ public class Request {
   /**
    * Make a snapshot of other request.
    *
+   * <p>
+   * The body array is shared with the other request, not copied. Bodies are never modified in
+   * place - {@link #setBody(byte[])} replaces the whole array - so changes made to either of the
+   * requests later on are not visible in the other one.
+   * </p>
+   *
    * @param other The request to copy properties from.
    */
   public Request(Request other) {
     this.method = other.method;
     this.url = other.url;
-    if (other.body.isPresent()) {
-      this.body = Optional.of(other.body.get().clone());
-    } else {
-      this.body = Optional.empty();
-    }
+    this.body = other.body;
     this.headers = new HeaderMap(other.headers);
     if (other.clientCertificate.isPresent()) {
       this.clientCertificate = Optional.of(other.clientCertificate.get());
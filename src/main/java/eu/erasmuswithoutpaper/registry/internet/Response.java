@@ -2,11 +2,14 @@ package eu.erasmuswithoutpaper.registry.internet;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
+import eu.erasmuswithoutpaper.registry.common.Utils;
+
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
@@ -19,6 +22,13 @@ public class Response {
   private final HeaderMap headers;
   private final List<String> processingNoticesHtml;
 
+  /**
+   * Cached Base64-encoded SHA-256 digest of the body, along with the body array it has been
+   * computed for (so that we know when it's no longer valid).
+   */
+  private String bodyDigestBase64;
+  private byte[] digestedBody;
+
   /**
    * Create a new response, without and headers.
    *
@@ -49,13 +59,23 @@ public class Response {
   /**
    * Make a snapshot copy of some other response.
    *
+   * <p>
+   * The body array is shared with the other response, not copied. Bodies are never modified in
+   * place - {@link #setBody(byte[])} replaces the whole array - so changes made to either of the
+   * responses later on are not visible in the other one.
+   * </p>
+   *
    * @param other Other response to copy values from.
    */
   public Response(Response other) {
     this.status = other.status;
-    this.body = other.body.clone();
+    this.body = other.body;
     this.headers = new HeaderMap(other.headers);
     this.processingNoticesHtml = new ArrayList<>(other.processingNoticesHtml);
+    if (other.digestedBody == other.body) {
+      this.bodyDigestBase64 = other.bodyDigestBase64;
+      this.digestedBody = this.body;
+    }
   }
 
   /**
@@ -109,6 +129,18 @@ public class Response {
     return this.body;
   }
 
+  /**
+   * @return Base64-encoded SHA-256 digest of the body. It is computed only once for each body
+   *         (unless it was already computed while the body was being received).
+   */
+  public String getBodyDigestBase64() {
+    if (this.digestedBody != this.body) {
+      this.bodyDigestBase64 = Utils.computeDigestBase64(this.body);
+      this.digestedBody = this.body;
+    }
+    return this.bodyDigestBase64;
+  }
+
   /**
    * @param key Name of the header (case-insensitive).
    * @return Value of the header, or <code>null</code> if not such header exists.
@@ -182,4 +214,14 @@ public class Response {
   public void setBody(byte[] changed) {
     this.body = changed;
   }
+
+  /**
+   * Remember the SHA-256 digest of the current body, computed while the body was being received.
+   *
+   * @param sha256 The binary SHA-256 digest of the current body.
+   */
+  void setKnownBodyDigest(byte[] sha256) {
+    this.bodyDigestBase64 = Base64.getEncoder().encodeToString(sha256);
+    this.digestedBody = this.body;
+  }
 }
@@ -0,0 +1,21 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import java.io.IOException;
+
+/**
+ * Thrown by {@link RealInternet} when the server attempts to send us a response body which is
+ * larger than the configured limit. Reading of the response is aborted as soon as the limit is
+ * exceeded.
+ */
+@SuppressWarnings("serial")
+public class ResponseBodyTooLarge extends IOException {
+
+  /**
+   * @param url The URL which has been fetched.
+   * @param maxBytes The limit which has been exceeded.
+   */
+  public ResponseBodyTooLarge(String url, long maxBytes) {
+    super("The response body received from " + url + " exceeds the limit of " + maxBytes
+        + " bytes. Fetching has been aborted.");
+  }
+}
@@ -21,6 +21,13 @@ import javax.net.ssl.SSLSocketFactory;
 
 /**
  * A simple helper for making new client connections to EWP Network endpoints.
+ *
+ * <p>
+ * All connections created by a single client share the same {@link SSLSocketFactory}. This allows
+ * {@link HttpsURLConnection} to keep these connections alive (and reuse them for subsequent
+ * requests to the same host), and allows TLS sessions to be resumed. Because of that, clients
+ * should be reused (see {@link SimpleEwpClientPool}).
+ * </p>
  */
 class SimpleEwpClient {
 
@@ -66,11 +73,28 @@ class SimpleEwpClient {
    *        certificate will be used when making new connections.
    */
   SimpleEwpClient(X509Certificate cert, PrivateKey key) {
+    this(cert, key, new CountingSslSocketFactory.Counters());
+  }
+
+  /**
+   * Create a new client for the given TLS client certificate.
+   *
+   * @param cert The TLS client certificate to be used. If null, then no client certificate will be
+   *        used when making new connections.
+   * @param key The private key used to generate the certificate. If null, then no TLS client
+   *        certificate will be used when making new connections.
+   * @param counters The counters to be updated whenever a new connection needs to be opened by
+   *        this client (i.e. when none of the kept-alive ones could be reused).
+   */
+  SimpleEwpClient(X509Certificate cert, PrivateKey key,
+      CountingSslSocketFactory.Counters counters) {
+    SSLSocketFactory factory;
     if ((cert != null && key != null)) {
-      this.mySocketFactory = prepareSocketFactory(cert, key);
+      factory = prepareSocketFactory(cert, key);
     } else {
-      this.mySocketFactory = null;
+      factory = HttpsURLConnection.getDefaultSSLSocketFactory();
     }
+    this.mySocketFactory = new CountingSslSocketFactory(factory, counters);
   }
 
   /**
@@ -92,9 +116,7 @@ class SimpleEwpClient {
       throw new RuntimeException("Expecting HTTPS connection, got " + aconn + " instead.");
     }
     HttpsURLConnection conn = (HttpsURLConnection) aconn;
-    if (this.mySocketFactory != null) {
-      conn.setSSLSocketFactory(this.mySocketFactory);
-    }
+    conn.setSSLSocketFactory(this.mySocketFactory);
     return conn;
   }
 }
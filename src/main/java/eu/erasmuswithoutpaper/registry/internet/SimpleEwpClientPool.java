@@ -0,0 +1,99 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import java.security.PrivateKey;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A pool of {@link SimpleEwpClient}s, one per TLS client certificate (and one for requests made
+ * without any client certificate).
+ *
+ * <p>
+ * Reusing the clients allows the underlying connections to be kept alive between the requests (and
+ * TLS sessions to be resumed), so subsequent requests to the same host don't need to go through the
+ * full TCP and TLS handshakes. Each client keeps its own {@link javax.net.ssl.SSLSocketFactory}
+ * (and the session cache of its {@link javax.net.ssl.SSLContext}), so creating it - and throwing
+ * its cached sessions away - happens only once per certificate.
+ * </p>
+ */
+class SimpleEwpClientPool {
+
+  /**
+   * Maximum number of clients kept in the pool. Clients are cheap to create, but the pool should
+   * not grow indefinitely if many different certificates are used.
+   */
+  private static final int MAX_CLIENTS = 32;
+
+  private static final String NO_CERTIFICATE = "";
+
+  private static String getPoolKey(X509Certificate cert, PrivateKey key) {
+    if (cert == null || key == null) {
+      return NO_CERTIFICATE;
+    }
+    try {
+      return DigestUtils.sha256Hex(cert.getEncoded()) + ":"
+          + DigestUtils.sha256Hex(key.getEncoded());
+    } catch (CertificateEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private final Map<String, SimpleEwpClient> clients;
+  private final AtomicLong clientsCreated = new AtomicLong();
+  private final AtomicLong clientsReused = new AtomicLong();
+  private final AtomicLong requestsMade = new AtomicLong();
+  private final CountingSslSocketFactory.Counters connectionCounters =
+      new CountingSslSocketFactory.Counters();
+
+  SimpleEwpClientPool() {
+    this.clients = new LinkedHashMap<String, SimpleEwpClient>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, SimpleEwpClient> eldest) {
+        return this.size() > MAX_CLIENTS;
+      }
+    };
+  }
+
+  /**
+   * Get a client for the given TLS client certificate. This also counts the request for the
+   * statistics, so it should be called once per request made.
+   *
+   * @param cert The TLS client certificate to be used, or null.
+   * @param key The private key of the certificate, or null.
+   * @return A pooled {@link SimpleEwpClient} instance.
+   */
+  SimpleEwpClient getClient(X509Certificate cert, PrivateKey key) {
+    String poolKey = getPoolKey(cert, key);
+    this.requestsMade.incrementAndGet();
+    synchronized (this.clients) {
+      SimpleEwpClient client = this.clients.get(poolKey);
+      if (client == null) {
+        client = new SimpleEwpClient(cert, key, this.connectionCounters);
+        this.clients.put(poolKey, client);
+        this.clientsCreated.incrementAndGet();
+      } else {
+        this.clientsReused.incrementAndGet();
+      }
+      return client;
+    }
+  }
+
+  /**
+   * @return The current statistics of this pool.
+   */
+  ConnectionPoolStats getStats() {
+    int pooledClients;
+    synchronized (this.clients) {
+      pooledClients = this.clients.size();
+    }
+    return new ConnectionPoolStats(pooledClients, this.clientsCreated.get(),
+        this.clientsReused.get(), this.requestsMade.get(), this.connectionCounters);
+  }
+}
@@ -0,0 +1,165 @@
+package eu.erasmuswithoutpaper.registry.internet.sec;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import eu.erasmuswithoutpaper.registry.common.RsaPublicKeyCache;
+import eu.erasmuswithoutpaper.registry.common.Utils;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
+import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
+
+import org.apache.commons.codec.binary.Base64;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * An immutable, fingerprint-indexed snapshot of all client credentials published in a single
+ * version of the catalogue.
+ *
+ * <p>
+ * All lookups are simple hash map lookups, so - unlike the {@link
+ * eu.erasmuswithoutpaper.registryclient.RegistryClient} - they don't depend on the size of the
+ * catalogue. Instances are meant to be built once per catalogue version, and then replaced as a
+ * whole (see {@link #fromCatalogue(String)}).
+ * </p>
+ */
+public class ClientCredentialDirectory {
+
+  /**
+   * A directory without any credentials.
+   */
+  public static final ClientCredentialDirectory EMPTY =
+      new ClientCredentialDirectory(new HashMap<>(), new HashMap<>(), new HashMap<>());
+
+  /**
+   * Build a directory from the contents of the catalogue.
+   *
+   * @param catalogueXml Catalogue contents, as served by the Registry API.
+   * @return A new directory.
+   */
+  public static ClientCredentialDirectory fromCatalogue(String catalogueXml) {
+    Document doc;
+    try {
+      doc = Utils.newSecureDocumentBuilder().parse(new InputSource(new StringReader(catalogueXml)));
+    } catch (SAXException | IOException e) {
+      throw new RuntimeException(e);
+    }
+    Map<String, String> prefixMap = KnownNamespace.prefixMap();
+
+    Map<String, RSAPublicKey> binaries = new HashMap<>();
+    for (Element elem : XPathCache.selectElements(doc,
+        "/r:catalogue/r:binaries/r:rsa-public-key", prefixMap)) {
+      try {
+        binaries.put(elem.getAttribute("sha-256"),
+            RsaPublicKeyCache.decode(Base64.decodeBase64(elem.getTextContent())));
+      } catch (InvalidKeySpecException e) {
+        // Shouldn't happen, the catalogue contains valid keys only. Ignore it.
+        continue;
+      }
+    }
+
+    Map<String, RSAPublicKey> clientKeys = new HashMap<>();
+    Map<String, Set<String>> heisCoveredByClientKey = new HashMap<>();
+    Map<String, Set<String>> heisCoveredByCertificate = new HashMap<>();
+    for (Element host : XPathCache.selectElements(doc, "/r:catalogue/r:host", prefixMap)) {
+      Set<String> heiIds = new TreeSet<>();
+      for (Element heiId : XPathCache.selectElements(host, "r:institutions-covered/r:hei-id",
+          prefixMap)) {
+        heiIds.add(heiId.getTextContent());
+      }
+      for (Element key : XPathCache.selectElements(host,
+          "r:client-credentials-in-use/r:rsa-public-key", prefixMap)) {
+        String fingerprint = key.getAttribute("sha-256");
+        RSAPublicKey publicKey = binaries.get(fingerprint);
+        if (publicKey == null) {
+          continue;
+        }
+        clientKeys.put(fingerprint, publicKey);
+        heisCoveredByClientKey.computeIfAbsent(fingerprint, k -> new TreeSet<>()).addAll(heiIds);
+      }
+      for (Element cert : XPathCache.selectElements(host,
+          "r:client-credentials-in-use/r:certificate", prefixMap)) {
+        heisCoveredByCertificate
+            .computeIfAbsent(cert.getAttribute("sha-256"), k -> new TreeSet<>()).addAll(heiIds);
+      }
+    }
+    return new ClientCredentialDirectory(clientKeys, heisCoveredByClientKey,
+        heisCoveredByCertificate);
+  }
+
+  private static Map<String, Set<String>> freeze(Map<String, Set<String>> map) {
+    Map<String, Set<String>> result = new HashMap<>();
+    for (Map.Entry<String, Set<String>> entry : map.entrySet()) {
+      result.put(entry.getKey(), Collections.unmodifiableSet(entry.getValue()));
+    }
+    return result;
+  }
+
+  private final Map<String, RSAPublicKey> clientKeys;
+  private final Map<String, Set<String>> heisCoveredByClientKey;
+  private final Map<String, Set<String>> heisCoveredByCertificate;
+
+  private ClientCredentialDirectory(Map<String, RSAPublicKey> clientKeys,
+      Map<String, Set<String>> heisCoveredByClientKey,
+      Map<String, Set<String>> heisCoveredByCertificate) {
+    this.clientKeys = clientKeys;
+    this.heisCoveredByClientKey = freeze(heisCoveredByClientKey);
+    this.heisCoveredByCertificate = freeze(heisCoveredByCertificate);
+  }
+
+  /**
+   * @param fingerprint SHA-256 fingerprint of the client's public key (lowercase hex).
+   * @return The key, or <code>null</code> if it hasn't been published as a client key.
+   */
+  public RSAPublicKey findClientKey(String fingerprint) {
+    return this.clientKeys.get(fingerprint);
+  }
+
+  /**
+   * @return The number of distinct client certificates in the directory.
+   */
+  public int getCertificateCount() {
+    return this.heisCoveredByCertificate.size();
+  }
+
+  /**
+   * @return The number of distinct client keys in the directory.
+   */
+  public int getClientKeyCount() {
+    return this.clientKeys.size();
+  }
+
+  /**
+   * @param fingerprint SHA-256 fingerprint of the client certificate (lowercase hex).
+   * @return Unmodifiable set of HEI IDs covered by this certificate (empty if the certificate is
+   *         unknown).
+   */
+  public Set<String> getHeisCoveredByCertificate(String fingerprint) {
+    return this.heisCoveredByCertificate.getOrDefault(fingerprint, Collections.emptySet());
+  }
+
+  /**
+   * @param fingerprint SHA-256 fingerprint of the client's public key (lowercase hex).
+   * @return Unmodifiable set of HEI IDs covered by this key (empty if the key is unknown).
+   */
+  public Set<String> getHeisCoveredByClientKey(String fingerprint) {
+    return this.heisCoveredByClientKey.getOrDefault(fingerprint, Collections.emptySet());
+  }
+
+  /**
+   * @param fingerprint SHA-256 fingerprint of the client certificate (lowercase hex).
+   * @return True, if this certificate has been published as a client certificate.
+   */
+  public boolean isCertificateKnown(String fingerprint) {
+    return this.heisCoveredByCertificate.containsKey(fingerprint);
+  }
+}
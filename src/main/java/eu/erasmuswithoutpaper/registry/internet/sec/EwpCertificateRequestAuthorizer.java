@@ -29,7 +29,7 @@ public class EwpCertificateRequestAuthorizer implements RequestAuthorizer {
           "Expecting client certificate to be used for TLS transport.");
     }
     X509Certificate cert = request.getClientCertificate().get();
-    if (!this.registryClient.isCertificateKnown(cert)) {
+    if (!this.isCertificateKnown(cert)) {
       throw new Http4xx(403,
           "Unknown client certificate (could not find it amongst " + "registered EWP members).");
     }
@@ -45,4 +45,13 @@ public class EwpCertificateRequestAuthorizer implements RequestAuthorizer {
     return "EWP TLS Client Certificate Request Authorizer";
   }
 
+  /**
+   * @param cert The certificate used by the client.
+   * @return True, if the certificate has been published in the EWP Registry Service as a client
+   *         certificate.
+   */
+  protected boolean isCertificateKnown(X509Certificate cert) {
+    return this.registryClient.isCertificateKnown(cert);
+  }
+
 }
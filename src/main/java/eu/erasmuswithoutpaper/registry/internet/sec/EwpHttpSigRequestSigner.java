@@ -2,34 +2,123 @@ package eu.erasmuswithoutpaper.registry.internet.sec;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.security.InvalidKeyException;
 import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.SignatureException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import eu.erasmuswithoutpaper.registry.common.Utils;
 import eu.erasmuswithoutpaper.registry.internet.Request;
 
-import com.google.common.collect.Lists;
 import net.adamcin.httpsig.api.Algorithm;
 import net.adamcin.httpsig.api.Authorization;
-import net.adamcin.httpsig.api.Challenge;
-import net.adamcin.httpsig.api.DefaultKeychain;
-import net.adamcin.httpsig.api.Key;
+import net.adamcin.httpsig.api.Base64;
+import net.adamcin.httpsig.api.Constants;
 import net.adamcin.httpsig.api.RequestContent;
-import net.adamcin.httpsig.api.Signer;
+import net.adamcin.httpsig.ssh.jce.KeyFormat;
 
 /**
  * This {@link RequestSigner} signs requests with EWP HTTP Signatures.
+ *
+ * <p>
+ * The validator signs all its requests with a handful of fixed key pairs, so the signing state
+ * (initialized {@link Signature} instances, one per thread) is prepared once per private key and
+ * shared by all signers using it. Canonical (lowercase, deduplicated) lists of signed headers are
+ * cached too. The produced Authorization headers are the same as the ones which the
+ * {@link net.adamcin.httpsig.api.Signer} would produce.
+ * </p>
  */
 public class EwpHttpSigRequestSigner implements RequestSigner {
 
+  /**
+   * Maximum number of private keys for which the signing state is kept.
+   */
+  private static final int MAX_KEYS = 64;
+
+  /**
+   * Maximum number of distinct header lists kept in {@link #canonicalHeaderLists}.
+   */
+  private static final int MAX_HEADER_LISTS = 256;
+
+  /**
+   * Thread-local {@link Signature} instances, initialized for signing with the given key.
+   */
+  private static final Map<PrivateKey, ThreadLocal<Signature>> signatures =
+      Collections.synchronizedMap(new LinkedHashMap<PrivateKey, ThreadLocal<Signature>>(16, 0.75f,
+          true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PrivateKey, ThreadLocal<Signature>> eldest) {
+          return this.size() > MAX_KEYS;
+        }
+      });
+
+  private static final Map<List<String>, List<String>> canonicalHeaderLists =
+      Collections.synchronizedMap(new LinkedHashMap<List<String>, List<String>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<String>, List<String>> eldest) {
+          return this.size() > MAX_HEADER_LISTS;
+        }
+      });
+
+  /**
+   * Convert the list of headers to sign to the form in which it appears in the signature.
+   *
+   * @param headers Header names, as returned by {@link #getHeadersToSign(Request)}.
+   * @return Unmodifiable list of lowercase header names, without duplicates. If no headers were
+   *         given, then only "date" is signed.
+   */
+  static List<String> getCanonicalHeaders(List<String> headers) {
+    List<String> result = canonicalHeaderLists.get(headers);
+    if (result != null) {
+      return result;
+    }
+    LinkedHashSet<String> names = new LinkedHashSet<>();
+    for (String header : headers) {
+      names.add(header.toLowerCase(Locale.US));
+    }
+    if (names.isEmpty()) {
+      names.add("date");
+    }
+    result = Collections.unmodifiableList(new ArrayList<>(names));
+    canonicalHeaderLists.put(new ArrayList<>(headers), result);
+    return result;
+  }
+
+  /**
+   * @param privateKey The key to sign with.
+   * @return A {@link Signature} initialized for signing with the given key, to be used only by the
+   *         current thread.
+   */
+  private static Signature getSignature(PrivateKey privateKey) {
+    ThreadLocal<Signature> threadLocal =
+        signatures.computeIfAbsent(privateKey, key -> ThreadLocal.withInitial(() -> {
+          Signature signature = KeyFormat.SSH_RSA.getSignatureInstance(Algorithm.RSA_SHA256);
+          try {
+            signature.initSign(key);
+          } catch (InvalidKeyException e) {
+            throw new RuntimeException(e);
+          }
+          return signature;
+        }));
+    return threadLocal.get();
+  }
+
   /**
    * The key pair to be used for signing.
    */
@@ -126,17 +215,7 @@ public class EwpHttpSigRequestSigner implements RequestSigner {
         && (request.getHeader("Authorization") != null)) {
       return;
     }
-    DefaultKeychain keychain = new DefaultKeychain();
-    Key kckey = new MyHttpSigRsaKeyPair(this.getKeyId(), this.getKeyPair());
-    keychain.add(kckey);
-    Signer signer = new Signer(keychain);
-    List<String> headersBeingSigned = this.getHeadersToSign(request).stream()
-        .map(s -> s.toLowerCase(Locale.US)).collect(Collectors.toList());
-    if (headersBeingSigned.size() == 0) {
-      headersBeingSigned.add("date");
-    }
-    signer.rotateKeys(new Challenge("Not verified", headersBeingSigned,
-        Lists.newArrayList(Algorithm.RSA_SHA256)));
+    List<String> headersBeingSigned = getCanonicalHeaders(this.getHeadersToSign(request));
 
     RequestContent.Builder rcb = new RequestContent.Builder();
     rcb.setRequestTarget(request.getMethod(), request.getPathPseudoHeader());
@@ -145,10 +224,16 @@ public class EwpHttpSigRequestSigner implements RequestSigner {
     }
     RequestContent content = rcb.build();
 
-    Authorization authz = signer.sign(content, headersBeingSigned);
-    if (authz == null) {
-      throw new RuntimeException("Could not sign");
+    byte[] signatureBytes;
+    try {
+      Signature signature = getSignature(this.getKeyPair().getPrivate());
+      signature.update(content.getBytesToSign(headersBeingSigned, Constants.CHARSET));
+      signatureBytes = signature.sign();
+    } catch (SignatureException e) {
+      throw new RuntimeException("Could not sign", e);
     }
+    Authorization authz = new Authorization(this.getKeyId(),
+        Base64.toBase64String(signatureBytes), headersBeingSigned, Algorithm.RSA_SHA256);
     request.putHeader("Authorization", authz.getHeaderValue());
   }
 
@@ -218,7 +218,7 @@ public class EwpHttpSigResponseAuthorizer extends TlsResponseAuthorizer {
     if (digestHeader == null) {
       throw new InvalidResponseError("Missing response header: Digest");
     }
-    String expectedSha256Digest = Utils.computeDigestBase64(response.getBody());
+    String expectedSha256Digest = response.getBodyDigestBase64();
     Map<String, String> attrs = this.parseDigestHeaderValue(digestHeader);
     if (!attrs.containsKey("SHA-256")) {
       throw new InvalidResponseError("Missing SHA-256 digest in Digest header");
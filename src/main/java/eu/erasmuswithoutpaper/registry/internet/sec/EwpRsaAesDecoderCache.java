@@ -0,0 +1,74 @@
+package eu.erasmuswithoutpaper.registry.internet.sec;
+
+import java.security.KeyPair;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import eu.erasmuswithoutpaper.rsaaes.EwpRsaAes128GcmDecoder;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A process-wide cache of {@link EwpRsaAes128GcmDecoder}s, one per recipient key pair.
+ *
+ * <p>
+ * The decoders are thread-safe, and each of them keeps its own cache of already unwrapped AES keys,
+ * so it pays off to reuse them, instead of creating a new one (and unwrapping the AES key with RSA
+ * again) for every message. Our decoders use only a handful of fixed key pairs.
+ * </p>
+ */
+class EwpRsaAesDecoderCache {
+
+  /**
+   * Maximum number of decoders kept in the cache.
+   */
+  private static final int MAX_DECODERS = 64;
+
+  private static final Map<String, EwpRsaAes128GcmDecoder> decoders =
+      Collections.synchronizedMap(new LinkedHashMap<String, EwpRsaAes128GcmDecoder>(16, 0.75f,
+          true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, EwpRsaAes128GcmDecoder> eldest) {
+          return this.size() > MAX_DECODERS;
+        }
+      });
+
+  /**
+   * @param keyPair The recipient's key pair.
+   * @return A (possibly shared) decoder for messages encrypted for this key pair.
+   */
+  static EwpRsaAes128GcmDecoder getDecoder(KeyPair keyPair) {
+    return decoders.computeIfAbsent(getFingerprint(keyPair),
+        k -> new EwpRsaAes128GcmDecoder((RSAPublicKey) keyPair.getPublic(),
+            (RSAPrivateKey) keyPair.getPrivate()));
+  }
+
+  /**
+   * @param keyPair The key pair.
+   * @return SHA-256 fingerprint of its public key (lowercase hex), the same as the one found in
+   *         the headers of the messages encrypted for this key pair.
+   */
+  static String getFingerprint(KeyPair keyPair) {
+    return DigestUtils.sha256Hex(keyPair.getPublic().getEncoded());
+  }
+
+  /**
+   * @param keyPairs Key pairs to index.
+   * @return Unmodifiable map of the given key pairs, indexed by their fingerprints (see
+   *         {@link #getFingerprint(KeyPair)}).
+   */
+  static Map<String, KeyPair> indexByFingerprint(List<KeyPair> keyPairs) {
+    Map<String, KeyPair> result = new HashMap<>();
+    for (KeyPair keyPair : keyPairs) {
+      result.putIfAbsent(getFingerprint(keyPair), keyPair);
+    }
+    return Collections.unmodifiableMap(result);
+  }
+}
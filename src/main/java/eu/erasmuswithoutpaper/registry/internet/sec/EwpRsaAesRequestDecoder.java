@@ -1,11 +1,9 @@
 package eu.erasmuswithoutpaper.registry.internet.sec;
 
 import java.security.KeyPair;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import eu.erasmuswithoutpaper.registry.common.Utils;
@@ -14,20 +12,21 @@ import eu.erasmuswithoutpaper.rsaaes.BadEwpRsaAesBody;
 import eu.erasmuswithoutpaper.rsaaes.EwpRsaAes128GcmDecoder;
 import eu.erasmuswithoutpaper.rsaaes.InvalidRecipient;
 
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.binary.Hex;
 
 /**
  * This {@link RequestCodingDecoder} supports <code>ewp-rsa-aes128gcm</code> Content-Encoding.
  */
 public class EwpRsaAesRequestDecoder implements RequestCodingDecoder {
 
-  private final List<KeyPair> serverKeys;
+  private final Map<String, KeyPair> serverKeys;
 
   /**
-   * @param serverKeys The list {@link KeyPair}s to try decrypting with.
+   * @param serverKeys The list {@link KeyPair}s to decrypt with. The list is copied (and indexed by
+   *        the keys' fingerprints), so later changes to it are not reflected.
    */
   public EwpRsaAesRequestDecoder(List<KeyPair> serverKeys) {
-    this.serverKeys = serverKeys;
+    this.serverKeys = EwpRsaAesDecoderCache.indexByFingerprint(serverKeys);
   }
 
   @Override
@@ -62,13 +61,7 @@ public class EwpRsaAesRequestDecoder implements RequestCodingDecoder {
   protected KeyPair chooseKey(byte[] ewpRsaAesBody) throws BadEwpRsaAesBody {
     byte[] recipientFingerprint =
         EwpRsaAes128GcmDecoder.extractRecipientPublicKeySha256(ewpRsaAesBody);
-    for (KeyPair keyPair : this.serverKeys) {
-      byte[] keyFingerprint = DigestUtils.sha256(keyPair.getPublic().getEncoded());
-      if (Arrays.equals(keyFingerprint, recipientFingerprint)) {
-        return keyPair;
-      }
-    }
-    return null;
+    return this.serverKeys.get(Hex.encodeHexString(recipientFingerprint));
   }
 
   /**
@@ -138,8 +131,7 @@ public class EwpRsaAesRequestDecoder implements RequestCodingDecoder {
       if (keyPair == null) {
         throw new Http4xx(400, "We cannot decrypt this request. Unknown recipient key.");
       }
-      EwpRsaAes128GcmDecoder decoder = new EwpRsaAes128GcmDecoder(
-          (RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate());
+      EwpRsaAes128GcmDecoder decoder = EwpRsaAesDecoderCache.getDecoder(keyPair);
       body = decoder.decode(ewpRsaAesBody);
     } catch (BadEwpRsaAesBody e) {
       throw new Http4xx(400, "Could not decode the request.");
@@ -1,10 +1,8 @@
 package eu.erasmuswithoutpaper.registry.internet.sec;
 
 import java.security.KeyPair;
-import java.security.interfaces.RSAPrivateKey;
-import java.security.interfaces.RSAPublicKey;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import eu.erasmuswithoutpaper.registry.common.Utils;
 import eu.erasmuswithoutpaper.registry.internet.Response;
@@ -12,20 +10,21 @@ import eu.erasmuswithoutpaper.rsaaes.BadEwpRsaAesBody;
 import eu.erasmuswithoutpaper.rsaaes.EwpRsaAes128GcmDecoder;
 import eu.erasmuswithoutpaper.rsaaes.InvalidRecipient;
 
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.codec.binary.Hex;
 
 /**
  * This decoder handles the ewp-rsa-aes128gcm response encoding.
  */
 public class EwpRsaAesResponseDecoder extends CommonResponseDecoder {
 
-  private final List<KeyPair> knownKeys;
+  private final Map<String, KeyPair> knownKeys;
 
   /**
-   * @param knownKeys The list {@link KeyPair}s to try decrypting with.
+   * @param knownKeys The list {@link KeyPair}s to decrypt with. The list is copied (and indexed by
+   *        the keys' fingerprints), so later changes to it are not reflected.
    */
   public EwpRsaAesResponseDecoder(List<KeyPair> knownKeys) {
-    this.knownKeys = knownKeys;
+    this.knownKeys = EwpRsaAesDecoderCache.indexByFingerprint(knownKeys);
   }
 
   @Override
@@ -58,13 +57,7 @@ public class EwpRsaAesResponseDecoder extends CommonResponseDecoder {
   protected KeyPair chooseKey(byte[] ewpRsaAesBody) throws BadEwpRsaAesBody {
     byte[] recipientFingerprint =
         EwpRsaAes128GcmDecoder.extractRecipientPublicKeySha256(ewpRsaAesBody);
-    for (KeyPair keyPair : this.knownKeys) {
-      byte[] keyFingerprint = DigestUtils.sha256(keyPair.getPublic().getEncoded());
-      if (Arrays.equals(keyFingerprint, recipientFingerprint)) {
-        return keyPair;
-      }
-    }
-    return null;
+    return this.knownKeys.get(Hex.encodeHexString(recipientFingerprint));
   }
 
   /**
@@ -81,8 +74,7 @@ public class EwpRsaAesResponseDecoder extends CommonResponseDecoder {
       if (keyPair == null) {
         throw new InvalidResponseError("We cannot decrypt this response. Unknown recipient key.");
       }
-      EwpRsaAes128GcmDecoder decoder = new EwpRsaAes128GcmDecoder(
-          (RSAPublicKey) keyPair.getPublic(), (RSAPrivateKey) keyPair.getPrivate());
+      EwpRsaAes128GcmDecoder decoder = EwpRsaAesDecoderCache.getDecoder(keyPair);
       body = decoder.decode(ewpRsaAesBody);
     } catch (BadEwpRsaAesBody e) {
       throw new InvalidResponseError("Could not decode the response. Invalid EwpRsaAesBody.");
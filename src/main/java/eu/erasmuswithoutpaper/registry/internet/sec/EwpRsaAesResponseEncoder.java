@@ -1,7 +1,5 @@
 package eu.erasmuswithoutpaper.registry.internet.sec;
 
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.X509EncodedKeySpec;
@@ -10,6 +8,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
+import eu.erasmuswithoutpaper.registry.common.RsaPublicKeyCache;
 import eu.erasmuswithoutpaper.registry.common.Utils;
 import eu.erasmuswithoutpaper.registry.internet.Request;
 import eu.erasmuswithoutpaper.registry.internet.Response;
@@ -70,13 +69,9 @@ public class EwpRsaAesResponseEncoder extends CommonResponseEncoder {
   protected RSAPublicKey decodeBase64RsaPublicKey(String keyBase64) throws InvalidKeyHeader {
     try {
       byte[] keyEncoded = Base64.getMimeDecoder().decode(keyBase64);
-      X509EncodedKeySpec spec = new X509EncodedKeySpec(keyEncoded);
-      KeyFactory kf = KeyFactory.getInstance("RSA");
-      return (RSAPublicKey) kf.generatePublic(spec);
+      return RsaPublicKeyCache.decode(keyEncoded);
     } catch (IllegalArgumentException | InvalidKeySpecException e) {
       throw new InvalidKeyHeader();
-    } catch (NoSuchAlgorithmException e) {
-      throw new RuntimeException(e);
     }
   }
 
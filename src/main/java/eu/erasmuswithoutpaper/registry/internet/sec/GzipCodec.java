@@ -0,0 +1,280 @@
+package eu.erasmuswithoutpaper.registry.internet.sec;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Gzip compression and decompression of whole message bodies, shared by all our gzip encoders and
+ * decoders.
+ *
+ * <p>
+ * {@link java.util.zip.GZIPOutputStream} and {@link java.util.zip.GZIPInputStream} allocate new
+ * native zlib state for every message, and this state is released only when they are finalized.
+ * Here, {@link Deflater}s and {@link Inflater}s are kept in bounded pools and reset after each use,
+ * and the chunk buffers are kept per thread. Output buffers are allocated with the expected size
+ * (for decompression, the size is taken from the gzip trailer).
+ * </p>
+ *
+ * <p>
+ * Decompression is aborted as soon as the decompressed data exceeds the given limit, so that a
+ * small "gzip bomb" cannot exhaust our memory.
+ * </p>
+ */
+public class GzipCodec {
+
+  /**
+   * Thrown when the data cannot be decompressed - either it's not valid gzip, or it's too large.
+   */
+  @SuppressWarnings("serial")
+  public static class GzipFormatException extends Exception {
+    GzipFormatException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * The default limit of the size of decompressed data.
+   */
+  public static final int DEFAULT_MAX_DECOMPRESSED_BYTES = 64 * 1024 * 1024;
+
+  /**
+   * Maximum number of idle {@link Deflater}s (and, separately, {@link Inflater}s) kept in the pool.
+   */
+  private static final int MAX_POOLED = 16;
+
+  private static final int CHUNK_SIZE = 16 * 1024;
+
+  /**
+   * The declared size of decompressed data may be a lie, so we never pre-allocate more than this.
+   */
+  private static final int MAX_INITIAL_BUFFER = 8 * 1024 * 1024;
+
+  private static final int FTEXT = 1;
+  private static final int FHCRC = 2;
+  private static final int FEXTRA = 4;
+  private static final int FNAME = 8;
+  private static final int FCOMMENT = 16;
+
+  private static final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(MAX_POOLED);
+  private static final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(MAX_POOLED);
+  private static final AtomicLong deflatersCreated = new AtomicLong();
+  private static final AtomicLong inflatersCreated = new AtomicLong();
+  private static final ThreadLocal<byte[]> chunks =
+      ThreadLocal.withInitial(() -> new byte[CHUNK_SIZE]);
+
+  /**
+   * Compress the data with gzip (without any optional header fields).
+   *
+   * @param data The data to compress.
+   * @return Compressed data.
+   */
+  public static byte[] compress(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 64);
+    // Header: magic, CM=deflate, no flags, no mtime, no extra flags, OS=unknown.
+    out.write(new byte[] { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff }, 0, 10);
+
+    Deflater deflater = borrowDeflater();
+    try {
+      deflater.setInput(data);
+      deflater.finish();
+      byte[] chunk = chunks.get();
+      while (!deflater.finished()) {
+        int count = deflater.deflate(chunk);
+        out.write(chunk, 0, count);
+      }
+    } finally {
+      release(deflater);
+    }
+
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    writeIntLe(out, crc.getValue());
+    writeIntLe(out, data.length);
+    return out.toByteArray();
+  }
+
+  /**
+   * Decompress gzip data (possibly consisting of multiple gzip members).
+   *
+   * @param data The gzip data.
+   * @param maxDecompressedBytes The maximum allowed size of the decompressed data.
+   * @return Decompressed data.
+   * @throws GzipFormatException If the data is not valid gzip, or the decompressed data would be
+   *         larger than allowed.
+   */
+  public static byte[] decompress(byte[] data, int maxDecompressedBytes)
+      throws GzipFormatException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(
+        Math.max(32, Math.min(Math.min(maxDecompressedBytes, MAX_INITIAL_BUFFER),
+            getDeclaredSize(data))));
+    int offset = 0;
+    do {
+      offset = decompressMember(data, offset, out, maxDecompressedBytes);
+      // Similarly to GZIPInputStream, we ignore trailing data which is not another gzip member.
+    } while (data.length - offset >= 10 && (data[offset] & 0xff) == 0x1f
+        && (data[offset + 1] & 0xff) == 0x8b);
+    return out.toByteArray();
+  }
+
+  /**
+   * @return The number of {@link Deflater}s created so far.
+   */
+  public static long getDeflatersCreated() {
+    return deflatersCreated.get();
+  }
+
+  /**
+   * @return The number of {@link Inflater}s created so far.
+   */
+  public static long getInflatersCreated() {
+    return inflatersCreated.get();
+  }
+
+  private static Deflater borrowDeflater() {
+    Deflater deflater = deflaters.poll();
+    if (deflater == null) {
+      deflatersCreated.incrementAndGet();
+      deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    }
+    return deflater;
+  }
+
+  private static Inflater borrowInflater() {
+    Inflater inflater = inflaters.poll();
+    if (inflater == null) {
+      inflatersCreated.incrementAndGet();
+      inflater = new Inflater(true);
+    }
+    return inflater;
+  }
+
+  private static int decompressMember(byte[] data, int start, ByteArrayOutputStream out,
+      int maxDecompressedBytes) throws GzipFormatException {
+    int offset = skipHeader(data, start);
+    final int sizeBefore = out.size();
+    CRC32 crc = new CRC32();
+    Inflater inflater = borrowInflater();
+    try {
+      inflater.setInput(data, offset, data.length - offset);
+      byte[] chunk = chunks.get();
+      while (!inflater.finished()) {
+        int count = inflater.inflate(chunk);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new GzipFormatException("Unexpected end of gzip data.");
+        }
+        if (out.size() + count > maxDecompressedBytes) {
+          throw new GzipFormatException(
+              "Decompressed data exceeds the limit of " + maxDecompressedBytes + " bytes.");
+        }
+        crc.update(chunk, 0, count);
+        out.write(chunk, 0, count);
+      }
+      offset = data.length - inflater.getRemaining();
+    } catch (DataFormatException e) {
+      throw new GzipFormatException("Invalid deflate data: " + e.getMessage());
+    } finally {
+      release(inflater);
+    }
+
+    if (data.length - offset < 8) {
+      throw new GzipFormatException("Missing gzip trailer.");
+    }
+    if (readIntLe(data, offset) != crc.getValue()) {
+      throw new GzipFormatException("CRC32 mismatch.");
+    }
+    if (readIntLe(data, offset + 4) != ((out.size() - sizeBefore) & 0xffffffffL)) {
+      throw new GzipFormatException("Decompressed size mismatch.");
+    }
+    return offset + 8;
+  }
+
+  /**
+   * @return The size of the last gzip member's decompressed data, as declared in its trailer (this
+   *         is only a hint, which is used to allocate the output buffer).
+   */
+  private static int getDeclaredSize(byte[] data) {
+    if (data.length < 18) {
+      return 0;
+    }
+    long size = readIntLe(data, data.length - 4);
+    return size > Integer.MAX_VALUE ? 0 : (int) size;
+  }
+
+  private static long readIntLe(byte[] data, int offset) {
+    return (data[offset] & 0xffL) | ((data[offset + 1] & 0xffL) << 8)
+        | ((data[offset + 2] & 0xffL) << 16) | ((data[offset + 3] & 0xffL) << 24);
+  }
+
+  private static void release(Deflater deflater) {
+    deflater.reset();
+    if (!deflaters.offer(deflater)) {
+      deflater.end();
+    }
+  }
+
+  private static void release(Inflater inflater) {
+    inflater.reset();
+    if (!inflaters.offer(inflater)) {
+      inflater.end();
+    }
+  }
+
+  /**
+   * @return Offset of the first byte after the gzip member header.
+   */
+  private static int skipHeader(byte[] data, int start) throws GzipFormatException {
+    if (data.length - start < 10 || (data[start] & 0xff) != 0x1f
+        || (data[start + 1] & 0xff) != 0x8b) {
+      throw new GzipFormatException("Not in gzip format.");
+    }
+    if (data[start + 2] != 8) {
+      throw new GzipFormatException("Unsupported compression method.");
+    }
+    int flags = data[start + 3] & 0xff;
+    int offset = start + 10;
+    try {
+      if ((flags & FEXTRA) != 0) {
+        offset += 2 + ((data[offset] & 0xff) | ((data[offset + 1] & 0xff) << 8));
+      }
+      if ((flags & FNAME) != 0) {
+        offset = skipZeroTerminated(data, offset);
+      }
+      if ((flags & FCOMMENT) != 0) {
+        offset = skipZeroTerminated(data, offset);
+      }
+      if ((flags & FHCRC) != 0) {
+        offset += 2;
+      }
+    } catch (ArrayIndexOutOfBoundsException e) {
+      throw new GzipFormatException("Truncated gzip header.");
+    }
+    if (offset > data.length || (flags & ~(FTEXT | FHCRC | FEXTRA | FNAME | FCOMMENT)) != 0) {
+      throw new GzipFormatException("Invalid gzip header.");
+    }
+    return offset;
+  }
+
+  /**
+   * @return Offset of the first byte after the zero-terminated string starting at the given offset.
+   */
+  private static int skipZeroTerminated(byte[] data, int offset) {
+    int result = offset;
+    while (data[result] != 0) {
+      result++;
+    }
+    return result + 1;
+  }
+
+  private static void writeIntLe(ByteArrayOutputStream out, long value) {
+    out.write((int) (value & 0xff));
+    out.write((int) ((value >> 8) & 0xff));
+    out.write((int) ((value >> 16) & 0xff));
+    out.write((int) ((value >> 24) & 0xff));
+  }
+}
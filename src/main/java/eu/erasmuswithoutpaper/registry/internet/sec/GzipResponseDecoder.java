@@ -1,20 +1,31 @@
 package eu.erasmuswithoutpaper.registry.internet.sec;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.GZIPInputStream;
-
 import eu.erasmuswithoutpaper.registry.common.Utils;
 import eu.erasmuswithoutpaper.registry.internet.Response;
 
-import org.apache.commons.io.IOUtils;
-
 /**
  * GZIP coding response decoder.
  */
 public class GzipResponseDecoder extends CommonResponseDecoder {
 
+  private final int maxDecompressedBytes;
+
+  /**
+   * Create a decoder which refuses to decompress bodies larger than
+   * {@link GzipCodec#DEFAULT_MAX_DECOMPRESSED_BYTES}.
+   */
+  public GzipResponseDecoder() {
+    this(GzipCodec.DEFAULT_MAX_DECOMPRESSED_BYTES);
+  }
+
+  /**
+   * @param maxDecompressedBytes The maximum allowed size of the decompressed body. Decompression
+   *        of larger bodies is aborted (this protects us from "gzip bombs").
+   */
+  public GzipResponseDecoder(int maxDecompressedBytes) {
+    this.maxDecompressedBytes = maxDecompressedBytes;
+  }
+
   @Override
   public void decode(Response response) throws InvalidResponseError {
     this.updateBody(response);
@@ -37,14 +48,14 @@ public class GzipResponseDecoder extends CommonResponseDecoder {
    * Decompress given response's body.
    *
    * @param response The response to process.
+   * @throws InvalidResponseError If the body is not valid gzip, or it's too large when
+   *         decompressed.
    */
-  protected void updateBody(Response response) {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
+  protected void updateBody(Response response) throws InvalidResponseError {
     try {
-      IOUtils.copy(new GZIPInputStream(new ByteArrayInputStream(response.getBody())), out);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
+      response.setBody(GzipCodec.decompress(response.getBody(), this.maxDecompressedBytes));
+    } catch (GzipCodec.GzipFormatException e) {
+      throw new InvalidResponseError("Could not decompress gzip-encoded body: " + e.getMessage());
     }
-    response.setBody(out.toByteArray());
   }
 }
@@ -1,9 +1,5 @@
 package eu.erasmuswithoutpaper.registry.internet.sec;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.util.zip.GZIPOutputStream;
-
 import eu.erasmuswithoutpaper.registry.common.Utils;
 import eu.erasmuswithoutpaper.registry.internet.Request;
 import eu.erasmuswithoutpaper.registry.internet.Response;
@@ -47,14 +43,6 @@ public class GzipResponseEncoder extends CommonResponseEncoder {
    * @param response The response to modify.
    */
   protected void updateResponseBody(Response response) {
-    try {
-      ByteArrayOutputStream output = new ByteArrayOutputStream();
-      GZIPOutputStream gzip = new GZIPOutputStream(output);
-      gzip.write(response.getBody());
-      gzip.close();
-      response.setBody(output.toByteArray());
-    } catch (IOException e) {
-      throw new RuntimeException();
-    }
+    response.setBody(GzipCodec.compress(response.getBody()));
   }
 }
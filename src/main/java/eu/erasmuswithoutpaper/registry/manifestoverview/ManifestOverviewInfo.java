@@ -6,11 +6,12 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import javax.xml.parsers.DocumentBuilder;
 
 import eu.erasmuswithoutpaper.registry.common.Utils;
-import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.joox.Match;
@@ -47,23 +48,26 @@ public class ManifestOverviewInfo {
       return null;
     }
 
-    Match matcher = $(doc.getDocumentElement()).namespaces(KnownNamespace.prefixMap());
-    final String endsWithUrlXPath =
-        "substring(local-name(), string-length(local-name()) - string-length('url') + 1) = 'url'";
+    Match matcher = $(doc.getDocumentElement());
+    final String urlElementsXPath = "*[substring(local-name(), "
+        + "string-length(local-name()) - string-length('url') + 1) = 'url']";
 
-    Match hosts = matcher.xpath("/mf5:manifest/mf5:host");
+    Match hosts = XPathCache.xpath(matcher, "/mf5:manifest/mf5:host");
     for (Element host : hosts) {
       HostOverviewInfo hostOverviewInfo = new HostOverviewInfo();
-      Match hostMatch = $(host).namespaces(KnownNamespace.prefixMap());
-      for (Element elem : hostMatch.xpath("ewp:admin-email")) {
+      Match hostMatch = $(host);
+      for (Element elem : XPathCache.xpath(hostMatch, "ewp:admin-email")) {
         hostOverviewInfo.adminEmails.add(elem.getTextContent());
       }
-      for (Element elem : hostMatch.xpath("ewp:admin-notes")) {
+      for (Element elem : XPathCache.xpath(hostMatch, "ewp:admin-notes")) {
         hostOverviewInfo.adminNotes.add(elem.getTextContent());
       }
-      for (Element elem : hostMatch.xpath("r:apis-implemented/*")) {
-        Match urlElementMatch = $(elem).xpath("*[" + endsWithUrlXPath + "]");
-        List<String> apiUrls = urlElementMatch.map(x -> x.element().getTextContent());
+      for (Element elem : XPathCache.xpath(hostMatch, "r:apis-implemented/*")) {
+        List<String> apiUrls = new ArrayList<>();
+        for (Element urlElem : XPathCache.selectElements(elem, urlElementsXPath,
+            Collections.emptyMap())) {
+          apiUrls.add(urlElem.getTextContent());
+        }
 
         String elementVersionTag = elem.getAttribute("version");
         ApiVersion apiVersion = new ApiVersion(elementVersionTag);
@@ -76,7 +80,7 @@ public class ManifestOverviewInfo {
             )
         );
       }
-      for (Element elem : hostMatch.xpath("mf5:institutions-covered/r:hei")) {
+      for (Element elem : XPathCache.xpath(hostMatch, "mf5:institutions-covered/r:hei")) {
         hostOverviewInfo.coveredHeiIds.add(elem.getAttribute("id"));
       }
       result.hosts.add(hostOverviewInfo);
@@ -80,7 +80,7 @@ public interface ManifestRepository extends DisposableBean {
   /**
    * Retrieve the list of all manifest URLs which are currently stored in the repository. The URLs
    * retrieved should equal the ones previously used in {@link #putOriginalManifest(String, byte[])}
-   * or {@link #putFilteredManifest(String, String)} calls.
+   * or {@link #putFilteredManifest(String, byte[])} calls.
    *
    * @return A List of URL strings.
    */
@@ -94,6 +94,14 @@ public interface ManifestRepository extends DisposableBean {
    */
   String getCatalogue() throws CatalogueNotFound;
 
+  /**
+   * Tell if the catalogue has changed, without comparing its contents.
+   *
+   * @return A number which changes whenever the catalogue contents change. It stays the same if
+   *         the catalogue is put again with the same contents.
+   */
+  long getCatalogueGeneration();
+
   /**
    * Retrieve the <b>filtered</b> manifest contents from repository's working copy.
    *
@@ -143,6 +151,14 @@ public interface ManifestRepository extends DisposableBean {
    */
   boolean putCatalogue(String contents);
 
+  /**
+   * Same as {@link #putCatalogue(String)}, but with the contents already encoded in UTF-8.
+   *
+   * @param contents The catalogue contents to be stored (UTF-8).
+   * @return <b>true</b> if the new content differs from the previous one.
+   */
+  boolean putCatalogue(byte[] contents);
+
   /**
    * Store a new filtered version of the manifest.
    *
@@ -152,10 +168,10 @@ public interface ManifestRepository extends DisposableBean {
    * </p>
    *
    * @param urlString Unique URL of the manifest.
-   * @param filteredContents A string with the filtered contents of the manifest.
+   * @param filteredContents The filtered contents of the manifest (UTF-8).
    * @return <b>true</b> if the new content differs from the previous one.
    */
-  boolean putFilteredManifest(String urlString, String filteredContents);
+  boolean putFilteredManifest(String urlString, byte[] filteredContents);
 
   /**
    * Store a new original version of the manifest.
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import eu.erasmuswithoutpaper.registry.common.Utils;
@@ -74,6 +75,7 @@ public class ManifestRepositoryImpl implements ManifestRepository {
   private final SortedSet<String> index;
 
   private volatile String cachedCatalogueContent = null;
+  private final AtomicLong catalogueGeneration = new AtomicLong();
 
   /**
    * @param repoProperties Repository properties to use. These cannot be changed after the object is
@@ -287,7 +289,14 @@ public class ManifestRepositoryImpl implements ManifestRepository {
   @Override
   public String getCatalogue() throws CatalogueNotFound {
     // Do we have a cached copy?
-    if (this.cachedCatalogueContent == null) {
+    String cached = this.cachedCatalogueContent;
+    if (cached != null) {
+      return cached;
+    }
+
+    // Read it from the repo (and make sure nobody is writing it at the same time).
+    this.lock.readLock().lock();
+    try {
 
       // Does it exist in our repo?
       Path path = this.getPathForCatalogue();
@@ -304,10 +313,18 @@ public class ManifestRepositoryImpl implements ManifestRepository {
       }
 
       // Convert it to String.
-      this.cachedCatalogueContent = new String(encoded, StandardCharsets.UTF_8);
+      cached = new String(encoded, StandardCharsets.UTF_8);
+      this.cachedCatalogueContent = cached;
+      return cached;
+
+    } finally {
+      this.lock.readLock().unlock();
     }
+  }
 
-    return this.cachedCatalogueContent;
+  @Override
+  public long getCatalogueGeneration() {
+    return this.catalogueGeneration.get();
   }
 
   @Override
@@ -389,8 +406,24 @@ public class ManifestRepositoryImpl implements ManifestRepository {
     this.lock.writeLock().lock();
     try {
       boolean changed = this.writeFile(this.getPathForCatalogue(), contents);
-      this.cachedCatalogueContent = contents;
       if (changed) {
+        this.cachedCatalogueContent = contents;
+        this.onCatalogueContentChanged();
+      }
+      return changed;
+    } finally {
+      this.lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean putCatalogue(byte[] contents) {
+    this.lock.writeLock().lock();
+    try {
+      boolean changed = this.writeFile(this.getPathForCatalogue(), contents);
+      if (changed) {
+        // Unchanged catalogues are not decoded again. The cached copy is still valid.
+        this.cachedCatalogueContent = new String(contents, StandardCharsets.UTF_8);
         this.onCatalogueContentChanged();
       }
       return changed;
@@ -400,7 +433,7 @@ public class ManifestRepositoryImpl implements ManifestRepository {
   }
 
   @Override
-  public boolean putFilteredManifest(String urlString, String filteredContents) {
+  public boolean putFilteredManifest(String urlString, byte[] filteredContents) {
     this.lock.writeLock().lock();
     try {
       boolean changed =
@@ -514,6 +547,7 @@ public class ManifestRepositoryImpl implements ManifestRepository {
   }
 
   private void onCatalogueContentChanged() {
+    this.catalogueGeneration.incrementAndGet();
     this.catcache.clear();
     if (this.client != null) {
       try {
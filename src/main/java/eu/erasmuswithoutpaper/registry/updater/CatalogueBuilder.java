@@ -2,16 +2,9 @@ package eu.erasmuswithoutpaper.registry.updater;
 
 import static org.joox.JOOX.$;
 
-import java.io.ByteArrayInputStream;
-import java.security.KeyFactory;
-import java.security.NoSuchAlgorithmException;
-import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
-import java.security.cert.CertificateFactory;
-import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.security.spec.X509EncodedKeySpec;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -23,7 +16,9 @@ import java.util.TreeSet;
 import javax.xml.XMLConstants;
 import javax.xml.parsers.DocumentBuilder;
 
+import eu.erasmuswithoutpaper.registry.common.RsaPublicKeyCache;
 import eu.erasmuswithoutpaper.registry.common.Utils;
+import eu.erasmuswithoutpaper.registry.common.XPathCache;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownElement;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 
@@ -51,17 +46,11 @@ class CatalogueBuilder {
   private static final Logger logger = LoggerFactory.getLogger(CatalogueBuilder.class);
 
   private final DocumentBuilder docbuilder;
-  private final CertificateFactory x509factory;
 
   private Document doc;
 
   public CatalogueBuilder() {
-    try {
-      this.docbuilder = Utils.newSecureDocumentBuilder();
-      this.x509factory = CertificateFactory.getInstance("X.509");
-    } catch (CertificateException e) {
-      throw new RuntimeException(e);
-    }
+    this.docbuilder = Utils.newSecureDocumentBuilder();
   }
 
   /**
@@ -94,10 +83,10 @@ class CatalogueBuilder {
       }
 
       // Extract all the hosts
-      Match srcHosts = $(manifestDoc).namespaces(KnownNamespace.prefixMap()).xpath("mf5:host");
+      Match srcHosts = XPathCache.xpath($(manifestDoc), "mf5:host");
 
       for (Element srcHostElem : srcHosts) {
-        Match srcHost = $(srcHostElem).namespaces(KnownNamespace.prefixMap());
+        Match srcHost = $(srcHostElem);
 
         // Append a new <host> element to the <catalogue>.
 
@@ -106,13 +95,12 @@ class CatalogueBuilder {
 
         // Copy all <ewp:admin-email> and <ewp:admin-notes> values.
 
-        for (String email : srcHost.xpath("ewp:admin-email").texts()) {
+        for (String email : XPathCache.xpath(srcHost, "ewp:admin-email").texts()) {
           destHostElem.appendChild(this.newEwpElem("admin-email", email));
         }
-        if (srcHost.xpath("ewp:admin-notes").isNotEmpty()
-            && (srcHost.xpath("ewp:admin-notes").text().length() > 0)) {
-          destHostElem
-              .appendChild(this.newEwpElem("admin-notes", srcHost.xpath("ewp:admin-notes").text()));
+        Match adminNotes = XPathCache.xpath(srcHost, "ewp:admin-notes");
+        if (adminNotes.isNotEmpty() && (adminNotes.text().length() > 0)) {
+          destHostElem.appendChild(this.newEwpElem("admin-notes", adminNotes.text()));
         }
 
         // Append a new <apis-implemented> element to the <host>.
@@ -123,7 +111,7 @@ class CatalogueBuilder {
         // Copy all API entries from the manifest (and replace their prefixes with the default
         // ones).
 
-        for (Element srcApiElem : srcHost.xpath("r:apis-implemented/*")) {
+        for (Element srcApiElem : XPathCache.xpath(srcHost, "r:apis-implemented/*")) {
           Element destApiElem = (Element) this.doc.importNode(srcApiElem, true);
           Utils.rewritePrefixes(destApiElem);
           destApisElem.appendChild(destApiElem);
@@ -131,7 +119,7 @@ class CatalogueBuilder {
 
         // It there are any HEIs covered in the manifest...
 
-        Match srcHeis = srcHost.xpath("mf5:institutions-covered/r:hei");
+        Match srcHeis = XPathCache.xpath(srcHost, "mf5:institutions-covered/r:hei");
         if (srcHeis.size() > 0) {
 
           // Create a <institutions-covered> element in the <host>.
@@ -159,7 +147,7 @@ class CatalogueBuilder {
 
             // For each <other-id> given for this HEI...
 
-            for (Match otherId : srcHei.xpath("r:other-id").each()) {
+            for (Match otherId : XPathCache.xpath(srcHei, "r:other-id").each()) {
 
               // Find the set of all IDs declared for this ID type.
 
@@ -176,7 +164,7 @@ class CatalogueBuilder {
 
             // For each <name> given for this HEI...
 
-            for (Match name : srcHei.xpath("r:name").each()) {
+            for (Match name : XPathCache.xpath(srcHei, "r:name").each()) {
 
               // Find the set of all names declared for this language.
 
@@ -201,18 +189,16 @@ class CatalogueBuilder {
         // If there are any client certificates...
 
         List<String> srcCertStrs =
-            srcHost.xpath("mf5:client-credentials-in-use/mf5:certificate").texts();
+            XPathCache.xpath(srcHost, "mf5:client-credentials-in-use/mf5:certificate").texts();
         if (srcCertStrs.size() > 0) {
 
           // For each certificate, calculate its sha-256 fingerprint, create element, and append it.
 
           for (String srcCertStr : srcCertStrs) {
-            X509Certificate cert = this.parseCert(srcCertStr);
+            CertificateCache.ParsedCertificate cert = this.parseCert(srcCertStr);
             Element destCertElem = this.newElem("certificate");
             try {
-              destCertElem.setAttribute("sha-256", DigestUtils.sha256Hex(cert.getEncoded()));
-            } catch (CertificateEncodingException e) {
-              throw new RuntimeException(e);
+              destCertElem.setAttribute("sha-256", cert.getFingerprint());
             } catch (DOMException e) {
               throw new RuntimeException(e);
             }
@@ -223,7 +209,7 @@ class CatalogueBuilder {
         // If there are any client public keys...
 
         List<String> srcKeyStrs =
-            srcHost.xpath("mf5:client-credentials-in-use/mf5:rsa-public-key").texts();
+            XPathCache.xpath(srcHost, "mf5:client-credentials-in-use/mf5:rsa-public-key").texts();
         if (srcKeyStrs.size() > 0) {
 
           // For each key, calculate its sha-256 fingerprint, create element, and append it.
@@ -251,7 +237,8 @@ class CatalogueBuilder {
 
         // If there are any server public keys...
 
-        srcKeyStrs = srcHost.xpath("mf5:server-credentials-in-use/mf5:rsa-public-key").texts();
+        srcKeyStrs = XPathCache
+            .xpath(srcHost, "mf5:server-credentials-in-use/mf5:rsa-public-key").texts();
         if (srcKeyStrs.size() > 0) {
 
           // For each key, calculate its sha-256 fingerprint, create element, and append it.
@@ -367,6 +354,10 @@ class CatalogueBuilder {
     catalogueElem.setAttributeNS("http://www.w3.org/2001/XMLSchema-instance", "xsi:schemaLocation",
         schemaLocation);
 
+    logger.debug("Catalogue built. Compiled XPath cache hit rate is now {}%, "
+        + "certificate cache hit rate is {}%.",
+        String.format("%.1f", XPathCache.getHitRate() * 100),
+        String.format("%.1f", CertificateCache.getHitRate() * 100));
     return this.doc;
   }
 
@@ -395,14 +386,9 @@ class CatalogueBuilder {
     return elem;
   }
 
-  private synchronized X509Certificate parseCert(String certStr) {
-
-    certStr = certStr.replaceAll("\\s+", "");
-    byte[] decoded = Base64.decodeBase64(certStr);
-
+  private CertificateCache.ParsedCertificate parseCert(String certStr) {
     try {
-      return (X509Certificate) this.x509factory
-          .generateCertificate(new ByteArrayInputStream(decoded));
+      return CertificateCache.parse(certStr);
     } catch (CertificateException e) {
       // This method assumes that input is already checked and valid.
       throw new RuntimeException(e);
@@ -415,9 +401,8 @@ class CatalogueBuilder {
     byte[] decoded = Base64.decodeBase64(keyStr);
 
     try {
-      return (RSAPublicKey) KeyFactory.getInstance("RSA")
-          .generatePublic(new X509EncodedKeySpec(decoded));
-    } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+      return RsaPublicKeyCache.decode(decoded);
+    } catch (InvalidKeySpecException e) {
       // This method assumes that input is already checked and valid.
       throw new RuntimeException(e);
     }
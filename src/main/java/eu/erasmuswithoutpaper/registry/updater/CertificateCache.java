@@ -0,0 +1,125 @@
+package eu.erasmuswithoutpaper.registry.updater;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * A process-wide cache of client certificates parsed by {@link CatalogueBuilder}.
+ *
+ * <p>
+ * Most of the certificates don't change between catalogue rebuilds, so there's no need to parse
+ * them (and calculate their fingerprints) every time. Certificates are keyed by the SHA-256 digest
+ * of their Base64 representation (with whitespace removed), so that cache hits don't even need to
+ * decode Base64.
+ * </p>
+ */
+class CertificateCache {
+
+  /**
+   * A parsed certificate, along with its SHA-256 fingerprint.
+   */
+  static class ParsedCertificate {
+    private final X509Certificate certificate;
+    private final String fingerprint;
+
+    ParsedCertificate(X509Certificate certificate, String fingerprint) {
+      this.certificate = certificate;
+      this.fingerprint = fingerprint;
+    }
+
+    X509Certificate getCertificate() {
+      return this.certificate;
+    }
+
+    /**
+     * @return SHA-256 fingerprint of the encoded certificate (lowercase hex).
+     */
+    String getFingerprint() {
+      return this.fingerprint;
+    }
+  }
+
+  /**
+   * Maximum number of certificates kept in the cache.
+   */
+  private static final int MAX_CERTIFICATES = 4096;
+
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  private static final ThreadLocal<CertificateFactory> factories = ThreadLocal.withInitial(() -> {
+    try {
+      return CertificateFactory.getInstance("X.509");
+    } catch (CertificateException e) {
+      throw new RuntimeException(e);
+    }
+  });
+
+  private static final Map<String, ParsedCertificate> certificates = Collections.synchronizedMap(
+      new LinkedHashMap<String, ParsedCertificate>(64, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedCertificate> eldest) {
+          return this.size() > MAX_CERTIFICATES;
+        }
+      });
+
+  /**
+   * @return The fraction of lookups (between 0.0 and 1.0) which have been served with an already
+   *         parsed certificate, or 1.0 if there were no lookups yet.
+   */
+  static double getHitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 1.0 : (double) hitCount / total;
+  }
+
+  /**
+   * @return The number of lookups which required the certificate to be parsed.
+   */
+  static long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * Parse a certificate, or get it from the cache, if it has been parsed before.
+   *
+   * @param certStr Base64-encoded certificate (it may contain whitespace).
+   * @return The parsed certificate, with its fingerprint.
+   * @throws CertificateException If the certificate is invalid.
+   */
+  static ParsedCertificate parse(String certStr) throws CertificateException {
+    certStr = certStr.replaceAll("\\s+", "");
+    String key = DigestUtils.sha256Hex(certStr.getBytes(StandardCharsets.US_ASCII));
+    ParsedCertificate parsed = certificates.get(key);
+    if (parsed != null) {
+      hits.incrementAndGet();
+      return parsed;
+    }
+    misses.incrementAndGet();
+    byte[] decoded = Base64.decodeBase64(certStr);
+    X509Certificate cert = (X509Certificate) factories.get()
+        .generateCertificate(new ByteArrayInputStream(decoded));
+    String fingerprint;
+    try {
+      fingerprint = DigestUtils.sha256Hex(cert.getEncoded());
+    } catch (CertificateEncodingException e) {
+      throw new CertificateException(e);
+    }
+    parsed = new ParsedCertificate(cert, fingerprint);
+    certificates.put(key, parsed);
+    return parsed;
+  }
+}
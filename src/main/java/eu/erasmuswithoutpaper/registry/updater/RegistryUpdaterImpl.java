@@ -12,6 +12,8 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import eu.erasmuswithoutpaper.registry.common.Severity;
 import eu.erasmuswithoutpaper.registry.common.Severity.OneOfTheValuesIsUndetermined;
@@ -57,6 +59,28 @@ public class RegistryUpdaterImpl implements RegistryUpdater {
 
   private static final Logger logger = LoggerFactory.getLogger(RegistryUpdaterImpl.class);
 
+  /**
+   * Wait for the given fetch to complete, and rethrow its {@link IOException} (if any).
+   */
+  private static byte[] waitForContents(CompletableFuture<byte[]> fetch) // NOPMD
+      throws IOException {
+    try {
+      return fetch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else {
+        throw new RuntimeException(cause);
+      }
+    }
+  }
+
   private final ManifestSourceProvider manifestSourceProvider;
   private final ManifestUpdateStatusRepository manifestUpdateStatusRepository;
   private final Internet internet;
@@ -189,13 +213,26 @@ public class RegistryUpdaterImpl implements RegistryUpdater {
 
   @Override
   public void reloadAllManifestSources() {
-    for (ManifestSource source : this.manifestSourceProvider.getAll()) {
-      this.reloadManifestSource(source);
+    /*
+     * Start fetching all the manifests at once. They will still be processed one by one (in the
+     * same order as before), but we won't need to wait for each of the fetches separately.
+     */
+    List<ManifestSource> sources = this.manifestSourceProvider.getAll();
+    List<CompletableFuture<byte[]>> fetches = new ArrayList<>();
+    for (ManifestSource source : sources) {
+      fetches.add(this.internet.getUrlAsync(source.getUrl()));
+    }
+    for (int i = 0; i < sources.size(); i++) {
+      this.reloadManifestSource(sources.get(i), fetches.get(i));
     }
   }
 
   @Override
   public void reloadManifestSource(ManifestSource source) {
+    this.reloadManifestSource(source, this.internet.getUrlAsync(source.getUrl()));
+  }
+
+  private void reloadManifestSource(ManifestSource source, CompletableFuture<byte[]> fetch) {
 
     // Get the flag for this source.
 
@@ -230,7 +267,7 @@ public class RegistryUpdaterImpl implements RegistryUpdater {
 
       byte[] originalContents;
       try {
-        originalContents = this.internet.getUrl(source.getUrl());
+        originalContents = waitForContents(fetch);
       } catch (IOException e) {
         StringBuilder sb = new StringBuilder();
         sb.append("<p>The Registry was unable to fetch the manifest from its location.\n");
@@ -315,7 +352,7 @@ public class RegistryUpdaterImpl implements RegistryUpdater {
          * repository. First, we will run a formatter against it.
          */
 
-        String filteredContents = this.xmlFormatter.format(doc);
+        byte[] filteredContents = this.xmlFormatter.formatToBytes(doc);
         boolean changed = this.repo.putFilteredManifest(source.getUrl(), filteredContents);
 
         // If anything changed...
@@ -412,7 +449,7 @@ public class RegistryUpdaterImpl implements RegistryUpdater {
 
       CatalogueBuilder builder = new CatalogueBuilder();
       Document catalogueDocument = builder.build(manifests);
-      String catalogueXml = this.xmlFormatter.format(catalogueDocument);
+      byte[] catalogueXml = this.xmlFormatter.formatToBytes(catalogueDocument);
 
       // Store it.
 
@@ -19,6 +19,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -45,6 +48,7 @@ import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 import eu.erasmuswithoutpaper.registry.internet.Internet;
 import eu.erasmuswithoutpaper.registry.internet.Request;
 import eu.erasmuswithoutpaper.registry.internet.Response;
+import eu.erasmuswithoutpaper.registry.internet.ResponseBodyTooLarge;
 import eu.erasmuswithoutpaper.registry.internet.sec.AnonymousRequestSigner;
 import eu.erasmuswithoutpaper.registry.internet.sec.EwpCertificateRequestSigner;
 import eu.erasmuswithoutpaper.registry.internet.sec.EwpHttpSigRequestSigner;
@@ -61,6 +65,7 @@ import eu.erasmuswithoutpaper.registry.validators.InlineValidationStep.Failure;
 import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus.Status;
 import eu.erasmuswithoutpaper.registry.validators.echovalidator.HttpSecuritySettings;
 import eu.erasmuswithoutpaper.registry.validators.githubtags.GitHubTagsGetter;
+import eu.erasmuswithoutpaper.registry.validators.verifiers.ResponseSelection;
 import eu.erasmuswithoutpaper.registry.validators.verifiers.Verifier;
 import eu.erasmuswithoutpaper.registry.validators.verifiers.VerifierFactory;
 import eu.erasmuswithoutpaper.registryclient.RegistryClient;
@@ -86,6 +91,10 @@ public abstract class AbstractValidationSuite<S extends SuiteState> {
   protected final RegistryClient regClient;
   protected final Integer timeoutMillis = 10000;
   private final CatalogueMatcherProvider catalogueMatcherProvider;
+  private final CombinationExecutor combinationExecutor;
+  private final int maxSnapshotBodyBytes;
+  private Supplier<AbstractValidationSuite<S>> forkFactory;
+  private Consumer<ValidationStepWithStatus> stepListener;
   protected ValidatorKeyStore validatorKeyStore;
   protected ValidatorKeyStoreSet validatorKeyStoreSet;
   protected AnonymousRequestSigner reqSignerAnon;
@@ -100,6 +109,8 @@ public abstract class AbstractValidationSuite<S extends SuiteState> {
       S currentState,
       ValidationSuiteConfig config) {
     this.catalogueMatcherProvider = config.catalogueMatcherProvider;
+    this.combinationExecutor = config.combinationExecutor;
+    this.maxSnapshotBodyBytes = config.maxSnapshotBodyBytes;
     this.steps = new ArrayList<>();
     this.docBuilder = config.docBuilder;
     this.internet = config.internet;
@@ -146,18 +157,93 @@ public abstract class AbstractValidationSuite<S extends SuiteState> {
 
   }
 
+  /**
+   * Allow this suite to validate its combinations concurrently (if enabled in the
+   * {@link CombinationExecutor}). Each combination will then be validated by a separate instance of
+   * this suite, created by the given factory, so that the instances don't share any mutable state
+   * (other than the {@link SuiteState}, which is only read by non-setup suites).
+   *
+   * @param forkFactory Creates new instances of this suite, with the same state and configuration.
+   */
+  void setForkFactory(Supplier<AbstractValidationSuite<S>> forkFactory) {
+    this.forkFactory = forkFactory;
+  }
+
+  /**
+   * @param stepListener Will be notified about each step of this suite, as soon as it's finished
+   *        (in the order in which the steps appear in {@link #getResults()}).
+   */
+  void setStepListener(Consumer<ValidationStepWithStatus> stepListener) {
+    this.stepListener = stepListener;
+  }
+
+  private void notifyStepFinished(ValidationStepWithStatus step) {
+    if (this.stepListener != null) {
+      this.stepListener.accept(step);
+    }
+  }
+
   protected void runTests(HttpSecurityDescription security) throws SuiteBroken {
-    boolean hasCompatibleTest = false;
+    List<Combination> compatibleCombinations = new ArrayList<>();
     for (Combination combination : this.currentState.combinations) {
       if (security == null || combination.getSecurityDescription().equals(security)) {
-        this.validateCombination(combination);
-        hasCompatibleTest = true;
+        compatibleCombinations.add(combination);
       }
     }
-    if (!hasCompatibleTest) {
+    if (compatibleCombinations.isEmpty()) {
       throw new RuntimeException(
           "Security " + security.toString() + " is not supported by this endpoint");
     }
+    if (this.forkFactory != null && this.combinationExecutor != null
+        && this.combinationExecutor.isEnabled() && compatibleCombinations.size() > 1) {
+      this.validateCombinationsConcurrently(compatibleCombinations);
+    } else {
+      for (Combination combination : compatibleCombinations) {
+        this.validateCombination(combination);
+      }
+    }
+  }
+
+  private static class CombinationResult {
+    private List<ValidationStepWithStatus> steps = Collections.emptyList();
+    private boolean broken;
+    private RuntimeException error;
+  }
+
+  /**
+   * Validate each of the combinations in a separate instance of this suite, and merge their steps
+   * in the original order. The outcome is the same as if the combinations were validated
+   * sequentially - steps of combinations which follow a broken one are discarded.
+   */
+  private void validateCombinationsConcurrently(List<Combination> combinations)
+      throws SuiteBroken {
+    List<Callable<CombinationResult>> tasks = new ArrayList<>();
+    for (Combination combination : combinations) {
+      tasks.add(() -> {
+        CombinationResult result = new CombinationResult();
+        try {
+          AbstractValidationSuite<S> fork = this.forkFactory.get();
+          result.steps = fork.steps;
+          fork.validateCombination(combination);
+        } catch (SuiteBroken e) {
+          result.broken = true;
+        } catch (RuntimeException e) {
+          result.error = e;
+        }
+        return result;
+      });
+    }
+    for (CombinationResult result : this.combinationExecutor.invokeAll(this.currentState.url,
+        tasks)) {
+      this.steps.addAll(result.steps);
+      result.steps.forEach(this::notifyStepFinished);
+      if (result.error != null) {
+        throw result.error;
+      }
+      if (result.broken) {
+        throw new SuiteBroken();
+      }
+    }
   }
 
   /**
@@ -172,7 +258,9 @@ public abstract class AbstractValidationSuite<S extends SuiteState> {
     } catch (SuiteBroken e) {
       this.currentState.broken = true;
     } catch (RuntimeException e) {
-      this.steps.add(new GenericErrorFakeStep(e));
+      GenericErrorFakeStep step = new GenericErrorFakeStep(e);
+      this.steps.add(step);
+      this.notifyStepFinished(step);
     }
   }
 
@@ -213,12 +301,15 @@ public abstract class AbstractValidationSuite<S extends SuiteState> {
    * @throws SuiteBroken If the step, which was required to succeed, fails.
    */
   protected void addAndRun(Status failedStatus, InlineValidationStep step) throws SuiteBroken {
+    step.setMaxSnapshotBodyBytes(this.maxSnapshotBodyBytes);
     this.steps.add(step);
     Status status = null;
     try {
       status = step.run();
     } catch (InlineValidationStep.FatalFailure e) {
       throw new SuiteBroken();
+    } finally {
+      this.notifyStepFinished(step);
     }
     if (failedStatus != null && status.compareTo(failedStatus) >= 0) {
       throw new SuiteBroken();
@@ -538,6 +629,8 @@ public abstract class AbstractValidationSuite<S extends SuiteState> {
           Status.ERROR,
           true
       );
+    } catch (ResponseBodyTooLarge e) {
+      throw new Failure(e.getMessage(), Status.FAILURE, null);
     } catch (IOException e) {
       getLogger().debug(
           "Problems retrieving response from server: {}", ExceptionUtils.getFullStackTrace(e));
@@ -860,7 +953,10 @@ public abstract class AbstractValidationSuite<S extends SuiteState> {
       );
     }
     Match root = $(result.getDocument().get()).namespaces(KnownNamespace.prefixMap());
-    verifier.performVerificaion(this, root, response, failureStatus);
+    // All the elements needed by the verifier are selected in a single pass over the response.
+    ResponseSelection selection = new ResponseSelection(root,
+        KnownNamespace.prefixMap().get(this.getApiInfo().getResponsePrefix()));
+    verifier.performVerificaion(this, selection, response, failureStatus);
   }
 
   protected void testParameters200(Combination combination, String name, Parameters params,
@@ -1807,6 +1903,8 @@ public abstract class AbstractValidationSuite<S extends SuiteState> {
     public final RegistryClient regClient;
     public final GitHubTagsGetter gitHubTagsGetter;
     private final CatalogueMatcherProvider catalogueMatcherProvider;
+    private final CombinationExecutor combinationExecutor;
+    private final int maxSnapshotBodyBytes;
 
     /**
      * Creates data structure with all configurations required for AbstractValidationSuite to work.
@@ -1816,18 +1914,24 @@ public abstract class AbstractValidationSuite<S extends SuiteState> {
      * @param regClient                Needed to fetch (and verify) APIs' security settings.
      * @param catalogueMatcherProvider to get {@link Match} for catalogue.
      * @param gitHubTagsGetter         to fetch API tags from GitHub.
+     * @param combinationExecutor      to validate security combinations concurrently.
+     * @param maxSnapshotBodyBytes     maximum size of a body kept in the steps' snapshots.
      */
     public ValidationSuiteConfig(
         EwpDocBuilder docBuilder,
         Internet internet,
         RegistryClient regClient,
         CatalogueMatcherProvider catalogueMatcherProvider,
-        GitHubTagsGetter gitHubTagsGetter) {
+        GitHubTagsGetter gitHubTagsGetter,
+        CombinationExecutor combinationExecutor,
+        int maxSnapshotBodyBytes) {
       this.docBuilder = docBuilder;
       this.internet = internet;
       this.regClient = regClient;
       this.catalogueMatcherProvider = catalogueMatcherProvider;
       this.gitHubTagsGetter = gitHubTagsGetter;
+      this.combinationExecutor = combinationExecutor;
+      this.maxSnapshotBodyBytes = maxSnapshotBodyBytes;
     }
   }
 
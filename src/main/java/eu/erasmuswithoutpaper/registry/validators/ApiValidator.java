@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import javax.annotation.PostConstruct;
 
 import eu.erasmuswithoutpaper.registry.documentbuilder.EwpDocBuilder;
@@ -11,6 +12,7 @@ import eu.erasmuswithoutpaper.registry.internet.Internet;
 import eu.erasmuswithoutpaper.registry.validators.githubtags.GitHubTagsGetter;
 import eu.erasmuswithoutpaper.registryclient.RegistryClient;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 
 import com.google.common.collect.ListMultimap;
 import com.google.common.collect.MultimapBuilder;
@@ -33,6 +35,10 @@ public abstract class ApiValidator<S extends SuiteState> {
   private CatalogueMatcherProvider catalogueMatcherProvider;
   @Autowired
   private GitHubTagsGetter gitHubTagsGetter;
+  @Autowired
+  private CombinationExecutor combinationExecutor;
+  @Value("${app.validator.max-snapshot-body-kilobytes}")
+  private int maxSnapshotBodyKilobytes;
 
   /**
    * @param docBuilder
@@ -176,10 +182,32 @@ public abstract class ApiValidator<S extends SuiteState> {
    */
   public List<ValidationStepWithStatus> runTests(String urlStr, SemanticVersion version,
       HttpSecurityDescription security, ValidationParameters parameters) {
+    return this.runTests(urlStr, version, security, parameters, null);
+  }
+
+  /**
+   * Runs all tests that are compatible with provided version, and reports the progress.
+   *
+   * @param urlStr
+   *     url to validate.
+   * @param version
+   *     version to validate.
+   * @param security
+   *     security method to validate.
+   * @param parameters
+   *     parameters passed by user.
+   * @param stepListener
+   *     if not null, then it will be notified about each step as soon as it's finished, in the same
+   *     order in which the steps appear in the returned list.
+   * @return List of steps performed and their results.
+   */
+  public List<ValidationStepWithStatus> runTests(String urlStr, SemanticVersion version,
+      HttpSecurityDescription security, ValidationParameters parameters,
+      Consumer<ValidationStepWithStatus> stepListener) {
     AbstractValidationSuite.ValidationSuiteConfig config =
         new AbstractValidationSuite.ValidationSuiteConfig(
             this.docBuilder, this.internet, this.client, this.catalogueMatcherProvider,
-            this.gitHubTagsGetter
+            this.gitHubTagsGetter, this.combinationExecutor, this.getMaxSnapshotBodyBytes()
         );
     List<ValidationStepWithStatus> result = new ArrayList<>();
     S state = createState(urlStr, version);
@@ -187,6 +215,8 @@ public abstract class ApiValidator<S extends SuiteState> {
     for (ValidationSuiteInfo<S> info : getCompatibleSuites(version, getValidationSuites())) {
       AbstractValidationSuite<S> suite =
           info.factory.create(this, state, config);
+      suite.setForkFactory(() -> info.factory.create(this, state, config));
+      suite.setStepListener(stepListener);
       suite.run(security);
       result.addAll(suite.getResults());
       if (state.broken) {
@@ -196,6 +226,14 @@ public abstract class ApiValidator<S extends SuiteState> {
     return result;
   }
 
+  private int getMaxSnapshotBodyBytes() {
+    if (this.maxSnapshotBodyKilobytes <= 0) {
+      // Not limited.
+      return Integer.MAX_VALUE;
+    }
+    return this.maxSnapshotBodyKilobytes * 1024;
+  }
+
   protected interface ValidationSuiteFactory<T extends SuiteState> {
     AbstractValidationSuite<T> create(ApiValidator<T> validator, T state,
         AbstractValidationSuite.ValidationSuiteConfig config);
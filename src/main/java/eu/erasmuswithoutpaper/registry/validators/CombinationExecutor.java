@@ -0,0 +1,117 @@
+package eu.erasmuswithoutpaper.registry.validators;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs independent parts of validation suites (security combinations) concurrently.
+ *
+ * <p>
+ * Parallel mode is opt-in. It is enabled only if the configured number of combinations which may
+ * be validated at the same time against a single target host is greater than 1. The limit is shared
+ * by all the validations being run, so that we don't flood any single partner with requests, even
+ * if multiple users validate its APIs at the same time.
+ * </p>
+ */
+@Service
+public class CombinationExecutor {
+
+  private final ExecutorService executor;
+  private final ConcurrentMap<String, Semaphore> permits = new ConcurrentHashMap<>();
+  private volatile int maxConcurrencyPerTarget;
+
+  /**
+   * @param maxConcurrencyPerTarget The maximum number of combinations validated concurrently
+   *        against a single host. Values lower than 2 disable parallel mode.
+   */
+  @Autowired
+  public CombinationExecutor(
+      @Value("${app.validator.max-parallel-combinations-per-target}") int maxConcurrencyPerTarget) {
+    this.maxConcurrencyPerTarget = maxConcurrencyPerTarget;
+    CustomizableThreadFactory threadFactory =
+        new CustomizableThreadFactory("validator-combination-");
+    threadFactory.setDaemon(true);
+    this.executor = Executors.newCachedThreadPool(threadFactory);
+  }
+
+  private static String getTargetKey(String url) {
+    try {
+      URL parsed = new URL(url);
+      int port = parsed.getPort() != -1 ? parsed.getPort() : parsed.getDefaultPort();
+      return parsed.getHost().toLowerCase(Locale.ENGLISH) + ":" + port;
+    } catch (MalformedURLException e) {
+      return url;
+    }
+  }
+
+  /**
+   * Run all the tasks, respecting the concurrency limit of the target host.
+   *
+   * @param targetUrl The URL which the tasks will be sending their requests to.
+   * @param tasks The tasks to run. They are expected to handle their own exceptions.
+   * @param <T> The type of the tasks' results.
+   * @return The results of the tasks, in the same order as the tasks were given.
+   */
+  public <T> List<T> invokeAll(String targetUrl, List<Callable<T>> tasks) {
+    Semaphore semaphore = this.permits.computeIfAbsent(getTargetKey(targetUrl),
+        key -> new Semaphore(Math.max(this.maxConcurrencyPerTarget, 1), true));
+    List<Future<T>> futures = new ArrayList<>();
+    for (Callable<T> task : tasks) {
+      futures.add(this.executor.submit(() -> {
+        semaphore.acquire();
+        try {
+          return task.call();
+        } finally {
+          semaphore.release();
+        }
+      }));
+    }
+    List<T> results = new ArrayList<>();
+    try {
+      for (Future<T> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futures.forEach(f -> f.cancel(true));
+      throw new RuntimeException(e);
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    return results;
+  }
+
+  /**
+   * @return True, if combinations should be validated concurrently.
+   */
+  public boolean isEnabled() {
+    return this.maxConcurrencyPerTarget > 1;
+  }
+
+  /**
+   * Change the concurrency limit. Validations which are already running keep their old limit.
+   *
+   * @param maxConcurrencyPerTarget The maximum number of combinations validated concurrently
+   *        against a single host. Values lower than 2 disable parallel mode.
+   */
+  public void setMaxConcurrencyPerTarget(int maxConcurrencyPerTarget) {
+    this.maxConcurrencyPerTarget = maxConcurrencyPerTarget;
+    this.permits.clear();
+  }
+}
@@ -0,0 +1,43 @@
+package eu.erasmuswithoutpaper.registry.validators;
+
+import eu.erasmuswithoutpaper.registry.internet.sec.GzipCodec;
+import eu.erasmuswithoutpaper.registry.internet.sec.GzipCodec.GzipFormatException;
+
+/**
+ * The full body of a request or response snapshot, kept gzip-compressed in memory.
+ *
+ * <p>
+ * Snapshots of large messages keep only the beginning of their bodies (see
+ * {@code app.validator.max-snapshot-body-kilobytes}), so that reports don't hold hundreds
+ * of megabytes. The full body is still available for download, for as long as the report is.
+ * </p>
+ */
+public class CompressedBody {
+
+  private final byte[] compressed;
+  private final int length;
+
+  CompressedBody(byte[] body) {
+    this.compressed = GzipCodec.compress(body);
+    this.length = body.length;
+  }
+
+  /**
+   * @return The decompressed body.
+   */
+  public byte[] getContent() {
+    try {
+      return GzipCodec.decompress(this.compressed, this.length);
+    } catch (GzipFormatException e) {
+      // We have compressed it ourselves.
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * @return The length of the decompressed body.
+   */
+  public int getLength() {
+    return this.length;
+  }
+}
@@ -15,7 +15,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
 import eu.erasmuswithoutpaper.registry.documentbuilder.BuildParams;
 import eu.erasmuswithoutpaper.registry.documentbuilder.BuildResult;
@@ -30,9 +30,32 @@ import org.joox.Match;
 
 public class HtmlValidationReportFormatter {
   private final EwpDocBuilder docBuilder;
+  private final String fullBodyUrlPrefix;
+  private final Date fullBodiesExpiryDate;
 
   public HtmlValidationReportFormatter(EwpDocBuilder docBuilder) {
+    this(docBuilder, null, null);
+  }
+
+  /**
+   * Create a formatter which links the snapshots with truncated bodies to their full bodies.
+   *
+   * @param docBuilder
+   *      needed to pretty-print the XML bodies.
+   * @param fullBodyUrlPrefix
+   *      URL of the list of steps of this report (without the trailing slash). Full bodies are
+   *      linked as {@code <prefix>/<step>/requests/<snapshot>/body} (and similarly for responses).
+   *      If null, then full bodies are not linked.
+   * @param fullBodiesExpiryDate
+   *      The date after which the full bodies won't be available anymore (it's shown next to the
+   *      links), or null if they don't expire.
+   */
+  public HtmlValidationReportFormatter(EwpDocBuilder docBuilder, String fullBodyUrlPrefix,
+      Date fullBodiesExpiryDate) {
     this.docBuilder = docBuilder;
+    this.fullBodyUrlPrefix = fullBodyUrlPrefix;
+    this.fullBodiesExpiryDate =
+        fullBodiesExpiryDate == null ? null : (Date) fullBodiesExpiryDate.clone();
   }
 
   public Map<String, Object> getPebbleContext(
@@ -141,9 +164,10 @@ public class HtmlValidationReportFormatter {
       ValidationInfoParameters validationInfoParameters
   ) {
     Map<String, Object> validationReportContext = new HashMap<>();
-    List<Map<String, Object>> testsArray = testResults.stream()
-        .map(this::createTestStepDescription)
-        .collect(Collectors.toList());
+    List<Map<String, Object>> testsArray = new ArrayList<>();
+    for (int i = 0; i < testResults.size(); i++) {
+      testsArray.add(createTestStepDescription(testResults.get(i), i));
+    }
 
     ValidationStepWithStatus.Status worstStatus =
         testResults.stream().map(ValidationStepWithStatus::getStatus).max(
@@ -171,7 +195,7 @@ public class HtmlValidationReportFormatter {
   }
 
   private Map<String, Object> createTestStepDescription(
-      ValidationStepWithStatus testResult) {
+      ValidationStepWithStatus testResult, int stepIndex) {
     Map<String, Object> testStepDescription = new HashMap<>();
     testStepDescription.put("name", testResult.getName());
     testStepDescription.put("status", testResult.getStatus().toString());
@@ -179,9 +203,9 @@ public class HtmlValidationReportFormatter {
     String message = testResult.getMessage();
     testStepDescription.put("message", message);
 
-    List<Object> requestSnapshots = formatRequestSnapshotsToMap(testResult);
+    List<Object> requestSnapshots = formatRequestSnapshotsToMap(testResult, stepIndex);
     testStepDescription.put("requestSnapshots", requestSnapshots);
-    List<Object> responseSnapshots = formatResponseSnapshotsToMap(testResult);
+    List<Object> responseSnapshots = formatResponseSnapshotsToMap(testResult, stepIndex);
     testStepDescription.put("responseSnapshots", responseSnapshots);
 
     boolean hasMessage = !message.isEmpty() && !message.equals("OK");
@@ -204,14 +228,35 @@ public class HtmlValidationReportFormatter {
   }
 
 
-  private List<Object> formatResponseSnapshotsToMap(ValidationStepWithStatus testResult) {
+  private List<Object> formatResponseSnapshotsToMap(ValidationStepWithStatus testResult,
+      int stepIndex) {
     List<Object> results = new ArrayList<>();
-    for (Response snapshot : testResult.getResponseSnapshots()) {
-      results.add(formatResponseSnapshotToMap(snapshot));
+    List<Response> snapshots = testResult.getResponseSnapshots();
+    for (int i = 0; i < snapshots.size(); i++) {
+      Map<String, Object> result = formatResponseSnapshotToMap(snapshots.get(i));
+      result.put("fullBodyUrl", getFullBodyUrl(testResult.getFullResponseBody(i), stepIndex,
+          "responses", i));
+      result.put("fullBodyExpires", this.getFullBodyExpiryString());
+      results.add(result);
     }
     return results;
   }
 
+  private String getFullBodyExpiryString() {
+    if (this.fullBodiesExpiryDate == null) {
+      return null;
+    }
+    return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX").format(this.fullBodiesExpiryDate);
+  }
+
+  private String getFullBodyUrl(Optional<CompressedBody> fullBody, int stepIndex, String kind,
+      int snapshotIndex) {
+    if (!fullBody.isPresent() || this.fullBodyUrlPrefix == null) {
+      return null;
+    }
+    return this.fullBodyUrlPrefix + "/" + stepIndex + "/" + kind + "/" + snapshotIndex + "/body";
+  }
+
   private Map<String, Object> formatResponseSnapshotToMap(Response response) {
     Map<String, Object> result = new HashMap<>();
     result.put("status", response.getStatus());
@@ -235,10 +280,16 @@ public class HtmlValidationReportFormatter {
     return result;
   }
 
-  private List<Object> formatRequestSnapshotsToMap(ValidationStepWithStatus testResult) {
+  private List<Object> formatRequestSnapshotsToMap(ValidationStepWithStatus testResult,
+      int stepIndex) {
     List<Object> results = new ArrayList<>();
-    for (Request snapshot : testResult.getRequestSnapshots()) {
-      results.add(formatRequestSnapshotToMap(snapshot));
+    List<Request> snapshots = testResult.getRequestSnapshots();
+    for (int i = 0; i < snapshots.size(); i++) {
+      Map<String, Object> result = formatRequestSnapshotToMap(snapshots.get(i));
+      result.put("fullBodyUrl", getFullBodyUrl(testResult.getFullRequestBody(i), stepIndex,
+          "requests", i));
+      result.put("fullBodyExpires", this.getFullBodyExpiryString());
+      results.add(result);
     }
     return results;
   }
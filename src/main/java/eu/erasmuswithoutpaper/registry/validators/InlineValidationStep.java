@@ -5,7 +5,10 @@ import static org.joox.JOOX.$;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import eu.erasmuswithoutpaper.registry.internet.Request;
@@ -93,10 +96,41 @@ public abstract class InlineValidationStep implements ValidationStepWithStatus {
   public static class FatalFailure extends Exception {
   }
 
+  /**
+   * The default value of {@link #setMaxSnapshotBodyBytes(int)}.
+   */
+  public static final int DEFAULT_MAX_SNAPSHOT_BODY_BYTES = 512 * 1024;
+
+  private int maxSnapshotBodyBytes = DEFAULT_MAX_SNAPSHOT_BODY_BYTES;
   private Status status = Status.PENDING;
   private String message = null;
   private final List<Request> requestSnapshots = new ArrayList<>();
   private final List<Response> responseSnapshots = new ArrayList<>();
+  private final Map<Integer, CompressedBody> fullRequestBodies = new HashMap<>();
+  private final Map<Integer, CompressedBody> fullResponseBodies = new HashMap<>();
+
+  /**
+   * @return True, if the snapshot's full body (if it has been truncated) is the same as the given
+   *         one. Snapshots which have not been truncated have already been compared in full.
+   */
+  private static boolean isSameBody(byte[] body, Optional<CompressedBody> fullBody) {
+    return !fullBody.isPresent() || Arrays.equals(body, fullBody.get().getContent());
+  }
+
+  private static String getTruncationNotice(int maxBytes, int length) {
+    return "The body has " + length + " bytes. Only the first " + maxBytes
+        + " bytes are shown here.";
+  }
+
+  @Override
+  public Optional<CompressedBody> getFullRequestBody(int index) {
+    return Optional.ofNullable(this.fullRequestBodies.get(index));
+  }
+
+  @Override
+  public Optional<CompressedBody> getFullResponseBody(int index) {
+    return Optional.ofNullable(this.fullResponseBodies.get(index));
+  }
 
   @Override
   public String getMessage() {
@@ -123,10 +157,12 @@ public abstract class InlineValidationStep implements ValidationStepWithStatus {
     if (snapshots.size() == 0) {
       return Optional.empty();
     }
+    int last = snapshots.size() - 1;
+    byte[] body = this.getFullResponseBody(last).map(CompressedBody::getContent)
+        .orElse(snapshots.get(last).getBody());
     Document document;
     try {
-      document =
-          $(new ByteArrayInputStream(snapshots.get(snapshots.size() - 1).getBody())).document();
+      document = $(new ByteArrayInputStream(body)).document();
     } catch (SAXException | IOException e) {
       return Optional.empty();
     }
@@ -143,22 +179,59 @@ public abstract class InlineValidationStep implements ValidationStepWithStatus {
     return this.status;
   }
 
+  /**
+   * Set the maximum size of a body kept in request and response snapshots of this step. Snapshots
+   * of larger messages keep only the beginning of the body, and the full body is kept compressed
+   * (see {@link #getFullRequestBody(int)} and {@link #getFullResponseBody(int)}).
+   *
+   * <p>
+   * {@link AbstractValidationSuite} sets it (as configured) for every step it runs.
+   * </p>
+   *
+   * @param maxBytes The maximum size of a snapshot's body, in bytes.
+   */
+  void setMaxSnapshotBodyBytes(int maxBytes) {
+    this.maxSnapshotBodyBytes = maxBytes;
+  }
+
   void addRequestSnapshot(Request request) {
-    if ((this.requestSnapshots.size() > 0)
-        && (request.equals(this.requestSnapshots.get(this.requestSnapshots.size() - 1)))) {
+    Request snapshot = new Request(request);
+    byte[] body = request.getBodyOrEmpty();
+    int maxBytes = this.maxSnapshotBodyBytes;
+    if (body.length > maxBytes) {
+      snapshot.setBody(Arrays.copyOf(body, maxBytes));
+      snapshot.addProcessingNoticeHtml(getTruncationNotice(maxBytes, body.length));
+    }
+    int last = this.requestSnapshots.size() - 1;
+    if (last >= 0 && snapshot.equals(this.requestSnapshots.get(last))
+        && isSameBody(body, this.getFullRequestBody(last))) {
       // Adding the same snapshot twice. Skip it.
       return;
     }
-    this.requestSnapshots.add(new Request(request));
+    if (body.length > maxBytes) {
+      this.fullRequestBodies.put(last + 1, new CompressedBody(body));
+    }
+    this.requestSnapshots.add(snapshot);
   }
 
   void addResponseSnapshot(Response response) {
-    if ((this.responseSnapshots.size() > 0)
-        && (response.equals(this.responseSnapshots.get(this.responseSnapshots.size() - 1)))) {
+    Response snapshot = new Response(response);
+    byte[] body = response.getBody();
+    int maxBytes = this.maxSnapshotBodyBytes;
+    if (body.length > maxBytes) {
+      snapshot.setBody(Arrays.copyOf(body, maxBytes));
+      snapshot.addProcessingNoticeHtml(getTruncationNotice(maxBytes, body.length));
+    }
+    int last = this.responseSnapshots.size() - 1;
+    if (last >= 0 && snapshot.equals(this.responseSnapshots.get(last))
+        && isSameBody(body, this.getFullResponseBody(last))) {
       // Adding the same snapshot twice. Skip it.
       return;
     }
-    this.responseSnapshots.add(new Response(response));
+    if (body.length > maxBytes) {
+      this.fullResponseBodies.put(last + 1, new CompressedBody(body));
+    }
+    this.responseSnapshots.add(snapshot);
   }
 
   /**
@@ -2,56 +2,245 @@ package eu.erasmuswithoutpaper.registry.validators;
 
 import static org.joox.JOOX.$;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
 import javax.xml.parsers.DocumentBuilder;
 
+import eu.erasmuswithoutpaper.registry.common.PrivateDirectories;
 import eu.erasmuswithoutpaper.registry.common.Utils;
 import eu.erasmuswithoutpaper.registry.consoleapplication.RegistryDomainProvider;
 import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnNotWebApplication;
 import org.springframework.stereotype.Service;
 
+import org.apache.commons.io.IOUtils;
 import org.joox.Match;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
+/**
+ * Provides the catalogue of a remote registry (used in console mode).
+ *
+ * <p>
+ * The catalogue is cached on disk (along with its ETag and Last-Modified headers), so that it
+ * doesn't need to be downloaded again by subsequent runs of the validator, unless it has changed
+ * on the server. The parsed catalogue is also kept in memory, and it is revalidated with the server
+ * only after the configured time has passed. If the server cannot be reached, then the cached copy
+ * is used.
+ * </p>
+ *
+ * <p>
+ * The cached catalogue decides which keys the validator trusts, so the cache directory is used only
+ * if it's private to the current user (see {@link PrivateDirectories#ensurePrivate(Path)}).
+ * </p>
+ */
 @Service
 @ConditionalOnNotWebApplication
 public class RemoteCatalogueMatcherProvider implements CatalogueMatcherProvider {
-  private URL catalogueUrl;
+  private static final Logger logger =
+      LoggerFactory.getLogger(RemoteCatalogueMatcherProvider.class);
+
+  private static final String ETAG = "etag";
+  private static final String LAST_MODIFIED = "last-modified";
+
+  private final URL catalogueUrl;
+  private final Path cacheDirectory;
+  private final Path cacheFile;
+  private final Path metadataFile;
+  private final long maxAgeMillis;
+
+  private Document snapshot;
+  private long snapshotCheckedAt;
 
   /**
    * Returns {@link Match}er that can be used to match against contents of the catalogue.
    *
    * @param registryDomainProvider
    *      Provides a domain identifying the registry.
+   * @param cacheDirectory
+   *      Directory in which the downloaded catalogue is stored. By default, a subdirectory of the
+   *      user's home directory is used.
+   * @param maxAgeSeconds
+   *      For how long the catalogue is used without asking the registry if it has changed.
    */
   @Autowired
-  public RemoteCatalogueMatcherProvider(RegistryDomainProvider registryDomainProvider) {
-    String registryDomain = registryDomainProvider.getRegistryDomain();
+  public RemoteCatalogueMatcherProvider(RegistryDomainProvider registryDomainProvider,
+      @Value("${app.console.catalogue-cache-dir:#{null}}") String cacheDirectory,
+      @Value("${app.console.catalogue-max-age-seconds:300}") int maxAgeSeconds) {
+    this(createCatalogueUrl(registryDomainProvider.getRegistryDomain()),
+        getCacheDirectory(cacheDirectory).resolve(registryDomainProvider.getRegistryDomain()),
+        maxAgeSeconds * 1000L);
+  }
+
+  RemoteCatalogueMatcherProvider(URL catalogueUrl, Path cacheDirectory, long maxAgeMillis) {
+    this.catalogueUrl = catalogueUrl;
+    this.cacheDirectory = cacheDirectory;
+    this.cacheFile = cacheDirectory.resolve("catalogue-v1.xml");
+    this.metadataFile = cacheDirectory.resolve("catalogue-v1.properties");
+    this.maxAgeMillis = maxAgeMillis;
+  }
 
+  private static URL createCatalogueUrl(String registryDomain) {
     try {
-      this.catalogueUrl = new URL("https://" + registryDomain + "/catalogue-v1.xml");
+      return new URL("https://" + registryDomain + "/catalogue-v1.xml");
     } catch (MalformedURLException e) {
       throw new RuntimeException(e);
     }
   }
 
-  @Override
-  public Match getMatcher() {
-    DocumentBuilder docBuilder = Utils.newSecureDocumentBuilder();
-    Document doc;
+  private static Path getCacheDirectory(String cacheDirectory) {
+    if (cacheDirectory != null) {
+      return Paths.get(cacheDirectory);
+    }
+    return PrivateDirectories.getDefaultCacheDirectory("validator-catalogue");
+  }
 
-    try (InputStream manifestStream = this.catalogueUrl.openStream()) {
-      doc = docBuilder.parse(manifestStream);
+  private static Document parse(byte[] catalogue) {
+    DocumentBuilder docBuilder = Utils.newSecureDocumentBuilder();
+    try {
+      return docBuilder.parse(new ByteArrayInputStream(catalogue));
     } catch (SAXException | IOException e) {
       throw new RuntimeException(e);
     }
+  }
 
+  @Override
+  public Match getMatcher() {
+    Document doc;
+    synchronized (this) {
+      if (this.snapshot == null
+          || System.currentTimeMillis() - this.snapshotCheckedAt >= this.maxAgeMillis) {
+        this.refresh();
+      }
+      // Every caller gets its own copy, as DOM documents are not safe for concurrent use.
+      doc = (Document) this.snapshot.cloneNode(true);
+    }
     return $(doc).namespaces(KnownNamespace.prefixMap());
   }
+
+  private Properties loadMetadata() {
+    Properties metadata = new Properties();
+    if (Files.isRegularFile(this.cacheFile) && Files.isRegularFile(this.metadataFile)) {
+      try (InputStream input = Files.newInputStream(this.metadataFile)) {
+        metadata.load(input);
+      } catch (IOException e) {
+        logger.warn("Cannot read " + this.metadataFile + ", ignoring it.", e);
+      }
+    }
+    return metadata;
+  }
+
+  private boolean isCacheTrusted() {
+    try {
+      PrivateDirectories.ensurePrivate(this.cacheDirectory);
+      return true;
+    } catch (IOException e) {
+      logger.warn("Not using the cached catalogue: " + e.getMessage());
+      return false;
+    }
+  }
+
+  private void refresh() {
+    boolean cacheTrusted = this.isCacheTrusted();
+    Properties metadata = cacheTrusted ? this.loadMetadata() : new Properties();
+    byte[] downloaded;
+    try {
+      downloaded = this.download(metadata);
+    } catch (IOException e) {
+      if (!cacheTrusted || !Files.isRegularFile(this.cacheFile)) {
+        throw new RuntimeException(e);
+      }
+      logger.warn("Cannot fetch " + this.catalogueUrl + ", using the cached copy.", e);
+      downloaded = null;
+    }
+
+    if (downloaded != null) {
+      this.snapshot = parse(downloaded);
+      if (cacheTrusted) {
+        this.store(downloaded, metadata);
+      }
+    } else if (this.snapshot == null) {
+      try {
+        this.snapshot = parse(Files.readAllBytes(this.cacheFile));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+    this.snapshotCheckedAt = System.currentTimeMillis();
+  }
+
+  /**
+   * Fetch the catalogue, unless it hasn't changed since it was cached.
+   *
+   * @param metadata Headers of the cached copy. They are updated if a new copy is downloaded.
+   * @return The new catalogue, or null if the cached copy is still valid.
+   * @throws IOException If the catalogue cannot be fetched.
+   */
+  private byte[] download(Properties metadata) throws IOException {
+    URLConnection conn = this.catalogueUrl.openConnection();
+    if (!(conn instanceof HttpURLConnection)) {
+      try (InputStream input = conn.getInputStream()) {
+        return IOUtils.toByteArray(input);
+      }
+    }
+    HttpURLConnection httpConn = (HttpURLConnection) conn;
+    try {
+      if (metadata.getProperty(ETAG) != null) {
+        httpConn.setRequestProperty("If-None-Match", metadata.getProperty(ETAG));
+      }
+      if (metadata.getProperty(LAST_MODIFIED) != null) {
+        httpConn.setRequestProperty("If-Modified-Since", metadata.getProperty(LAST_MODIFIED));
+      }
+      int status = httpConn.getResponseCode();
+      if (status == HttpURLConnection.HTTP_NOT_MODIFIED && !metadata.isEmpty()) {
+        return null;
+      }
+      if (status != HttpURLConnection.HTTP_OK) {
+        throw new IOException("Unexpected HTTP status " + status + " from " + this.catalogueUrl);
+      }
+      byte[] result;
+      try (InputStream input = httpConn.getInputStream()) {
+        result = IOUtils.toByteArray(input);
+      }
+      metadata.clear();
+      if (httpConn.getHeaderField("ETag") != null) {
+        metadata.setProperty(ETAG, httpConn.getHeaderField("ETag"));
+      }
+      if (httpConn.getHeaderField("Last-Modified") != null) {
+        metadata.setProperty(LAST_MODIFIED, httpConn.getHeaderField("Last-Modified"));
+      }
+      return result;
+    } finally {
+      httpConn.disconnect();
+    }
+  }
+
+  private void store(byte[] catalogue, Properties metadata) {
+    try {
+      Path tempFile = Files.createTempFile(this.cacheFile.getParent(), "catalogue", ".tmp");
+      Files.write(tempFile, catalogue);
+      Files.move(tempFile, this.cacheFile, StandardCopyOption.REPLACE_EXISTING);
+      try (OutputStream output = Files.newOutputStream(this.metadataFile)) {
+        metadata.store(output, this.catalogueUrl.toString());
+      }
+    } catch (IOException e) {
+      // The cache is only an optimization, the validator can work without it.
+      logger.warn("Cannot store the catalogue in " + this.cacheFile, e);
+    }
+  }
 }
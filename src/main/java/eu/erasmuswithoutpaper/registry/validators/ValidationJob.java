@@ -0,0 +1,202 @@
+package eu.erasmuswithoutpaper.registry.validators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single validation run, executed in the background by {@link ValidationJobManager}.
+ *
+ * <p>
+ * The steps are made available as soon as they are finished, so that clients can display the
+ * progress while the validation is still running.
+ * </p>
+ */
+public class ValidationJob {
+
+  /**
+   * Possible states of the job.
+   */
+  public enum State {
+    /**
+     * Waiting for a free validation thread.
+     */
+    QUEUED,
+    /**
+     * Being validated.
+     */
+    RUNNING,
+    /**
+     * All steps have been run.
+     */
+    FINISHED,
+    /**
+     * The validator has crashed. Steps which have been finished before the crash are available.
+     */
+    FAILED
+  }
+
+  private final String id;
+  private final String apiName;
+  private final ApiEndpoint endpoint;
+  private final String url;
+  private final SemanticVersion version;
+  private final HttpSecurityDescription security;
+  private final ValidationParameters parameters;
+  private final Date submittedDate;
+  private final List<ValidationStepWithStatus> finishedSteps = new ArrayList<>();
+  private final CountDownLatch doneLatch = new CountDownLatch(1);
+  private volatile State state = State.QUEUED;
+  private volatile Date startedDate;
+  private volatile Date finishedDate;
+  private volatile String errorMessage;
+
+  ValidationJob(String apiName, ApiEndpoint endpoint, String url, SemanticVersion version,
+      HttpSecurityDescription security, ValidationParameters parameters) {
+    this.id = UUID.randomUUID().toString();
+    this.apiName = apiName;
+    this.endpoint = endpoint;
+    this.url = url;
+    this.version = version;
+    this.security = security;
+    this.parameters = parameters;
+    this.submittedDate = new Date();
+  }
+
+  /**
+   * Wait until the job is done, but no longer than the given time.
+   *
+   * @param timeout The maximum time to wait.
+   * @param unit The unit of the timeout.
+   * @return True, if the job is done. False, if the waiting time has elapsed.
+   * @throws InterruptedException If the current thread is interrupted while waiting.
+   */
+  public boolean awaitDone(long timeout, TimeUnit unit) throws InterruptedException {
+    return this.doneLatch.await(timeout, unit);
+  }
+
+  public String getApiName() {
+    return this.apiName;
+  }
+
+  public ApiEndpoint getEndpoint() {
+    return this.endpoint;
+  }
+
+  public Optional<String> getErrorMessage() {
+    return Optional.ofNullable(this.errorMessage);
+  }
+
+  /**
+   * @return The date when the job was finished (or failed), if it's done.
+   */
+  public Optional<Date> getFinishedDate() {
+    return Optional.ofNullable(this.finishedDate).map(d -> new Date(d.getTime()));
+  }
+
+  public String getId() {
+    return this.id;
+  }
+
+  public ValidationParameters getParameters() {
+    return this.parameters;
+  }
+
+  public HttpSecurityDescription getSecurity() {
+    return this.security;
+  }
+
+  /**
+   * @return The date when the validation has started, if it's not queued anymore.
+   */
+  public Optional<Date> getStartedDate() {
+    return Optional.ofNullable(this.startedDate).map(d -> new Date(d.getTime()));
+  }
+
+  public State getState() {
+    return this.state;
+  }
+
+  /**
+   * @return The number of steps finished so far.
+   */
+  public int getStepCount() {
+    synchronized (this.finishedSteps) {
+      return this.finishedSteps.size();
+    }
+  }
+
+  /**
+   * @param fromIndex The number of steps which the caller has already seen.
+   * @return The steps finished so far, starting at the given index.
+   */
+  public List<ValidationStepWithStatus> getSteps(int fromIndex) {
+    synchronized (this.finishedSteps) {
+      if (fromIndex >= this.finishedSteps.size()) {
+        return Collections.emptyList();
+      }
+      return new ArrayList<>(
+          this.finishedSteps.subList(Math.max(fromIndex, 0), this.finishedSteps.size()));
+    }
+  }
+
+  public Date getSubmittedDate() {
+    return new Date(this.submittedDate.getTime());
+  }
+
+  public String getUrl() {
+    return this.url;
+  }
+
+  public SemanticVersion getVersion() {
+    return this.version;
+  }
+
+  /**
+   * @return True, if the job is either {@link State#FINISHED} or {@link State#FAILED}.
+   */
+  public boolean isDone() {
+    return this.state == State.FINISHED || this.state == State.FAILED;
+  }
+
+  synchronized void onFailed(Throwable error) {
+    if (this.isDone()) {
+      // Cancelled jobs may still finish in the background. Their first result is kept.
+      return;
+    }
+    this.errorMessage = error.toString();
+    this.finishedDate = new Date();
+    this.state = State.FAILED;
+    this.doneLatch.countDown();
+  }
+
+  synchronized void onFinished(List<ValidationStepWithStatus> results) {
+    if (this.isDone()) {
+      return;
+    }
+    synchronized (this.finishedSteps) {
+      // Should already be the same, but the final list is authoritative.
+      this.finishedSteps.clear();
+      this.finishedSteps.addAll(results);
+    }
+    this.finishedDate = new Date();
+    this.state = State.FINISHED;
+    this.doneLatch.countDown();
+  }
+
+  void onStarted() {
+    this.startedDate = new Date();
+    this.state = State.RUNNING;
+  }
+
+  void onStepFinished(ValidationStepWithStatus step) {
+    synchronized (this.finishedSteps) {
+      this.finishedSteps.add(step);
+    }
+  }
+}
@@ -0,0 +1,256 @@
+package eu.erasmuswithoutpaper.registry.validators;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs API validations in the background, so that they don't block servlet threads.
+ *
+ * <p>
+ * Only a limited number of validations is run at the same time. Further validations are queued,
+ * and if the queue is full, new validations are rejected with {@link ValidationQueueFull}. Jobs
+ * which are done are kept for a limited time only, so that clients have a chance to fetch their
+ * results.
+ * </p>
+ *
+ * <p>
+ * Identical validations (of the same API, at the same URL, with the same security and parameters)
+ * are not run twice in a short period of time. If such a validation is still running, or if it has
+ * finished only recently, then the existing job is returned instead of submitting a new one. Jobs
+ * which have been running for longer than the configured maximum are considered to be stuck. They
+ * are cancelled (their threads are interrupted), and are neither reused, nor kept.
+ * </p>
+ */
+@Service
+public class ValidationJobManager {
+
+  private static final Logger logger = LoggerFactory.getLogger(ValidationJobManager.class);
+
+  /**
+   * Thrown when the validation cannot be submitted, because too many validations are already
+   * waiting.
+   */
+  @SuppressWarnings("serial")
+  public static class ValidationQueueFull extends RuntimeException {
+    ValidationQueueFull() {
+      super("Too many validations are currently running. Please try again later.");
+    }
+  }
+
+  /**
+   * Identifies validations which would give the same results.
+   */
+  private static class ValidationJobKey {
+    private final String apiName;
+    private final ApiEndpoint endpoint;
+    private final String url;
+    private final SemanticVersion version;
+    private final HttpSecurityDescription security;
+    private final Map<String, String> parameters = new HashMap<>();
+
+    ValidationJobKey(ValidationJob job) {
+      this.apiName = job.getApiName();
+      this.endpoint = job.getEndpoint();
+      this.url = job.getUrl();
+      this.version = job.getVersion();
+      this.security = job.getSecurity();
+      for (Map.Entry<String, String> entry : job.getParameters().getParameters()) {
+        this.parameters.put(entry.getKey(), entry.getValue());
+      }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (other == null || getClass() != other.getClass()) {
+        return false;
+      }
+      ValidationJobKey that = (ValidationJobKey) other;
+      return Objects.equals(apiName, that.apiName)
+          && Objects.equals(endpoint, that.endpoint)
+          && Objects.equals(url, that.url)
+          && Objects.equals(version, that.version)
+          && Objects.equals(security, that.security)
+          && Objects.equals(parameters, that.parameters);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(apiName, endpoint, url, version, security, parameters);
+    }
+  }
+
+  private final ApiValidatorsManager apiValidatorsManager;
+  private final ThreadPoolExecutor executor;
+  private final long retentionMillis;
+  private final long resultCacheMillis;
+  private final long maxRuntimeMillis;
+  private final ConcurrentMap<String, ValidationJob> jobs = new ConcurrentHashMap<>();
+  private final Map<ValidationJobKey, ValidationJob> jobsByKey = new HashMap<>();
+  private final Map<String, Future<?>> futures = new HashMap<>();
+
+  /**
+   * @param apiValidatorsManager needed to find the validators to run.
+   * @param maxConcurrentJobs The maximum number of validations run at the same time.
+   * @param maxQueuedJobs The maximum number of validations waiting for a free thread.
+   * @param retentionMinutes For how long the jobs are kept after they are done.
+   * @param resultCacheSeconds For how long the results of a finished job are reused for identical
+   *        validations.
+   * @param maxRuntimeMinutes After how long a job which is still running is considered to be
+   *        stuck.
+   */
+  @Autowired
+  public ValidationJobManager(ApiValidatorsManager apiValidatorsManager,
+      @Value("${app.validator.jobs.max-concurrent}") int maxConcurrentJobs,
+      @Value("${app.validator.jobs.max-queued}") int maxQueuedJobs,
+      @Value("${app.validator.jobs.retention-minutes}") int retentionMinutes,
+      @Value("${app.validator.jobs.result-cache-seconds}") int resultCacheSeconds,
+      @Value("${app.validator.jobs.max-runtime-minutes}") int maxRuntimeMinutes) {
+    this.apiValidatorsManager = apiValidatorsManager;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("validation-job-");
+    threadFactory.setDaemon(true);
+    this.executor = new ThreadPoolExecutor(maxConcurrentJobs, maxConcurrentJobs, 0L,
+        TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(maxQueuedJobs, 1)),
+        threadFactory);
+    this.retentionMillis = retentionMinutes * 60L * 1000L;
+    this.resultCacheMillis = Math.min(resultCacheSeconds * 1000L, this.retentionMillis);
+    this.maxRuntimeMillis = maxRuntimeMinutes * 60L * 1000L;
+  }
+
+  /**
+   * @param job A job which is done.
+   * @return The date after which the job (and its results) will be removed.
+   */
+  public Date getExpiryDate(ValidationJob job) {
+    Date finished = job.getFinishedDate().orElseGet(Date::new);
+    return new Date(finished.getTime() + this.retentionMillis);
+  }
+
+  /**
+   * @param jobId The ID of the job, as returned by {@link ValidationJob#getId()}.
+   * @return The job, unless it doesn't exist or it has already expired.
+   */
+  public Optional<ValidationJob> getJob(String jobId) {
+    this.removeExpiredJobs();
+    return Optional.ofNullable(this.jobs.get(jobId));
+  }
+
+  /**
+   * @return The number of validations waiting for a free thread.
+   */
+  public int getQueuedJobCount() {
+    return this.executor.getQueue().size();
+  }
+
+  /**
+   * Submit a new validation, unless an identical one is already running or has finished recently.
+   * The caller is responsible for checking if there are any tests compatible with the given API
+   * and version.
+   *
+   * @param apiName name of the API to validate.
+   * @param endpoint the API's endpoint to validate.
+   * @param url the URL at which the API is served.
+   * @param version version of the API.
+   * @param security security method to validate.
+   * @param parameters parameters passed by the user.
+   * @return Either the newly created job, or an existing identical one.
+   * @throws ValidationQueueFull If the job cannot be queued.
+   */
+  public synchronized ValidationJob submit(String apiName, ApiEndpoint endpoint, String url,
+      SemanticVersion version, HttpSecurityDescription security, ValidationParameters parameters) {
+    this.removeExpiredJobs();
+    ValidationJob job = new ValidationJob(apiName, endpoint, url, version, security, parameters);
+    ValidationJobKey key = new ValidationJobKey(job);
+    ValidationJob existing = this.jobsByKey.get(key);
+    if (existing != null && this.isReusable(existing)) {
+      return existing;
+    }
+    try {
+      this.futures.put(job.getId(), this.executor.submit(() -> this.runJob(job)));
+    } catch (RejectedExecutionException e) {
+      throw new ValidationQueueFull();
+    }
+    this.jobs.put(job.getId(), job);
+    this.jobsByKey.put(key, job);
+    return job;
+  }
+
+  private boolean isReusable(ValidationJob job) {
+    if (job.getState() == ValidationJob.State.FAILED || this.isStuck(job)) {
+      return false;
+    }
+    long threshold = System.currentTimeMillis() - this.resultCacheMillis;
+    return job.getFinishedDate().map(d -> d.getTime() >= threshold).orElse(true);
+  }
+
+  private boolean isStuck(ValidationJob job) {
+    if (job.isDone()) {
+      return false;
+    }
+    long threshold = System.currentTimeMillis() - this.maxRuntimeMillis;
+    return job.getStartedDate().map(d -> d.getTime() < threshold).orElse(false);
+  }
+
+  private synchronized void removeExpiredJobs() {
+    long threshold = System.currentTimeMillis() - this.retentionMillis;
+    this.jobs.values().removeIf(job -> {
+      if (this.isStuck(job)) {
+        this.cancelStuckJob(job);
+        return true;
+      }
+      return job.getFinishedDate().map(d -> d.getTime() < threshold).orElse(false);
+    });
+    this.jobsByKey.values().removeIf(job -> !this.jobs.containsKey(job.getId()));
+    this.futures.keySet().retainAll(this.jobs.keySet());
+  }
+
+  private void cancelStuckJob(ValidationJob job) {
+    logger.warn("Validation job " + job.getId() + " is stuck, cancelling it");
+    // Otherwise it would keep running next to the job which replaces it.
+    Future<?> future = this.futures.get(job.getId());
+    if (future != null) {
+      future.cancel(true);
+    }
+    job.onFailed(new RuntimeException("The validation took too long, and has been cancelled."));
+  }
+
+  private void runJob(ValidationJob job) {
+    job.onStarted();
+    try {
+      List<ValidationStepWithStatus> results =
+          this.apiValidatorsManager.getApiValidator(job.getApiName(), job.getEndpoint())
+              .runTests(job.getUrl(), job.getVersion(), job.getSecurity(), job.getParameters(),
+                  job::onStepFinished);
+      job.onFinished(results);
+    } catch (RuntimeException e) {
+      logger.error("Validation job " + job.getId() + " has failed", e);
+      job.onFailed(e);
+    } catch (Error e) {
+      // Still mark the job as done, so that nobody waits for it forever.
+      logger.error("Validation job " + job.getId() + " has failed", e);
+      job.onFailed(e);
+      throw e;
+    }
+  }
+}
@@ -3,6 +3,7 @@ package eu.erasmuswithoutpaper.registry.validators;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 
 public class ValidationParameters {
@@ -66,4 +67,20 @@ public class ValidationParameters {
   public Set<Map.Entry<String, String>> getParameters() {
     return map.entrySet();
   }
+
+  @Override
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    }
+    if (other == null || getClass() != other.getClass()) {
+      return false;
+    }
+    return Objects.equals(map, ((ValidationParameters) other).map);
+  }
+
+  @Override
+  public int hashCode() {
+    return map.hashCode();
+  }
 }
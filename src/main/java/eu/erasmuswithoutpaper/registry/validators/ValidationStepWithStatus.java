@@ -36,6 +36,24 @@ public interface ValidationStepWithStatus {
    */
   List<Request> getRequestSnapshots();
 
+  /**
+   * @param index Index of the snapshot in {@link #getRequestSnapshots()}.
+   * @return The full body of this snapshot, if the snapshot itself contains only the beginning of
+   *         it. Empty, if the snapshot contains the full body.
+   */
+  default Optional<CompressedBody> getFullRequestBody(int index) {
+    return Optional.empty();
+  }
+
+  /**
+   * @param index Index of the snapshot in {@link #getResponseSnapshots()}.
+   * @return The full body of this snapshot, if the snapshot itself contains only the beginning of
+   *         it. Empty, if the snapshot contains the full body.
+   */
+  default Optional<CompressedBody> getFullResponseBody(int index) {
+    return Optional.empty();
+  }
+
   /**
    * @return List of response decoding snapshots. The first one contains the response exactly as
    *         received from server. Then, signatures are verified and stripped. Then the response is
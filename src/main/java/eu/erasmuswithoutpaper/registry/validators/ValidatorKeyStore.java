@@ -3,7 +3,10 @@ package eu.erasmuswithoutpaper.registry.validators;
 import java.math.BigInteger;
 import java.security.KeyPair;
 import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
 import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAPrivateKey;
@@ -12,7 +15,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
+import eu.erasmuswithoutpaper.registry.common.KeyPairAndCertificate;
+import eu.erasmuswithoutpaper.registry.common.KeyStoreUtils;
+import eu.erasmuswithoutpaper.registry.common.KeyStoreUtilsException;
 import eu.erasmuswithoutpaper.registry.web.SelfManifestProvider;
 
 import org.bouncycastle.asn1.x500.X500Name;
@@ -71,6 +78,88 @@ public class ValidatorKeyStore {
     }
   }
 
+  /**
+   * Create a key store with previously generated credentials.
+   */
+  private ValidatorKeyStore(List<String> coveredHeiIds, Date credentialsDate,
+      KeyPair clientRsaKeyPair, KeyPair serverRsaKeyPair, KeyPairAndCertificate tls,
+      KeyPair unregisteredKeyPair) {
+    this.myCredentialsDate = credentialsDate;
+    this.myClientRsaKeyPair = clientRsaKeyPair;
+    this.myServerRsaKeyPair = serverRsaKeyPair;
+    this.myTlsKeyPair = tls.keyPair;
+    this.myTlsCertificate = tls.certificate;
+    this.myUnregisteredKeyPair = unregisteredKeyPair;
+    this.myCoveredHeiIDs = new ArrayList<>(coveredHeiIds);
+  }
+
+  /**
+   * Load credentials previously stored with {@link #store(KeyStore, String, char[])}.
+   *
+   * @param keyStore The key store to read the credentials from.
+   * @param prefix The prefix of the aliases under which the credentials have been stored.
+   * @param password The password protecting the keys.
+   * @param coveredHeiIds HEI IDs to be added as covered-institutions in the manifest.
+   * @return The loaded {@link ValidatorKeyStore}, or empty, if no credentials have been stored
+   *     under this prefix.
+   * @throws KeyStoreUtilsException If the credentials cannot be read.
+   */
+  public static Optional<ValidatorKeyStore> load(KeyStore keyStore, String prefix,
+      char[] password, List<String> coveredHeiIds) throws KeyStoreUtilsException {
+    try {
+      if (!keyStore.containsAlias(prefix + "-client")) {
+        return Optional.empty();
+      }
+    } catch (KeyStoreException e) {
+      throw new KeyStoreUtilsException("Cannot read keys: " + e.getMessage());
+    }
+    KeyPairAndCertificate client =
+        KeyStoreUtils.readKeyPairAndCertificateFromKeyStore(keyStore, prefix + "-client", password);
+    // See storeKeyPair.
+    return Optional.of(new ValidatorKeyStore(coveredHeiIds, client.certificate.getNotBefore(),
+        client.keyPair,
+        KeyStoreUtils.readKeyPairAndCertificateFromKeyStore(keyStore, prefix + "-server",
+            password).keyPair,
+        KeyStoreUtils.readKeyPairAndCertificateFromKeyStore(keyStore, prefix + "-tls", password),
+        KeyStoreUtils.readKeyPairAndCertificateFromKeyStore(keyStore, prefix + "-unregistered",
+            password).keyPair));
+  }
+
+  /**
+   * Store all the credentials of this key store (so that they can be later read with
+   * {@link #load(KeyStore, String, char[], List)}). Covered HEI IDs are not stored.
+   *
+   * @param keyStore The key store to store the credentials in.
+   * @param prefix The prefix of the aliases under which the credentials will be stored. Existing
+   *     entries with these aliases will be replaced.
+   * @param password The password protecting the keys.
+   */
+  public void store(KeyStore keyStore, String prefix, char[] password) {
+    try {
+      this.storeKeyPair(keyStore, prefix + "-client", password, this.myClientRsaKeyPair, null);
+      this.storeKeyPair(keyStore, prefix + "-server", password, this.myServerRsaKeyPair, null);
+      this.storeKeyPair(keyStore, prefix + "-tls", password, this.myTlsKeyPair,
+          this.myTlsCertificate);
+      this.storeKeyPair(keyStore, prefix + "-unregistered", password,
+          this.myUnregisteredKeyPair, null);
+    } catch (KeyStoreException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private void storeKeyPair(KeyStore keyStore, String alias, char[] password, KeyPair keyPair,
+      X509Certificate certificate) throws KeyStoreException {
+    X509Certificate cert = certificate;
+    if (cert == null) {
+      // Key entries need a certificate chain, so we generate one for the keys which don't have
+      // it. These certificates are never published, so we use them to remember the date of the
+      // credentials (key stores don't keep the creation dates of their entries reliably).
+      Date date = this.myCredentialsDate != null ? this.myCredentialsDate : new Date();
+      cert = this.generateCertificate(keyPair, date, date);
+    }
+    keyStore.setKeyEntry(alias, keyPair.getPrivate(), password, new Certificate[] { cert });
+  }
+
   /**
    * Similar to {@link #getTlsClientCertificateInUse()}, but for HTTPSIG keys.
    *
@@ -133,11 +222,16 @@ public class ValidatorKeyStore {
    * @return Certificate
    */
   public X509Certificate generateCertificate(KeyPair keyPair) {
+    Date now = new Date();
+    return this.generateCertificate(keyPair,
+        new Date(now.getTime() - 1000L * 60 * 60 * 24 * 30), now);
+  }
+
+  private X509Certificate generateCertificate(KeyPair keyPair, Date notBefore, Date issued) {
     try {
       X500Name issuer = new X500Name("CN=EchoTester, OU=None, O=None L=None, C=None");
       BigInteger serial = BigInteger.valueOf(12345);
-      Date notBefore = new Date(System.currentTimeMillis() - 1000L * 60 * 60 * 24 * 30);
-      Date notAfter = new Date(System.currentTimeMillis() + (1000L * 60 * 60 * 24 * 365 * 10));
+      Date notAfter = new Date(issued.getTime() + (1000L * 60 * 60 * 24 * 365 * 10));
       X500Name subject = new X500Name("CN=Dynamically Generated Certificate for testing APIs, "
           + "OU=None, O=None L=None, C=None");
       SubjectPublicKeyInfo publicKeyInfo =
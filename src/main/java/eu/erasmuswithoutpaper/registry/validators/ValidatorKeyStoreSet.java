@@ -1,13 +1,33 @@
 package eu.erasmuswithoutpaper.registry.validators;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.NoSuchAlgorithmException;
 import java.security.Security;
+import java.security.cert.CertificateException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import eu.erasmuswithoutpaper.registry.Application;
+import eu.erasmuswithoutpaper.registry.common.KeyStoreUtilsException;
 import eu.erasmuswithoutpaper.registry.configuration.ConsoleEnvInfo;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
@@ -17,27 +37,74 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Keeps keys and certificates used by {@link ApiValidator}s.
+ *
+ * <p>
+ * If a key store path is configured, then the generated credentials are stored there (in an
+ * encrypted PKCS#12 key store), and reused after restarts. Otherwise, new credentials are
+ * generated on every start.
+ * </p>
+ *
+ * <p>
+ * If rotation is enabled, then new credentials are generated in the background once the current
+ * ones get older than the configured period. For the overlap period, the new credentials are only
+ * published (see {@link #getPublishedMainKeyStores()}) - the validators keep using the current
+ * ones, until the rest of the network learns about the new ones. Then the new credentials replace
+ * the current ones.
+ * </p>
  */
 @Service
 public class ValidatorKeyStoreSet {
   private static final Logger logger = LoggerFactory.getLogger(ValidatorKeyStoreSet.class);
 
-  private ValidatorKeyStore mainKeyStore;
-  private ValidatorKeyStore secondaryKeyStore;
+  private static final String MAIN = "main";
+  private static final String SECONDARY = "secondary";
+  private static final String NEXT_MAIN = "next-main";
+  private static final String NEXT_SECONDARY = "next-secondary";
 
   /**
-   * Generates credential and certificates to be used by validators.
+   * How often we check if the credentials should be rotated.
+   */
+  private static final long ROTATION_CHECK_MINUTES = 60;
+
+  private final List<String> additionalHeiIds;
+  private final Path keyStorePath;
+  private final char[] keyStorePassword;
+  private final long rotationMillis;
+  private final long overlapMillis;
+  private final AtomicLong keysVersion = new AtomicLong();
+
+  private volatile ValidatorKeyStore mainKeyStore;
+  private volatile ValidatorKeyStore secondaryKeyStore;
+  private volatile ValidatorKeyStore nextMainKeyStore;
+  private volatile ValidatorKeyStore nextSecondaryKeyStore;
+
+  /**
+   * Generates credential and certificates to be used by validators (or loads them, if they have
+   * been stored before).
    * @param rootUrl
    *      URL where this instance is hosted, used to check, if we are in a production environment.
    * @param consoleEnvInfo
    *      Provides info whether this application is run as a standalone console validator.
    * @param additionalHeiIdsArray
    *      List of hei ids that should be added to validators covered-institutions list.
+   * @param keyStorePath
+   *      Path of the key store in which the generated credentials are stored, or null, if they
+   *      shouldn't be stored.
+   * @param keyStorePassword
+   *      Password protecting the key store. Required if keyStorePath is given.
+   * @param rotationDays
+   *      After how many days the credentials are rotated. Zero disables rotation.
+   * @param rotationOverlapHours
+   *      For how many hours the new credentials are published before they are used.
    */
   @Autowired
   public ValidatorKeyStoreSet(ConsoleEnvInfo consoleEnvInfo,
       @Value("${app.root-url}") String rootUrl,
-      @Value("${app.local-registry.additional-hei-ids:#{null}}") List<String> additionalHeiIdsArray
+      @Value("${app.local-registry.additional-hei-ids:#{null}}") List<String> additionalHeiIdsArray,
+      @Value("${app.validator.keystore.path:#{null}}") String keyStorePath,
+      @Value("${app.validator.keystore.password:#{null}}") String keyStorePassword,
+      @Value("${app.validator.keystore.rotation-days:0}") int rotationDays,
+      @Value("${app.validator.keystore.rotation-overlap-hours:48}") int rotationOverlapHours
   ) {
     if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
       logger.debug("Registering BouncyCastle security provider");
@@ -61,24 +128,194 @@ public class ValidatorKeyStoreSet {
         additionalHeiIds.add("validator-hei0" + i + ".developers.erasmuswithoutpaper.eu");
       }
     }
+    this.additionalHeiIds = Collections.unmodifiableList(additionalHeiIds);
+
+    if (keyStorePath != null && !keyStorePath.isEmpty()) {
+      if (keyStorePassword == null || keyStorePassword.isEmpty()) {
+        throw new RuntimeException(
+            "app.validator.keystore.password is required if app.validator.keystore.path is set.");
+      }
+      this.keyStorePath = Paths.get(keyStorePath);
+      this.keyStorePassword = keyStorePassword.toCharArray();
+    } else {
+      this.keyStorePath = null;
+      this.keyStorePassword = null;
+    }
+    this.rotationMillis = TimeUnit.DAYS.toMillis(rotationDays);
+    this.overlapMillis = TimeUnit.HOURS.toMillis(rotationOverlapHours);
+
+    if (!this.loadKeyStores()) {
+      this.mainKeyStore = new ValidatorKeyStore(this.additionalHeiIds);
+      this.secondaryKeyStore = new ValidatorKeyStore();
+      this.storeKeyStores();
+    }
 
-    this.mainKeyStore = new ValidatorKeyStore(additionalHeiIds);
-    this.secondaryKeyStore = new ValidatorKeyStore();
+    if (this.rotationMillis > 0 && !consoleEnvInfo.isConsole()) {
+      CustomizableThreadFactory threadFactory =
+          new CustomizableThreadFactory("validator-keys-rotation-");
+      threadFactory.setDaemon(true);
+      ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+      executor.scheduleWithFixedDelay(this::rotateIfDue, 1, ROTATION_CHECK_MINUTES,
+          TimeUnit.MINUTES);
+    }
+  }
+
+  /**
+   * @return A number which changes whenever any of the key stores returned by this set change.
+   */
+  public long getKeysVersion() {
+    return this.keysVersion.get();
   }
 
   public ValidatorKeyStore getMainKeyStore() {
     return mainKeyStore;
   }
 
+  /**
+   * @return The main key store, followed by the one which will replace it (if the credentials are
+   *     being rotated at the moment). Credentials of all of these should be published.
+   */
+  public List<ValidatorKeyStore> getPublishedMainKeyStores() {
+    return getPublished(this.mainKeyStore, this.nextMainKeyStore);
+  }
+
+  /**
+   * @return Same as {@link #getPublishedMainKeyStores()}, but for the secondary key store. Empty,
+   *     if there is no secondary key store.
+   */
+  public List<ValidatorKeyStore> getPublishedSecondaryKeyStores() {
+    return getPublished(this.secondaryKeyStore, this.nextSecondaryKeyStore);
+  }
+
   public ValidatorKeyStore getSecondaryKeyStore() {
     return secondaryKeyStore;
   }
 
   public void setMainKeyStore(ValidatorKeyStore keyStore) {
     this.mainKeyStore = keyStore;
+    this.keysVersion.incrementAndGet();
   }
 
   public void setSecondaryKeyStore(ValidatorKeyStore keyStore) {
     this.secondaryKeyStore = keyStore;
+    this.keysVersion.incrementAndGet();
+  }
+
+  private static List<ValidatorKeyStore> getPublished(ValidatorKeyStore current,
+      ValidatorKeyStore next) {
+    List<ValidatorKeyStore> result = new ArrayList<>();
+    if (current != null) {
+      result.add(current);
+    }
+    if (next != null) {
+      result.add(next);
+    }
+    return result;
+  }
+
+  /**
+   * Start publishing new credentials if the current ones are old enough, or start using the new
+   * ones, if they have been published for long enough.
+   */
+  void rotateIfDue() {
+    this.rotateIfDue(System.currentTimeMillis());
+  }
+
+  /**
+   * Same as {@link #rotateIfDue()}, but with the given current time.
+   */
+  synchronized void rotateIfDue(long now) {
+    try {
+      if (this.nextMainKeyStore == null) {
+        Date generated = this.mainKeyStore.getCredentialsGenerationDate();
+        if (generated != null && now - generated.getTime() >= this.rotationMillis) {
+          logger.info("Generating new validator credentials. They will be used in "
+              + TimeUnit.MILLISECONDS.toHours(this.overlapMillis) + " hours.");
+          this.nextMainKeyStore = new ValidatorKeyStore(this.additionalHeiIds);
+          this.nextSecondaryKeyStore = new ValidatorKeyStore();
+          this.keysVersion.incrementAndGet();
+          this.storeKeyStores();
+        }
+      } else if (now - this.nextMainKeyStore.getCredentialsGenerationDate().getTime()
+          >= this.overlapMillis) {
+        logger.info("Switching to the new validator credentials.");
+        this.mainKeyStore = this.nextMainKeyStore;
+        this.secondaryKeyStore = this.nextSecondaryKeyStore;
+        this.nextMainKeyStore = null;
+        this.nextSecondaryKeyStore = null;
+        this.keysVersion.incrementAndGet();
+        this.storeKeyStores();
+      }
+    } catch (RuntimeException e) {
+      // Don't let the exception cancel the scheduled task.
+      logger.error("Error while rotating validator credentials", e);
+    }
+  }
+
+  /**
+   * @return True, if the key stores have been loaded.
+   */
+  private boolean loadKeyStores() {
+    if (this.keyStorePath == null || !Files.exists(this.keyStorePath)) {
+      return false;
+    }
+    try {
+      KeyStore keyStore = KeyStore.getInstance("PKCS12");
+      try (InputStream input = Files.newInputStream(this.keyStorePath)) {
+        keyStore.load(input, this.keyStorePassword);
+      }
+      Optional<ValidatorKeyStore> main =
+          ValidatorKeyStore.load(keyStore, MAIN, this.keyStorePassword, this.additionalHeiIds);
+      if (!main.isPresent()) {
+        return false;
+      }
+      this.mainKeyStore = main.get();
+      this.secondaryKeyStore = ValidatorKeyStore.load(keyStore, SECONDARY,
+          this.keyStorePassword, Collections.emptyList()).orElseGet(ValidatorKeyStore::new);
+      this.nextMainKeyStore = ValidatorKeyStore.load(keyStore, NEXT_MAIN, this.keyStorePassword,
+          this.additionalHeiIds).orElse(null);
+      this.nextSecondaryKeyStore = ValidatorKeyStore.load(keyStore, NEXT_SECONDARY,
+          this.keyStorePassword, Collections.emptyList()).orElse(null);
+      if (this.nextMainKeyStore == null || this.nextSecondaryKeyStore == null) {
+        this.nextMainKeyStore = null;
+        this.nextSecondaryKeyStore = null;
+      }
+      logger.info("Loaded validator credentials generated on "
+          + this.mainKeyStore.getCredentialsGenerationDate() + " from " + this.keyStorePath);
+      return true;
+    } catch (IOException | KeyStoreException | NoSuchAlgorithmException | CertificateException
+        | KeyStoreUtilsException e) {
+      // Don't overwrite the stored credentials - they might be still in use.
+      throw new RuntimeException("Cannot load validator credentials from " + this.keyStorePath, e);
+    }
+  }
+
+  private void storeKeyStores() {
+    if (this.keyStorePath == null) {
+      return;
+    }
+    try {
+      KeyStore keyStore = KeyStore.getInstance("PKCS12");
+      keyStore.load(null, null);
+      this.mainKeyStore.store(keyStore, MAIN, this.keyStorePassword);
+      if (this.secondaryKeyStore != null) {
+        this.secondaryKeyStore.store(keyStore, SECONDARY, this.keyStorePassword);
+      }
+      if (this.nextMainKeyStore != null) {
+        this.nextMainKeyStore.store(keyStore, NEXT_MAIN, this.keyStorePassword);
+        this.nextSecondaryKeyStore.store(keyStore, NEXT_SECONDARY, this.keyStorePassword);
+      }
+      Path directory = this.keyStorePath.toAbsolutePath().getParent();
+      Files.createDirectories(directory);
+      Path tempFile = Files.createTempFile(directory, "validator-keys", ".tmp");
+      try (OutputStream output = Files.newOutputStream(tempFile)) {
+        keyStore.store(output, this.keyStorePassword);
+      }
+      Files.move(tempFile, this.keyStorePath, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException | KeyStoreException | NoSuchAlgorithmException
+        | CertificateException e) {
+      // We can still work with the credentials we have, they will be regenerated after restart.
+      logger.error("Cannot store validator credentials in " + this.keyStorePath, e);
+    }
   }
 }
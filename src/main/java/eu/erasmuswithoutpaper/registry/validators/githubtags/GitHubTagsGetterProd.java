@@ -1,13 +1,28 @@
 package eu.erasmuswithoutpaper.registry.validators.githubtags;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
+import eu.erasmuswithoutpaper.registry.common.PrivateDirectories;
 import eu.erasmuswithoutpaper.registry.internet.Internet;
 import eu.erasmuswithoutpaper.registry.validators.SemanticVersion;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
 
 import com.google.common.base.Charsets;
@@ -16,30 +31,109 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 
+/**
+ * Fetches API tags from GitHub.
+ *
+ * <p>
+ * Tags are cached (separately for each API) for the configured time. When they expire, the cached
+ * tags are still returned, while fresh ones are fetched in the background. The last known tags are
+ * also stored on disk, so that they are available right after a restart, and while GitHub cannot
+ * be reached. The directory in which they are stored is used only if it's private to the current
+ * user (see {@link PrivateDirectories#ensurePrivate(Path)}).
+ * </p>
+ */
 @Service
 @Profile({ "production", "development", "console" })
 public class GitHubTagsGetterProd implements GitHubTagsGetter {
+
+  private static class CachedTags {
+    private final List<SemanticVersion> tags;
+    private final long fetchedAt;
+
+    CachedTags(List<SemanticVersion> tags, long fetchedAt) {
+      this.tags = Collections.unmodifiableList(new ArrayList<>(tags));
+      this.fetchedAt = fetchedAt;
+    }
+  }
+
+  private final long ttlMillis;
+  private final Path cacheDirectory;
+  private final ConcurrentMap<String, CachedTags> cache = new ConcurrentHashMap<>();
+  private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+  private final ExecutorService refreshExecutor;
+
   /**
-   * Sends request to GitHub and parses the response to obtain list of tags available for API.
+   * @param ttlMinutes For how long the tags are used before they are fetched again.
+   * @param cacheDirectory Directory in which the last known tags are stored. By default, a
+   *        subdirectory of the user's home directory is used.
+   */
+  @Autowired
+  public GitHubTagsGetterProd(@Value("${app.validator.github-tags.ttl-minutes}") int ttlMinutes,
+      @Value("${app.validator.github-tags.cache-dir:#{null}}") String cacheDirectory) {
+    this(ttlMinutes * 60L * 1000L, cacheDirectory != null ? Paths.get(cacheDirectory)
+        : PrivateDirectories.getDefaultCacheDirectory("validator-github-tags"));
+  }
+
+  GitHubTagsGetterProd(long ttlMillis, Path cacheDirectory) {
+    this.ttlMillis = ttlMillis;
+    this.cacheDirectory = cacheDirectory;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("github-tags-");
+    threadFactory.setDaemon(true);
+    this.refreshExecutor = Executors.newSingleThreadExecutor(threadFactory);
+  }
+
+  private static List<SemanticVersion> parseTags(String json)
+      throws JSONException, SemanticVersion.InvalidVersionString {
+    List<SemanticVersion> result = new ArrayList<>();
+    JSONArray jsonArray = new JSONArray(json);
+    for (int i = 0; i < jsonArray.length(); i++) {
+      JSONObject jsonObject = jsonArray.getJSONObject(i);
+      SemanticVersion version = new SemanticVersion(jsonObject.getString("name"));
+      result.add(version);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the list of tags available for API. They are fetched from GitHub if they are not cached
+   * yet.
+   *
    * @param apiName API name.
    * @param internet Internet to connect to GitHub.
    * @param logger Logger of class using this method.
    * @return list of available versions.
    */
   public List<SemanticVersion> getTags(String apiName, Internet internet, Logger logger) {
+    CachedTags cached = this.cache.computeIfAbsent(apiName, key -> this.load(key, logger));
+    if (cached == null) {
+      // Nothing is known about this API yet, so we have to wait.
+      cached = this.fetch(apiName, internet, logger);
+      if (cached == null) {
+        return new ArrayList<>();
+      }
+    } else if (System.currentTimeMillis() - cached.fetchedAt >= this.ttlMillis) {
+      this.refreshInBackground(apiName, internet, logger);
+    }
+    return new ArrayList<>(cached.tags);
+  }
+
+  /**
+   * Sends request to GitHub and parses the response to obtain list of tags available for API. The
+   * result is cached and stored on disk.
+   *
+   * @return The fetched tags, or null if they couldn't be fetched.
+   */
+  private CachedTags fetch(String apiName, Internet internet, Logger logger) {
     String url = "https://api.github.com/repos/erasmus-without-paper/ewp-specs-api-";
     url += apiName;
     url += "/tags";
 
-    List<SemanticVersion> result = new ArrayList<>();
     try {
       byte[] data = internet.getUrl(url);
-      JSONArray jsonArray = new JSONArray(new String(data, Charsets.UTF_8));
-      for (int i = 0; i < jsonArray.length(); i++) {
-        JSONObject jsonObject = jsonArray.getJSONObject(i);
-        SemanticVersion version = new SemanticVersion(jsonObject.getString("name"));
-        result.add(version);
-      }
+      List<SemanticVersion> tags = parseTags(new String(data, Charsets.UTF_8));
+      CachedTags result = new CachedTags(tags, System.currentTimeMillis());
+      this.cache.put(apiName, result);
+      this.store(apiName, data, logger);
       return result;
     } catch (IOException e) {
       logger.warn("Cannot fetch github tags from url " + url);
@@ -48,7 +142,70 @@ public class GitHubTagsGetterProd implements GitHubTagsGetter {
     } catch (SemanticVersion.InvalidVersionString e) {
       logger.warn("GitHub tags response contained invalid name field.");
     }
-    return new ArrayList<>();
+    return null;
   }
-}
 
+  private boolean isCacheTrusted(Logger logger) {
+    try {
+      PrivateDirectories.ensurePrivate(this.cacheDirectory);
+      return true;
+    } catch (IOException e) {
+      logger.warn("Not using the cached github tags: " + e.getMessage());
+      return false;
+    }
+  }
+
+  private Path getCacheFile(String apiName) {
+    return this.cacheDirectory.resolve(apiName + "-tags.json");
+  }
+
+  /**
+   * @return Tags stored by a previous run (marked as fetched when the file was written), or null if
+   *         there are none.
+   */
+  private CachedTags load(String apiName, Logger logger) {
+    Path file = this.getCacheFile(apiName);
+    if (!Files.isRegularFile(file) || !this.isCacheTrusted(logger)) {
+      return null;
+    }
+    try {
+      List<SemanticVersion> tags =
+          parseTags(new String(Files.readAllBytes(file), Charsets.UTF_8));
+      return new CachedTags(tags, Files.getLastModifiedTime(file).toMillis());
+    } catch (IOException | JSONException | SemanticVersion.InvalidVersionString e) {
+      logger.warn("Cannot read cached github tags from " + file + ", ignoring them.");
+      return null;
+    }
+  }
+
+  private void refreshInBackground(String apiName, Internet internet, Logger logger) {
+    if (!this.refreshing.add(apiName)) {
+      return;
+    }
+    try {
+      this.refreshExecutor.execute(() -> {
+        try {
+          this.fetch(apiName, internet, logger);
+        } finally {
+          this.refreshing.remove(apiName);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      this.refreshing.remove(apiName);
+    }
+  }
+
+  private void store(String apiName, byte[] data, Logger logger) {
+    if (!this.isCacheTrusted(logger)) {
+      return;
+    }
+    try {
+      Path tempFile = Files.createTempFile(this.cacheDirectory, apiName, ".tmp");
+      Files.write(tempFile, data);
+      Files.move(tempFile, this.getCacheFile(apiName), StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      // Tags are still cached in memory, so that's not a big deal.
+      logger.warn("Cannot store github tags in " + this.cacheDirectory);
+    }
+  }
+}
@@ -7,10 +7,9 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 
+import eu.erasmuswithoutpaper.registry.common.JaxbContexts;
 import eu.erasmuswithoutpaper.registry.internet.Request;
 import eu.erasmuswithoutpaper.registry.internet.Response;
 import eu.erasmuswithoutpaper.registry.validators.ApiEndpoint;
@@ -88,10 +87,8 @@ public class IiaIndexComplexSetupValidationSuiteV4 extends IiaIndexComplexSetupV
 
         IiasGetResponse getResponse;
         try {
-          JAXBContext jaxbContext = JAXBContext.newInstance(IiasGetResponse.class);
-          Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
           Element xml = makeXmlFromBytes(response.getBody(), true);
-          getResponse = (IiasGetResponse) unmarshaller.unmarshal(xml);
+          getResponse = JaxbContexts.unmarshal(xml, IiasGetResponse.class);
         } catch (JAXBException e) {
           throw new Failure(
               "Received 200 OK but the response was empty or didn't contain correct "
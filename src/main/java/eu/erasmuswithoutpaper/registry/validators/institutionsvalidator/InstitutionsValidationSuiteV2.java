@@ -14,11 +14,12 @@ import eu.erasmuswithoutpaper.registry.validators.ValidatedApiInfo;
 import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus.Status;
 import eu.erasmuswithoutpaper.registry.validators.verifiers.InListVerifier;
 import eu.erasmuswithoutpaper.registry.validators.verifiers.ListEqualVerifier;
+import eu.erasmuswithoutpaper.registry.validators.verifiers.ResponseSelection;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import org.joox.Match;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Element;
 
 /**
  * Describes the set of test/steps to be run on an Institutions API implementation in order to
@@ -32,6 +33,8 @@ class InstitutionsValidationSuiteV2
 
   private static final ValidatedApiInfo apiInfo = new InstitutionsValidatedApiInfo();
 
+  private static final List<String> HEI_SELECTOR = Collections.singletonList("hei");
+
   @Override
   protected Logger getLogger() {
     return logger;
@@ -111,28 +114,22 @@ class InstitutionsValidationSuiteV2
   }
 
 
-  private static void verifyRootOUnitId(AbstractValidationSuite suite, Match root,
-      Response response,
+  private static List<List<String>> withHeiSelector(List<List<String>> selectors) {
+    List<List<String>> result = new ArrayList<>(selectors);
+    result.add(HEI_SELECTOR);
+    return result;
+  }
+
+  private static void verifyRootOUnitId(ResponseSelection selection, Response response,
       Status failureStatus)
       throws Failure {
-    String nsPrefix = suite.getApiInfo().getResponsePrefix() + ":";
-
-    for (Match entry : root.xpath(nsPrefix + "hei").each()) {
-      Match rootOunitId = entry.xpath(nsPrefix + "root-ounit-id").first();
-      if (rootOunitId.isEmpty()) {
+    for (Element entry : selection.select(HEI_SELECTOR)) {
+      List<String> rootOunitIds = selection.childTexts(entry, "root-ounit-id");
+      if (rootOunitIds.isEmpty()) {
         continue;
       }
 
-      boolean found = false;
-
-      for (Match ounitId : entry.xpath(nsPrefix + "ounit-id").each()) {
-        if (ounitId.text().equals(rootOunitId.text())) {
-          found = true;
-          break;
-        }
-      }
-
-      if (!found) {
+      if (!selection.childTexts(entry, "ounit-id").contains(rootOunitIds.get(0))) {
         throw new Failure(
             "The response has proper HTTP status and it passed the schema validation. However, "
                 + "root-ounit-id is not included in ounit-id list.", failureStatus, response);
@@ -146,11 +143,16 @@ class InstitutionsValidationSuiteV2
     }
 
     @Override
-    protected void verify(AbstractValidationSuite suite, Match root, Response response,
-        Status failureStatus)
+    protected List<List<String>> getSelectors() {
+      return withHeiSelector(super.getSelectors());
+    }
+
+    @Override
+    protected void verify(AbstractValidationSuite suite, ResponseSelection selection,
+        Response response, Status failureStatus)
         throws Failure {
-      super.verify(suite, root, response, failureStatus);
-      verifyRootOUnitId(suite, root, response, failureStatus);
+      super.verify(suite, selection, response, failureStatus);
+      verifyRootOUnitId(selection, response, failureStatus);
     }
   }
 
@@ -160,11 +162,16 @@ class InstitutionsValidationSuiteV2
     }
 
     @Override
-    protected void verify(AbstractValidationSuite suite, Match root, Response response,
-        Status failureStatus)
+    protected List<List<String>> getSelectors() {
+      return withHeiSelector(super.getSelectors());
+    }
+
+    @Override
+    protected void verify(AbstractValidationSuite suite, ResponseSelection selection,
+        Response response, Status failureStatus)
         throws Failure {
-      super.verify(suite, root, response, failureStatus);
-      verifyRootOUnitId(suite, root, response, failureStatus);
+      super.verify(suite, selection, response, failureStatus);
+      verifyRootOUnitId(selection, response, failureStatus);
     }
   }
 }
@@ -8,10 +8,9 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 
+import eu.erasmuswithoutpaper.registry.common.JaxbContexts;
 import eu.erasmuswithoutpaper.registry.internet.Request;
 import eu.erasmuswithoutpaper.registry.internet.Response;
 import eu.erasmuswithoutpaper.registry.validators.AbstractSetupValidationSuite;
@@ -161,11 +160,8 @@ public class OMobilitiesIndexComplexSetupValidationSuiteV1
 
         OmobilitiesGetResponse getResponse;
         try {
-          JAXBContext jaxbContext = JAXBContext.newInstance(
-              OmobilitiesGetResponse.class);
-          Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
           Element xml = makeXmlFromBytes(response.getBody(), true);
-          getResponse = (OmobilitiesGetResponse) unmarshaller.unmarshal(xml);
+          getResponse = JaxbContexts.unmarshal(xml, OmobilitiesGetResponse.class);
         } catch (JAXBException e) {
           throw new Failure(
               "Received 200 OK but the response was empty or didn't contain correct "
@@ -3,9 +3,7 @@ package eu.erasmuswithoutpaper.registry.validators.omobilitylasvalidator.update;
 import java.util.Arrays;
 import java.util.stream.Collectors;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 import javax.xml.datatype.DatatypeConfigurationException;
 import javax.xml.datatype.DatatypeFactory;
 import javax.xml.parsers.DocumentBuilder;
@@ -16,6 +14,7 @@ import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import eu.erasmuswithoutpaper.registry.common.JaxbContexts;
 import eu.erasmuswithoutpaper.registry.validators.AbstractValidationSuite;
 import eu.erasmuswithoutpaper.registry.validators.ApiValidator;
 import eu.erasmuswithoutpaper.registry.validators.Combination;
@@ -86,11 +85,8 @@ class OMobilityLAsUpdateValidationSuiteV1
       DocumentBuilder documentBuilder = documentBuilderFactory.newDocumentBuilder();
       Document document = documentBuilder.newDocument();
 
-      JAXBContext jaxbContext = JAXBContext.newInstance(OmobilityLasUpdateRequest.class);
-
       // Marshal the Object to a Document
-      Marshaller marshaller = jaxbContext.createMarshaller();
-      marshaller.marshal(request, document);
+      JaxbContexts.marshal(request, document);
       return document;
     } catch (JAXBException | ParserConfigurationException e) {
       throw new RuntimeException(e);
@@ -1,15 +1,12 @@
 package eu.erasmuswithoutpaper.registry.validators.verifiers;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import eu.erasmuswithoutpaper.registry.internet.Response;
 import eu.erasmuswithoutpaper.registry.validators.AbstractValidationSuite;
 import eu.erasmuswithoutpaper.registry.validators.InlineValidationStep;
 import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
 
-import org.joox.Match;
-
 public class InListVerifier extends Verifier {
   private final List<String> wantedValue;
 
@@ -19,12 +16,10 @@ public class InListVerifier extends Verifier {
   }
 
   @Override
-  protected void verify(AbstractValidationSuite suite, Match root, Response response,
-      ValidationStepWithStatus.Status failureStatus)
+  protected void verify(AbstractValidationSuite suite, ResponseSelection selection,
+      Response response, ValidationStepWithStatus.Status failureStatus)
       throws InlineValidationStep.Failure {
-    List<String> foundElements =
-        select(root, suite.getApiInfo().getResponsePrefix(), getSelector())
-            .stream().map(Match::text).collect(Collectors.toList());
+    List<String> foundElements = selection.selectTexts(getSelector());
 
     if (!foundElements.containsAll(wantedValue)) {
       throw new InlineValidationStep.Failure(
@@ -2,15 +2,12 @@ package eu.erasmuswithoutpaper.registry.validators.verifiers;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import eu.erasmuswithoutpaper.registry.internet.Response;
 import eu.erasmuswithoutpaper.registry.validators.AbstractValidationSuite;
 import eu.erasmuswithoutpaper.registry.validators.InlineValidationStep;
 import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
 
-import org.joox.Match;
-
 public class ListEqualVerifier extends Verifier {
   private final List<String> expected;
 
@@ -20,12 +17,10 @@ public class ListEqualVerifier extends Verifier {
   }
 
   @Override
-  protected void verify(AbstractValidationSuite suite, Match root, Response response,
-      ValidationStepWithStatus.Status failureStatus)
+  protected void verify(AbstractValidationSuite suite, ResponseSelection selection,
+      Response response, ValidationStepWithStatus.Status failureStatus)
       throws InlineValidationStep.Failure {
-    List<String> actual =
-        select(root, suite.getApiInfo().getResponsePrefix(), getSelector())
-            .stream().map(Match::text).collect(Collectors.toList());
+    List<String> actual = selection.selectTexts(getSelector());
 
     ArrayList<String> unexpectedValues = new ArrayList<>(actual);
     for (String oneExpected : expected) {
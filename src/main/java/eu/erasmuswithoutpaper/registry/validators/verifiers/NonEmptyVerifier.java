@@ -1,6 +1,5 @@
 package eu.erasmuswithoutpaper.registry.validators.verifiers;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import eu.erasmuswithoutpaper.registry.internet.Response;
@@ -8,21 +7,16 @@ import eu.erasmuswithoutpaper.registry.validators.AbstractValidationSuite;
 import eu.erasmuswithoutpaper.registry.validators.InlineValidationStep;
 import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
 
-import org.joox.Match;
-
 public final class NonEmptyVerifier extends Verifier {
   public NonEmptyVerifier(List<String> selector) {
     super(selector);
   }
 
   @Override
-  protected void verify(AbstractValidationSuite suite, Match root, Response response,
-      ValidationStepWithStatus.Status failureStatus)
+  protected void verify(AbstractValidationSuite suite, ResponseSelection selection,
+      Response response, ValidationStepWithStatus.Status failureStatus)
       throws InlineValidationStep.Failure {
-    List<Match> foundElements =
-        new ArrayList<>(select(root, suite.getApiInfo().getResponsePrefix(), getSelector()));
-
-    if (foundElements.isEmpty()) {
+    if (selection.select(getSelector()).isEmpty()) {
       String defaultMessage = "However the set of returned <" + getParamName() + ">s "
               + "doesn't match what we expect. "
               + "It should be non-empty but it is empty";
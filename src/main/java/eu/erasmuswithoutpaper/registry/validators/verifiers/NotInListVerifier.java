@@ -7,8 +7,6 @@ import eu.erasmuswithoutpaper.registry.validators.AbstractValidationSuite;
 import eu.erasmuswithoutpaper.registry.validators.InlineValidationStep;
 import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
 
-import org.joox.Match;
-
 public class NotInListVerifier extends Verifier {
   private final String notWantedValue;
 
@@ -18,11 +16,10 @@ public class NotInListVerifier extends Verifier {
   }
 
   @Override
-  protected void verify(AbstractValidationSuite suite, Match root, Response response,
-      ValidationStepWithStatus.Status failureStatus)
+  protected void verify(AbstractValidationSuite suite, ResponseSelection selection,
+      Response response, ValidationStepWithStatus.Status failureStatus)
       throws InlineValidationStep.Failure {
-    boolean found = select(root, suite.getApiInfo().getResponsePrefix(), getSelector())
-        .stream().anyMatch(x -> x.text().equals(notWantedValue));
+    boolean found = selection.selectTexts(getSelector()).contains(notWantedValue);
 
     if (found) {
       throw new InlineValidationStep.Failure(
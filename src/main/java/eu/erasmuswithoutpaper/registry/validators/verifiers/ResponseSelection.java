@@ -0,0 +1,152 @@
+package eu.erasmuswithoutpaper.registry.validators.verifiers;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import org.joox.Match;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * Elements selected from a single response, shared by all the {@link Verifier}s which verify it.
+ *
+ * <p>
+ * Selectors are lists of element names (in the response's namespace), relative to the root element
+ * of the response (see {@link Verifier#getSelector()}). Names may be followed by a position, e.g.
+ * "partner[1]" selects only the first "partner" child of each matched element. All the selectors
+ * which haven't been evaluated yet can be {@link #prefetch(Collection) prefetched} at once, in a
+ * single traversal of the document. The selected elements (and their texts) are then cached, so
+ * that each selector is evaluated only once, no matter how many verifiers use it.
+ * </p>
+ */
+public class ResponseSelection {
+
+  /**
+   * A node of the trie built from all the selectors being evaluated in a single traversal.
+   */
+  private static class PlanNode {
+    private final Map<String, PlanNode> children = new HashMap<>();
+    private List<Element> selected;
+  }
+
+  private final Element rootElement;
+  private final String namespaceUri;
+  private final Map<List<String>, List<Element>> elements = new HashMap<>();
+  private final Map<List<String>, List<String>> texts = new HashMap<>();
+
+  /**
+   * @param root The response document (or its root element).
+   * @param namespaceUri The namespace of all the elements being selected.
+   */
+  public ResponseSelection(Match root, String namespaceUri) {
+    Node node = root.get(0);
+    if (node instanceof Document) {
+      node = ((Document) node).getDocumentElement();
+    }
+    this.rootElement = (Element) node;
+    this.namespaceUri = namespaceUri;
+  }
+
+  /**
+   * @param parent An element previously selected from this response.
+   * @param name Local name of the child elements (in the response's namespace).
+   * @return Text contents of all the matching child elements, in document order.
+   */
+  public List<String> childTexts(Element parent, String name) {
+    List<String> result = new ArrayList<>();
+    for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (this.isResponseElement(child) && name.equals(child.getLocalName())) {
+        result.add(child.getTextContent());
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Evaluate all the given selectors (those which haven't been evaluated yet) in a single traversal
+   * of the document.
+   *
+   * @param selectors The selectors to evaluate.
+   */
+  public void prefetch(Collection<List<String>> selectors) {
+    PlanNode plan = new PlanNode();
+    Map<List<String>, PlanNode> leaves = new LinkedHashMap<>();
+    for (List<String> selector : selectors) {
+      if (selector == null || selector.isEmpty() || this.elements.containsKey(selector)) {
+        continue;
+      }
+      PlanNode node = plan;
+      for (String name : selector) {
+        node = node.children.computeIfAbsent(name, k -> new PlanNode());
+      }
+      node.selected = new ArrayList<>();
+      leaves.put(selector, node);
+    }
+    if (leaves.isEmpty()) {
+      return;
+    }
+    this.collect(this.rootElement, plan);
+    for (Map.Entry<List<String>, PlanNode> entry : leaves.entrySet()) {
+      this.elements.put(entry.getKey(), Collections.unmodifiableList(entry.getValue().selected));
+    }
+  }
+
+  /**
+   * @param selector The selector to evaluate.
+   * @return All the elements matching the selector, in document order.
+   */
+  public List<Element> select(List<String> selector) {
+    if (!this.elements.containsKey(selector)) {
+      this.prefetch(Collections.singletonList(selector));
+    }
+    return this.elements.get(selector);
+  }
+
+  /**
+   * @param selector The selector to evaluate.
+   * @return Text contents of all the elements matching the selector, in document order.
+   */
+  public List<String> selectTexts(List<String> selector) {
+    return this.texts.computeIfAbsent(selector, key -> Collections.unmodifiableList(
+        this.select(key).stream().map(Node::getTextContent).collect(Collectors.toList())));
+  }
+
+  private void collect(Element parent, PlanNode plan) {
+    Map<String, Integer> positions = new HashMap<>();
+    for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (!this.isResponseElement(child)) {
+        continue;
+      }
+      String name = child.getLocalName();
+      int position = positions.merge(name, 1, Integer::sum);
+      this.visit((Element) child, plan.children.get(name));
+      // Steps may also select children by their position, e.g. "partner[1]".
+      this.visit((Element) child, plan.children.get(name + "[" + position + "]"));
+    }
+  }
+
+  private void visit(Element element, PlanNode elementPlan) {
+    if (elementPlan == null) {
+      return;
+    }
+    if (elementPlan.selected != null) {
+      elementPlan.selected.add(element);
+    }
+    if (!elementPlan.children.isEmpty()) {
+      this.collect(element, elementPlan);
+    }
+  }
+
+  private boolean isResponseElement(Node node) {
+    return node.getNodeType() == Node.ELEMENT_NODE
+        && Objects.equals(node.getNamespaceURI(), this.namespaceUri);
+  }
+}
@@ -1,16 +1,13 @@
 package eu.erasmuswithoutpaper.registry.validators.verifiers;
 
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import eu.erasmuswithoutpaper.registry.internet.Response;
 import eu.erasmuswithoutpaper.registry.validators.AbstractValidationSuite;
 import eu.erasmuswithoutpaper.registry.validators.InlineValidationStep;
 import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
 
-import org.joox.Match;
-
 public abstract class Verifier {
   private final List<String> selector;
   protected String customErrorMessage;
@@ -20,34 +17,38 @@ public abstract class Verifier {
     this.selector = selector;
   }
 
-  public void performVerificaion(AbstractValidationSuite suite, Match root, Response response,
-      ValidationStepWithStatus.Status failureStatus) throws
+  /**
+   * Verify the response, reusing the elements already selected from it by other verifiers.
+   */
+  public void performVerificaion(AbstractValidationSuite suite, ResponseSelection selection,
+      Response response, ValidationStepWithStatus.Status failureStatus) throws
       InlineValidationStep.Failure {
-    this.verify(suite, root, response, failureStatus);
+    selection.prefetch(this.getSelectors());
+    this.verify(suite, selection, response, failureStatus);
     verificationResult = true;
   }
 
-  protected abstract void verify(AbstractValidationSuite suite, Match root, Response response,
-      ValidationStepWithStatus.Status failureStatus) throws
+  protected abstract void verify(AbstractValidationSuite suite, ResponseSelection selection,
+      Response response, ValidationStepWithStatus.Status failureStatus) throws
       InlineValidationStep.Failure;
 
-  List<Match> select(Match root, String nsPrefix, String... pathElements) {
-    return select(root, nsPrefix, Arrays.asList(pathElements));
-  }
-
-  List<Match> select(Match root, String nsPrefix, List<String> pathElements) {
-    String selector = String.join(
-        "/",
-        pathElements.stream().map(s -> nsPrefix + ":" + s).collect(Collectors.toList())
-    );
-    return root.xpath(selector).each();
+  /**
+   * Returns all the selectors used by this verifier. They are evaluated together, in a single
+   * traversal of the response, before the verification starts.
+   *
+   * @return list of selectors, possibly empty.
+   */
+  protected List<List<String>> getSelectors() {
+    if (this.selector == null) {
+      return Collections.emptyList();
+    }
+    return Collections.singletonList(this.selector);
   }
 
   /**
    * Returns non empty list of elements' names without namespaces.
-   * This list will be joined using '/' to produce a selector in
-   * {@link #select(Match, String, List)} method. Selector will be used to extract elements which
-   * will be verified.
+   * Elements matching this selector will be extracted from the response by
+   * {@link ResponseSelection#select(List)}, and verified.
    * E.g: ["element-0", "element-1"] will select all elements selected by
    * "/response-root/element-0/element-1" xpath selector and perform verification on them.
    *
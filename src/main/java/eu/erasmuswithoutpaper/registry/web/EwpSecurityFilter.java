@@ -0,0 +1,488 @@
+package eu.erasmuswithoutpaper.registry.web;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import eu.erasmuswithoutpaper.registry.internet.Request;
+import eu.erasmuswithoutpaper.registry.internet.Response;
+import eu.erasmuswithoutpaper.registry.internet.sec.ChainingRequestAuthorizer;
+import eu.erasmuswithoutpaper.registry.internet.sec.ClientCredentialDirectory;
+import eu.erasmuswithoutpaper.registry.internet.sec.EwpCertificateRequestAuthorizer;
+import eu.erasmuswithoutpaper.registry.internet.sec.EwpClient;
+import eu.erasmuswithoutpaper.registry.internet.sec.EwpClientWithCertificate;
+import eu.erasmuswithoutpaper.registry.internet.sec.EwpClientWithRsaKey;
+import eu.erasmuswithoutpaper.registry.internet.sec.EwpHttpSigRequestAuthorizer;
+import eu.erasmuswithoutpaper.registry.internet.sec.Http4xx;
+import eu.erasmuswithoutpaper.registry.internet.sec.RequestAuthorizer;
+import eu.erasmuswithoutpaper.registry.internet.sec.UnmatchedRequestAuthorizationMethod;
+import eu.erasmuswithoutpaper.registry.repository.CatalogueNotFound;
+import eu.erasmuswithoutpaper.registry.repository.ManifestRepository;
+import eu.erasmuswithoutpaper.registryclient.RegistryClient;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A servlet filter which authorizes incoming requests with the EWP client authentication methods
+ * (HTTP Signatures and TLS client certificates), in the same way our fake EWP services do.
+ *
+ * <p>
+ * Client credentials are looked up in a {@link ClientCredentialDirectory}, which is rebuilt (and
+ * atomically replaced) whenever the catalogue generation changes, so the authorization decisions
+ * don't depend on the size of the catalogue. The identified client (and the HEIs it covers) is
+ * passed to the next filters and controllers in request attributes. Counters of all authorization
+ * steps are available via {@link #getCounters()}, and are shown on the status page.
+ * </p>
+ *
+ * <p>
+ * Response signing and encryption are not performed, because the registry doesn't have any server
+ * credentials of its own.
+ * </p>
+ */
+public class EwpSecurityFilter extends OncePerRequestFilter {
+
+  /**
+   * Steps of the authorization process, for which counters are kept.
+   */
+  public enum Step {
+    /**
+     * Requests which have been processed by the filter.
+     */
+    REQUESTS,
+    /**
+     * Times the {@link ClientCredentialDirectory} has been rebuilt.
+     */
+    DIRECTORY_REBUILDS,
+    /**
+     * Lookups of client credentials in the directory.
+     */
+    CREDENTIAL_LOOKUPS,
+    /**
+     * Lookups of client credentials which have not been found in the directory.
+     */
+    UNKNOWN_CREDENTIALS,
+    /**
+     * Requests authorized with HTTP Signatures.
+     */
+    HTTPSIG_AUTHORIZED,
+    /**
+     * Requests authorized with TLS client certificates.
+     */
+    CERTIFICATE_AUTHORIZED,
+    /**
+     * Requests which haven't used any authorization method, and have been let through anyway.
+     */
+    ANONYMOUS,
+    /**
+     * Requests which have been rejected with an error response.
+     */
+    REJECTED
+  }
+
+  /**
+   * Request attribute in which the identified {@link EwpClient} is stored. It's not set for
+   * anonymous requests.
+   */
+  public static final String CLIENT_ATTRIBUTE = EwpSecurityFilter.class.getName() + ".client";
+
+  /**
+   * Request attribute in which the unmodifiable set of IDs of HEIs covered by the identified client
+   * is stored. It's not set for anonymous requests.
+   */
+  public static final String COVERED_HEIS_ATTRIBUTE =
+      EwpSecurityFilter.class.getName() + ".coveredHeis";
+
+  private static final Logger logger = LoggerFactory.getLogger(EwpSecurityFilter.class);
+
+  private static class DirectorySnapshot {
+    private final long catalogueGeneration;
+    private final ClientCredentialDirectory directory;
+
+    DirectorySnapshot(long catalogueGeneration, ClientCredentialDirectory directory) {
+      this.catalogueGeneration = catalogueGeneration;
+      this.directory = directory;
+    }
+  }
+
+  /**
+   * Keeps the body of the request in memory, so that it can be read both by the authorizers and by
+   * the controllers. Bodies larger than the given limit are refused.
+   */
+  private static class CachedBodyRequest extends HttpServletRequestWrapper {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final byte[] body;
+    private Map<String, String[]> parameters;
+
+    CachedBodyRequest(HttpServletRequest request, long maxBodyBytes) throws IOException, Http4xx {
+      super(request);
+      this.body = readBody(request, maxBodyBytes);
+    }
+
+    private static void addParameters(Map<String, List<String>> result, String encoded,
+        String charset) throws UnsupportedEncodingException {
+      for (String pair : encoded.split("&")) {
+        if (pair.isEmpty()) {
+          continue;
+        }
+        String[] parts = pair.split("=", 2);
+        String name = URLDecoder.decode(parts[0], charset);
+        String value = parts.length == 2 ? URLDecoder.decode(parts[1], charset) : "";
+        result.computeIfAbsent(name, k -> new ArrayList<>()).add(value);
+      }
+    }
+
+    /**
+     * Read the body, but not more than maxBodyBytes of it. The declared Content-Length is checked
+     * first, but it's not trusted (it may be missing, e.g. in chunked requests).
+     */
+    private static byte[] readBody(HttpServletRequest request, long maxBodyBytes)
+        throws IOException, Http4xx {
+      long declaredLength = request.getContentLengthLong();
+      if (declaredLength > maxBodyBytes) {
+        throw newBodyTooLarge(maxBodyBytes);
+      }
+      InputStream stream = request.getInputStream();
+      ByteArrayOutputStream buffer =
+          new ByteArrayOutputStream(declaredLength > 0 ? (int) declaredLength : CHUNK_SIZE);
+      byte[] chunk = new byte[CHUNK_SIZE];
+      long total = 0;
+      int count;
+      while ((count = stream.read(chunk)) != -1) {
+        total += count;
+        if (total > maxBodyBytes) {
+          throw newBodyTooLarge(maxBodyBytes);
+        }
+        buffer.write(chunk, 0, count);
+      }
+      return buffer.toByteArray();
+    }
+
+    private static Http4xx newBodyTooLarge(long maxBodyBytes) {
+      return new Http4xx(413, "Request body is too large (limit is " + maxBodyBytes + " bytes).");
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+      ByteArrayInputStream stream = new ByteArrayInputStream(this.body);
+      return new ServletInputStream() {
+        @Override
+        public boolean isFinished() {
+          return stream.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+          return true;
+        }
+
+        @Override
+        public int read() {
+          return stream.read();
+        }
+
+        /**
+         * The whole body has already been read into memory, so the listener is notified right
+         * away.
+         */
+        @Override
+        public void setReadListener(ReadListener readListener) {
+          try {
+            if (!this.isFinished()) {
+              readListener.onDataAvailable();
+            }
+            readListener.onAllDataRead();
+          } catch (IOException e) {
+            readListener.onError(e);
+          }
+        }
+      };
+    }
+
+    @Override
+    public String getParameter(String name) {
+      String[] values = this.getParameterMap().get(name);
+      return values == null ? null : values[0];
+    }
+
+    /**
+     * The original request cannot parse the form parameters anymore (because we've already read
+     * its body), so we need to parse them ourselves.
+     */
+    @Override
+    public synchronized Map<String, String[]> getParameterMap() {
+      if (this.parameters == null) {
+        String charset = this.getCharacterEncoding() != null ? this.getCharacterEncoding()
+            : StandardCharsets.UTF_8.name();
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        try {
+          if (this.getQueryString() != null) {
+            addParameters(result, this.getQueryString(), charset);
+          }
+          String contentType = this.getContentType();
+          if (contentType != null && contentType.toLowerCase(Locale.US)
+              .startsWith("application/x-www-form-urlencoded")) {
+            addParameters(result, new String(this.body, StandardCharsets.ISO_8859_1), charset);
+          }
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+          logger.debug("Cannot parse request parameters: " + e);
+        }
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : result.entrySet()) {
+          parameters.put(entry.getKey(), entry.getValue().toArray(new String[0]));
+        }
+        this.parameters = Collections.unmodifiableMap(parameters);
+      }
+      return this.parameters;
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+      return Collections.enumeration(this.getParameterMap().keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+      String[] values = this.getParameterMap().get(name);
+      return values == null ? null : values.clone();
+    }
+
+    @Override
+    public BufferedReader getReader() throws UnsupportedEncodingException {
+      Charset charset = this.getCharacterEncoding() != null
+          ? Charset.forName(this.getCharacterEncoding()) : StandardCharsets.ISO_8859_1;
+      return new BufferedReader(new InputStreamReader(this.getInputStream(), charset));
+    }
+  }
+
+  private static String getCertificateFingerprint(X509Certificate cert) {
+    try {
+      return DigestUtils.sha256Hex(cert.getEncoded());
+    } catch (CertificateEncodingException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private final LongSupplier catalogueGenerationSupplier;
+  private final Supplier<String> catalogueSupplier;
+  private final boolean allowAnonymous;
+  private final long maxBodyBytes;
+  private final RequestAuthorizer authorizer;
+  private final Map<Step, AtomicLong> counters = new EnumMap<>(Step.class);
+  private volatile DirectorySnapshot snapshot;
+
+  /**
+   * @param repo Used to get the current catalogue, from which the client credentials are taken, and
+   *        to find out when it changes.
+   * @param registryClient Passed to the underlying authorizers.
+   * @param allowAnonymous If true, then requests which don't use any of the EWP authorization
+   *        methods are let through (as anonymous). Requests which try to use these methods, but
+   *        fail to do so, are always rejected.
+   * @param maxBodyBytes The maximum size of the request body. The body needs to be read into memory
+   *        before the request is authorized, so larger requests are rejected with HTTP 413.
+   */
+  public EwpSecurityFilter(ManifestRepository repo, RegistryClient registryClient,
+      boolean allowAnonymous, long maxBodyBytes) {
+    this(repo::getCatalogueGeneration, () -> {
+      try {
+        return repo.getCatalogue();
+      } catch (CatalogueNotFound e) {
+        return null;
+      }
+    }, registryClient, allowAnonymous, maxBodyBytes);
+  }
+
+  EwpSecurityFilter(LongSupplier catalogueGenerationSupplier, Supplier<String> catalogueSupplier,
+      RegistryClient registryClient, boolean allowAnonymous, long maxBodyBytes) {
+    this.catalogueGenerationSupplier = catalogueGenerationSupplier;
+    this.catalogueSupplier = catalogueSupplier;
+    this.allowAnonymous = allowAnonymous;
+    this.maxBodyBytes = maxBodyBytes;
+    for (Step step : Step.values()) {
+      this.counters.put(step, new AtomicLong());
+    }
+    RequestAuthorizer httpSig = new EwpHttpSigRequestAuthorizer(registryClient) {
+      @Override
+      protected Collection<String> identifyCoveredHeis(RSAPublicKey clientKey) {
+        return EwpSecurityFilter.this.getDirectory()
+            .getHeisCoveredByClientKey(DigestUtils.sha256Hex(clientKey.getEncoded()));
+      }
+
+      @Override
+      protected RSAPublicKey verifyClientKeyId(String keyId) throws Http4xx {
+        EwpSecurityFilter.this.increment(Step.CREDENTIAL_LOOKUPS);
+        RSAPublicKey clientKey = EwpSecurityFilter.this.getDirectory().findClientKey(keyId);
+        if (clientKey == null) {
+          EwpSecurityFilter.this.increment(Step.UNKNOWN_CREDENTIALS);
+          throw new Http4xx(403, "Unknown client key: " + keyId);
+        }
+        return clientKey;
+      }
+    };
+    RequestAuthorizer certificate = new EwpCertificateRequestAuthorizer(registryClient) {
+      @Override
+      protected boolean isCertificateKnown(X509Certificate cert) {
+        EwpSecurityFilter.this.increment(Step.CREDENTIAL_LOOKUPS);
+        boolean known = EwpSecurityFilter.this.getDirectory()
+            .isCertificateKnown(getCertificateFingerprint(cert));
+        if (!known) {
+          EwpSecurityFilter.this.increment(Step.UNKNOWN_CREDENTIALS);
+        }
+        return known;
+      }
+    };
+    this.authorizer = new ChainingRequestAuthorizer(Arrays.asList(certificate, httpSig), httpSig);
+  }
+
+  /**
+   * @return A snapshot of the counters of all the authorization steps.
+   */
+  public Map<Step, Long> getCounters() {
+    Map<Step, Long> result = new EnumMap<>(Step.class);
+    for (Map.Entry<Step, AtomicLong> entry : this.counters.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().get());
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * @return The directory of client credentials published in the current catalogue. It is rebuilt
+   *         if the catalogue generation has changed since the previous call.
+   */
+  ClientCredentialDirectory getDirectory() {
+    long generation = this.catalogueGenerationSupplier.getAsLong();
+    DirectorySnapshot current = this.snapshot;
+    if (current != null && current.catalogueGeneration == generation) {
+      return current.directory;
+    }
+    synchronized (this) {
+      current = this.snapshot;
+      if (current != null && current.catalogueGeneration == generation) {
+        return current.directory;
+      }
+      // The generation is read first. If the catalogue changes in between, then the next call
+      // will see a newer generation, and rebuild the directory again.
+      String catalogue = this.catalogueSupplier.get();
+      ClientCredentialDirectory directory = catalogue == null ? ClientCredentialDirectory.EMPTY
+          : ClientCredentialDirectory.fromCatalogue(catalogue);
+      this.snapshot = new DirectorySnapshot(generation, directory);
+      this.increment(Step.DIRECTORY_REBUILDS);
+      logger.info("Client credential directory rebuilt: {} client keys, {} certificates.",
+          directory.getClientKeyCount(), directory.getCertificateCount());
+      return directory;
+    }
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+      FilterChain filterChain) throws ServletException, IOException {
+    this.increment(Step.REQUESTS);
+    CachedBodyRequest cachedRequest;
+    try {
+      cachedRequest = new CachedBodyRequest(request, this.maxBodyBytes);
+    } catch (Http4xx e) {
+      this.reject(response, e);
+      return;
+    }
+    Request ewpRequest = this.toEwpRequest(cachedRequest);
+
+    EwpClient client;
+    try {
+      client = this.authorizer.authorize(ewpRequest);
+    } catch (UnmatchedRequestAuthorizationMethod e) {
+      if (!this.allowAnonymous) {
+        this.reject(response, e);
+        return;
+      }
+      client = null;
+    } catch (Http4xx e) {
+      this.reject(response, e);
+      return;
+    }
+
+    if (client instanceof EwpClientWithRsaKey) {
+      this.increment(Step.HTTPSIG_AUTHORIZED);
+      RSAPublicKey key = ((EwpClientWithRsaKey) client).getRsaPublicKey();
+      cachedRequest.setAttribute(COVERED_HEIS_ATTRIBUTE, this.getDirectory()
+          .getHeisCoveredByClientKey(DigestUtils.sha256Hex(key.getEncoded())));
+    } else if (client instanceof EwpClientWithCertificate) {
+      this.increment(Step.CERTIFICATE_AUTHORIZED);
+      X509Certificate cert = ((EwpClientWithCertificate) client).getCertificate();
+      cachedRequest.setAttribute(COVERED_HEIS_ATTRIBUTE,
+          this.getDirectory().getHeisCoveredByCertificate(getCertificateFingerprint(cert)));
+    } else {
+      this.increment(Step.ANONYMOUS);
+    }
+    if (client != null) {
+      cachedRequest.setAttribute(CLIENT_ATTRIBUTE, client);
+    }
+    filterChain.doFilter(cachedRequest, response);
+  }
+
+  private void increment(Step step) {
+    this.counters.get(step).incrementAndGet();
+  }
+
+  private void reject(HttpServletResponse response, Http4xx error) throws IOException {
+    this.increment(Step.REJECTED);
+    Response errorResponse = error.generateEwpErrorResponse();
+    response.setStatus(errorResponse.getStatus());
+    for (Map.Entry<String, String> entry : errorResponse.getHeaders().entrySet()) {
+      response.setHeader(entry.getKey(), entry.getValue());
+    }
+    response.getOutputStream().write(errorResponse.getBody());
+  }
+
+  private Request toEwpRequest(CachedBodyRequest request) {
+    StringBuffer url = request.getRequestURL();
+    if (request.getQueryString() != null) {
+      url.append('?').append(request.getQueryString());
+    }
+    Request result = new Request(request.getMethod(), url.toString());
+    for (String name : Collections.list(request.getHeaderNames())) {
+      result.putHeader(name, String.join(", ", Collections.list(request.getHeaders(name))));
+    }
+    if (request.body.length > 0) {
+      result.setBody(request.body);
+    }
+    Object certs = request.getAttribute("javax.servlet.request.X509Certificate");
+    if (certs instanceof X509Certificate[] && ((X509Certificate[]) certs).length > 0) {
+      result.setClientCertificate(((X509Certificate[]) certs)[0], null);
+    }
+    return result;
+  }
+}
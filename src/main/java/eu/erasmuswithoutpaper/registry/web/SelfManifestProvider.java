@@ -85,18 +85,28 @@ public class SelfManifestProvider {
     }
   }
 
+  /**
+   * The generated manifest, along with the version of validator credentials it has been generated
+   * for (see {@link ValidatorKeyStoreSet#getKeysVersion()}).
+   */
+  private static class CachedManifest {
+    private final long keysVersion;
+    private final String manifest;
+
+    private CachedManifest(long keysVersion, String manifest) {
+      this.keysVersion = keysVersion;
+      this.manifest = manifest;
+    }
+  }
+
   private final ResourceLoader res;
   private final EwpDocBuilder docBuilder;
   private final XmlFormatter formatter;
   private final List<String> adminEmails;
-  private final List<String> validatorHostCoveredHeiIds;
-  private final List<EncodedCertificateAndKeys> validatorHostCertificatesAndKeys
-      = new ArrayList<>();
-
-  private final List<String> secondaryValidatorHostCoveredHeiIds;
-  private final List<EncodedCertificateAndKeys> secondaryValidatorHostCertificatesAndKeys;
+  private final ValidatorKeyStoreSet validatorKeyStoreSet;
+  private final List<EncodedCertificateAndKeys> additionalCertificatesAndKeys = new ArrayList<>();
 
-  private volatile String cached = null;
+  private volatile CachedManifest cached = null;
 
   /**
    * @param res
@@ -139,29 +149,25 @@ public class SelfManifestProvider {
     this.formatter = formatter;
     this.adminEmails = adminEmails;
 
-    ValidatorKeyStore validatorHostKeyStore = validatorKeyStoreSet.getMainKeyStore();
-
-    this.validatorHostCertificatesAndKeys.add(new EncodedCertificateAndKeys(validatorHostKeyStore));
-    this.validatorHostCoveredHeiIds = validatorHostKeyStore.getCoveredHeiIDs();
+    this.validatorKeyStoreSet = validatorKeyStoreSet;
 
     if (additionalKeysKeystorePath != null && aliases != null && password != null) {
-      this.validatorHostCertificatesAndKeys.addAll(
+      this.additionalCertificatesAndKeys.addAll(
           readCertificatesAndKeysFromKeyStore(additionalKeysKeystorePath, aliases, password)
       );
     }
+  }
 
-    ValidatorKeyStore secondaryValidatorHostKeyStore = validatorKeyStoreSet.getSecondaryKeyStore();
-
-    if (secondaryValidatorHostKeyStore != null) {
-      this.secondaryValidatorHostCertificatesAndKeys = new ArrayList<>();
-      this.secondaryValidatorHostCertificatesAndKeys.add(
-          new EncodedCertificateAndKeys(secondaryValidatorHostKeyStore)
-      );
-      this.secondaryValidatorHostCoveredHeiIds = secondaryValidatorHostKeyStore.getCoveredHeiIDs();
-    } else {
-      this.secondaryValidatorHostCertificatesAndKeys = null;
-      this.secondaryValidatorHostCoveredHeiIds = null;
+  private static List<EncodedCertificateAndKeys> encodeAll(List<ValidatorKeyStore> keyStores) {
+    List<EncodedCertificateAndKeys> result = new ArrayList<>();
+    try {
+      for (ValidatorKeyStore keyStore : keyStores) {
+        result.add(new EncodedCertificateAndKeys(keyStore));
+      }
+    } catch (CertificateEncodingException e) {
+      throw new RuntimeException(e);
     }
+    return result;
   }
 
   private List<EncodedCertificateAndKeys> readCertificatesAndKeysFromKeyStore(
@@ -212,10 +218,14 @@ public class SelfManifestProvider {
    * @return A String with XML contents.
    */
   public String getManifest() {
-    if (this.cached == null) {
-      this.cached = this.generateManifest();
+    // Validator credentials may be rotated, and then the manifest needs to be regenerated.
+    long keysVersion = this.validatorKeyStoreSet.getKeysVersion();
+    CachedManifest current = this.cached;
+    if (current == null || current.keysVersion != keysVersion) {
+      current = new CachedManifest(keysVersion, this.generateManifest());
+      this.cached = current;
     }
-    return this.cached;
+    return current.manifest;
   }
 
   private String generateManifest() {
@@ -263,14 +273,21 @@ public class SelfManifestProvider {
       validatorHostEntry.remove();
       secondaryValidatorHostEntry.remove();
     } else {
-      // Add covered HEIs.
-
-      fillHostEntry(doc, validatorHostEntry, this.validatorHostCoveredHeiIds,
-          this.validatorHostCertificatesAndKeys);
-
-      if (this.secondaryValidatorHostCoveredHeiIds != null) {
-        fillHostEntry(doc, secondaryValidatorHostEntry,this.secondaryValidatorHostCoveredHeiIds,
-            this.secondaryValidatorHostCertificatesAndKeys);
+      // Add covered HEIs. While the credentials are being rotated, both the current and the new
+      // ones are published.
+
+      List<ValidatorKeyStore> mainKeyStores =
+          this.validatorKeyStoreSet.getPublishedMainKeyStores();
+      List<EncodedCertificateAndKeys> validatorHostCertificatesAndKeys = encodeAll(mainKeyStores);
+      validatorHostCertificatesAndKeys.addAll(this.additionalCertificatesAndKeys);
+      fillHostEntry(doc, validatorHostEntry, mainKeyStores.get(0).getCoveredHeiIDs(),
+          validatorHostCertificatesAndKeys);
+
+      List<ValidatorKeyStore> secondaryKeyStores =
+          this.validatorKeyStoreSet.getPublishedSecondaryKeyStores();
+      if (!secondaryKeyStores.isEmpty()) {
+        fillHostEntry(doc, secondaryValidatorHostEntry,
+            secondaryKeyStores.get(0).getCoveredHeiIDs(), encodeAll(secondaryKeyStores));
       } else {
         secondaryValidatorHostEntry.remove();
       }
@@ -4,7 +4,6 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,6 +20,7 @@ import eu.erasmuswithoutpaper.registry.documentbuilder.BuildError;
 import eu.erasmuswithoutpaper.registry.documentbuilder.BuildParams;
 import eu.erasmuswithoutpaper.registry.documentbuilder.BuildResult;
 import eu.erasmuswithoutpaper.registry.documentbuilder.EwpDocBuilder;
+import eu.erasmuswithoutpaper.registry.internet.HostCircuitBreaker;
 import eu.erasmuswithoutpaper.registry.manifestoverview.ApiForHeiImplementationMapping;
 import eu.erasmuswithoutpaper.registry.manifestoverview.CoveredInstitutionsCounters;
 import eu.erasmuswithoutpaper.registry.manifestoverview.ImplementedApisCount;
@@ -38,15 +38,18 @@ import eu.erasmuswithoutpaper.registry.updater.RegistryUpdater;
 import eu.erasmuswithoutpaper.registry.updater.UptimeChecker;
 import eu.erasmuswithoutpaper.registry.validators.ApiEndpoint;
 import eu.erasmuswithoutpaper.registry.validators.ApiValidatorsManager;
+import eu.erasmuswithoutpaper.registry.validators.CompressedBody;
 import eu.erasmuswithoutpaper.registry.validators.HtmlValidationReportFormatter;
 import eu.erasmuswithoutpaper.registry.validators.HttpSecurityDescription;
 import eu.erasmuswithoutpaper.registry.validators.HttpSecurityDescription.InvalidDescriptionString;
 import eu.erasmuswithoutpaper.registry.validators.SemanticVersion;
 import eu.erasmuswithoutpaper.registry.validators.SemanticVersion.InvalidVersionString;
+import eu.erasmuswithoutpaper.registry.validators.ValidationJob;
+import eu.erasmuswithoutpaper.registry.validators.ValidationJobManager;
+import eu.erasmuswithoutpaper.registry.validators.ValidationJobManager.ValidationQueueFull;
 import eu.erasmuswithoutpaper.registry.validators.ValidationParameter;
 import eu.erasmuswithoutpaper.registry.validators.ValidationParameters;
 import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
-import eu.erasmuswithoutpaper.registry.validators.ValidatorKeyStore;
 import eu.erasmuswithoutpaper.registry.validators.ValidatorKeyStoreSet;
 import eu.erasmuswithoutpaper.registry.validators.web.ManifestApiEntry;
 import eu.erasmuswithoutpaper.registryclient.HeiEntry;
@@ -62,6 +65,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -100,9 +104,12 @@ public class UiController {
   private final RegistryClient regClient;
   private final CatalogueDependantCache catcache;
   private final ApiValidatorsManager apiValidatorsManager;
-  private final ValidatorKeyStore validatorKeyStore;
+  private final ValidatorKeyStoreSet validatorKeyStoreSet;
   private final MyErrorController errorController;
   private final ManifestOverviewManager manifestOverviewManager;
+  private final HostCircuitBreaker circuitBreaker;
+  private final ValidationJobManager validationJobManager;
+  private final EwpSecurityFilter securityFilter;
 
   private byte[] cachedCss;
   private String cachedCssFingerprint;
@@ -129,6 +136,9 @@ public class UiController {
    * @param validatorKeyStoreSet    set of KeyStores providing credentials.
    * @param errorController         used to generate 404 pages when the validator is not available.
    * @param manifestOverviewManager used to retrieve current data about duplicates in the network.
+   * @param circuitBreaker          needed to display the list of hosts which are failing.
+   * @param validationJobManager    needed to run API validations in the background.
+   * @param securityFilter          needed to display its authorization counters.
    */
   @Autowired
   public UiController(TaskExecutor taskExecutor,
@@ -138,7 +148,8 @@ public class UiController {
       CoverageMatrixGenerator matrixGenerator, RegistryClient regClient,
       CatalogueDependantCache catcache, ApiValidatorsManager apiValidatorsManager,
       ValidatorKeyStoreSet validatorKeyStoreSet, MyErrorController errorController,
-      ManifestOverviewManager manifestOverviewManager) {
+      ManifestOverviewManager manifestOverviewManager, HostCircuitBreaker circuitBreaker,
+      ValidationJobManager validationJobManager, EwpSecurityFilter securityFilter) {
     this.taskExecutor = taskExecutor;
     this.manifestStatusRepo = manifestUpdateStatuses;
     this.manifestRepository = manifestRepository;
@@ -152,9 +163,12 @@ public class UiController {
     this.regClient = regClient;
     this.catcache = catcache;
     this.apiValidatorsManager = apiValidatorsManager;
-    this.validatorKeyStore = validatorKeyStoreSet.getMainKeyStore();
+    this.validatorKeyStoreSet = validatorKeyStoreSet;
     this.errorController = errorController;
     this.manifestOverviewManager = manifestOverviewManager;
+    this.circuitBreaker = circuitBreaker;
+    this.validationJobManager = validationJobManager;
+    this.securityFilter = securityFilter;
   }
 
   /**
@@ -398,6 +412,8 @@ public class UiController {
       }
     }
     mav.addObject("manifestStatuses", statuses);
+    mav.addObject("failingHosts", this.circuitBreaker.getFailingHosts());
+    mav.addObject("authorizationCounters", this.securityFilter.getCounters());
     mav.addObject("manifestValidationUrl", Application.getRootUrl() + "/manifestValidation");
     mav.addObject("isValidatorEnabled", Application.isValidationEnabled());
     return mav;
@@ -573,100 +589,279 @@ public class UiController {
   }
 
   /**
-   * Run validation on one of APIs served at the given URL.
+   * Presents some information from manifests.
+   *
+   * @param response Needed to add some custom headers.
+   * @return Manifests Overview page.
+   */
+  @RequestMapping(path = "/manifestsOverview", method = RequestMethod.GET)
+  public Object validateApiVersion(HttpServletResponse response) {
+    ModelAndView mav = new ModelAndView();
+    this.initializeMavCommons(mav);
+    mav.setViewName("manifestsOverview");
+    response.addHeader("Cache-Control", "public, max-age=300");
+
+    ManifestOverviewManager.ManifestOverviewState manifestOverviewState =
+        this.manifestOverviewManager.getManifestOverviewState();
+
+    Collection<ManifestOverviewInfo> infos = manifestOverviewState.overviewInfos;
+    mav.addObject("manifestInfos", infos);
+
+    ImplementedApisCount implementedApisCount = manifestOverviewState.implementedApisCount;
+    mav.addObject("implementedApisCount", implementedApisCount);
+
+    ApiForHeiImplementationMapping duplicates =
+        manifestOverviewState.apiForHeiImplementationMappingDuplicates;
+    mav.addObject("duplicatesInfo", duplicates);
+
+    CoveredInstitutionsCounters heiDuplicates = manifestOverviewState.getHeiDuplicates;
+    mav.addObject("heiDuplicates", heiDuplicates);
+
+    return mav;
+  }
+
+  /**
+   * Submit a validation of one of APIs served at the given URL, to be run in the background. If an
+   * identical validation is already running, or has finished recently, then its job is returned.
    *
    * <p>
    * This is not part of the API and MAY be removed later on.
    * </p>
    *
+   * <p>
+   * The validation page submits its validations here, and then polls
+   * {@link #getValidationJob(String, int)} until the job is done.
+   * </p>
+   *
    * @param requestBody request body.
-   * @return HTML with validation results.
+   * @return An undocumented JSON object with the ID of the job, which can be then passed to
+   *     {@link #getValidationJob(String, int)} and {@link #getValidationJobResult(String)}.
    */
-  @RequestMapping(path = "/validateApi", method = RequestMethod.POST)
-  public Object validateApiVersion(@RequestBody ValidationRequestBody requestBody) {
+  @RequestMapping(path = { "/validateApi", "/validateApi/jobs" }, method = RequestMethod.POST)
+  public ResponseEntity<String> submitValidationJob(
+      @RequestBody ValidationRequestBody requestBody) {
     if (!Application.isValidationEnabled()) {
       return this.errorController.get404();
     }
 
-    ModelAndView mav = new ModelAndView();
-    this.initializeMavCommons(mav);
-    mav.setViewName("validationResult");
+    Optional<ParsedValidationRequest> request = this.parseValidationRequest(requestBody);
+    if (!request.isPresent()) {
+      return this.errorController.get404();
+    }
 
-    HttpSecurityDescription httpSecurityDescription;
-    SemanticVersion ver;
-    ApiEndpoint endpoint;
+    ValidationJob job;
     try {
-      httpSecurityDescription = new HttpSecurityDescription(requestBody.getSecurity());
-      ver = new SemanticVersion(requestBody.getVersion());
-      endpoint = ApiEndpoint.fromEndpointName(requestBody.getEndpoint());
-    } catch (InvalidDescriptionString | IllegalArgumentException | InvalidVersionString ignored) {
-      return this.errorController.get404();
+      job = this.validationJobManager.submit(requestBody.getName(), request.get().endpoint,
+          requestBody.getUrl(), request.get().version, request.get().security,
+          request.get().parameters);
+    } catch (ValidationQueueFull e) {
+      return this.createQueueFullResponse(e);
     }
+    JsonObject result = new JsonObject();
+    result.addProperty("jobId", job.getId());
+    result.addProperty("state", job.getState().toString());
+    result.addProperty("queuedJobs", this.validationJobManager.getQueuedJobCount());
+    return new ResponseEntity<>(new Gson().toJson(result), this.createJsonHeaders(),
+        HttpStatus.ACCEPTED);
+  }
 
-    if (!this.apiValidatorsManager.hasCompatibleTests(requestBody.getName(), endpoint, ver)) {
+  /**
+   * Check the progress of a validation job.
+   *
+   * <p>
+   * This is not part of the API and MAY be removed later on.
+   * </p>
+   *
+   * @param jobId the ID of the job.
+   * @param since the number of steps which the client has already received.
+   * @return An undocumented JSON object with the state of the job, and all the steps finished after
+   *     the first `since` steps.
+   */
+  @RequestMapping(path = "/validateApi/jobs/{jobId}", method = RequestMethod.GET)
+  public ResponseEntity<String> getValidationJob(@PathVariable String jobId,
+      @RequestParam(defaultValue = "0") int since) {
+    if (!Application.isValidationEnabled()) {
+      return this.errorController.get404();
+    }
+    Optional<ValidationJob> job = this.validationJobManager.getJob(jobId);
+    if (!job.isPresent()) {
       return this.errorController.get404();
     }
+    return new ResponseEntity<>(this.getValidationJobJson(job.get(), since),
+        this.createJsonHeaders(), HttpStatus.OK);
+  }
 
-    ValidationParameters requestParameters = new ValidationParameters(requestBody.getParameters());
-    List<ValidationParameter> availableParameters =
-        this.apiValidatorsManager.getParameters(requestBody.getName(), endpoint, ver);
+  /**
+   * Fetch the results of a validation job.
+   *
+   * <p>
+   * This is not part of the API and MAY be removed later on.
+   * </p>
+   *
+   * @param jobId the ID of the job.
+   * @return HTML with validation results, or a JSON object with the state of the job, if it's not
+   *     done yet.
+   */
+  @RequestMapping(path = "/validateApi/jobs/{jobId}/result", method = RequestMethod.GET)
+  public Object getValidationJobResult(@PathVariable String jobId) {
+    if (!Application.isValidationEnabled()) {
+      return this.errorController.get404();
+    }
+    Optional<ValidationJob> job = this.validationJobManager.getJob(jobId);
+    if (!job.isPresent()) {
+      return this.errorController.get404();
+    }
+    if (!job.get().isDone()) {
+      return new ResponseEntity<>(this.getValidationJobJson(job.get(), 0),
+          this.createJsonHeaders(), HttpStatus.ACCEPTED);
+    }
+    return this.createValidationResultView(job.get());
+  }
 
-    if (!requestParameters.checkDependencies(availableParameters)) {
+  /**
+   * Download the full body of a request or response snapshot, which has been truncated in the
+   * validation report.
+   *
+   * <p>
+   * This is not part of the API and MAY be removed later on.
+   * </p>
+   *
+   * @param jobId the ID of the job.
+   * @param step the index of the validation step.
+   * @param kind either "requests" or "responses".
+   * @param snapshot the index of the snapshot.
+   * @return The full body, or 404 if the job has expired, or the snapshot has not been truncated.
+   */
+  @RequestMapping(path = "/validateApi/jobs/{jobId}/steps/{step}/{kind}/{snapshot}/body",
+      method = RequestMethod.GET)
+  public ResponseEntity<?> getValidationSnapshotBody(@PathVariable String jobId,
+      @PathVariable int step, @PathVariable String kind, @PathVariable int snapshot) {
+    if (!Application.isValidationEnabled()) {
+      return this.errorController.get404();
+    }
+    Optional<ValidationJob> job = this.validationJobManager.getJob(jobId);
+    if (!job.isPresent() || step < 0) {
+      return this.errorController.get404();
+    }
+    List<ValidationStepWithStatus> steps = job.get().getSteps(step);
+    if (steps.isEmpty()) {
       return this.errorController.get404();
     }
+    Optional<CompressedBody> body;
+    if (kind.equals("requests")) {
+      body = steps.get(0).getFullRequestBody(snapshot);
+    } else if (kind.equals("responses")) {
+      body = steps.get(0).getFullResponseBody(snapshot);
+    } else {
+      body = Optional.empty();
+    }
+    if (!body.isPresent()) {
+      return this.errorController.get404();
+    }
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+    headers.set(HttpHeaders.CONTENT_DISPOSITION,
+        "attachment; filename=\"step-" + step + "-" + kind + "-" + snapshot + ".bin\"");
+    return new ResponseEntity<>(body.get().getContent(), headers, HttpStatus.OK);
+  }
+
+  private HttpHeaders createJsonHeaders() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+    headers.setCacheControl("max-age=0, must-revalidate");
+    headers.setExpires(0);
+    return headers;
+  }
 
-    Date validationStartedDate = new Date();
+  private ResponseEntity<String> createQueueFullResponse(ValidationQueueFull error) {
+    JsonObject result = new JsonObject();
+    result.addProperty("error", error.getMessage());
+    HttpHeaders headers = this.createJsonHeaders();
+    headers.set(HttpHeaders.RETRY_AFTER, "30");
+    return new ResponseEntity<>(new Gson().toJson(result), headers,
+        HttpStatus.SERVICE_UNAVAILABLE);
+  }
 
-    List<ValidationStepWithStatus> testResults =
-        this.apiValidatorsManager.getApiValidator(requestBody.getName(), endpoint)
-            .runTests(requestBody.getUrl(), ver, httpSecurityDescription, requestParameters);
+  private ModelAndView createValidationResultView(ValidationJob job) {
+    ModelAndView mav = new ModelAndView();
+    this.initializeMavCommons(mav);
+    mav.setViewName("validationResult");
 
+    // Full bodies are served only for as long as the job is kept.
     HtmlValidationReportFormatter htmlValidationReportFormatter =
-        new HtmlValidationReportFormatter(docBuilder);
+        new HtmlValidationReportFormatter(docBuilder,
+            Application.getRootUrl() + "/validateApi/jobs/" + job.getId() + "/steps",
+            this.validationJobManager.getExpiryDate(job));
 
     HtmlValidationReportFormatter.ValidationInfoParameters validationInfoParameters =
-        new HtmlValidationReportFormatter.ValidationInfoParameters(requestBody.getName(),
-            requestBody.getUrl(), requestBody.getVersion(), httpSecurityDescription,
-            validationStartedDate, this.validatorKeyStore.getCredentialsGenerationDate());
+        new HtmlValidationReportFormatter.ValidationInfoParameters(job.getApiName(),
+            job.getUrl(), job.getVersion().toString(), job.getSecurity(),
+            job.getStartedDate().orElse(job.getSubmittedDate()),
+            this.validatorKeyStoreSet.getMainKeyStore().getCredentialsGenerationDate());
 
-    Map<String, Object> pebbleContext =
-        htmlValidationReportFormatter.getPebbleContext(testResults, validationInfoParameters);
+    Map<String, Object> pebbleContext = htmlValidationReportFormatter
+        .getPebbleContext(job.getSteps(0), validationInfoParameters);
 
     mav.addAllObjects(pebbleContext);
 
     return mav;
   }
 
-  /**
-   * Presents some information from manifests.
-   *
-   * @param response Needed to add some custom headers.
-   * @return Manifests Overview page.
-   */
-  @RequestMapping(path = "/manifestsOverview", method = RequestMethod.GET)
-  public Object validateApiVersion(HttpServletResponse response) {
-    ModelAndView mav = new ModelAndView();
-    this.initializeMavCommons(mav);
-    mav.setViewName("manifestsOverview");
-    response.addHeader("Cache-Control", "public, max-age=300");
-
-    ManifestOverviewManager.ManifestOverviewState manifestOverviewState =
-        this.manifestOverviewManager.getManifestOverviewState();
+  private String getValidationJobJson(ValidationJob job, int since) {
+    JsonObject result = new JsonObject();
+    result.addProperty("jobId", job.getId());
+    result.addProperty("state", job.getState().toString());
+    result.addProperty("done", job.isDone());
+    job.getErrorMessage().ifPresent(message -> result.addProperty("error", message));
+    JsonArray steps = new JsonArray();
+    int index = Math.max(since, 0);
+    for (ValidationStepWithStatus step : job.getSteps(index)) {
+      JsonObject stepJson = new JsonObject();
+      stepJson.addProperty("index", index++);
+      stepJson.addProperty("name", step.getName());
+      stepJson.addProperty("status", step.getStatus().toString());
+      stepJson.addProperty("message", step.getMessage());
+      steps.add(stepJson);
+    }
+    result.addProperty("stepCount", index);
+    result.add("steps", steps);
+    return new Gson().toJson(result);
+  }
 
-    Collection<ManifestOverviewInfo> infos = manifestOverviewState.overviewInfos;
-    mav.addObject("manifestInfos", infos);
+  private static class ParsedValidationRequest {
+    private HttpSecurityDescription security;
+    private SemanticVersion version;
+    private ApiEndpoint endpoint;
+    private ValidationParameters parameters;
+  }
 
-    ImplementedApisCount implementedApisCount = manifestOverviewState.implementedApisCount;
-    mav.addObject("implementedApisCount", implementedApisCount);
+  /**
+   * @return Parsed request, or empty if it's invalid, or if there are no tests for it.
+   */
+  private Optional<ParsedValidationRequest> parseValidationRequest(
+      ValidationRequestBody requestBody) {
+    ParsedValidationRequest request = new ParsedValidationRequest();
+    try {
+      request.security = new HttpSecurityDescription(requestBody.getSecurity());
+      request.version = new SemanticVersion(requestBody.getVersion());
+      request.endpoint = ApiEndpoint.fromEndpointName(requestBody.getEndpoint());
+    } catch (InvalidDescriptionString | IllegalArgumentException | InvalidVersionString ignored) {
+      return Optional.empty();
+    }
 
-    ApiForHeiImplementationMapping duplicates =
-        manifestOverviewState.apiForHeiImplementationMappingDuplicates;
-    mav.addObject("duplicatesInfo", duplicates);
+    if (!this.apiValidatorsManager.hasCompatibleTests(requestBody.getName(), request.endpoint,
+        request.version)) {
+      return Optional.empty();
+    }
 
-    CoveredInstitutionsCounters heiDuplicates = manifestOverviewState.getHeiDuplicates;
-    mav.addObject("heiDuplicates", heiDuplicates);
+    request.parameters = new ValidationParameters(requestBody.getParameters());
+    List<ValidationParameter> availableParameters = this.apiValidatorsManager
+        .getParameters(requestBody.getName(), request.endpoint, request.version);
 
-    return mav;
+    if (!request.parameters.checkDependencies(availableParameters)) {
+      return Optional.empty();
+    }
+    return Optional.of(request);
   }
 
   /**
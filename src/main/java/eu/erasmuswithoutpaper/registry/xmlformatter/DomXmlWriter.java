@@ -0,0 +1,566 @@
+package eu.erasmuswithoutpaper.registry.xmlformatter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+
+import com.google.common.base.Strings;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.DocumentType;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * Writes DOM documents in exactly the same format as {@link XmlFormatter#format(Document)} did when
+ * it converted them to JDOM and printed them with {@link MyOutputProcessor}, but without building
+ * any intermediate JDOM tree.
+ *
+ * <p>
+ * Apart from the printing itself, this class replicates the few things that JDOM's DOMBuilder and
+ * NamespaceStack did for us: namespace declarations are printed only where they change the
+ * namespaces in scope (in the same order as JDOM prints them), and whitespace-only text is dropped
+ * the same way as JDOM's {@code TextMode.TRIM_FULL_WHITE} does it. TrAX output escaping
+ * processing instructions are printed, not interpreted. Instances are not thread-safe, and are
+ * meant to be used for a single document.
+ * </p>
+ */
+final class DomXmlWriter {
+
+  private static final class Ns {
+    private final String prefix;
+    private final String uri;
+
+    private Ns(String prefix, String uri) {
+      this.prefix = prefix;
+      this.uri = uri;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Ns)) {
+        return false;
+      }
+      Ns other = (Ns) obj;
+      return this.prefix.equals(other.prefix) && this.uri.equals(other.uri);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.prefix, this.uri);
+    }
+  }
+
+  private static final class Attribute {
+    private final String qualifiedName;
+    private final String localName;
+    private final Ns ns;
+    private final String value;
+
+    private Attribute(String localName, Ns ns, String value) {
+      this.qualifiedName = ns.prefix.isEmpty() ? localName : ns.prefix + ":" + localName;
+      this.localName = localName;
+      this.ns = ns;
+      this.value = value;
+    }
+  }
+
+  private static final String INDENT = "    ";
+  private static final Ns NO_NAMESPACE = new Ns("", "");
+  private static final Ns XML_NAMESPACE = new Ns("xml", XMLConstants.XML_NS_URI);
+
+  private final Writer out;
+
+  DomXmlWriter(Writer out) {
+    this.out = out;
+  }
+
+  /**
+   * Escape the value in the same way as JDOM's {@code Format.escapeAttribute} and
+   * {@code Format.escapeText} do it (for UTF-8 output).
+   *
+   * @param value The value to escape.
+   * @param attribute True if it's an attribute value, false if it's text.
+   * @param topLevel True if it's an attribute of the top level element (we want its
+   *        xsi:schemaLocation to contain newlines, see {@link MyOutputProcessor}).
+   * @return The escaped value.
+   */
+  private static String escape(String value, boolean attribute, boolean topLevel) {
+    StringBuilder sb = null;
+    for (int i = 0; i < value.length(); i++) {
+      char ch = value.charAt(i);
+      String replacement = null;
+      int length = 1;
+      switch (ch) {
+        case '<':
+          replacement = "&lt;";
+          break;
+        case '>':
+          replacement = "&gt;";
+          break;
+        case '&':
+          replacement = "&amp;";
+          break;
+        case '\r':
+          replacement = "&#xD;";
+          break;
+        case '"':
+          replacement = attribute ? "&quot;" : null;
+          break;
+        case '\t':
+          replacement = attribute ? "&#x9;" : null;
+          break;
+        case '\n':
+          replacement = attribute && !topLevel ? "&#xA;" : null;
+          break;
+        default:
+          if (Character.isHighSurrogate(ch)) {
+            // JDOM escapes supplementary characters, even in UTF-8.
+            if (i + 1 >= value.length() || !Character.isLowSurrogate(value.charAt(i + 1))) {
+              throw new IllegalArgumentException(
+                  "Could not decode surrogate pair 0x" + Integer.toHexString(ch));
+            }
+            replacement =
+                "&#x" + Integer.toHexString(Character.toCodePoint(ch, value.charAt(i + 1))) + ";";
+            length = 2;
+          }
+          break;
+      }
+      if (replacement == null) {
+        if (sb != null) {
+          sb.append(ch);
+        }
+        continue;
+      }
+      if (sb == null) {
+        sb = new StringBuilder(value.length() + 16);
+        sb.append(value, 0, i);
+      }
+      sb.append(replacement);
+      i += length - 1;
+    }
+    return sb == null ? value : sb.toString();
+  }
+
+  private static List<Node> getContent(Node parent) {
+    NodeList children = parent.getChildNodes();
+    List<Node> result = new ArrayList<>(children.getLength());
+    for (int i = 0; i < children.getLength(); i++) {
+      Node child = children.item(i);
+      switch (child.getNodeType()) {
+        case Node.ELEMENT_NODE:
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+        case Node.ENTITY_REFERENCE_NODE:
+        case Node.COMMENT_NODE:
+        case Node.PROCESSING_INSTRUCTION_NODE:
+        case Node.DOCUMENT_TYPE_NODE:
+          result.add(child);
+          break;
+        default:
+          // Ignored, the same way as JDOM's DOMBuilder ignores it.
+          break;
+      }
+    }
+    return result;
+  }
+
+  private static String getLocalName(String qualifiedName) {
+    return qualifiedName.substring(qualifiedName.indexOf(':') + 1);
+  }
+
+  private static String getPrefix(String qualifiedName) {
+    int colon = qualifiedName.indexOf(':');
+    return colon >= 0 ? qualifiedName.substring(0, colon) : "";
+  }
+
+  private static boolean isAllWhitespace(String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char ch = value.charAt(i);
+      if (ch != ' ' && ch != '\n' && ch != '\t' && ch != '\r') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isTextLike(Node node) {
+    short type = node.getNodeType();
+    return type == Node.TEXT_NODE || type == Node.CDATA_SECTION_NODE
+        || type == Node.ENTITY_REFERENCE_NODE;
+  }
+
+  /**
+   * @return The namespace bound to the prefix, or null, if the prefix is not bound.
+   */
+  private static Ns lookup(Map<String, Ns> scope, String prefix) {
+    if ("xml".equals(prefix)) {
+      return XML_NAMESPACE;
+    }
+    return scope.get(prefix);
+  }
+
+  /**
+   * @return The namespace of a prefixless attribute with a namespace URI (which may happen only in
+   *         documents built programmatically).
+   */
+  private static Ns resolveUnprefixedAttributeNamespace(Ns elementNs, Map<String, Ns> scope,
+      String uri) {
+    Map<String, Ns> inScope = new TreeMap<>(scope);
+    inScope.remove(elementNs.prefix);
+    List<Ns> candidates = new ArrayList<>(inScope.size() + 1);
+    candidates.add(elementNs);
+    candidates.addAll(inScope.values());
+    for (Ns ns : candidates) {
+      if (!ns.prefix.isEmpty() && ns.uri.equals(uri)) {
+        return ns;
+      }
+    }
+    int count = 0;
+    while (inScope.containsKey("attns" + count) || elementNs.prefix.equals("attns" + count)) {
+      count++;
+    }
+    return new Ns("attns" + count, uri);
+  }
+
+  /**
+   * Write the document.
+   *
+   * @param doc The document to write.
+   * @throws IOException If the underlying writer fails.
+   */
+  void write(Document doc) throws IOException {
+    List<Node> content = getContent(doc);
+    if (content.isEmpty()) {
+      return;
+    }
+    Map<String, Ns> scope = new HashMap<>();
+    scope.put(NO_NAMESPACE.prefix, NO_NAMESPACE);
+    scope.put(XML_NAMESPACE.prefix, XML_NAMESPACE);
+    for (int i = 0; i < content.size(); i++) {
+      if (i > 0) {
+        this.out.write('\n');
+      }
+      this.writeNonText(content.get(i), scope, 0);
+    }
+    this.out.write('\n');
+  }
+
+  /**
+   * Write the children of an element, placing them on separate lines, unless they are text.
+   *
+   * @param content The children, at least one of which is not text-like.
+   * @param scope Namespaces in scope of the parent element.
+   * @param depth Depth of the children.
+   */
+  private void writeContent(List<Node> content, Map<String, Ns> scope, int depth)
+      throws IOException {
+    String newlineIndent = "\n" + Strings.repeat(INDENT, depth);
+    boolean previousWasText = false;
+    int start = 0;
+    while (start < content.size()) {
+      if (!isTextLike(content.get(start))) {
+        if (start > 0 && !previousWasText) {
+          this.out.write(newlineIndent);
+        }
+        this.writeNonText(content.get(start), scope, depth);
+        previousWasText = false;
+        start++;
+        continue;
+      }
+      int end = start;
+      while (end < content.size() && isTextLike(content.get(end))) {
+        end++;
+      }
+      boolean last = end == content.size();
+      List<Node> run = content.subList(start, end);
+      if (this.isSignificant(run)) {
+        this.writeText(run, start > 0 ? newlineIndent : "", last ? "" : newlineIndent);
+      } else if (start > 0 && !last) {
+        this.out.write(newlineIndent);
+      }
+      previousWasText = true;
+      start = end;
+    }
+  }
+
+  private void writeDocType(DocumentType docType) throws IOException {
+    this.out.write("<!DOCTYPE ");
+    this.out.write(docType.getName());
+    if (docType.getPublicId() != null) {
+      this.out.write(" PUBLIC \"");
+      this.out.write(docType.getPublicId());
+      this.out.write("\"");
+    }
+    if (docType.getSystemId() != null) {
+      if (docType.getPublicId() == null) {
+        this.out.write(" SYSTEM");
+      }
+      this.out.write(" \"");
+      this.out.write(docType.getSystemId());
+      this.out.write("\"");
+    }
+    if (!Strings.isNullOrEmpty(docType.getInternalSubset())) {
+      this.out.write(" [\n");
+      this.out.write(docType.getInternalSubset());
+      this.out.write("]");
+    }
+    this.out.write(">");
+  }
+
+  private void writeElement(Element element, Map<String, Ns> parentScope, int depth)
+      throws IOException {
+
+    /* Determine the namespaces of the element and its attributes (as JDOM's DOMBuilder does). */
+
+    String nodeName = element.getNodeName();
+    String prefix = getPrefix(nodeName);
+    Ns elementNs;
+    if (element.getNamespaceURI() == null) {
+      elementNs = lookup(parentScope, prefix);
+      if (elementNs == null) {
+        elementNs = NO_NAMESPACE;
+      }
+    } else {
+      elementNs = new Ns(prefix, element.getNamespaceURI());
+    }
+
+    NamedNodeMap attrs = element.getAttributes();
+    List<Ns> declarations = new ArrayList<>();
+    for (int i = 0; i < attrs.getLength(); i++) {
+      Attr attr = (Attr) attrs.item(i);
+      String name = attr.getName();
+      if (name.startsWith("xmlns")) {
+        Ns declared = new Ns(name.indexOf(':') >= 0 ? getLocalName(name) : "", attr.getValue());
+        if (declared.prefix.equals(prefix)) {
+          elementNs = declared;
+        } else if (!declarations.contains(declared)) {
+          declarations.add(declared);
+        }
+      }
+    }
+
+    // Namespaces declared on this element, as JDOM's Element.getNamespace(prefix) sees them.
+    Map<String, Ns> declaredScope = new HashMap<>(parentScope);
+    for (Ns ns : declarations) {
+      declaredScope.put(ns.prefix, ns);
+    }
+    declaredScope.put(elementNs.prefix, elementNs);
+    Set<String> boundPrefixes = new HashSet<>();
+    boundPrefixes.add(elementNs.prefix);
+    for (Ns ns : declarations) {
+      boundPrefixes.add(ns.prefix);
+    }
+
+    List<Attribute> attributes = new ArrayList<>();
+    for (int i = 0; i < attrs.getLength(); i++) {
+      Attr attr = (Attr) attrs.item(i);
+      String name = attr.getName();
+      if (name.startsWith("xmlns")) {
+        continue;
+      }
+      String attrPrefix = getPrefix(name);
+      String attrUri = attr.getNamespaceURI();
+      Ns attrNs;
+      if (attrPrefix.isEmpty() && Strings.isNullOrEmpty(attrUri)) {
+        attrNs = NO_NAMESPACE;
+      } else if (!attrPrefix.isEmpty()) {
+        attrNs = attrUri == null ? lookup(declaredScope, attrPrefix) : new Ns(attrPrefix, attrUri);
+        if (attrNs == null) {
+          attrNs = NO_NAMESPACE;
+        }
+      } else {
+        attrNs = resolveUnprefixedAttributeNamespace(elementNs, declaredScope, attrUri);
+      }
+      if (boundPrefixes.add(attrNs.prefix)) {
+        declaredScope.put(attrNs.prefix, attrNs);
+      }
+      attributes.add(new Attribute(getLocalName(name), attrNs, attr.getValue()));
+    }
+
+    /* Find the namespace declarations to be printed (as JDOM's NamespaceStack does). */
+
+    Map<String, Ns> scope = new HashMap<>(parentScope);
+    List<Ns> added = new ArrayList<>();
+    List<Ns> candidates = new ArrayList<>(declarations.size() + attributes.size() + 1);
+    candidates.add(elementNs);
+    candidates.addAll(declarations);
+    for (Attribute attribute : attributes) {
+      if (!attribute.ns.equals(NO_NAMESPACE) && !attribute.ns.equals(elementNs)) {
+        candidates.add(attribute.ns);
+      }
+    }
+    for (Ns ns : candidates) {
+      if (!ns.equals(lookup(scope, ns.prefix))) {
+        added.add(ns);
+        scope.put(ns.prefix, ns);
+      }
+    }
+    // The element's own namespace goes first, the rest is sorted by prefix.
+    int firstSorted = !added.isEmpty() && added.get(0).equals(elementNs) ? 1 : 0;
+    Collections.sort(added.subList(firstSorted, added.size()),
+        (ns1, ns2) -> ns1.prefix.compareTo(ns2.prefix));
+
+    /* Print the start tag. */
+
+    String qualifiedName =
+        elementNs.prefix.isEmpty() ? getLocalName(nodeName) : elementNs.prefix + ":"
+            + getLocalName(nodeName);
+    String levelIndent = Strings.repeat(INDENT, depth);
+    boolean topLevel = depth == 0;
+    boolean separateLines = added.size() + attributes.size() >= 2;
+    String attributePrefix = separateLines ? "\n" + levelIndent + INDENT : " ";
+
+    this.out.write("<");
+    this.out.write(qualifiedName);
+    for (Ns ns : added) {
+      this.out.write(attributePrefix);
+      this.out.write("xmlns");
+      if (!ns.prefix.isEmpty()) {
+        this.out.write(":");
+        this.out.write(ns.prefix);
+      }
+      this.out.write("=\"");
+      this.out.write(escape(ns.uri, true, topLevel));
+      this.out.write("\"");
+    }
+    for (Attribute attribute : attributes) {
+      String value = attribute.value;
+      if (topLevel && attribute.localName.equals("schemaLocation")
+          && attribute.ns.uri.equals(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI)) {
+        value = XmlFormatter.formatSchemaLocation(value);
+      }
+      this.out.write(attributePrefix);
+      this.out.write(attribute.qualifiedName);
+      this.out.write("=\"");
+      this.out.write(escape(value, true, topLevel));
+      this.out.write("\"");
+    }
+    if (separateLines) {
+      this.out.write("\n");
+      this.out.write(levelIndent);
+    }
+
+    /* Print the content and the end tag. */
+
+    List<Node> content = getContent(element);
+    boolean allText = true;
+    for (Node node : content) {
+      allText &= isTextLike(node);
+    }
+    if (content.isEmpty() || allText && !this.isSignificant(content)) {
+      this.out.write("/>");
+      return;
+    }
+    this.out.write(">");
+    if (allText) {
+      this.writeText(content, "", "");
+    } else {
+      this.out.write("\n");
+      this.out.write(levelIndent);
+      this.out.write(INDENT);
+      this.writeContent(content, scope, depth + 1);
+      this.out.write("\n");
+      this.out.write(levelIndent);
+    }
+    this.out.write("</");
+    this.out.write(qualifiedName);
+    this.out.write(">");
+  }
+
+  private void writeNonText(Node node, Map<String, Ns> scope, int depth) throws IOException {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        this.writeElement((Element) node, scope, depth);
+        break;
+      case Node.COMMENT_NODE:
+        this.out.write("<!--");
+        this.out.write(node.getNodeValue());
+        this.out.write("-->");
+        break;
+      case Node.PROCESSING_INSTRUCTION_NODE:
+        ProcessingInstruction pi = (ProcessingInstruction) node;
+        this.out.write("<?");
+        this.out.write(pi.getTarget());
+        if (!Strings.isNullOrEmpty(pi.getData())) {
+          this.out.write(" ");
+          this.out.write(pi.getData());
+        }
+        this.out.write("?>");
+        break;
+      case Node.DOCUMENT_TYPE_NODE:
+        this.writeDocType((DocumentType) node);
+        break;
+      default:
+        throw new IllegalArgumentException("Unexpected node type: " + node.getNodeType());
+    }
+  }
+
+  /**
+   * @return False if this run of text-like nodes consists only of whitespace {@link Node#TEXT_NODE}
+   *         nodes (JDOM skips such runs).
+   */
+  private boolean isSignificant(List<Node> run) {
+    for (Node node : run) {
+      if (node.getNodeType() != Node.TEXT_NODE || !isAllWhitespace(node.getNodeValue())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Write a significant run of text-like nodes.
+   *
+   * @param run The nodes.
+   * @param before Padding written before the text.
+   * @param after Padding written after the text (JDOM skips it, if the run contains nothing but
+   *        entity references).
+   */
+  private void writeText(List<Node> run, String before, String after) throws IOException {
+    StringBuilder pending = new StringBuilder(before);
+    boolean gotText = false;
+    for (Node node : run) {
+      switch (node.getNodeType()) {
+        case Node.TEXT_NODE:
+          if (!node.getNodeValue().isEmpty()) {
+            pending.append(escape(node.getNodeValue(), false, false));
+            gotText = true;
+          }
+          break;
+        case Node.CDATA_SECTION_NODE:
+          this.out.append(pending);
+          pending.setLength(0);
+          this.out.write("<![CDATA[");
+          this.out.write(node.getNodeValue());
+          this.out.write("]]>");
+          gotText = true;
+          break;
+        default:
+          this.out.append(pending);
+          pending.setLength(0);
+          this.out.write("&");
+          this.out.write(node.getNodeName());
+          this.out.write(";");
+          break;
+      }
+    }
+    if (gotText) {
+      pending.append(after);
+      this.out.append(pending);
+    }
+  }
+}
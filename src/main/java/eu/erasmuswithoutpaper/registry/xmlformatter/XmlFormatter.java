@@ -1,5 +1,12 @@
 package eu.erasmuswithoutpaper.registry.xmlformatter;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -12,7 +19,6 @@ import org.springframework.stereotype.Service;
 import com.google.common.base.Joiner;
 import org.jdom2.Attribute;
 import org.jdom2.Namespace;
-import org.jdom2.input.DOMBuilder;
 import org.jdom2.output.Format;
 import org.jdom2.output.Format.TextMode;
 import org.jdom2.output.LineSeparator;
@@ -36,6 +42,25 @@ import org.w3c.dom.Document;
 @Service
 public class XmlFormatter {
 
+  /**
+   * Reformat the value of the xsi:schemaLocation attribute, so that each namespaceURI and its
+   * location are placed in separate lines.
+   *
+   * @param value The original value of the attribute.
+   * @return The new value.
+   */
+  static String formatSchemaLocation(String value) {
+    List<String> inchunks = Arrays.asList(value.split("\\s+")).stream()
+        .filter(str -> !str.isEmpty()).collect(Collectors.toList());
+    List<String> outchunks = new ArrayList<String>(inchunks.size() / 2);
+    if (inchunks.size() % 2 == 0) {
+      for (int i = 0; i < inchunks.size(); i += 2) {
+        outchunks.add(inchunks.get(i) + "\n        " + inchunks.get(i + 1));
+      }
+    }
+    return "\n        " + Joiner.on("\n\n        ").join(outchunks) + "\n    ";
+  }
+
   /**
    * See {@link XmlFormatter} description.
    *
@@ -43,12 +68,25 @@ public class XmlFormatter {
    * @return A string with the formatted XML.
    */
   public String format(Document doc) {
+    return new String(this.formatToBytes(doc), StandardCharsets.UTF_8);
+  }
 
-    /* Convert to JDOM document. */
-
-    DOMBuilder domBuilder = new DOMBuilder();
-    org.jdom2.Document jdoc = domBuilder.build(doc);
-    return this.format(jdoc);
+  /**
+   * See {@link XmlFormatter} description.
+   *
+   * <p>
+   * The output is the same as the one of {@link #format(Document)}, but it is written directly to
+   * the stream (in UTF-8), without any intermediate JDOM tree or String.
+   * </p>
+   *
+   * @param doc {@link org.w3c.dom.Document} to be formatted.
+   * @param out The stream to write the formatted XML to. It is flushed, but not closed.
+   * @throws IOException if writing to the stream fails.
+   */
+  public void format(Document doc, OutputStream out) throws IOException {
+    Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    new DomXmlWriter(writer).write(doc);
+    writer.flush();
   }
 
   /**
@@ -64,18 +102,7 @@ public class XmlFormatter {
     Attribute attr = doc.getRootElement().getAttribute("schemaLocation",
         Namespace.getNamespace(XMLConstants.W3C_XML_SCHEMA_INSTANCE_NS_URI));
     if (attr != null) {
-      String val = attr.getValue();
-      List<String> inchunks = Arrays.asList(val.split("\\s+")).stream()
-          .filter(str -> !str.isEmpty()).collect(Collectors.toList());
-      List<String> outchunks = new ArrayList<String>(inchunks.size() / 2);
-      if (inchunks.size() % 2 == 0) {
-        for (int i = 0; i < inchunks.size(); i += 2) {
-          outchunks.add(inchunks.get(i) + "\n        " + inchunks.get(i + 1));
-        }
-      }
-      String newSchemaLocation =
-          "\n        " + Joiner.on("\n\n        ").join(outchunks) + "\n    ";
-      attr.setValue(newSchemaLocation);
+      attr.setValue(formatSchemaLocation(attr.getValue()));
     }
 
     /* Set up the formatter. */
@@ -95,4 +122,20 @@ public class XmlFormatter {
     String xml = outputter.outputString(doc);
     return xml;
   }
+
+  /**
+   * See {@link XmlFormatter} description.
+   *
+   * @param doc {@link org.w3c.dom.Document} to be formatted.
+   * @return The formatted XML, encoded in UTF-8.
+   */
+  public byte[] formatToBytes(Document doc) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+    try {
+      this.format(doc, out);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    return out.toByteArray();
+  }
 }
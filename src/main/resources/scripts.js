@@ -63,6 +63,35 @@ function gatherParameters(element) {
     return result;
 }
 
+function pollValidationJob(jobId, since, in_progress_cell, done_cell, error_cell) {
+    $.ajax({
+        url: "/validateApi/jobs/" + encodeURIComponent(jobId),
+        data: {since: since},
+        type: "GET",
+        dataType: "json"
+    }).done(function(job) {
+        $(in_progress_cell).attr("title", job.stepCount + " steps done");
+        if (!job.done) {
+            setTimeout(function() {
+                pollValidationJob(jobId, job.stepCount, in_progress_cell, done_cell, error_cell);
+            }, 1000);
+            return;
+        }
+        $.ajax({
+            url: "/validateApi/jobs/" + encodeURIComponent(jobId) + "/result",
+            type: "GET",
+            dataType: "html"
+        }).done(function(data) {
+            done_cell.validationResults = data;
+            swapWithFade(in_progress_cell, done_cell);
+        }).fail(function(jqXHR, textStatus, errorThrown) {
+            swapWithFade(in_progress_cell, error_cell);
+        });
+    }).fail(function(jqXHR, textStatus, errorThrown) {
+        swapWithFade(in_progress_cell, error_cell);
+    });
+}
+
 function validateClicked() {
     var this_cell = $(this).parent();
     var in_progress_cell = selectValidationStatusCell(this, ".manifest_validator_in_progress_cell");
@@ -80,10 +109,9 @@ function validateClicked() {
         }),
         type: "POST",
         contentType: 'application/json',
-        dataType: "html"
-    }).done(function(data) {
-        done_cell.validationResults = data;
-        swapWithFade(in_progress_cell, done_cell);
+        dataType: "json"
+    }).done(function(job) {
+        pollValidationJob(job.jobId, 0, in_progress_cell, done_cell, error_cell);
     }).fail(function(jqXHR, textStatus, errorThrown) {
         swapWithFade(in_progress_cell, error_cell);
     });
@@ -0,0 +1,60 @@
+package eu.erasmuswithoutpaper.registry.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Tests for {@link JaxbContexts}.
+ */
+public class JaxbContextsTest extends WRTest {
+
+  @XmlRootElement(name = "sample")
+  public static class Sample {
+    @XmlElement
+    public String value;
+  }
+
+  @XmlRootElement(name = "other")
+  public static class Other {
+  }
+
+  private static Document newDocument() {
+    return Utils.newSecureDocumentBuilder().newDocument();
+  }
+
+  @Test
+  public void testContextsAreShared() throws JAXBException {
+    assertThat(JaxbContexts.getContext(Sample.class))
+        .isSameAs(JaxbContexts.getContext(Sample.class));
+    assertThat(JaxbContexts.getContext(Sample.class, Other.class))
+        .isNotSameAs(JaxbContexts.getContext(Sample.class));
+  }
+
+  @Test
+  public void testRoundTrip() throws JAXBException {
+    for (int i = 0; i < 3; i++) {
+      Sample sample = new Sample();
+      sample.value = "value-" + i;
+      Document document = newDocument();
+      JaxbContexts.marshal(sample, document);
+      assertThat(document.getDocumentElement().getLocalName()).isEqualTo("sample");
+      Sample result = JaxbContexts.unmarshal(document, Sample.class);
+      assertThat(result.value).isEqualTo("value-" + i);
+    }
+  }
+
+  @Test(expected = JAXBException.class)
+  public void testUnexpectedTypeIsRejected() throws JAXBException {
+    Document document = newDocument();
+    JaxbContexts.marshal(new Other(), document);
+    JaxbContexts.unmarshal(document, Sample.class);
+  }
+}
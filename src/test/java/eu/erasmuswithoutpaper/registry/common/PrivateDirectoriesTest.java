@@ -0,0 +1,65 @@
+package eu.erasmuswithoutpaper.registry.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link PrivateDirectories}.
+ */
+public class PrivateDirectoriesTest extends WRTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Before
+  public void setUp() {
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+  }
+
+  @Test
+  public void testMissingDirectoriesAreCreatedPrivate() throws IOException {
+    Path directory = this.temporaryFolder.getRoot().toPath().resolve("a").resolve("b");
+    assertThat(PrivateDirectories.ensurePrivate(directory)).isEqualTo(directory);
+    assertThat(directory).isDirectory();
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)))
+        .isEqualTo("rwx------");
+  }
+
+  @Test
+  public void testReadableDirectoriesAreRestricted() throws IOException {
+    Path directory = this.temporaryFolder.newFolder().toPath();
+    Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxr-xr-x"));
+    PrivateDirectories.ensurePrivate(directory);
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)))
+        .isEqualTo("rwx------");
+  }
+
+  @Test
+  public void testSharedDirectoriesAreRejected() throws IOException {
+    Path directory = this.temporaryFolder.newFolder().toPath();
+    Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+    try {
+      PrivateDirectories.ensurePrivate(directory);
+      fail("IOException expected");
+    } catch (IOException e) {
+      assertThat(e).hasMessageContaining("writable by other users");
+    }
+    // Permissions of untrusted directories are not changed.
+    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)))
+        .isEqualTo("rwxrwxrwx");
+  }
+}
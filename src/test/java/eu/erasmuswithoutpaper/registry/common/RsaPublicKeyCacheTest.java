@@ -0,0 +1,43 @@
+package eu.erasmuswithoutpaper.registry.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.InvalidKeySpecException;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+
+/**
+ * Tests for {@link RsaPublicKeyCache}.
+ */
+public class RsaPublicKeyCacheTest extends WRTest {
+
+  private static byte[] generateEncodedKey() throws NoSuchAlgorithmException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(1024);
+    return generator.generateKeyPair().getPublic().getEncoded();
+  }
+
+  @Test
+  public void testKeysAreDecodedOnce() throws Exception {
+    byte[] encoded = generateEncodedKey();
+    long misses = RsaPublicKeyCache.getMissCount();
+    RSAPublicKey first = RsaPublicKeyCache.decode(encoded);
+    RSAPublicKey second = RsaPublicKeyCache.decode(encoded.clone());
+    assertThat(second).isSameAs(first);
+    assertThat(first.getEncoded()).isEqualTo(encoded);
+    assertThat(RsaPublicKeyCache.getMissCount()).isEqualTo(misses + 1);
+    assertThat(RsaPublicKeyCache.getByFingerprint(DigestUtils.sha256Hex(encoded)))
+        .isSameAs(first);
+  }
+
+  @Test(expected = InvalidKeySpecException.class)
+  public void testInvalidKeysAreRejected() throws InvalidKeySpecException {
+    RsaPublicKeyCache.decode(new byte[] { 1, 2, 3 });
+  }
+}
@@ -0,0 +1,83 @@
+package eu.erasmuswithoutpaper.registry.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.joox.JOOX.$;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
+
+import org.joox.Match;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests for {@link XPathCache}.
+ */
+public class XPathCacheTest extends WRTest {
+
+  private static Match parse(String xml) {
+    try {
+      return $(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    } catch (SAXException | IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  public void testCachedResultsMatchJoox() {
+    String r = KnownNamespace.RESPONSE_REGISTRY_V1.getNamespaceUri();
+    Match root = parse("<r:catalogue xmlns:r=\"" + r + "\">"
+        + "<r:host><r:hei-id>a</r:hei-id><r:hei-id>b</r:hei-id></r:host>"
+        + "<r:host><r:hei-id>c</r:hei-id><other/></r:host>" + "</r:catalogue>");
+    Map<String, String> prefixes = KnownNamespace.prefixMap();
+
+    for (String expr : new String[] { "r:host", "r:host/r:hei-id", "r:host/*", "r:nothing",
+        "r:host/r:hei-id | r:host", "//r:hei-id" }) {
+      Match expected = root.namespaces(prefixes).xpath(expr);
+      Match actual = XPathCache.xpath(root, expr);
+      assertThat(actual.get()).containsExactlyElementsOf(expected.get());
+      // Do it twice, to make sure the cached expression gives the same results.
+      actual = XPathCache.xpath(root, expr);
+      assertThat(actual.get()).containsExactlyElementsOf(expected.get());
+    }
+
+    // Results should have the prefixes already bound.
+    Match hosts = XPathCache.xpath(root, "r:host");
+    assertThat(hosts.xpath("r:hei-id").texts()).containsExactly("a", "b", "c");
+    assertThat(XPathCache.xpath(hosts, "r:hei-id").texts()).containsExactly("a", "b", "c");
+    assertThat(XPathCache.xpath(XPathCache.xpath(root, "r:nothing"), "r:hei-id").size())
+        .isEqualTo(0);
+
+    // Unprefixed names match elements in the null namespace only.
+    assertThat(XPathCache.selectElements(root.get(0), "*/other", Collections.emptyMap()))
+        .hasSize(1);
+    assertThat(XPathCache.selectElements(root.get(0), "host", Collections.emptyMap())).isEmpty();
+  }
+
+  @Test
+  public void testHitsAndMisses() {
+    Match root = parse("<a><b/><b/></a>");
+    String expr = "b[" + System.nanoTime() + " > 0]";
+    long misses = XPathCache.getMissCount();
+    long hits = XPathCache.getHitCount();
+    assertThat(XPathCache.xpath(root, expr).size()).isEqualTo(2);
+    assertThat(XPathCache.getMissCount()).isEqualTo(misses + 1);
+    assertThat(XPathCache.xpath(root, expr).size()).isEqualTo(2);
+    assertThat(XPathCache.getMissCount()).isEqualTo(misses + 1);
+    assertThat(XPathCache.getHitCount()).isGreaterThan(hits);
+
+    // The same expression with a different prefix map is compiled separately.
+    Map<String, String> other = new HashMap<>();
+    other.put("x", "urn:x");
+    assertThat(XPathCache.xpath(root, expr, other).size()).isEqualTo(2);
+    assertThat(XPathCache.getMissCount()).isEqualTo(misses + 2);
+    assertThat(XPathCache.getHitRate()).isBetween(0.0, 1.0);
+  }
+}
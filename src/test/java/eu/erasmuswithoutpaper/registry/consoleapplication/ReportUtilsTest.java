@@ -0,0 +1,200 @@
+package eu.erasmuswithoutpaper.registry.consoleapplication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.common.Utils;
+import eu.erasmuswithoutpaper.registry.internet.Request;
+import eu.erasmuswithoutpaper.registry.internet.Response;
+import eu.erasmuswithoutpaper.registry.validators.ApiEndpoint;
+import eu.erasmuswithoutpaper.registry.validators.HttpSecurityDescription;
+import eu.erasmuswithoutpaper.registry.validators.SemanticVersion;
+import eu.erasmuswithoutpaper.registry.validators.ValidationParameters;
+import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
+import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus.Status;
+import eu.erasmuswithoutpaper.registry.validators.web.ManifestApiEntry;
+import eu.erasmuswithoutpaper.registry.xmlformatter.XmlFormatter;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Tests for the batch mode reports generated by {@link ReportUtils}.
+ */
+public class ReportUtilsTest extends WRTest {
+
+  private static final String NASTY_MESSAGE = "Expected <hei-id> & \"quotes\", got 'ąę'\n.";
+
+  private static class FixedStep implements ValidationStepWithStatus {
+    private final String name;
+    private final Status status;
+    private final String message;
+
+    FixedStep(String name, Status status, String message) {
+      this.name = name;
+      this.status = status;
+      this.message = message;
+    }
+
+    @Override
+    public String getMessage() {
+      return this.message;
+    }
+
+    @Override
+    public String getName() {
+      return this.name;
+    }
+
+    @Override
+    public List<Request> getRequestSnapshots() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public List<Response> getResponseSnapshots() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public Optional<String> getServerDeveloperErrorMessage() {
+      return Optional.empty();
+    }
+
+    @Override
+    public Status getStatus() {
+      return this.status;
+    }
+  }
+
+  @Autowired
+  private XmlFormatter xmlFormatter;
+
+  private List<BatchValidation.Result> results;
+
+  private static BatchValidation.Task newTask(String apiName, String security)
+      throws HttpSecurityDescription.InvalidDescriptionString {
+    ManifestApiEntry entry = new ManifestApiEntry(apiName, ApiEndpoint.NoEndpoint, "2.0.0",
+        "https://example.com/" + apiName, Collections.emptyList(), true, Collections.emptyList(),
+        Collections.emptyList());
+    return new BatchValidation.Task(entry, new SemanticVersion(2, 0, 0),
+        new HttpSecurityDescription(security), new ValidationParameters());
+  }
+
+  private static Element getChild(Element parent, String name, int index) {
+    return (Element) parent.getElementsByTagName(name).item(index);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    Date started = new Date(1500000000000L);
+    Date finished = new Date(1500000001500L);
+    BatchValidation.Result validated = new BatchValidation.Result(newTask("echo", "SHTT"),
+        started, finished, Arrays.asList(
+            new FixedStep("Step 1", Status.SUCCESS, null),
+            new FixedStep("Step 2", Status.WARNING, "Just a warning."),
+            new FixedStep("Step 3", Status.FAILURE, NASTY_MESSAGE),
+            new FixedStep("Step 4", Status.SKIPPED, "Skipped."),
+            new FixedStep("Step 5", Status.ERROR, "Crashed.")),
+        Paths.get("report.html"), null);
+    BatchValidation.Result crashed = new BatchValidation.Result(newTask("iias", "HTTT"), started,
+        finished, Collections.emptyList(), null, "java.lang.IllegalStateException: <boom>");
+    this.results = Arrays.asList(validated, crashed);
+  }
+
+  @Test
+  public void testJunitReport() throws IOException, SAXException {
+    // Format and parse it again, the same way as it is written (and read by CI servers).
+    String xml = this.xmlFormatter.format(ReportUtils.generateJunitReport(this.results));
+    Document doc = Utils.newSecureDocumentBuilder()
+        .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+
+    Element root = doc.getDocumentElement();
+    assertThat(root.getTagName()).isEqualTo("testsuites");
+    assertThat(root.getAttribute("tests")).isEqualTo("6");
+    assertThat(root.getAttribute("failures")).isEqualTo("1");
+    assertThat(root.getAttribute("errors")).isEqualTo("2");
+
+    NodeList suites = root.getElementsByTagName("testsuite");
+    assertThat(suites.getLength()).isEqualTo(2);
+    Element validated = (Element) suites.item(0);
+    assertThat(validated.getAttribute("name")).isEqualTo("echo-2.0.0-SHTT");
+    assertThat(validated.getAttribute("tests")).isEqualTo("5");
+    assertThat(validated.getAttribute("failures")).isEqualTo("1");
+    assertThat(validated.getAttribute("errors")).isEqualTo("1");
+    assertThat(validated.getAttribute("skipped")).isEqualTo("1");
+    assertThat(validated.getAttribute("time")).isEqualTo("1.500");
+    assertThat(validated.getAttribute("timestamp")).isEqualTo("2017-07-14T02:40:00Z");
+    assertThat(getChild(validated, "property", 0).getAttribute("value"))
+        .isEqualTo("https://example.com/echo");
+
+    NodeList testCases = validated.getElementsByTagName("testcase");
+    assertThat(testCases.getLength()).isEqualTo(5);
+    // Successes and warnings are passed tests.
+    assertThat(testCases.item(0).getChildNodes().getLength()).isZero();
+    assertThat(testCases.item(1).getChildNodes().getLength()).isZero();
+    Element failure = getChild(validated, "failure", 0);
+    assertThat(failure.getParentNode()).isSameAs(testCases.item(2));
+    assertThat(((Element) testCases.item(2)).getAttribute("name")).isEqualTo("Step 3");
+    assertThat(failure.getAttribute("type")).isEqualTo("FAILURE");
+    assertThat(failure.getTextContent()).isEqualTo(NASTY_MESSAGE);
+    assertThat(getChild(validated, "skipped", 0).getParentNode()).isSameAs(testCases.item(3));
+    assertThat(getChild(validated, "error", 0).getAttribute("message")).isEqualTo("Crashed.");
+
+    Element crashed = (Element) suites.item(1);
+    assertThat(crashed.getAttribute("tests")).isEqualTo("1");
+    assertThat(crashed.getAttribute("errors")).isEqualTo("1");
+    assertThat(getChild(crashed, "error", 0).getAttribute("message"))
+        .isEqualTo("java.lang.IllegalStateException: <boom>");
+  }
+
+  @Test
+  public void testJsonReport() {
+    JsonObject root =
+        new JsonParser().parse(ReportUtils.generateJsonReport(this.results)).getAsJsonObject();
+    assertThat(root.get("failed").getAsBoolean()).isTrue();
+    JsonArray validations = root.getAsJsonArray("validations");
+    assertThat(validations.size()).isEqualTo(2);
+
+    JsonObject validated = validations.get(0).getAsJsonObject();
+    assertThat(validated.get("name").getAsString()).isEqualTo("echo-2.0.0-SHTT");
+    assertThat(validated.get("status").getAsString()).isEqualTo("ERROR");
+    assertThat(validated.get("failed").getAsBoolean()).isTrue();
+    assertThat(validated.get("started").getAsString()).isEqualTo("2017-07-14T02:40:00Z");
+    assertThat(validated.get("finished").getAsString()).isEqualTo("2017-07-14T02:40:01.500Z");
+    assertThat(validated.get("htmlReport").getAsString()).isEqualTo("report.html");
+    assertThat(validated.has("error")).isFalse();
+    JsonArray steps = validated.getAsJsonArray("steps");
+    assertThat(steps.size()).isEqualTo(5);
+    JsonObject failure = steps.get(2).getAsJsonObject();
+    assertThat(failure.get("name").getAsString()).isEqualTo("Step 3");
+    assertThat(failure.get("status").getAsString()).isEqualTo("FAILURE");
+    assertThat(failure.get("message").getAsString()).isEqualTo(NASTY_MESSAGE);
+    assertThat(steps.get(0).getAsJsonObject().has("message")).isFalse();
+
+    JsonObject crashed = validations.get(1).getAsJsonObject();
+    assertThat(crashed.get("status").getAsString()).isEqualTo("CRASHED");
+    assertThat(crashed.get("error").getAsString())
+        .isEqualTo("java.lang.IllegalStateException: <boom>");
+    assertThat(crashed.getAsJsonArray("steps").size()).isZero();
+    assertThat(crashed.has("htmlReport")).isFalse();
+  }
+}
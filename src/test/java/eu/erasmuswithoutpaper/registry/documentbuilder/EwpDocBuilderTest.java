@@ -4,27 +4,37 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.joox.JOOX.$;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.Validator;
 
 import eu.erasmuswithoutpaper.registry.WRTest;
 import eu.erasmuswithoutpaper.registry.common.Utils;
+import eu.erasmuswithoutpaper.registry.xmlformatter.XmlFormatter;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 
+import org.apache.commons.io.IOUtils;
 import org.joox.Match;
 import org.junit.Test;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
 
 /**
  * Tests for {@link EwpDocBuilder}.
@@ -37,6 +47,9 @@ public class EwpDocBuilderTest extends WRTest {
   @Autowired
   private EwpDocBuilder builder;
 
+  @Autowired
+  private XmlFormatter xmlFormatter;
+
   @Test
   public void checkBuildErrorMessages1() {
     BuildResult result = this.builder.build(new BuildParams("<xml/>"));
@@ -428,6 +441,81 @@ public class EwpDocBuilderTest extends WRTest {
     assertThat(result.isValid()).isFalse();
   }
 
+  @Test
+  public void testCompoundSchemaIsSharedByInstances() {
+    EwpDocBuilder other = new EwpDocBuilder(this.resLoader, this.xmlFormatter);
+    assertThat(other.getCompoundSchema()).isSameAs(this.builder.getCompoundSchema());
+  }
+
+  @Test
+  public void testScopedSchemasAreKeyedByRootNamespace() throws IOException, SAXException {
+    String echo = KnownNamespace.RESPONSE_ECHO_V2.getNamespaceUri();
+    String registry = KnownNamespace.RESPONSE_REGISTRY_V1.getNamespaceUri();
+    DocumentBuilder docBuilder = Utils.newSecureDocumentBuilder();
+    Schema scoped = this.builder.getSchemaFor(docBuilder.parse(
+        new InputSource(new StringReader("<response xmlns='" + echo + "'/>"))));
+    assertThat(scoped).isNotSameAs(this.builder.getCompoundSchema());
+
+    // Declarations of unknown namespaces don't matter.
+    assertThat(this.builder.getSchemaFor(docBuilder.parse(new InputSource(new StringReader(
+        "<response xmlns='" + echo + "' xmlns:a='urn:a' xmlns:b='urn:b'/>"))))).isSameAs(scoped);
+
+    // Known namespaces which the echo XSD doesn't import need the compound schema.
+    assertThat(this.builder.getSchemaFor(docBuilder.parse(new InputSource(new StringReader(
+        "<response xmlns='" + echo + "' xmlns:r='" + registry + "'/>")))))
+        .isSameAs(this.builder.getCompoundSchema());
+  }
+
+  /**
+   * Validation against the schemas scoped to the documents' namespaces must give the same results
+   * as validation against the compound schema.
+   */
+  @Test
+  public void testScopedSchemasGiveSameResults() throws IOException {
+    PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    int compared = 0;
+    for (Resource resource : resolver.getResources("classpath:test-files/**/*.xml")) {
+      byte[] xml;
+      try (InputStream stream = resource.getInputStream()) {
+        xml = IOUtils.toByteArray(stream);
+      }
+      BuildResult result = this.builder.build(new BuildParams(xml));
+      if (!result.getDocument().isPresent()) {
+        continue;
+      }
+      List<String> expected = new ArrayList<>();
+      Validator validator = this.builder.getCompoundSchema().newValidator();
+      validator.setErrorHandler(new ErrorHandler() {
+        @Override
+        public void error(SAXParseException exception) {
+          expected.add(new BuildError(exception).toString());
+        }
+
+        @Override
+        public void fatalError(SAXParseException exception) {
+          expected.add(new BuildError(exception).toString());
+        }
+
+        @Override
+        public void warning(SAXParseException exception) {
+          expected.add(new BuildError(exception).toString());
+        }
+      });
+      try {
+        validator.validate(new StreamSource(new ByteArrayInputStream(xml)));
+      } catch (SAXException e) {
+        throw new RuntimeException(e);
+      }
+      List<String> actual = new ArrayList<>();
+      for (BuildError error : result.getErrors()) {
+        actual.add(error.toString());
+      }
+      assertThat(actual).as("errors of %s", resource.getFilename()).isEqualTo(expected);
+      compared++;
+    }
+    assertThat(compared).isGreaterThan(100);
+  }
+
   /**
    * @param element A DOM element, somewhere within an XML Schema document
    * @return A human-readable path of this element (with most of the ancestry skipped to make it
@@ -0,0 +1,103 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.common.Utils;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BoundedBodyReader}.
+ */
+public class BoundedBodyReaderTest extends WRTest {
+
+  private static final String URL = "https://example.com/big";
+
+  /**
+   * An infinite stream of zeros, which counts the bytes read.
+   */
+  private static class InfiniteStream extends InputStream {
+    private long bytesRead = 0;
+
+    @Override
+    public int read() {
+      this.bytesRead++;
+      return 0;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      Arrays.fill(b, off, off + len, (byte) 0);
+      this.bytesRead += len;
+      return len;
+    }
+  }
+
+  @Test
+  public void testReadsBodiesWithinLimit() throws IOException {
+    BoundedBodyReader reader = new BoundedBodyReader(20000);
+    byte[] data = new byte[20000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    MessageDigest digest = DigestUtils.getSha256Digest();
+    byte[] result = reader.read(URL, new ByteArrayInputStream(data), -1, digest);
+    assertThat(result).isEqualTo(data);
+    assertThat(digest.digest()).isEqualTo(DigestUtils.sha256(data));
+
+    result = reader.read(URL, new ByteArrayInputStream(data), data.length, null);
+    assertThat(result).isEqualTo(data);
+    assertThat(reader.read(URL, new ByteArrayInputStream(new byte[0]), 0, null)).isEmpty();
+  }
+
+  @Test
+  public void testAbortsEarly() throws IOException {
+    BoundedBodyReader reader = new BoundedBodyReader(100000);
+
+    // Declared length is too large. Nothing should be read.
+    InfiniteStream stream = new InfiniteStream();
+    try {
+      reader.read(URL, stream, 100001, null);
+      fail("Exception expected");
+    } catch (ResponseBodyTooLarge e) {
+      assertThat(e.getMessage()).contains(URL).contains("100000 bytes");
+    }
+    assertThat(stream.bytesRead).isEqualTo(0);
+
+    // Unknown length. Reading should stop soon after the limit is reached.
+    stream = new InfiniteStream();
+    try {
+      reader.read(URL, stream, -1, null);
+      fail("Exception expected");
+    } catch (ResponseBodyTooLarge e) {
+      // Expected.
+    }
+    assertThat(stream.bytesRead).isBetween(100001L, 110000L);
+  }
+
+  @Test
+  public void testResponseDigestCache() {
+    byte[] body = new byte[] { 1, 2, 3 };
+    Response response = new Response(200, body);
+    assertThat(response.getBodyDigestBase64()).isEqualTo(Utils.computeDigestBase64(body));
+
+    // Precomputed digests are used until the body is replaced.
+    response.setKnownBodyDigest(DigestUtils.sha256(new byte[] { 7 }));
+    assertThat(response.getBodyDigestBase64())
+        .isEqualTo(Utils.computeDigestBase64(new byte[] { 7 }));
+    assertThat(new Response(response).getBodyDigestBase64())
+        .isEqualTo(Utils.computeDigestBase64(new byte[] { 7 }));
+    response.setBody(new byte[] { 4 });
+    assertThat(response.getBodyDigestBase64())
+        .isEqualTo(Utils.computeDigestBase64(new byte[] { 4 }));
+  }
+}
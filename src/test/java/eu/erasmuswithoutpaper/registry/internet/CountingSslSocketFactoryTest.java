@@ -0,0 +1,91 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.TrustManagerFactory;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.validators.ValidatorKeyStore;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link CountingSslSocketFactory}.
+ */
+public class CountingSslSocketFactoryTest extends WRTest {
+
+  private static SSLContext createContext(X509Certificate cert, KeyPair keyPair)
+      throws GeneralSecurityException, IOException {
+    KeyStore keystore = KeyStore.getInstance("JKS");
+    keystore.load(null);
+    keystore.setCertificateEntry("cert", cert);
+    keystore.setKeyEntry("key", keyPair.getPrivate(), "pass".toCharArray(),
+        new Certificate[] { cert });
+    KeyManagerFactory kmf = KeyManagerFactory.getInstance("SunX509");
+    kmf.init(keystore, "pass".toCharArray());
+    TrustManagerFactory tmf =
+        TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+    tmf.init(keystore);
+    // Stick to TLS 1.2, in which sessions can be resumed without reading any application data.
+    SSLContext context = SSLContext.getInstance("TLSv1.2");
+    context.init(kmf.getKeyManagers(), tmf.getTrustManagers(), null);
+    return context;
+  }
+
+  @Test
+  public void testCountsResumedHandshakes() throws Exception {
+    ValidatorKeyStore keyStore = new ValidatorKeyStore();
+    KeyPair keyPair = keyStore.generateKeyPair();
+    SSLContext context = createContext(keyStore.generateCertificate(keyPair), keyPair);
+
+    try (SSLServerSocket server = (SSLServerSocket) context.getServerSocketFactory()
+        .createServerSocket(0, 10, InetAddress.getLoopbackAddress())) {
+      Thread acceptor = new Thread(() -> {
+        while (!server.isClosed()) {
+          try (SSLSocket socket = (SSLSocket) server.accept()) {
+            socket.startHandshake();
+          } catch (IOException e) {
+            // Server closed, or client gone.
+          }
+        }
+      });
+      acceptor.setDaemon(true);
+      acceptor.start();
+
+      CountingSslSocketFactory.Counters counters = new CountingSslSocketFactory.Counters();
+      CountingSslSocketFactory factory =
+          new CountingSslSocketFactory(context.getSocketFactory(), counters);
+      for (int i = 0; i < 3; i++) {
+        // Make sure that session creation times differ from socket creation times.
+        Thread.sleep(5);
+        try (Socket socket =
+            factory.createSocket(InetAddress.getLoopbackAddress(), server.getLocalPort())) {
+          ((SSLSocket) socket).startHandshake();
+        }
+      }
+
+      // Handshake listeners are notified asynchronously.
+      long deadline = System.currentTimeMillis() + 10000;
+      while (counters.getHandshakes() < 3 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(counters.getSocketsCreated()).isEqualTo(3);
+      assertThat(counters.getHandshakes()).isEqualTo(3);
+      assertThat(counters.getResumedHandshakes()).isEqualTo(2);
+      assertThat(counters.getHandshakeNanos()).isPositive();
+    }
+  }
+}
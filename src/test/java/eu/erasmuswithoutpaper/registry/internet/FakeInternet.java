@@ -7,6 +7,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -104,6 +105,21 @@ public class FakeInternet implements Internet {
     return response.getBody();
   }
 
+  /**
+   * This implementation of {@link Internet#getUrlAsync(String)} fetches the contents synchronously
+   * (so that tests remain deterministic), and returns an already completed future.
+   */
+  @Override
+  public CompletableFuture<byte[]> getUrlAsync(String url) {
+    CompletableFuture<byte[]> future = new CompletableFuture<>();
+    try {
+      future.complete(this.getUrl(url));
+    } catch (IOException | RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   @Override
   public Response makeRequest(Request request) throws IOException {
     List<Response> responses = new ArrayList<>();
@@ -144,6 +160,21 @@ public class FakeInternet implements Internet {
     return makeRequest(request);
   }
 
+  /**
+   * This implementation of {@link Internet#makeRequestAsync(Request, Integer)} makes the request
+   * synchronously (so that tests remain deterministic), and returns an already completed future.
+   */
+  @Override
+  public CompletableFuture<Response> makeRequestAsync(Request request, Integer timeout) {
+    CompletableFuture<Response> future = new CompletableFuture<>();
+    try {
+      future.complete(this.makeRequest(request, timeout));
+    } catch (IOException | RuntimeException e) {
+      future.completeExceptionally(e);
+    }
+    return future;
+  }
+
   /**
    * Fetch the list of emails sent, and clear the list.
    *
@@ -16,6 +16,8 @@ import java.security.spec.X509EncodedKeySpec;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import eu.erasmuswithoutpaper.registry.WRTest;
 import eu.erasmuswithoutpaper.registry.internet.FakeInternet.MultipleHandlersConflict;
@@ -96,6 +98,31 @@ public class FakeInternetTest extends WRTest {
   @Autowired
   private FakeInternet internet;
 
+  @Test
+  public void testAsyncRequests() throws Exception {
+    this.internet.putURL(url1, "url1");
+    try {
+      CompletableFuture<byte[]> found = this.internet.getUrlAsync(url1);
+      assertThat(found.isDone()).isTrue();
+      assertThat(new String(found.get(), StandardCharsets.UTF_8)).isEqualTo("url1");
+
+      CompletableFuture<Response> response =
+          this.internet.makeRequestAsync(new Request("GET", url1));
+      assertThat(response.get().getStatus()).isEqualTo(200);
+
+      CompletableFuture<byte[]> notFound = this.internet.getUrlAsync(url2);
+      assertThat(notFound.isCompletedExceptionally()).isTrue();
+      try {
+        notFound.get();
+        fail("Exception expected");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause()).isInstanceOf(FakeInternet.NotFound.class);
+      }
+    } finally {
+      this.internet.removeURL(url1);
+    }
+  }
+
   @Test
   public void testFakeServices() {
     assertThat(this.fetchString(url1)).isNull();
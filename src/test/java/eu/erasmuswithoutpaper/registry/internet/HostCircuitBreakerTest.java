@@ -0,0 +1,166 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import javax.net.ssl.SSLHandshakeException;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.internet.HostCircuitBreaker.HostStatus;
+import eu.erasmuswithoutpaper.registry.internet.HostCircuitBreaker.HostUnavailable;
+import eu.erasmuswithoutpaper.registry.internet.HostCircuitBreaker.State;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link HostCircuitBreaker}.
+ */
+public class HostCircuitBreakerTest extends WRTest {
+
+  private static final String URL1 = "https://example.com/manifest.xml";
+  private static final String URL1B = "https://EXAMPLE.com:443/other";
+  private static final String URL2 = "https://example.com:8443/manifest.xml";
+
+  private static class TestBreaker extends HostCircuitBreaker {
+    private long now = 1000000;
+
+    TestBreaker() {
+      super(3, 10, 35);
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return this.now;
+    }
+  }
+
+  private TestBreaker breaker;
+
+  @Before
+  public void setUp() {
+    this.breaker = new TestBreaker();
+  }
+
+  @Test
+  public void testOpensAfterConsecutiveFailures() throws IOException {
+    this.breaker.acquire(URL1);
+    this.recordFailure(URL1);
+    this.recordFailure(URL1);
+    // A success resets the counter.
+    this.breaker.onSuccess(URL1);
+    assertThat(this.breaker.getFailingHosts()).isEmpty();
+    this.recordFailure(URL1);
+    this.recordFailure(URL1);
+    this.breaker.acquire(URL1);
+    this.recordFailure(URL1B);
+
+    assertThat(this.breaker.getFailingHosts()).hasSize(1);
+    HostStatus status = this.breaker.getFailingHosts().get(0);
+    assertThat(status.getHost()).isEqualTo("example.com:443");
+    assertThat(status.getState()).isEqualTo(State.OPEN);
+    assertThat(status.getConsecutiveFailures()).isEqualTo(3);
+    assertThat(status.getLastError()).contains("Timeout");
+    assertThat(status.getRetryAfter().get().getTime()).isEqualTo(this.breaker.now + 10000);
+
+    this.assertUnavailable(URL1);
+    this.assertUnavailable(URL1B);
+    // Other ports are separate hosts.
+    this.breaker.acquire(URL2);
+  }
+
+  @Test
+  public void testHalfOpenProbesWithBackoff() throws IOException {
+    this.recordFailure(URL1);
+    this.recordFailure(URL1);
+    this.recordFailure(URL1);
+    this.assertUnavailable(URL1);
+
+    // After 10 seconds, a single probe is let through.
+    this.breaker.now += 10000;
+    this.breaker.acquire(URL1);
+    assertThat(this.breaker.getFailingHosts().get(0).getState()).isEqualTo(State.HALF_OPEN);
+    this.assertUnavailable(URL1);
+
+    // The probe fails. The breaker is reopened for twice as long.
+    this.recordFailure(URL1);
+    this.breaker.now += 19999;
+    this.assertUnavailable(URL1);
+    this.breaker.now += 1;
+    this.breaker.acquire(URL1);
+    this.recordFailure(URL1);
+
+    // The period cannot exceed the maximum (35 seconds).
+    this.breaker.now += 34999;
+    this.assertUnavailable(URL1);
+    this.breaker.now += 1;
+    this.breaker.acquire(URL1);
+
+    // The probe succeeds. The breaker is closed.
+    this.breaker.onSuccess(URL1);
+    assertThat(this.breaker.getFailingHosts()).isEmpty();
+    this.breaker.acquire(URL1);
+    this.breaker.acquire(URL1);
+
+    // A single failure doesn't reopen it.
+    this.recordFailure(URL1);
+    this.breaker.acquire(URL1);
+    assertThat(this.breaker.getFailingHosts().get(0).getState()).isEqualTo(State.CLOSED);
+  }
+
+  @Test
+  public void testLostProbeIsReplaced() throws IOException {
+    this.recordFailure(URL1);
+    this.recordFailure(URL1);
+    this.recordFailure(URL1);
+
+    // A probe is let through, but it never reports back (e.g. it hangs).
+    this.breaker.now += 10000;
+    this.breaker.acquire(URL1);
+    this.breaker.now += 9999;
+    this.assertUnavailable(URL1);
+    HostStatus status = this.breaker.getFailingHosts().get(0);
+    assertThat(status.getState()).isEqualTo(State.HALF_OPEN);
+    assertThat(status.getRetryAfter().get().getTime()).isEqualTo(this.breaker.now + 1);
+
+    // After the open period, another probe is let through. It can close the breaker.
+    this.breaker.now += 1;
+    this.breaker.acquire(URL1);
+    this.assertUnavailable(URL1);
+    this.breaker.onSuccess(URL1);
+    assertThat(this.breaker.getFailingHosts()).isEmpty();
+    this.breaker.acquire(URL1);
+  }
+
+  @Test
+  public void testOnlyTransportErrorsAreHostFailures() {
+    assertThat(HostCircuitBreaker.isHostFailure(new ConnectException("Connection refused")))
+        .isTrue();
+    assertThat(HostCircuitBreaker.isHostFailure(new SocketTimeoutException("Read timed out")))
+        .isTrue();
+    assertThat(HostCircuitBreaker.isHostFailure(new UnknownHostException("example.com")))
+        .isTrue();
+    // The host has responded to these.
+    assertThat(HostCircuitBreaker.isHostFailure(
+        new SSLHandshakeException("Received fatal alert: bad_certificate"))).isFalse();
+    assertThat(HostCircuitBreaker.isHostFailure(new IOException("Server returned HTTP 403")))
+        .isFalse();
+  }
+
+  private void assertUnavailable(String url) throws IOException {
+    try {
+      this.breaker.acquire(url);
+      fail("HostUnavailable expected");
+    } catch (HostUnavailable e) {
+      assertThat(e.getMessage()).contains("temporarily suspended");
+    }
+  }
+
+  private void recordFailure(String url) {
+    this.breaker.onFailure(url, new IOException("Timeout"));
+  }
+}
@@ -0,0 +1,88 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Optional;
+import javax.net.ssl.SSLException;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link RealInternet}.
+ */
+public class RealInternetTest extends WRTest {
+
+  /**
+   * Accept connections and respond to them with plain HTTP, so that all TLS handshakes fail (in
+   * the same way as when the host rejects our client certificate).
+   */
+  private static void serveWithoutTls(ServerSocket server) {
+    byte[] buffer = new byte[8192];
+    while (true) {
+      try (Socket socket = server.accept()) {
+        InputStream in = socket.getInputStream();
+        OutputStream out = socket.getOutputStream();
+        in.read(buffer);
+        out.write("HTTP/1.1 400 Bad Request\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+        socket.shutdownOutput();
+        while (in.read(buffer) != -1) {
+          // Wait for the client to close the connection.
+        }
+      } catch (IOException e) {
+        if (server.isClosed()) {
+          return;
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRejectedHandshakesAreNotHostFailures() throws IOException {
+    HostCircuitBreaker breaker = new HostCircuitBreaker(2, 60, 60);
+    RealInternet internet = new RealInternet(Optional.empty(), Collections.emptyList(), "Test",
+        "test@example.com", null, null, 1, 1, breaker, 5);
+    String url;
+    try (ServerSocket server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+      url = "https://127.0.0.1:" + server.getLocalPort() + "/manifest.xml";
+      Thread thread = new Thread(() -> serveWithoutTls(server));
+      thread.setDaemon(true);
+      thread.start();
+
+      for (int i = 0; i < 3; i++) {
+        try {
+          internet.makeRequest(new Request("GET", url));
+          fail("SSLException expected");
+        } catch (SSLException e) {
+          // Expected.
+        }
+      }
+      assertThat(breaker.getFailingHosts()).isEmpty();
+    }
+
+    // Nobody listens on this port anymore. This is a host failure.
+    for (int i = 0; i < 2; i++) {
+      try {
+        internet.makeRequest(new Request("GET", url));
+        fail("ConnectException expected");
+      } catch (ConnectException e) {
+        // Expected.
+      }
+    }
+    assertThat(breaker.getFailingHosts()).hasSize(1);
+    assertThat(breaker.getFailingHosts().get(0).getState())
+        .isEqualTo(HostCircuitBreaker.State.OPEN);
+  }
+}
@@ -0,0 +1,67 @@
+package eu.erasmuswithoutpaper.registry.internet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URL;
+import java.security.KeyPair;
+import java.security.cert.X509Certificate;
+
+import javax.net.ssl.HttpsURLConnection;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.validators.ValidatorKeyStore;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link SimpleEwpClientPool}.
+ */
+public class SimpleEwpClientPoolTest extends WRTest {
+
+  private static KeyPair keyPair1;
+  private static X509Certificate cert1;
+  private static KeyPair keyPair2;
+  private static X509Certificate cert2;
+
+  @BeforeClass
+  public static void setUpClass() {
+    ValidatorKeyStore keyStore = new ValidatorKeyStore();
+    keyPair1 = keyStore.getTlsKeyPairInUse();
+    cert1 = keyStore.getTlsClientCertificateInUse();
+    keyPair2 = keyStore.generateKeyPair();
+    cert2 = keyStore.generateCertificate(keyPair2);
+  }
+
+  @Test
+  public void testClientsAreReused() throws Exception {
+    SimpleEwpClientPool pool = new SimpleEwpClientPool();
+
+    SimpleEwpClient noCert = pool.getClient(null, null);
+    assertThat(pool.getClient(null, null)).isSameAs(noCert);
+
+    SimpleEwpClient client1 = pool.getClient(cert1, keyPair1.getPrivate());
+    assertThat(client1).isNotSameAs(noCert);
+    assertThat(pool.getClient(cert1, keyPair1.getPrivate())).isSameAs(client1);
+
+    SimpleEwpClient client2 = pool.getClient(cert2, keyPair2.getPrivate());
+    assertThat(client2).isNotSameAs(client1).isNotSameAs(noCert);
+
+    // All connections of a single client share the same socket factory.
+    HttpsURLConnection conn1 = client1.newConnection(new URL("https://example.com/a"));
+    HttpsURLConnection conn2 = client1.newConnection(new URL("https://example.com/b"));
+    assertThat(conn1.getSSLSocketFactory()).isInstanceOf(CountingSslSocketFactory.class);
+    assertThat(conn1.getSSLSocketFactory()).isSameAs(conn2.getSSLSocketFactory());
+    assertThat(client2.newConnection(new URL("https://example.com/a")).getSSLSocketFactory())
+        .isNotSameAs(conn1.getSSLSocketFactory());
+
+    ConnectionPoolStats stats = pool.getStats();
+    assertThat(stats.getPooledClients()).isEqualTo(3);
+    assertThat(stats.getClientsCreated()).isEqualTo(3);
+    assertThat(stats.getClientsReused()).isEqualTo(2);
+    assertThat(stats.getRequestsMade()).isEqualTo(5);
+    assertThat(stats.getConnectionsOpened()).isEqualTo(0);
+    assertThat(stats.getHandshakes()).isEqualTo(0);
+    assertThat(stats.getAverageHandshakeMillis()).isEqualTo(0.0);
+  }
+}
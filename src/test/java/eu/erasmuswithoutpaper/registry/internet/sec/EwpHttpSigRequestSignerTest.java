@@ -0,0 +1,159 @@
+package eu.erasmuswithoutpaper.registry.internet.sec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.internet.Request;
+
+import com.google.common.collect.Lists;
+import net.adamcin.httpsig.api.Algorithm;
+import net.adamcin.httpsig.api.Authorization;
+import net.adamcin.httpsig.api.Challenge;
+import net.adamcin.httpsig.api.DefaultKeychain;
+import net.adamcin.httpsig.api.RequestContent;
+import net.adamcin.httpsig.api.Signer;
+import org.junit.BeforeClass;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link EwpHttpSigRequestSigner}.
+ */
+public class EwpHttpSigRequestSignerTest extends WRTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(EwpHttpSigRequestSignerTest.class);
+
+  private static KeyPair keyPair;
+
+  @BeforeClass
+  public static void setUpClass() throws NoSuchAlgorithmException {
+    KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+    generator.initialize(2048);
+    keyPair = generator.generateKeyPair();
+  }
+
+  private static Request createRequest() {
+    Request request = new Request("POST", "https://example.com/echo?a=b");
+    request.setBodyAndContentLength("echo=1".getBytes());
+    request.putHeader("Content-Type", "application/x-www-form-urlencoded");
+    request.putHeader("Date", "Tue, 20 Oct 2026 10:00:00 GMT");
+    request.putHeader("X-Request-Id", "3c5a8f56-8d54-4c6e-9b0f-2d1b1b1f5a1e");
+    return request;
+  }
+
+  /**
+   * Sign the request in the way {@link EwpHttpSigRequestSigner} did before it started to reuse its
+   * signing state.
+   */
+  private static String signWithLibrary(EwpHttpSigRequestSigner signer, Request request,
+      List<String> headers) {
+    DefaultKeychain keychain = new DefaultKeychain();
+    keychain.add(new MyHttpSigRsaKeyPair(signer.getKeyId(), signer.getKeyPair()));
+    Signer librarySigner = new Signer(keychain);
+    List<String> headersBeingSigned =
+        headers.stream().map(s -> s.toLowerCase(Locale.US)).collect(Collectors.toList());
+    if (headersBeingSigned.isEmpty()) {
+      headersBeingSigned.add("date");
+    }
+    librarySigner.rotateKeys(new Challenge("Not verified", headersBeingSigned,
+        Lists.newArrayList(Algorithm.RSA_SHA256)));
+    RequestContent.Builder rcb = new RequestContent.Builder();
+    rcb.setRequestTarget(request.getMethod(), request.getPathPseudoHeader());
+    for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+      rcb.addHeader(entry.getKey(), entry.getValue());
+    }
+    return librarySigner.sign(rcb.build(), headersBeingSigned).getHeaderValue();
+  }
+
+  @Test
+  public void testProducesTheSameSignatureAsTheLibrary() {
+    EwpHttpSigRequestSigner signer = new EwpHttpSigRequestSigner(keyPair);
+    Request request = createRequest();
+    signer.sign(request);
+
+    Request expected = new Request(request);
+    expected.removeHeader("Authorization");
+    assertThat(request.getHeader("Authorization"))
+        .isEqualTo(signWithLibrary(signer, expected, signer.getHeadersToSign(expected)));
+    Authorization authz = Authorization.parse(request.getHeader("Authorization"));
+    assertThat(authz.getKeyId()).isEqualTo(signer.getKeyId());
+    assertThat(authz.getHeaders()).contains("(request-target)", "date", "digest", "host");
+
+    // Signing again (with the reused state) gives the same result.
+    Request again = createRequest();
+    new EwpHttpSigRequestSigner(keyPair).sign(again);
+    assertThat(again.getHeader("Authorization")).isEqualTo(request.getHeader("Authorization"));
+  }
+
+  @Test
+  public void testCustomHeadersAndKeyIdAreRespected() {
+    EwpHttpSigRequestSigner signer = new EwpHttpSigRequestSigner(keyPair) {
+      @Override
+      public String getKeyId() {
+        return "custom";
+      }
+
+      @Override
+      protected List<String> getHeadersToSign(Request request) {
+        return Arrays.asList("Date", "date", "X-Request-Id");
+      }
+    };
+    Request request = createRequest();
+    signer.sign(request);
+    Authorization authz = Authorization.parse(request.getHeader("Authorization"));
+    assertThat(authz.getKeyId()).isEqualTo("custom");
+    assertThat(authz.getHeaders()).containsExactly("date", "x-request-id");
+
+    Request expected = new Request(request);
+    expected.removeHeader("Authorization");
+    assertThat(request.getHeader("Authorization"))
+        .isEqualTo(signWithLibrary(signer, expected, Arrays.asList("date", "x-request-id")));
+  }
+
+  @Test
+  public void testEmptyHeaderListSignsDate() {
+    assertThat(EwpHttpSigRequestSigner.getCanonicalHeaders(Arrays.asList())).containsExactly("date");
+  }
+
+  @Test
+  @Ignore("Microbenchmark, run it manually.")
+  public void testSigningMicrobenchmark() {
+    EwpHttpSigRequestSigner signer = new EwpHttpSigRequestSigner(keyPair);
+    Request request = createRequest();
+    signer.addMissingHeaders(request);
+    signer.includeDigestHeader(request);
+    List<String> headers = signer.getHeadersToSign(request);
+    final int iterations = 200;
+
+    // Warm up both paths first.
+    for (int i = 0; i < iterations; i++) {
+      signer.includeAuthorizationHeader(request);
+      request.removeHeader("Authorization");
+      signWithLibrary(signer, request, headers);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      signWithLibrary(signer, request, headers);
+    }
+    long library = System.nanoTime() - start;
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      signer.includeAuthorizationHeader(request);
+      request.removeHeader("Authorization");
+    }
+    long reused = System.nanoTime() - start;
+    logger.info("Signing {} requests took {} us with a fresh Signer, and {} us with reused state.",
+        iterations, library / 1000, reused / 1000);
+  }
+}
@@ -0,0 +1,89 @@
+package eu.erasmuswithoutpaper.registry.internet.sec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.internet.Request;
+import eu.erasmuswithoutpaper.registry.internet.Response;
+import eu.erasmuswithoutpaper.registry.validators.ValidatorKeyStore;
+import eu.erasmuswithoutpaper.rsaaes.EwpRsaAes128GcmEncoder;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EwpRsaAesDecoderCache}, and the decoders using it.
+ */
+public class EwpRsaAesDecoderCacheTest extends WRTest {
+
+  private static KeyPair firstKeyPair;
+  private static KeyPair secondKeyPair;
+  private static KeyPair unknownKeyPair;
+
+  @BeforeClass
+  public static void setUpClass() {
+    ValidatorKeyStore keyStore = new ValidatorKeyStore();
+    firstKeyPair = keyStore.generateKeyPair();
+    secondKeyPair = keyStore.generateKeyPair();
+    unknownKeyPair = keyStore.generateKeyPair();
+  }
+
+  private static byte[] encrypt(KeyPair recipient, String text) {
+    return new EwpRsaAes128GcmEncoder((RSAPublicKey) recipient.getPublic())
+        .encode(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testDecodersAreReused() {
+    assertThat(EwpRsaAesDecoderCache.getDecoder(firstKeyPair))
+        .isSameAs(EwpRsaAesDecoderCache.getDecoder(firstKeyPair))
+        .isNotSameAs(EwpRsaAesDecoderCache.getDecoder(secondKeyPair));
+  }
+
+  @Test
+  public void testResponseDecoderPicksTheRecipientKey() throws InvalidResponseError {
+    EwpRsaAesResponseDecoder decoder =
+        new EwpRsaAesResponseDecoder(Arrays.asList(firstKeyPair, secondKeyPair));
+    for (KeyPair recipient : Arrays.asList(secondKeyPair, firstKeyPair)) {
+      Response response = new Response(200, encrypt(recipient, "Hello"));
+      response.putHeader("Content-Encoding", "ewp-rsa-aes128gcm");
+      decoder.decode(response);
+      assertThat(new String(response.getBody(), StandardCharsets.UTF_8)).isEqualTo("Hello");
+    }
+
+    Response response = new Response(200, encrypt(unknownKeyPair, "Hello"));
+    response.putHeader("Content-Encoding", "ewp-rsa-aes128gcm");
+    try {
+      decoder.decode(response);
+      fail("Exception expected.");
+    } catch (InvalidResponseError e) {
+      assertThat(e).hasMessageContaining("Unknown recipient key");
+    }
+  }
+
+  @Test
+  public void testRequestDecoderPicksTheRecipientKey() throws Http4xx {
+    EwpRsaAesRequestDecoder decoder =
+        new EwpRsaAesRequestDecoder(Arrays.asList(firstKeyPair, secondKeyPair));
+    Request request = new Request("POST", "https://example.com/");
+    request.setBody(encrypt(secondKeyPair, "echo=1"));
+    request.putHeader("Content-Encoding", "ewp-rsa-aes128gcm");
+    decoder.decode(request);
+    assertThat(new String(request.getBodyOrEmpty(), StandardCharsets.UTF_8)).isEqualTo("echo=1");
+
+    request.setBody(new byte[] { 1, 2, 3 });
+    request.putHeader("Content-Encoding", "ewp-rsa-aes128gcm");
+    try {
+      decoder.decode(request);
+      fail("Exception expected.");
+    } catch (Http4xx e) {
+      assertThat(e.getStatusCode()).isEqualTo(400);
+    }
+  }
+}
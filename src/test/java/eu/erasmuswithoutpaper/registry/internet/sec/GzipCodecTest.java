@@ -0,0 +1,119 @@
+package eu.erasmuswithoutpaper.registry.internet.sec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.internet.Response;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+/**
+ * Tests for {@link GzipCodec}.
+ */
+public class GzipCodecTest extends WRTest {
+
+  private static byte[] gzipWithJdk(byte[] data) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(data);
+    }
+    return output.toByteArray();
+  }
+
+  private static byte[] randomData(int length) {
+    byte[] data = new byte[length];
+    new Random(length).nextBytes(data);
+    // Make it partially compressible.
+    Arrays.fill(data, length / 2, length, (byte) 'x');
+    return data;
+  }
+
+  @Test
+  public void testInteroperatesWithJdkStreams() throws Exception {
+    for (int length : new int[] { 0, 1, 1000, 100_000 }) {
+      byte[] data = randomData(length);
+      byte[] compressed = GzipCodec.compress(data);
+      assertThat(IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed))))
+          .isEqualTo(data);
+      assertThat(GzipCodec.decompress(gzipWithJdk(data), Integer.MAX_VALUE)).isEqualTo(data);
+    }
+  }
+
+  @Test
+  public void testHandlesOptionalHeaderFieldsAndMultipleMembers() throws Exception {
+    // Member with FNAME flag set ("a.txt") - as produced by the gzip command line tool.
+    byte[] first = gzipWithJdk("Hello, ".getBytes(StandardCharsets.UTF_8));
+    ByteArrayOutputStream named = new ByteArrayOutputStream();
+    named.write(first, 0, 3);
+    named.write(8);
+    named.write(first, 4, 6);
+    named.write("a.txt\0".getBytes(StandardCharsets.US_ASCII));
+    named.write(first, 10, first.length - 10);
+    named.write(gzipWithJdk("world!".getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(new String(GzipCodec.decompress(named.toByteArray(), 1000),
+        StandardCharsets.UTF_8)).isEqualTo("Hello, world!");
+  }
+
+  @Test
+  public void testRejectsGzipBombs() throws Exception {
+    byte[] bomb = gzipWithJdk(new byte[10 * 1024 * 1024]);
+    assertThat(bomb.length).isLessThan(20 * 1024);
+    try {
+      GzipCodec.decompress(bomb, 1024 * 1024);
+      fail("Exception expected.");
+    } catch (GzipCodec.GzipFormatException e) {
+      assertThat(e).hasMessageContaining("exceeds the limit");
+    }
+
+    Response response = new Response(200, bomb);
+    response.putHeader("Content-Encoding", "gzip");
+    try {
+      new GzipResponseDecoder(1024 * 1024).decode(response);
+      fail("Exception expected.");
+    } catch (InvalidResponseError e) {
+      assertThat(e).hasMessageContaining("exceeds the limit");
+    }
+  }
+
+  @Test
+  public void testRejectsInvalidData() throws Exception {
+    byte[] valid = gzipWithJdk("Hello".getBytes(StandardCharsets.UTF_8));
+    byte[] corrupted = valid.clone();
+    corrupted[corrupted.length - 8] ^= 1;
+    for (byte[] invalid : new byte[][] { "Hello".getBytes(StandardCharsets.UTF_8),
+        Arrays.copyOf(valid, valid.length - 4), corrupted }) {
+      try {
+        GzipCodec.decompress(invalid, 1000);
+        fail("Exception expected.");
+      } catch (GzipCodec.GzipFormatException e) {
+        // Expected.
+      }
+    }
+  }
+
+  @Test
+  public void testDeflatersAndInflatersAreReused() throws Exception {
+    byte[] data = randomData(10_000);
+    GzipCodec.decompress(GzipCodec.compress(data), Integer.MAX_VALUE);
+    long deflaters = GzipCodec.getDeflatersCreated();
+    long inflaters = GzipCodec.getInflatersCreated();
+    for (int i = 0; i < 100; i++) {
+      assertThat(GzipCodec.decompress(GzipCodec.compress(data), Integer.MAX_VALUE))
+          .isEqualTo(data);
+    }
+    assertThat(GzipCodec.getDeflatersCreated()).isEqualTo(deflaters);
+    assertThat(GzipCodec.getInflatersCreated()).isEqualTo(inflaters);
+  }
+}
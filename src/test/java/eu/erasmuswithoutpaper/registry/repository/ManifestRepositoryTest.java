@@ -102,6 +102,28 @@ public class ManifestRepositoryTest extends WRTest {
     assertThat(this.repo.getAllFilePaths()).contains(expectedCatalogueFileName);
   }
 
+  @Test
+  public void testCatalogueStorageFromBytes() throws CatalogueNotFound {
+    this.repo.deleteAll();
+    byte[] contents = "<catalogue>ąę</catalogue>".getBytes(StandardCharsets.UTF_8);
+    assertThat(this.repo.putCatalogue(contents)).isTrue();
+    long generation = this.repo.getCatalogueGeneration();
+    String catalogue = this.repo.getCatalogue();
+    assertThat(catalogue).isEqualTo("<catalogue>ąę</catalogue>");
+    // The decoded copy is cached, it's not read again.
+    assertThat(this.repo.getCatalogue()).isSameAs(catalogue);
+    // Putting the same contents again keeps the cached copy.
+    assertThat(this.repo.putCatalogue(contents.clone())).isFalse();
+    assertThat(this.repo.getCatalogue()).isSameAs(catalogue);
+    assertThat(this.repo.putCatalogue(new String(catalogue))).isFalse();
+    assertThat(this.repo.getCatalogue()).isSameAs(catalogue);
+    assertThat(this.repo.getCatalogueGeneration()).isEqualTo(generation);
+
+    assertThat(this.repo.putCatalogue("<catalogue/>")).isTrue();
+    assertThat(this.repo.getCatalogue()).isEqualTo("<catalogue/>");
+    assertThat(this.repo.getCatalogueGeneration()).isNotEqualTo(generation);
+  }
+
   /**
    * Test if {@link ManifestRepositoryImpl#deleteAll()} deletes all files, even if the "pairs" are
    * inconsistent.
@@ -110,7 +132,7 @@ public class ManifestRepositoryTest extends WRTest {
     this.repo.deleteAll();
     assertThat(this.repo.getAllFilePaths()).containsExactly("index.xml");
     this.repo.putOriginalManifest(manifestUrl1, "some string".getBytes(StandardCharsets.UTF_8));
-    this.repo.putFilteredManifest(manifestUrl2, "some string");
+    this.repo.putFilteredManifest(manifestUrl2, "some string".getBytes(StandardCharsets.UTF_8));
     assertThat(this.repo.getAllFilePaths()).containsExactlyInAnyOrder("index.xml",
         "manifests/com/example.com/51d9ca82ce863381a7648647ab688b966f3b2260-filtered.xml",
         "manifests/com/example.com/bb937788ce84767ff64935e70c3856bd8c7bd16d.xml");
@@ -143,7 +165,8 @@ public class ManifestRepositoryTest extends WRTest {
     // verify the manifests.
 
     this.repo.putOriginalManifest(manifestUrl1, "some string".getBytes(StandardCharsets.UTF_8));
-    this.repo.putFilteredManifest(manifestUrl1, "some filtered string");
+    this.repo.putFilteredManifest(manifestUrl1,
+        "some filtered string".getBytes(StandardCharsets.UTF_8));
     assertThat(this.repo.getAllFilteredManifestUrls()).containsExactly(manifestUrl1);
 
     // Retrieve the previously put manifest and validate its contents.
@@ -169,7 +192,8 @@ public class ManifestRepositoryTest extends WRTest {
     // ignore such calls silently.
 
     this.repo.putOriginalManifest(manifestUrl1, "some string".getBytes(StandardCharsets.UTF_8));
-    this.repo.putFilteredManifest(manifestUrl1, "some filtered string");
+    this.repo.putFilteredManifest(manifestUrl1,
+        "some filtered string".getBytes(StandardCharsets.UTF_8));
 
     // Delete the manifest from the repo.
 
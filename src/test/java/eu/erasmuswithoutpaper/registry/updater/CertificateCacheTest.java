@@ -0,0 +1,42 @@
+package eu.erasmuswithoutpaper.registry.updater;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.validators.ValidatorKeyStore;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CertificateCache}.
+ */
+public class CertificateCacheTest extends WRTest {
+
+  @Test
+  public void testCertificatesAreParsedOnce() throws CertificateException {
+    ValidatorKeyStore keyStore = new ValidatorKeyStore();
+    X509Certificate cert = keyStore.generateCertificate(keyStore.generateKeyPair());
+    String base64 = Base64.encodeBase64String(cert.getEncoded());
+
+    long misses = CertificateCache.getMissCount();
+    CertificateCache.ParsedCertificate first = CertificateCache.parse(base64);
+    // Formatting differences don't matter.
+    String wrapped = "\n  " + base64.substring(0, 40) + "\n  " + base64.substring(40) + "\n";
+    CertificateCache.ParsedCertificate second = CertificateCache.parse(wrapped);
+
+    assertThat(second).isSameAs(first);
+    assertThat(CertificateCache.getMissCount()).isEqualTo(misses + 1);
+    assertThat(first.getCertificate()).isEqualTo(cert);
+    assertThat(first.getFingerprint()).isEqualTo(DigestUtils.sha256Hex(cert.getEncoded()));
+  }
+
+  @Test(expected = CertificateException.class)
+  public void testInvalidCertificatesAreRejected() throws CertificateException {
+    CertificateCache.parse("AAAA");
+  }
+}
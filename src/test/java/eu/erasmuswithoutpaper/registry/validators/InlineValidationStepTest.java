@@ -0,0 +1,129 @@
+package eu.erasmuswithoutpaper.registry.validators;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.documentbuilder.EwpDocBuilder;
+import eu.erasmuswithoutpaper.registry.internet.Request;
+import eu.erasmuswithoutpaper.registry.internet.Response;
+import eu.erasmuswithoutpaper.registry.validators.HttpSecurityDescription.InvalidDescriptionString;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import org.junit.Test;
+
+/**
+ * Tests for the request and response snapshots of {@link InlineValidationStep}.
+ */
+public class InlineValidationStepTest extends WRTest {
+
+  @Autowired
+  private EwpDocBuilder docBuilder;
+
+  private static InlineValidationStep newStep() {
+    InlineValidationStep step = new InlineValidationStep() {
+      @Override
+      public String getName() {
+        return "Test step";
+      }
+
+      @Override
+      protected Optional<Response> innerRun() {
+        return Optional.empty();
+      }
+    };
+    step.setMaxSnapshotBodyBytes(100);
+    return step;
+  }
+
+  private static byte[] newBody(int length, char fill) {
+    byte[] body = new byte[length];
+    Arrays.fill(body, (byte) fill);
+    return body;
+  }
+
+  @Test
+  public void testSmallBodiesAreShared() {
+    InlineValidationStep step = newStep();
+    byte[] body = newBody(100, 'a');
+    Response response = new Response(200, body);
+    step.addResponseSnapshot(response);
+    step.addResponseSnapshot(response);
+    assertThat(step.getResponseSnapshots()).hasSize(1);
+    assertThat(step.getResponseSnapshots().get(0).getBody())
+        .isSameAs(response.getBody());
+    assertThat(step.getFullResponseBody(0)).isEmpty();
+
+    // Replacing the body of the original doesn't affect the snapshot.
+    response.setBody(newBody(10, 'b'));
+    step.addResponseSnapshot(response);
+    assertThat(step.getResponseSnapshots()).hasSize(2);
+    assertThat(step.getResponseSnapshots().get(0).getBody()).hasSize(100);
+  }
+
+  @Test
+  public void testLargeBodiesAreTruncated() {
+    InlineValidationStep step = newStep();
+    Request request = new Request("POST", "https://example.com/");
+    request.setBody(newBody(1000, 'a'));
+    step.addRequestSnapshot(request);
+    step.addRequestSnapshot(request);
+    assertThat(step.getRequestSnapshots()).hasSize(1);
+    Request snapshot = step.getRequestSnapshots().get(0);
+    assertThat(snapshot.getBody().get()).isEqualTo(newBody(100, 'a'));
+    assertThat(snapshot.getProcessingNoticesHtml()).containsExactly(
+        "The body has 1000 bytes. Only the first 100 bytes are shown here.");
+    assertThat(step.getFullRequestBody(0).get().getLength()).isEqualTo(1000);
+    assertThat(step.getFullRequestBody(0).get().getContent()).isEqualTo(newBody(1000, 'a'));
+
+    // Same beginning, different ending - not a duplicate.
+    byte[] changed = newBody(1000, 'a');
+    changed[999] = 'b';
+    request.setBody(changed);
+    step.addRequestSnapshot(request);
+    assertThat(step.getRequestSnapshots()).hasSize(2);
+    assertThat(step.getFullRequestBody(1).get().getContent()).isEqualTo(changed);
+
+    Response response = new Response(200, newBody(1000, 'x'));
+    step.addResponseSnapshot(response);
+    assertThat(step.getResponseSnapshots().get(0).getBody()).hasSize(100);
+    assertThat(step.getFullResponseBody(0).get().getContent()).isEqualTo(newBody(1000, 'x'));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> getFirstRequestSnapshot(Map<String, Object> context) {
+    List<Map<String, Object>> tests = (List<Map<String, Object>>) context.get("tests");
+    List<Object> snapshots = (List<Object>) tests.get(0).get("requestSnapshots");
+    return (Map<String, Object>) snapshots.get(0);
+  }
+
+  @Test
+  public void testFullBodyLinksShowTheirExpiry() throws InvalidDescriptionString {
+    InlineValidationStep step = newStep();
+    Request request = new Request("POST", "https://example.com/");
+    request.setBody(newBody(1000, 'a'));
+    step.addRequestSnapshot(request);
+    HtmlValidationReportFormatter.ValidationInfoParameters info =
+        new HtmlValidationReportFormatter.ValidationInfoParameters("echo", "https://example.com/",
+            "2.0.0", new HttpSecurityDescription("HTTT"), new Date(), null);
+
+    Map<String, Object> snapshot = getFirstRequestSnapshot(
+        new HtmlValidationReportFormatter(this.docBuilder, "https://registry/jobs/x/steps",
+            new Date()).getPebbleContext(Collections.singletonList(step), info));
+    assertThat(snapshot.get("fullBodyUrl"))
+        .isEqualTo("https://registry/jobs/x/steps/0/requests/0/body");
+    assertThat(snapshot.get("fullBodyExpires")).isNotNull();
+
+    // Reports which don't link to the full bodies don't mention their expiry either.
+    snapshot = getFirstRequestSnapshot(new HtmlValidationReportFormatter(this.docBuilder)
+        .getPebbleContext(Collections.singletonList(step), info));
+    assertThat(snapshot.get("fullBodyUrl")).isNull();
+    assertThat(snapshot.get("fullBodyExpires")).isNull();
+  }
+}
@@ -0,0 +1,154 @@
+package eu.erasmuswithoutpaper.registry.validators;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link RemoteCatalogueMatcherProvider}.
+ */
+public class RemoteCatalogueMatcherProviderTest extends WRTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger downloads = new AtomicInteger();
+  private volatile String etag = "\"v1\"";
+  private volatile String heiId = "first.example.com";
+  private HttpServer server;
+  private URL catalogueUrl;
+
+  @Before
+  public void setUp() throws IOException {
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    this.server.createContext("/catalogue-v1.xml", exchange -> {
+      this.requests.incrementAndGet();
+      if (this.etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        exchange.sendResponseHeaders(304, -1);
+        exchange.close();
+        return;
+      }
+      this.downloads.incrementAndGet();
+      byte[] body = ("<catalogue xmlns=\""
+          + KnownNamespace.RESPONSE_REGISTRY_V1.getNamespaceUri() + "\"><host><hei-id>"
+          + this.heiId + "</hei-id></host></catalogue>").getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().add("ETag", this.etag);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    });
+    this.server.start();
+    this.catalogueUrl = new URL(
+        "http://127.0.0.1:" + this.server.getAddress().getPort() + "/catalogue-v1.xml");
+  }
+
+  @After
+  public void tearDown() {
+    if (this.server != null) {
+      this.server.stop(0);
+    }
+  }
+
+  private String getHeiId(RemoteCatalogueMatcherProvider provider) {
+    return provider.getMatcher().xpath("/r:catalogue/r:host/r:hei-id").text();
+  }
+
+  @Test
+  public void testSnapshotIsReusedWithinMaxAge() throws IOException {
+    Path cache = this.temporaryFolder.newFolder().toPath();
+    RemoteCatalogueMatcherProvider provider =
+        new RemoteCatalogueMatcherProvider(this.catalogueUrl, cache, 60_000L);
+    assertThat(this.getHeiId(provider)).isEqualTo("first.example.com");
+    assertThat(this.getHeiId(provider)).isEqualTo("first.example.com");
+    assertThat(this.requests.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void testCatalogueIsRevalidatedAndCachedOnDisk() throws IOException {
+    Path cache = this.temporaryFolder.newFolder().toPath();
+    RemoteCatalogueMatcherProvider provider =
+        new RemoteCatalogueMatcherProvider(this.catalogueUrl, cache, 0L);
+    assertThat(this.getHeiId(provider)).isEqualTo("first.example.com");
+
+    // Not modified, so it shouldn't be downloaded again (not even by a new provider).
+    assertThat(this.getHeiId(provider)).isEqualTo("first.example.com");
+    RemoteCatalogueMatcherProvider next =
+        new RemoteCatalogueMatcherProvider(this.catalogueUrl, cache, 0L);
+    assertThat(this.getHeiId(next)).isEqualTo("first.example.com");
+    assertThat(this.requests.get()).isEqualTo(3);
+    assertThat(this.downloads.get()).isEqualTo(1);
+
+    // Modified.
+    this.etag = "\"v2\"";
+    this.heiId = "second.example.com";
+    assertThat(this.getHeiId(next)).isEqualTo("second.example.com");
+    assertThat(this.downloads.get()).isEqualTo(2);
+
+    // The registry is unreachable, the cached copy should be used.
+    this.server.stop(0);
+    this.server = null;
+    RemoteCatalogueMatcherProvider offline =
+        new RemoteCatalogueMatcherProvider(this.catalogueUrl, cache, 0L);
+    assertThat(this.getHeiId(offline)).isEqualTo("second.example.com");
+  }
+
+  @Test
+  public void testSharedCacheDirectoryIsNotTrusted() throws IOException {
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    Path cache = this.temporaryFolder.newFolder().toPath();
+    RemoteCatalogueMatcherProvider provider =
+        new RemoteCatalogueMatcherProvider(this.catalogueUrl, cache, 0L);
+    assertThat(this.getHeiId(provider)).isEqualTo("first.example.com");
+
+    // Anybody could have planted a catalogue here, so it must be neither read, nor updated.
+    Files.setPosixFilePermissions(cache, PosixFilePermissions.fromString("rwxrwxrwx"));
+    this.heiId = "second.example.com";
+    RemoteCatalogueMatcherProvider next =
+        new RemoteCatalogueMatcherProvider(this.catalogueUrl, cache, 0L);
+    assertThat(this.getHeiId(next)).isEqualTo("second.example.com");
+    assertThat(this.downloads.get()).isEqualTo(2);
+
+    this.server.stop(0);
+    this.server = null;
+    RemoteCatalogueMatcherProvider offline =
+        new RemoteCatalogueMatcherProvider(this.catalogueUrl, cache, 0L);
+    try {
+      offline.getMatcher();
+      fail("Exception expected");
+    } catch (RuntimeException e) {
+      assertThat(e.getCause()).isInstanceOf(IOException.class);
+    }
+  }
+
+  @Test
+  public void testMatchersDoNotShareDocuments() throws IOException {
+    Path cache = this.temporaryFolder.newFolder().toPath();
+    RemoteCatalogueMatcherProvider provider =
+        new RemoteCatalogueMatcherProvider(this.catalogueUrl, cache, 60_000L);
+    provider.getMatcher().xpath("/r:catalogue/r:host").remove();
+    assertThat(this.getHeiId(provider)).isEqualTo("first.example.com");
+  }
+}
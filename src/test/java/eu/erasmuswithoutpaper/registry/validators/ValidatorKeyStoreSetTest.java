@@ -0,0 +1,90 @@
+package eu.erasmuswithoutpaper.registry.validators;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.configuration.ConsoleEnvInfo;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link ValidatorKeyStoreSet}.
+ */
+public class ValidatorKeyStoreSetTest extends WRTest {
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static ValidatorKeyStoreSet newKeyStoreSet(Path path, int rotationDays) {
+    return new ValidatorKeyStoreSet(new ConsoleEnvInfo(true), "https://localhost:8080",
+        Collections.singletonList("hei.example.com"), path.toString(), "secret", rotationDays,
+        48);
+  }
+
+  private static void assertSameCredentials(ValidatorKeyStore actual,
+      ValidatorKeyStore expected) {
+    assertThat(actual.getClientRsaKeyPairInUse().getPrivate())
+        .isEqualTo(expected.getClientRsaKeyPairInUse().getPrivate());
+    assertThat(actual.getServerRsaPublicKeyInUse())
+        .isEqualTo(expected.getServerRsaPublicKeyInUse());
+    assertThat(actual.getTlsClientCertificateInUse())
+        .isEqualTo(expected.getTlsClientCertificateInUse());
+    assertThat(actual.getTlsKeyPairInUse().getPrivate())
+        .isEqualTo(expected.getTlsKeyPairInUse().getPrivate());
+    assertThat(actual.getUnregisteredKeyPair().getPublic())
+        .isEqualTo(expected.getUnregisteredKeyPair().getPublic());
+    // Dates are stored with the precision of seconds.
+    assertThat(actual.getCredentialsGenerationDate().getTime() / 1000)
+        .isEqualTo(expected.getCredentialsGenerationDate().getTime() / 1000);
+  }
+
+  @Test
+  public void testCredentialsAreReusedAfterRestart() throws Exception {
+    Path path = this.temporaryFolder.getRoot().toPath().resolve("keys.p12");
+    ValidatorKeyStoreSet first = newKeyStoreSet(path, 0);
+    assertThat(path).exists();
+
+    ValidatorKeyStoreSet second = newKeyStoreSet(path, 0);
+    assertSameCredentials(second.getMainKeyStore(), first.getMainKeyStore());
+    assertSameCredentials(second.getSecondaryKeyStore(), first.getSecondaryKeyStore());
+    assertThat(second.getMainKeyStore().getCoveredHeiIDs()).containsExactly("hei.example.com");
+  }
+
+  @Test
+  public void testCredentialsAreRotatedWithOverlap() throws Exception {
+    Path path = this.temporaryFolder.getRoot().toPath().resolve("keys.p12");
+    ValidatorKeyStoreSet keyStoreSet = newKeyStoreSet(path, 30);
+    ValidatorKeyStore original = keyStoreSet.getMainKeyStore();
+    long generated = original.getCredentialsGenerationDate().getTime();
+    long version = keyStoreSet.getKeysVersion();
+
+    // Not old enough yet.
+    keyStoreSet.rotateIfDue(generated + TimeUnit.DAYS.toMillis(29));
+    assertThat(keyStoreSet.getKeysVersion()).isEqualTo(version);
+    assertThat(keyStoreSet.getPublishedMainKeyStores()).containsExactly(original);
+
+    // New credentials are published, but not used yet. They survive a restart.
+    keyStoreSet.rotateIfDue(generated + TimeUnit.DAYS.toMillis(30));
+    assertThat(keyStoreSet.getKeysVersion()).isGreaterThan(version);
+    assertThat(keyStoreSet.getMainKeyStore()).isSameAs(original);
+    assertThat(keyStoreSet.getPublishedMainKeyStores()).hasSize(2);
+    assertThat(keyStoreSet.getPublishedSecondaryKeyStores()).hasSize(2);
+    ValidatorKeyStore next = keyStoreSet.getPublishedMainKeyStores().get(1);
+    assertThat(newKeyStoreSet(path, 30).getPublishedMainKeyStores()).hasSize(2);
+
+    // After the overlap period, new credentials replace the current ones.
+    long nextGenerated = next.getCredentialsGenerationDate().getTime();
+    keyStoreSet.rotateIfDue(nextGenerated + TimeUnit.HOURS.toMillis(47));
+    assertThat(keyStoreSet.getMainKeyStore()).isSameAs(original);
+    keyStoreSet.rotateIfDue(nextGenerated + TimeUnit.HOURS.toMillis(48));
+    assertThat(keyStoreSet.getMainKeyStore()).isSameAs(next);
+    assertThat(keyStoreSet.getPublishedMainKeyStores()).containsExactly(next);
+    assertSameCredentials(newKeyStoreSet(path, 30).getMainKeyStore(), next);
+  }
+}
@@ -3,13 +3,25 @@ package eu.erasmuswithoutpaper.registry.validators.echovalidator;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.security.KeyPair;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import eu.erasmuswithoutpaper.registry.internet.FakeInternetService;
 import eu.erasmuswithoutpaper.registry.internet.sec.EwpHttpSigResponseSigner;
 import eu.erasmuswithoutpaper.registry.validators.AbstractApiTest;
+import eu.erasmuswithoutpaper.registry.validators.ApiEndpoint;
 import eu.erasmuswithoutpaper.registry.validators.ApiValidator;
+import eu.erasmuswithoutpaper.registry.validators.ApiValidatorsManager;
+import eu.erasmuswithoutpaper.registry.validators.CombinationExecutor;
 import eu.erasmuswithoutpaper.registry.validators.HttpSecurityDescription;
 import eu.erasmuswithoutpaper.registry.validators.SemanticVersion;
+import eu.erasmuswithoutpaper.registry.validators.TestValidationReport;
+import eu.erasmuswithoutpaper.registry.validators.ValidationJob;
+import eu.erasmuswithoutpaper.registry.validators.ValidationJobManager;
+import eu.erasmuswithoutpaper.registry.validators.ValidationParameters;
+import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import org.apache.commons.codec.digest.DigestUtils;
@@ -30,6 +42,12 @@ public class EchoValidatorTest extends AbstractApiTest {
   private static final String echoUrlMMMM = "https://university.example.com/echo/MMMM/";
   @Autowired
   private EchoValidator validator;
+  @Autowired
+  private CombinationExecutor combinationExecutor;
+  @Autowired
+  private ValidationJobManager validationJobManager;
+  @Autowired
+  private ApiValidatorsManager apiValidatorsManager;
 
   @Override
   protected String getManifestFilename() {
@@ -329,6 +347,169 @@ public class EchoValidatorTest extends AbstractApiTest {
     }
   }
 
+  @Test
+  public void testParallelCombinationsProduceTheSameReport() {
+    try {
+      FakeInternetService service;
+
+      service = new ServiceMMMMValid(echoUrlMMMM, this.client, Lists.newArrayList(myKeyPair));
+      this.internet.addFakeInternetService(service);
+      String sequential =
+          this.getValidatorReport(echoUrlMMMM, new SemanticVersion(2, 0, 0), null);
+      this.combinationExecutor.setMaxConcurrencyPerTarget(4);
+      String parallel = this.getValidatorReport(echoUrlMMMM, new SemanticVersion(2, 0, 0), null);
+      assertThat(parallel).isEqualTo(sequential);
+      assertThat(parallel).doesNotContain("FAILURE");
+      this.internet.removeFakeInternetService(service);
+
+      service = new ServiceMMTTInvalid1(echoUrlMMTT, this.client, myKeyPair);
+      this.internet.addFakeInternetService(service);
+      parallel = this.getValidatorReport(echoUrlMMTT, new SemanticVersion(2, 0, 0), null);
+      this.combinationExecutor.setMaxConcurrencyPerTarget(1);
+      sequential = this.getValidatorReport(echoUrlMMTT, new SemanticVersion(2, 0, 0), null);
+      assertThat(parallel).isEqualTo(sequential);
+      assertThat(parallel).contains("FAILURE");
+      this.internet.removeFakeInternetService(service);
+
+    } finally {
+      this.combinationExecutor.setMaxConcurrencyPerTarget(1);
+      this.internet.clearAll();
+    }
+  }
+
+  @Test
+  public void testValidationJob() throws InterruptedException {
+    try {
+      FakeInternetService service;
+
+      service = new ServiceMMMMValid(echoUrlMMMM, this.client, Lists.newArrayList(myKeyPair));
+      this.internet.addFakeInternetService(service);
+      String expected = this.getValidatorReport(echoUrlMMMM, new SemanticVersion(2, 0, 0), null);
+
+      // Steps are reported in the same order as they are returned.
+      List<ValidationStepWithStatus> reported = new ArrayList<>();
+      List<ValidationStepWithStatus> returned = this.validator.runTests(echoUrlMMMM,
+          new SemanticVersion(2, 0, 0), null, new ValidationParameters(), reported::add);
+      assertThat(reported).isEqualTo(returned);
+
+      ValidationJob job = this.validationJobManager.submit("echo", ApiEndpoint.NoEndpoint,
+          echoUrlMMMM, new SemanticVersion(2, 0, 0), null, new ValidationParameters());
+      assertThat(this.validationJobManager.getJob(job.getId())).contains(job);
+      for (int i = 0; i < 600 && !job.isDone(); i++) {
+        Thread.sleep(100);
+      }
+      assertThat(job.getState()).isEqualTo(ValidationJob.State.FINISHED);
+      assertThat(job.getStartedDate()).isPresent();
+      List<ValidationStepWithStatus> steps = job.getSteps(0);
+      assertThat(new TestValidationReport(steps, false).toString()).isEqualTo(expected);
+      assertThat(job.getSteps(2)).isEqualTo(steps.subList(2, steps.size()));
+      assertThat(job.getSteps(steps.size())).isEmpty();
+      this.internet.removeFakeInternetService(service);
+
+    } finally {
+      this.internet.clearAll();
+    }
+  }
+
+  @Test
+  public void testCrashedValidationJobsAreNotReused() throws InterruptedException {
+    try {
+      FakeInternetService service = request -> {
+        if (request.getUrl().startsWith(echoUrlMMMM)) {
+          throw new StackOverflowError("Simulated crash");
+        }
+        return null;
+      };
+      this.internet.addFakeInternetService(service);
+      ValidationJob job1 = this.validationJobManager.submit("echo", ApiEndpoint.NoEndpoint,
+          echoUrlMMMM, new SemanticVersion(2, 0, 0), null, new ValidationParameters());
+      assertThat(job1.awaitDone(1, TimeUnit.MINUTES)).isTrue();
+      assertThat(job1.getState()).isEqualTo(ValidationJob.State.FAILED);
+      assertThat(job1.getErrorMessage().get()).contains("Simulated crash");
+
+      ValidationJob job2 = this.validationJobManager.submit("echo", ApiEndpoint.NoEndpoint,
+          echoUrlMMMM, new SemanticVersion(2, 0, 0), null, new ValidationParameters());
+      assertThat(job2).isNotSameAs(job1);
+      assertThat(job2.awaitDone(1, TimeUnit.MINUTES)).isTrue();
+      this.internet.removeFakeInternetService(service);
+
+    } finally {
+      this.internet.clearAll();
+    }
+  }
+
+  @Test
+  public void testStuckValidationJobsAreCancelled() throws InterruptedException {
+    // Every running job is stuck, because the maximum runtime is zero.
+    ValidationJobManager manager =
+        new ValidationJobManager(this.apiValidatorsManager, 1, 1, 30, 120, 0);
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    try {
+      FakeInternetService service = request -> {
+        if (request.getUrl().startsWith(echoUrlMMMM)) {
+          started.countDown();
+          try {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+          } catch (InterruptedException e) {
+            interrupted.countDown();
+            Thread.currentThread().interrupt();
+          }
+        }
+        return null;
+      };
+      this.internet.addFakeInternetService(service);
+      ValidationJob job = manager.submit("echo", ApiEndpoint.NoEndpoint, echoUrlMMMM,
+          new SemanticVersion(2, 0, 0), null, new ValidationParameters());
+      assertThat(started.await(1, TimeUnit.MINUTES)).isTrue();
+      Thread.sleep(10);
+
+      assertThat(manager.getJob(job.getId())).isEmpty();
+      assertThat(interrupted.await(1, TimeUnit.MINUTES)).isTrue();
+      assertThat(job.getState()).isEqualTo(ValidationJob.State.FAILED);
+      assertThat(job.getErrorMessage().get()).contains("cancelled");
+      this.internet.removeFakeInternetService(service);
+
+    } finally {
+      this.internet.clearAll();
+    }
+  }
+
+  @Test
+  public void testIdenticalValidationJobsAreReused() throws InterruptedException {
+    try {
+      FakeInternetService service;
+
+      service = new ServiceMMMMValid(echoUrlMMMM, this.client, Lists.newArrayList(myKeyPair));
+      this.internet.addFakeInternetService(service);
+      ValidationParameters parameters = new ValidationParameters();
+      parameters.put("some-parameter", "value");
+      ValidationJob job1 = this.validationJobManager.submit("echo", ApiEndpoint.NoEndpoint,
+          echoUrlMMMM, new SemanticVersion(2, 0, 0), null, parameters);
+      ValidationParameters sameParameters = new ValidationParameters();
+      sameParameters.put("some-parameter", "value");
+      ValidationJob job2 = this.validationJobManager.submit("echo", ApiEndpoint.NoEndpoint,
+          echoUrlMMMM, new SemanticVersion(2, 0, 0), null, sameParameters);
+      assertThat(job2).isSameAs(job1);
+
+      // Finished jobs are reused too.
+      assertThat(job1.awaitDone(1, TimeUnit.MINUTES)).isTrue();
+      job2 = this.validationJobManager.submit("echo", ApiEndpoint.NoEndpoint,
+          echoUrlMMMM, new SemanticVersion(2, 0, 0), null, sameParameters);
+      assertThat(job2).isSameAs(job1);
+
+      // But only if they are identical.
+      job2 = this.validationJobManager.submit("echo", ApiEndpoint.NoEndpoint,
+          echoUrlMMMM, new SemanticVersion(2, 0, 0), null, new ValidationParameters());
+      assertThat(job2).isNotSameAs(job1);
+      assertThat(job2.awaitDone(1, TimeUnit.MINUTES)).isTrue();
+      this.internet.removeFakeInternetService(service);
+
+    } finally {
+      this.internet.clearAll();
+    }
+  }
+
   @Test
   public void testAgainstServiceMMTTInvalid1() {
     try {
@@ -0,0 +1,100 @@
+package eu.erasmuswithoutpaper.registry.validators.githubtags;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.internet.FakeInternet;
+import eu.erasmuswithoutpaper.registry.validators.SemanticVersion;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tests for {@link GitHubTagsGetterProd}.
+ */
+public class GitHubTagsGetterProdTest extends WRTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(GitHubTagsGetterProdTest.class);
+  private static final String URL =
+      "https://api.github.com/repos/erasmus-without-paper/ewp-specs-api-echo/tags";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static List<String> names(List<SemanticVersion> versions) {
+    return versions.stream().map(SemanticVersion::toString).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testTagsAreCached() throws IOException {
+    FakeInternet internet = new FakeInternet();
+    internet.putURL(URL, "[{\"name\": \"v1.0.0\"}, {\"name\": \"v2.0.0\"}]");
+    GitHubTagsGetterProd getter =
+        new GitHubTagsGetterProd(60_000L, this.temporaryFolder.newFolder().toPath());
+    assertThat(names(getter.getTags("echo", internet, logger))).containsExactly("1.0.0", "2.0.0");
+
+    internet.clearURLs();
+    assertThat(names(getter.getTags("echo", internet, logger))).containsExactly("1.0.0", "2.0.0");
+  }
+
+  @Test
+  public void testExpiredTagsAreRefreshedInBackground() throws IOException, InterruptedException {
+    FakeInternet internet = new FakeInternet();
+    internet.putURL(URL, "[{\"name\": \"v1.0.0\"}]");
+    GitHubTagsGetterProd getter =
+        new GitHubTagsGetterProd(0L, this.temporaryFolder.newFolder().toPath());
+    assertThat(names(getter.getTags("echo", internet, logger))).containsExactly("1.0.0");
+
+    internet.putURL(URL, "[{\"name\": \"v1.1.0\"}]");
+    for (int i = 0; i < 100; i++) {
+      if (names(getter.getTags("echo", internet, logger)).contains("1.1.0")) {
+        return;
+      }
+      Thread.sleep(50);
+    }
+    throw new AssertionError("Tags haven't been refreshed.");
+  }
+
+  @Test
+  public void testLastKnownTagsAreUsedAfterRestart() throws IOException {
+    Path cacheDirectory = this.temporaryFolder.newFolder().toPath();
+    FakeInternet internet = new FakeInternet();
+    internet.putURL(URL, "[{\"name\": \"v1.0.0\"}]");
+    new GitHubTagsGetterProd(60_000L, cacheDirectory).getTags("echo", internet, logger);
+
+    // GitHub is not available anymore.
+    internet.clearURLs();
+    GitHubTagsGetterProd restarted = new GitHubTagsGetterProd(60_000L, cacheDirectory);
+    assertThat(names(restarted.getTags("echo", internet, logger))).containsExactly("1.0.0");
+    GitHubTagsGetterProd empty =
+        new GitHubTagsGetterProd(60_000L, this.temporaryFolder.newFolder().toPath());
+    assertThat(empty.getTags("echo", internet, logger)).isEmpty();
+  }
+
+  @Test
+  public void testSharedCacheDirectoryIsNotTrusted() throws IOException {
+    assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+    Path cacheDirectory = this.temporaryFolder.newFolder().toPath();
+    FakeInternet internet = new FakeInternet();
+    internet.putURL(URL, "[{\"name\": \"v1.0.0\"}]");
+    new GitHubTagsGetterProd(60_000L, cacheDirectory).getTags("echo", internet, logger);
+
+    // Anybody could have planted the tags here.
+    Files.setPosixFilePermissions(cacheDirectory, PosixFilePermissions.fromString("rwxrwxrwx"));
+    internet.clearURLs();
+    GitHubTagsGetterProd restarted = new GitHubTagsGetterProd(60_000L, cacheDirectory);
+    assertThat(restarted.getTags("echo", internet, logger)).isEmpty();
+  }
+}
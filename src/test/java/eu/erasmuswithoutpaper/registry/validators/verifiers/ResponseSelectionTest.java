@@ -0,0 +1,88 @@
+package eu.erasmuswithoutpaper.registry.validators.verifiers;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.joox.JOOX.$;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.validators.InlineValidationStep;
+import eu.erasmuswithoutpaper.registry.validators.ValidationStepWithStatus.Status;
+
+import org.joox.Match;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Tests for {@link ResponseSelection}, and the verifiers using it.
+ */
+public class ResponseSelectionTest extends WRTest {
+
+  private static final String NS = "urn:test";
+
+  private static final List<String> IDS = Arrays.asList("ounit", "ounit-id");
+  private static final List<String> CODES = Arrays.asList("ounit", "ounit-code");
+
+  private ResponseSelection selection;
+
+  @Before
+  public void setUp() throws Exception {
+    String xml = "<r:response xmlns:r='" + NS + "' xmlns:o='urn:other'>"
+        + "<r:ounit><r:ounit-id>1</r:ounit-id><r:ounit-code>A</r:ounit-code></r:ounit>"
+        + "<o:ounit><r:ounit-id>ignored</r:ounit-id></o:ounit>"
+        + "<r:ounit><r:ounit-id>2</r:ounit-id><o:ounit-id>ignored</o:ounit-id>"
+        + "<r:ounit-id>3</r:ounit-id></r:ounit>"
+        + "<r:other><r:ounit><r:ounit-id>nested</r:ounit-id></r:ounit></r:other>"
+        + "</r:response>";
+    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    factory.setNamespaceAware(true);
+    Document doc = factory.newDocumentBuilder()
+        .parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    Match root = $(doc);
+    this.selection = new ResponseSelection(root, NS);
+  }
+
+  @Test
+  public void testSelectsInDocumentOrder() {
+    this.selection.prefetch(Arrays.asList(IDS, CODES, Collections.singletonList("ounit")));
+    assertThat(this.selection.selectTexts(IDS)).containsExactly("1", "2", "3");
+    assertThat(this.selection.selectTexts(CODES)).containsExactly("A");
+    assertThat(this.selection.select(Collections.singletonList("ounit"))).hasSize(2);
+    assertThat(this.selection.select(Arrays.asList("ounit", "missing"))).isEmpty();
+    assertThat(this.selection.selectTexts(Arrays.asList("ounit[2]", "ounit-id[2]")))
+        .containsExactly("3");
+    // Selected elements are shared.
+    assertThat(this.selection.selectTexts(IDS)).isSameAs(this.selection.selectTexts(IDS));
+    assertThat(this.selection.select(IDS)).isSameAs(this.selection.select(IDS));
+  }
+
+  @Test
+  public void testVerifiersShareSelection() throws InlineValidationStep.Failure {
+    VerifierFactory ids = new VerifierFactory(IDS);
+    VerifierFactory codes = new VerifierFactory(CODES);
+    for (Verifier verifier : Arrays.asList(
+        ids.expectResponseToContainExactly(Arrays.asList("3", "2", "1")),
+        ids.expectResponseToNotContain("nested"),
+        codes.expectResponseToBeNotEmpty())) {
+      verifier.performVerificaion(null, this.selection, null, Status.FAILURE);
+      assertThat(verifier.getVerificationResult()).isTrue();
+    }
+
+    Verifier failing = codes.expectResponseToContain(Arrays.asList("B"));
+    try {
+      failing.performVerificaion(null, this.selection, null, Status.FAILURE);
+      fail("Failure expected");
+    } catch (InlineValidationStep.Failure e) {
+      assertThat(e.getMessage()).contains("<ounit-code>[B]</ounit-code>");
+    }
+    assertThat(failing.getVerificationResult()).isFalse();
+  }
+}
@@ -0,0 +1,267 @@
+package eu.erasmuswithoutpaper.registry.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+
+import eu.erasmuswithoutpaper.registry.WRTest;
+import eu.erasmuswithoutpaper.registry.documentbuilder.KnownNamespace;
+import eu.erasmuswithoutpaper.registry.internet.Request;
+import eu.erasmuswithoutpaper.registry.internet.sec.EwpClientWithCertificate;
+import eu.erasmuswithoutpaper.registry.internet.sec.EwpClientWithRsaKey;
+import eu.erasmuswithoutpaper.registry.internet.sec.EwpHttpSigRequestSigner;
+import eu.erasmuswithoutpaper.registry.validators.ValidatorKeyStore;
+import eu.erasmuswithoutpaper.registry.web.EwpSecurityFilter.Step;
+import eu.erasmuswithoutpaper.registryclient.RegistryClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests for {@link EwpSecurityFilter}.
+ */
+public class EwpSecurityFilterTest extends WRTest {
+
+  private static final long MAX_BODY_BYTES = 1024;
+
+  private static KeyPair clientKeyPair;
+  private static KeyPair otherKeyPair;
+  private static X509Certificate clientCertificate;
+
+  @Autowired
+  private RegistryClient registryClient;
+
+  @BeforeClass
+  public static void setUpClass() {
+    ValidatorKeyStore keyStore = new ValidatorKeyStore();
+    clientKeyPair = keyStore.generateKeyPair();
+    otherKeyPair = keyStore.generateKeyPair();
+    clientCertificate = keyStore.generateCertificate(keyStore.generateKeyPair());
+  }
+
+  private static String createCatalogue(KeyPair keyPair, X509Certificate cert) {
+    String keyFingerprint = DigestUtils.sha256Hex(keyPair.getPublic().getEncoded());
+    String certFingerprint;
+    try {
+      certFingerprint = DigestUtils.sha256Hex(cert.getEncoded());
+    } catch (CertificateEncodingException e) {
+      throw new RuntimeException(e);
+    }
+    return "<catalogue xmlns='" + KnownNamespace.RESPONSE_REGISTRY_V1.getNamespaceUri() + "'>"
+        + "<host><institutions-covered><hei-id>uw.edu.pl</hei-id></institutions-covered>"
+        + "<client-credentials-in-use>"
+        + "<certificate sha-256='" + certFingerprint + "'/>"
+        + "<rsa-public-key sha-256='" + keyFingerprint + "'/>"
+        + "</client-credentials-in-use></host>"
+        + "<binaries><rsa-public-key sha-256='" + keyFingerprint + "'>"
+        + Base64.encodeBase64String(keyPair.getPublic().getEncoded())
+        + "</rsa-public-key></binaries></catalogue>";
+  }
+
+  private static MockHttpServletRequest toServletRequest(Request request) {
+    MockHttpServletRequest result = new MockHttpServletRequest(request.getMethod(), "/echo");
+    result.setScheme("https");
+    result.setServerName("example.com");
+    result.setServerPort(443);
+    result.setSecure(true);
+    for (Map.Entry<String, String> entry : request.getHeaders().entrySet()) {
+      result.addHeader(entry.getKey(), entry.getValue());
+    }
+    if (request.getHeader("Content-Type") != null) {
+      result.setContentType(request.getHeader("Content-Type"));
+    }
+    result.setContent(request.getBodyOrEmpty());
+    return result;
+  }
+
+  private static MockHttpServletRequest newSignedRequest(KeyPair keyPair) {
+    Request request = new Request("POST", "https://example.com/echo");
+    request.putHeader("Content-Type", "application/x-www-form-urlencoded");
+    request.setBodyAndContentLength("echo=abc&echo=def".getBytes(StandardCharsets.UTF_8));
+    new EwpHttpSigRequestSigner(keyPair).sign(request);
+    return toServletRequest(request);
+  }
+
+  private EwpSecurityFilter newFilter(boolean allowAnonymous) {
+    String catalogue = createCatalogue(clientKeyPair, clientCertificate);
+    return new EwpSecurityFilter(() -> 0L, () -> catalogue, this.registryClient, allowAnonymous,
+        MAX_BODY_BYTES);
+  }
+
+  @Test
+  public void testAuthorizesHttpSigClients() throws IOException, ServletException {
+    EwpSecurityFilter filter = this.newFilter(false);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+    filter.doFilter(newSignedRequest(clientKeyPair), response, chain);
+
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(chain.getRequest()).isNotNull();
+    assertThat(chain.getRequest().getAttribute(EwpSecurityFilter.CLIENT_ATTRIBUTE))
+        .isInstanceOf(EwpClientWithRsaKey.class);
+    assertThat((Iterable<?>) chain.getRequest()
+        .getAttribute(EwpSecurityFilter.COVERED_HEIS_ATTRIBUTE)).containsExactly("uw.edu.pl");
+    // The body has been consumed by the filter, but it's still available to the controllers.
+    assertThat(chain.getRequest().getParameterValues("echo")).containsExactly("abc", "def");
+    assertThat(filter.getCounters().get(Step.HTTPSIG_AUTHORIZED)).isEqualTo(1);
+    assertThat(filter.getCounters().get(Step.DIRECTORY_REBUILDS)).isEqualTo(1);
+  }
+
+  @Test
+  public void testRejectsUnknownKeys() throws IOException, ServletException {
+    EwpSecurityFilter filter = this.newFilter(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+    filter.doFilter(newSignedRequest(otherKeyPair), response, chain);
+
+    assertThat(response.getStatus()).isEqualTo(403);
+    assertThat(response.getContentAsString()).contains("Unknown client key");
+    assertThat(chain.getRequest()).isNull();
+    assertThat(filter.getCounters().get(Step.UNKNOWN_CREDENTIALS)).isEqualTo(1);
+    assertThat(filter.getCounters().get(Step.REJECTED)).isEqualTo(1);
+  }
+
+  @Test
+  public void testAuthorizesCertificateClients() throws IOException, ServletException {
+    EwpSecurityFilter filter = this.newFilter(false);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/echo");
+    request.setAttribute("javax.servlet.request.X509Certificate",
+        new X509Certificate[] { clientCertificate });
+    MockFilterChain chain = new MockFilterChain();
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+    assertThat(chain.getRequest().getAttribute(EwpSecurityFilter.CLIENT_ATTRIBUTE))
+        .isInstanceOf(EwpClientWithCertificate.class);
+    assertThat(filter.getCounters().get(Step.CERTIFICATE_AUTHORIZED)).isEqualTo(1);
+  }
+
+  @Test
+  public void testAnonymousRequests() throws IOException, ServletException {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/manifest.xml");
+
+    EwpSecurityFilter allowing = this.newFilter(true);
+    MockFilterChain chain = new MockFilterChain();
+    allowing.doFilter(request, new MockHttpServletResponse(), chain);
+    assertThat(chain.getRequest()).isNotNull();
+    assertThat(chain.getRequest().getAttribute(EwpSecurityFilter.CLIENT_ATTRIBUTE)).isNull();
+    assertThat(allowing.getCounters().get(Step.ANONYMOUS)).isEqualTo(1);
+
+    EwpSecurityFilter rejecting = this.newFilter(false);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    chain = new MockFilterChain();
+    rejecting.doFilter(new MockHttpServletRequest("GET", "/manifest.xml"), response, chain);
+    assertThat(chain.getRequest()).isNull();
+    assertThat(response.getStatus()).isEqualTo(401);
+    assertThat(response.getHeader("WWW-Authenticate")).isEqualTo("Signature realm=\"EWP\"");
+  }
+
+  @Test
+  public void testDirectoryIsRebuiltWhenCatalogueChanges() throws IOException, ServletException {
+    AtomicReference<String> catalogue =
+        new AtomicReference<>(createCatalogue(otherKeyPair, clientCertificate));
+    AtomicLong generation = new AtomicLong();
+    EwpSecurityFilter filter = new EwpSecurityFilter(generation::get, catalogue::get,
+        this.registryClient, false, MAX_BODY_BYTES);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(newSignedRequest(clientKeyPair), response, new MockFilterChain());
+    assertThat(response.getStatus()).isEqualTo(403);
+    assertThat(filter.getDirectory()).isSameAs(filter.getDirectory());
+    assertThat(filter.getCounters().get(Step.DIRECTORY_REBUILDS)).isEqualTo(1);
+
+    // The catalogue is not even read until its generation changes.
+    catalogue.set(createCatalogue(clientKeyPair, clientCertificate));
+    assertThat(filter.getDirectory().findClientKey(
+        DigestUtils.sha256Hex(clientKeyPair.getPublic().getEncoded()))).isNull();
+    assertThat(filter.getCounters().get(Step.DIRECTORY_REBUILDS)).isEqualTo(1);
+
+    generation.incrementAndGet();
+    response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+    filter.doFilter(newSignedRequest(clientKeyPair), response, chain);
+    assertThat(chain.getRequest()).isNotNull();
+    assertThat(filter.getCounters().get(Step.DIRECTORY_REBUILDS)).isEqualTo(2);
+    assertThat(filter.getDirectory().findClientKey(
+        DigestUtils.sha256Hex(otherKeyPair.getPublic().getEncoded()))).isNull();
+  }
+
+  @Test
+  public void testRejectsTooLargeBodies() throws IOException, ServletException {
+    EwpSecurityFilter filter = this.newFilter(true);
+    MockHttpServletRequest request = new MockHttpServletRequest("POST", "/echo");
+    request.setContent(new byte[(int) MAX_BODY_BYTES + 1]);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    MockFilterChain chain = new MockFilterChain();
+    filter.doFilter(request, response, chain);
+    assertThat(response.getStatus()).isEqualTo(413);
+    assertThat(chain.getRequest()).isNull();
+
+    // The limit is also enforced when the body's length is not declared.
+    request = new MockHttpServletRequest("POST", "/echo") {
+      @Override
+      public long getContentLengthLong() {
+        return -1;
+      }
+    };
+    request.setContent(new byte[(int) MAX_BODY_BYTES * 10]);
+    response = new MockHttpServletResponse();
+    chain = new MockFilterChain();
+    filter.doFilter(request, response, chain);
+    assertThat(response.getStatus()).isEqualTo(413);
+    assertThat(chain.getRequest()).isNull();
+    assertThat(filter.getCounters().get(Step.REJECTED)).isEqualTo(2);
+
+    request = new MockHttpServletRequest("POST", "/echo");
+    request.setContent(new byte[(int) MAX_BODY_BYTES]);
+    chain = new MockFilterChain();
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+    assertThat(chain.getRequest()).isNotNull();
+  }
+
+  @Test
+  public void testReadListenerIsNotifiedImmediately() throws IOException, ServletException {
+    MockFilterChain chain = new MockFilterChain();
+    this.newFilter(true).doFilter(newSignedRequest(clientKeyPair), new MockHttpServletResponse(),
+        chain);
+    ServletInputStream stream = chain.getRequest().getInputStream();
+    List<String> events = new ArrayList<>();
+    stream.setReadListener(new ReadListener() {
+      @Override
+      public void onAllDataRead() {
+        events.add("onAllDataRead");
+      }
+
+      @Override
+      public void onDataAvailable() throws IOException {
+        events.add("onDataAvailable");
+        while (stream.isReady() && !stream.isFinished()) {
+          stream.read();
+        }
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        events.add("onError");
+      }
+    });
+    assertThat(events).containsExactly("onDataAvailable", "onAllDataRead");
+    assertThat(stream.isFinished()).isTrue();
+  }
+}
@@ -2,13 +2,21 @@ package eu.erasmuswithoutpaper.registry.web;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.IOException;
+
 import eu.erasmuswithoutpaper.registry.WRIntegrationTest;
+import eu.erasmuswithoutpaper.registry.internet.HostCircuitBreaker;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.junit.Test;
 
 
@@ -17,6 +25,9 @@ public class UiControllerIntegrationTest extends WRIntegrationTest {
   @Autowired
   private TestRestTemplate template;
 
+  @Autowired
+  private HostCircuitBreaker circuitBreaker;
+
   @Test
   public void testCss() {
     ResponseEntity<String> response =
@@ -33,4 +44,82 @@ public class UiControllerIntegrationTest extends WRIntegrationTest {
     assertThat(response.getBody()).contains("Registry Service");
   }
 
+  @Test
+  public void testStatusPageShowsFailingHosts() {
+    ResponseEntity<String> response =
+        this.template.getForEntity(this.baseURL + "/status", String.class);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getBody()).doesNotContain("Unresponsive Hosts");
+
+    String url = "https://unresponsive.example.com/manifest.xml";
+    for (int i = 0; i < 5; i++) {
+      this.circuitBreaker.onFailure(url, new IOException("Connection timed out"));
+    }
+    try {
+      response = this.template.getForEntity(this.baseURL + "/status", String.class);
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(response.getBody()).contains("Unresponsive Hosts");
+      assertThat(response.getBody()).contains("unresponsive.example.com:443");
+      assertThat(response.getBody()).contains("OPEN");
+      assertThat(response.getBody()).contains("Connection timed out");
+    } finally {
+      this.circuitBreaker.onSuccess(url);
+    }
+  }
+
+  @Test
+  public void testStatusPageShowsAuthorizationCounters() {
+    ResponseEntity<String> response =
+        this.template.getForEntity(this.baseURL + "/status", String.class);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getBody()).contains("Request Authorization");
+    assertThat(response.getBody()).contains("DIRECTORY_REBUILDS");
+  }
+
+  @Test
+  public void testValidateApiReturnsJobImmediately() throws InterruptedException {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    String request = "{\"url\": \"https://university.example.com/no-such-echo\", "
+        + "\"name\": \"echo\", \"version\": \"2.0.0\", \"security\": \"HTTT\", "
+        + "\"parameters\": []}";
+    ResponseEntity<String> response = this.template.postForEntity(this.baseURL + "/validateApi",
+        new HttpEntity<>(request, headers), String.class);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.ACCEPTED);
+    String jobId =
+        new JsonParser().parse(response.getBody()).getAsJsonObject().get("jobId").getAsString();
+
+    // This is what the validation page does.
+    JsonObject job;
+    int since = 0;
+    for (int i = 0;; i++) {
+      response = this.template.getForEntity(
+          this.baseURL + "/validateApi/jobs/" + jobId + "?since=" + since, String.class);
+      assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+      job = new JsonParser().parse(response.getBody()).getAsJsonObject();
+      since = job.get("stepCount").getAsInt();
+      if (job.get("done").getAsBoolean() || i == 600) {
+        break;
+      }
+      Thread.sleep(100);
+    }
+    assertThat(job.get("done").getAsBoolean()).isTrue();
+    assertThat(since).isGreaterThan(0);
+
+    response = this.template
+        .getForEntity(this.baseURL + "/validateApi/jobs/" + jobId + "/result", String.class);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getBody()).contains("https://university.example.com/no-such-echo");
+  }
+
+  @Test
+  public void testUnknownValidationJob() {
+    ResponseEntity<String> response = this.template
+        .getForEntity(this.baseURL + "/validateApi/jobs/no-such-job?since=3", String.class);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    response = this.template
+        .getForEntity(this.baseURL + "/validateApi/jobs/no-such-job/result", String.class);
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+  }
+
 }
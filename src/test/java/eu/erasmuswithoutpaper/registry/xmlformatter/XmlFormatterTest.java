@@ -3,7 +3,9 @@ package eu.erasmuswithoutpaper.registry.xmlformatter;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 
 import javax.xml.parsers.DocumentBuilder;
@@ -12,7 +14,11 @@ import eu.erasmuswithoutpaper.registry.WRTest;
 import eu.erasmuswithoutpaper.registry.common.Utils;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 
+import org.apache.commons.io.IOUtils;
+import org.jdom2.input.DOMBuilder;
 import org.junit.Test;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
@@ -47,18 +53,81 @@ public class XmlFormatterTest extends WRTest {
         this.getFileAsString("formatter-tests/A-output.xml"));
   }
 
+  /**
+   * Make sure that DOM documents are formatted exactly the same way as their JDOM counterparts
+   * (which was how they were formatted before).
+   */
+  @Test
+  public void testSameAsJdom() {
+    this.chkSameAsJdom(this.getFileAsString("formatter-tests/A-input.xml"));
+    this.chkSameAsJdom("<a xmlns='urn:a' xmlns:b='urn:b' b:x='1' y='&lt;&amp;&gt;&quot;'>"
+        + "  text <b:b>bold</b:b> more\ttext <![CDATA[ <raw> ]]><!-- comment -->\n"
+        + "  <?pi data?><c xmlns='urn:c' xmlns:z='urn:z'><z:d/></c> \uD83D\uDE00 </a>");
+    this.chkSameAsJdom("<?top pi?><!-- top --><root>\n  <x attr='a\nb'/>"
+        + "<y>  </y>\n</root>");
+  }
+
+  /**
+   * Same as {@link #testSameAsJdom()}, but for all the XML files in our resources.
+   */
+  @Test
+  public void testSameAsJdomForAllResources() throws IOException {
+    PathMatchingResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
+    int compared = 0;
+    for (String pattern : new String[] { "classpath*:*.xml", "classpath*:schemas/**/*.xsd",
+        "classpath*:test-files/**/*.xml" }) {
+      for (Resource resource : resolver.getResources(pattern)) {
+        byte[] xml;
+        try (InputStream stream = resource.getInputStream()) {
+          xml = IOUtils.toByteArray(stream);
+        }
+        Document doc;
+        try {
+          doc = Utils.newSecureDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        } catch (SAXException e) {
+          // Some of the files are invalid on purpose.
+          continue;
+        }
+        String expected = this.xmlFormatter.format(new DOMBuilder().build(doc));
+        assertThat(this.xmlFormatter.format(doc)).as("%s", resource).isEqualTo(expected);
+        assertThat(this.xmlFormatter.formatToBytes(doc)).as("%s", resource)
+            .isEqualTo(expected.getBytes(StandardCharsets.UTF_8));
+        compared++;
+      }
+    }
+    assertThat(compared).isGreaterThan(200);
+  }
+
   /**
    * Check if, for given input, the formatter gives an expected output.
    */
   private void chk(String input, String expectedOutput) {
+    Document doc = this.parse(input);
+    String formatted = this.xmlFormatter.format(doc);
+    assertThat(formatted).isEqualTo(expectedOutput);
+    assertThat(this.xmlFormatter.formatToBytes(doc))
+        .isEqualTo(expectedOutput.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private void chkSameAsJdom(String input) {
+    Document doc = this.parse(input);
+    String expected = this.xmlFormatter.format(new DOMBuilder().build(doc));
+    assertThat(this.xmlFormatter.format(doc)).isEqualTo(expected);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      this.xmlFormatter.format(doc, out);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    assertThat(out.toByteArray()).isEqualTo(expected.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private Document parse(String input) {
     DocumentBuilder docbuilder = Utils.newSecureDocumentBuilder();
-    Document doc;
     try {
-      doc = docbuilder.parse(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+      return docbuilder.parse(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
     } catch (SAXException | IOException e) {
       throw new RuntimeException(e);
     }
-    String formatted = this.xmlFormatter.format(doc);
-    assertThat(formatted).isEqualTo(expectedOutput);
   }
 }